@@ -0,0 +1,296 @@
+package local.demo.benchmarks.buffer;
+
+import local.demo.thread_delay.ChunkPool;
+import local.demo.thread_delay.ChunkQueue;
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelayedEntry;
+import local.demo.thread_delay.Msg;
+import local.demo.thread_delay.dynamicRingBuffer.DynamicRingBuffer;
+import local.demo.thread_delay.offheap.PayloadArena;
+import local.demo.thread_delay.ringBuffer.FixedRingBuffer;
+import local.demo.thread_delay.ringBuffer.MpscRingBuffer;
+import local.demo.thread_delay.ringBuffer.PendingQueue;
+import local.demo.thread_delay.ringBuffer.SpscRingBuffer;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Giao diện chung cho các buffer đem so sánh. Mọi buffer đều bị chặn ở {@code capacity}
+ * để producer nhanh hơn consumer không làm benchmark hết heap: ring cố định chặn sẵn,
+ * buffer không giới hạn thì kiểm tra size trước khi offer.
+ */
+interface BenchBuffer extends AutoCloseable {
+
+    /**
+     * @return false nếu buffer đầy
+     */
+    boolean offer(byte[] payload);
+
+    /**
+     * Lấy một phần tử (hoặc một batch với {@link PendingQueue}) đưa vào blackhole.
+     *
+     * @return số phần tử đã lấy, 0 nếu rỗng
+     */
+    int poll(Blackhole bh);
+
+    @Override
+    default void close() {
+    }
+
+    enum Kind {
+        FIXED(Integer.MAX_VALUE, Integer.MAX_VALUE),
+        DYNAMIC(Integer.MAX_VALUE, Integer.MAX_VALUE),
+        CLQ(Integer.MAX_VALUE, Integer.MAX_VALUE),
+        CHUNK(1, 1),
+        SPSC(1, 1),
+        MPSC(Integer.MAX_VALUE, 1),
+        PENDING_HEAP(1, 1),
+        PENDING_OFFHEAP(1, 1);
+
+        final int maxProducers;
+        final int maxConsumers;
+
+        Kind(int maxProducers, int maxConsumers) {
+            this.maxProducers = maxProducers;
+            this.maxConsumers = maxConsumers;
+        }
+
+        static Kind of(String name) {
+            return switch (name) {
+                case "fixed" -> FIXED;
+                case "dynamic" -> DYNAMIC;
+                case "clq" -> CLQ;
+                case "chunk" -> CHUNK;
+                case "spsc" -> SPSC;
+                case "mpsc" -> MPSC;
+                case "pending-heap" -> PENDING_HEAP;
+                case "pending-offheap" -> PENDING_OFFHEAP;
+                default -> throw new IllegalArgumentException("Unknown buffer: " + name);
+            };
+        }
+
+        /**
+         * @param capacity power of two
+         * @param initialCapacity capacity ban đầu của buffer tự nới (dynamic), càng nhỏ càng nhiều lần resize
+         */
+        BenchBuffer create(int capacity, int initialCapacity) {
+            return switch (this) {
+                case FIXED -> new Fixed(capacity);
+                case DYNAMIC -> new Dynamic(initialCapacity, capacity);
+                case CLQ -> new Clq(capacity);
+                case CHUNK -> new Chunk(capacity);
+                case SPSC -> new Spsc(capacity);
+                case MPSC -> new Mpsc(capacity);
+                case PENDING_HEAP -> new Pending(capacity, null);
+                case PENDING_OFFHEAP -> new Pending(capacity, new PayloadArena(4 << 20, 4));
+            };
+        }
+
+        boolean supports(int producers, int consumers) {
+            return producers <= maxProducers && consumers <= maxConsumers;
+        }
+
+        void checkThreads(int producers, int consumers) {
+            if (!supports(producers, consumers)) {
+                throw new IllegalStateException(this + " supports at most " + maxProducers
+                        + " producer(s) and " + maxConsumers + " consumer(s), got " + producers + "/" + consumers);
+            }
+        }
+    }
+
+    final class Fixed implements BenchBuffer {
+        private final FixedRingBuffer<byte[]> ring;
+
+        Fixed(int capacity) {
+            this.ring = new FixedRingBuffer<>(capacity);
+        }
+
+        @Override
+        public boolean offer(byte[] payload) {
+            return ring.offer(payload);
+        }
+
+        @Override
+        public int poll(Blackhole bh) {
+            byte[] value = ring.poll();
+            if (value == null) return 0;
+            bh.consume(value);
+            return 1;
+        }
+    }
+
+    final class Dynamic implements BenchBuffer {
+        private final DynamicRingBuffer<byte[]> ring;
+        private final int capacity;
+
+        Dynamic(int initialCapacity, int capacity) {
+            this.ring = new DynamicRingBuffer<>(initialCapacity, capacity);
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(byte[] payload) {
+            // kiểm tra trước để buffer đầy không log mỗi lần; offer() mới là kết quả chính xác
+            // khi nhiều producer cùng qua được lần kiểm tra này
+            if (ring.size() >= capacity) return false;
+            return ring.offer(payload);
+        }
+
+        @Override
+        public int poll(Blackhole bh) {
+            byte[] value = ring.poll();
+            if (value == null) return 0;
+            bh.consume(value);
+            return 1;
+        }
+    }
+
+    /**
+     * size() của deque là O(n) nên giới hạn bằng một counter riêng, chi phí đó tính luôn vào kết quả.
+     */
+    final class Clq implements BenchBuffer {
+        private final ConcurrentLinkedDeque<byte[]> deque = new ConcurrentLinkedDeque<>();
+        private final AtomicLong size = new AtomicLong();
+        private final int capacity;
+
+        Clq(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(byte[] payload) {
+            if (size.get() >= capacity) return false;
+            size.incrementAndGet();
+            deque.addLast(payload);
+            return true;
+        }
+
+        @Override
+        public int poll(Blackhole bh) {
+            byte[] value = deque.pollFirst();
+            if (value == null) return 0;
+            size.decrementAndGet();
+            bh.consume(value);
+            return 1;
+        }
+    }
+
+    final class Chunk implements BenchBuffer {
+        private final ChunkQueue queue = new ChunkQueue(new ChunkPool(1024, 1024));
+        private final int capacity;
+
+        Chunk(int capacity) {
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(byte[] payload) {
+            if (queue.size() >= capacity) return false;
+            queue.add(payload);
+            return true;
+        }
+
+        @Override
+        public int poll(Blackhole bh) {
+            Msg msg = queue.poll();
+            if (msg == null) return 0;
+            bh.consume(msg);
+            return 1;
+        }
+    }
+
+    final class Spsc implements BenchBuffer {
+        private final SpscRingBuffer<byte[]> ring;
+
+        Spsc(int capacity) {
+            this.ring = new SpscRingBuffer<>(capacity);
+        }
+
+        @Override
+        public boolean offer(byte[] payload) {
+            return ring.offer(payload);
+        }
+
+        @Override
+        public int poll(Blackhole bh) {
+            byte[] value = ring.poll();
+            if (value == null) return 0;
+            bh.consume(value);
+            return 1;
+        }
+    }
+
+    final class Mpsc implements BenchBuffer {
+        private final MpscRingBuffer<byte[]> ring;
+
+        Mpsc(int capacity) {
+            this.ring = new MpscRingBuffer<>(capacity);
+        }
+
+        @Override
+        public boolean offer(byte[] payload) {
+            return ring.offer(payload);
+        }
+
+        @Override
+        public int poll(Blackhole bh) {
+            byte[] value = ring.poll();
+            if (value == null) return 0;
+            bh.consume(value);
+            return 1;
+        }
+    }
+
+    /**
+     * Pending queue của adapter với delay 0: offer copy payload như {@code pushHistory},
+     * poll release mọi entry đã tới hạn. Timer được submit vào scheduler rỗng.
+     */
+    final class Pending implements BenchBuffer {
+        private static final DelayScheduler NO_TIMERS = new DelayScheduler() {
+            @Override
+            public void submit(String symbol, long delayMs) {
+            }
+
+            @Override
+            public void submit(DelayedEntry entry) {
+            }
+
+            @Override
+            public long pending() {
+                return 0;
+            }
+        };
+
+        private final PendingQueue queue;
+        private final PayloadArena arena;
+        private final int capacity;
+        private Blackhole sink;
+        private final PendingQueue.Sink consume = (symbolId, payload) -> sink.consume(payload);
+
+        Pending(int capacity, PayloadArena arena) {
+            this.queue = new PendingQueue(0, "SYM0", NO_TIMERS, arena);
+            this.arena = arena;
+            this.capacity = capacity;
+        }
+
+        @Override
+        public boolean offer(byte[] payload) {
+            if (queue.size() >= capacity) return false;
+            queue.append(payload, 0, payload.length, 0);
+            return true;
+        }
+
+        @Override
+        public int poll(Blackhole bh) {
+            sink = bh;
+            return queue.release(System.nanoTime(), consume);
+        }
+
+        @Override
+        public void close() {
+            if (arena != null) arena.close();
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package local.demo.benchmarks.buffer;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Burst rồi drain trên một thread: đẩy {@code burst} phần tử liền một lúc rồi lấy ra hết.
+ * Đây là kiểu tải làm {@code DynamicRingBuffer} nới rồi thu liên tục (bắt đầu từ 16 slot)
+ * và làm {@code ChunkQueue} mượn/trả chunk, nên so được chi phí resize giữa các buffer.
+ * <p>
+ * Score là thời gian cho cả một burst; chạy với {@code -prof gc} để xem byte cấp phát mỗi burst.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx2g"})
+@State(Scope.Thread)
+public class BufferBurstBenchmark {
+
+    private static final int CAPACITY = 1 << 16;
+
+    @Param({"fixed", "dynamic", "clq", "chunk", "spsc", "mpsc", "pending-heap", "pending-offheap"})
+    String buffer;
+
+    @Param({"64", "256", "1024", "4096"})
+    int payloadSize;
+
+    @Param({"100", "5000", "50000"})
+    int burst;
+
+    BenchBuffer queue;
+    byte[][] payloads;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        queue = BenchBuffer.Kind.of(buffer).create(CAPACITY, 16);
+        payloads = new byte[1024][payloadSize];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.close();
+    }
+
+    @Benchmark
+    public int burstThenDrain(Blackhole bh) {
+        for (int i = 0; i < burst; i++) {
+            if (!queue.offer(payloads[i & 1023])) {
+                throw new IllegalStateException(buffer + " rejected element " + i + " of burst " + burst);
+            }
+        }
+        int drained = 0;
+        while (drained < burst) {
+            drained += queue.poll(bh);
+        }
+        return drained;
+    }
+}
@@ -0,0 +1,171 @@
+package local.demo.benchmarks.buffer;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.Blackhole;
+
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Producer và consumer chạy song song trên cùng một buffer.
+ * <p>
+ * Chạy qua {@link #main} để đo đủ các cấu hình producer/consumer {@link #THREADS} (N,N và N,1), mỗi cấu
+ * hình chỉ với các buffer hỗ trợ nó (chunk/spsc/pending: 1,1, mpsc: N,1), ví dụ
+ * {@code java -cp target/benchmarks.jar local.demo.benchmarks.buffer.BufferThroughputBenchmark -prof gc};
+ * {@code --threads=4x4,8x1} chọn cấu hình, các tham số khác chuyển nguyên cho JMH.
+ * Qua {@code java -jar target/benchmarks.jar BufferThroughput} chỉ chạy 1,1 (đổi bằng {@code -tg}),
+ * buffer không hỗ trợ cấu hình thread đó báo lỗi ở setup.
+ * <p>
+ * Score của offer/poll tính cả lần gọi thất bại (buffer đầy/rỗng); số phần tử thật sự
+ * đi qua buffer nằm ở counter {@code offered}/{@code polled}. Với {@code -bm sample}
+ * JMH cho percentile độ trễ từng lần offer/poll.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx2g"})
+@State(Scope.Group)
+public class BufferThroughputBenchmark {
+
+    /**
+     * Cấu hình {producers, consumers} mặc định của {@link #main}.
+     */
+    static final int[][] THREADS = {{1, 1}, {2, 2}, {4, 4}, {8, 8}, {2, 1}, {4, 1}, {8, 1}};
+
+    @Param({"fixed", "dynamic", "clq", "chunk", "spsc", "mpsc", "pending-heap", "pending-offheap"})
+    String buffer;
+
+    @Param({"64", "256", "1024", "4096"})
+    int payloadSize;
+
+    @Param({"16384"})
+    int capacity;
+
+    BenchBuffer queue;
+
+    @Setup(Level.Trial)
+    public void setUp(BenchmarkParams params) {
+        BenchBuffer.Kind kind = BenchBuffer.Kind.of(buffer);
+        int[] groups = params.getThreadGroups();
+        kind.checkThreads(groups[0], groups[1]);
+        // dynamic bắt đầu nhỏ để đo cả chi phí nới ring lúc đầu
+        queue = kind.create(capacity, 16);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        queue.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Payloads {
+        private static final int COUNT = 1024;
+        byte[][] payloads;
+        int next;
+
+        @Setup(Level.Trial)
+        public void setUp(BufferThroughputBenchmark benchmark) {
+            // payload cấp phát sẵn: -prof gc chỉ thấy phần cấp phát của chính buffer
+            payloads = new byte[COUNT][benchmark.payloadSize];
+        }
+
+        byte[] next() {
+            return payloads[next++ & (COUNT - 1)];
+        }
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class OfferCounters {
+        public long offered;
+        public long full;
+    }
+
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    @State(Scope.Thread)
+    public static class PollCounters {
+        public long polled;
+        public long empty;
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(1)
+    public boolean offer(Payloads payloads, OfferCounters counters) {
+        boolean ok = queue.offer(payloads.next());
+        if (ok) {
+            counters.offered++;
+        } else {
+            counters.full++;
+        }
+        return ok;
+    }
+
+    @Benchmark
+    @Group("offerPoll")
+    @GroupThreads(1)
+    public int poll(Blackhole bh, PollCounters counters) {
+        int n = queue.poll(bh);
+        if (n > 0) {
+            counters.polled += n;
+        } else {
+            counters.empty++;
+        }
+        return n;
+    }
+
+    public static void main(String[] args) throws CommandLineOptionException, RunnerException {
+        int[][] threads = THREADS;
+        List<String> jmhArgs = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Arrays.stream(arg.substring("--threads=".length()).split(","))
+                        .map(config -> Arrays.stream(config.trim().split("x")).mapToInt(Integer::parseInt).toArray())
+                        .toArray(int[][]::new);
+            } else {
+                jmhArgs.add(arg);
+            }
+        }
+        CommandLineOptions options = new CommandLineOptions(jmhArgs.toArray(String[]::new));
+        Collection<String> buffers = options.getParameter("buffer").orElse(List.of(
+                "fixed", "dynamic", "clq", "chunk", "spsc", "mpsc", "pending-heap", "pending-offheap"));
+        for (int[] config : threads) {
+            String[] supported = buffers.stream()
+                    .filter(name -> BenchBuffer.Kind.of(name).supports(config[0], config[1]))
+                    .toArray(String[]::new);
+            if (supported.length == 0) continue;
+            new Runner(new OptionsBuilder()
+                    .parent(options)
+                    .include(BufferThroughputBenchmark.class.getName() + ".offerPoll")
+                    .threadGroups(config[0], config[1])
+                    .param("buffer", supported)
+                    .build()).run();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+package local.demo.benchmarks.scheduler;
+
+import com.sun.management.OperatingSystemMXBean;
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelayedEntry;
+import local.demo.zmq_common.latency.LatencyHistogram;
+import local.demo.zmq_common.latency.LatencyRecorder;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Chạy tải thật qua {@link DelayScheduler#submit(DelayedEntry)} để đo những thứ JMH không đo được:
+ * <ol>
+ *     <li>load: submit đều {@code rate} entry/s, rải vòng tròn trên {@code symbols} symbol, trong
+ *     {@code duration-s} giây với delay {@code delay-ms}; đo chi phí submit và jitter = lúc handler
+ *     chạy trừ deadline (nanoTime)</li>
+ *     <li>memory: thêm {@code pending} entry delay 1 giờ rải đều trên các symbol, heap chênh lệch
+ *     sau GC chia cho số entry (cần đủ nhiều entry để vượt nhiễu của stack virtual thread...)</li>
+ *     <li>idle: không submit gì thêm trong {@code idle-s} giây, CPU process tiêu tốn khi chỉ có entry
+ *     chưa tới hạn (DelayQueue poll mỗi giây, wheel tick...)</li>
+ * </ol>
+ * Ví dụ (registry 100k symbol cần heap vài GB): {@code java --enable-preview -Xmx4g -cp target/benchmarks.jar
+ * local.demo.benchmarks.scheduler.SchedulerLoadHarness --scheduler=registry,wheel --symbols=1000,10000,100000
+ * --rate=50000 --delay-ms=1000 --pending=1000000}.
+ * Scheduler khác: {@code --scheduler=com.example.MyStrategy} (xem {@link SchedulerStrategy}).
+ */
+public final class SchedulerLoadHarness {
+
+    private static final long PENDING_DELAY_MS = TimeUnit.HOURS.toMillis(1);
+
+    private final long rate;
+    private final long delayMs;
+    private final long durationNanos;
+    private final long pendingEntries;
+    private final long idleNanos;
+    private final OperatingSystemMXBean os =
+            (OperatingSystemMXBean) ManagementFactory.getOperatingSystemMXBean();
+
+    private SchedulerLoadHarness(Map<String, String> args) {
+        this.rate = Long.parseLong(args.getOrDefault("rate", "50000"));
+        this.delayMs = Long.parseLong(args.getOrDefault("delay-ms", "1000"));
+        this.durationNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(args.getOrDefault("duration-s", "10")));
+        this.pendingEntries = Long.parseLong(args.getOrDefault("pending", "1000000"));
+        this.idleNanos = TimeUnit.SECONDS.toNanos(Long.parseLong(args.getOrDefault("idle-s", "5")));
+        if (rate <= 0 || delayMs < 0 || pendingEntries < 0) {
+            throw new IllegalArgumentException("need rate > 0, delay-ms >= 0, pending >= 0");
+        }
+    }
+
+    public static void main(String[] argv) throws InterruptedException {
+        Map<String, String> args = new HashMap<>();
+        for (String arg : argv) {
+            int eq = arg.indexOf('=');
+            if (!arg.startsWith("--") || eq < 0) {
+                throw new IllegalArgumentException("Expected --key=value, got: " + arg);
+            }
+            args.put(arg.substring(2, eq), arg.substring(eq + 1));
+        }
+        SchedulerLoadHarness harness = new SchedulerLoadHarness(args);
+        System.out.printf(Locale.ROOT, "baseline idle cpu=%.2f%% of one core%n", harness.idleCpuPercent());
+        for (String scheduler : args.getOrDefault("scheduler", "registry,wheel").split(",")) {
+            for (String symbols : args.getOrDefault("symbols", "1000,10000,100000").split(",")) {
+                harness.run(scheduler.trim(), Integer.parseInt(symbols.trim()));
+            }
+        }
+    }
+
+    private void run(String name, int symbols) throws InterruptedException {
+        String[] names = new String[symbols];
+        for (int i = 0; i < symbols; i++) {
+            names[i] = "SYM" + i;
+        }
+        // handler của registry chạy trên một virtual thread mỗi symbol: recorder dùng số histogram cố định
+        // nên không cộng thêm bộ nhớ theo số symbol vào phép đo bytes/entry
+        LatencyRecorder jitter = new LatencyRecorder("release-jitter");
+        LatencyRecorder submitCost = new LatencyRecorder("submit", 1); // chỉ thread main submit
+        LongAdder released = new LongAdder();
+
+        try (SchedulerStrategy strategy = SchedulerStrategy.of(name)) {
+            DelayScheduler scheduler = strategy.create(symbols, entry -> {
+                if (entry instanceof TimedEntry timed) {
+                    jitter.record(System.nanoTime() - timed.deadlineNanos);
+                    released.increment();
+                }
+            });
+
+            // 1. load
+            long start = System.nanoTime();
+            long submitted = 0;
+            for (long end = start + durationNanos; ; submitted++) {
+                long due = start + submitted * 1_000_000_000L / rate;
+                if (due >= end) break;
+                pace(due);
+                int id = (int) (submitted % symbols);
+                long t0 = System.nanoTime();
+                scheduler.submit(new TimedEntry(id, names[id], delayMs));
+                submitCost.record(System.nanoTime() - t0);
+            }
+            double achieved = submitted * 1e9 / (System.nanoTime() - start);
+            long drainDeadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs) + TimeUnit.SECONDS.toNanos(10);
+            while (released.sum() < submitted && System.nanoTime() < drainDeadline) {
+                Thread.sleep(10);
+            }
+
+            // 2. memory / pending
+            long heapBefore = usedHeapAfterGc();
+            for (long n = 0; n < pendingEntries; n++) {
+                int id = (int) (n % symbols);
+                scheduler.submit(new DelayedEntry(id, names[id], PENDING_DELAY_MS));
+            }
+            long heapAfter = usedHeapAfterGc();
+
+            // 3. idle
+            double idleCpu = idleCpuPercent();
+
+            LatencyHistogram j = jitter.snapshot();
+            LatencyHistogram s = submitCost.snapshot();
+            System.out.printf(Locale.ROOT,
+                    "%-10s symbols=%-7d submitted=%d (%.0f/s of %d/s) released=%d%n"
+                            + "    submit us: p50=%.2f p99=%.2f p99.9=%.2f max=%.2f%n"
+                            + "    jitter ms: p50=%.3f p99=%.3f p99.9=%.3f max=%.3f%n"
+                            + "    pending=%d bytes/entry=%.1f idle cpu=%.2f%% of one core%n",
+                    name, symbols, submitted, achieved, rate, released.sum(),
+                    s.percentile(50) / 1e3, s.percentile(99) / 1e3, s.percentile(99.9) / 1e3, s.max() / 1e3,
+                    j.percentile(50) / 1e6, j.percentile(99) / 1e6, j.percentile(99.9) / 1e6, j.max() / 1e6,
+                    scheduler.pending(), pendingEntries == 0 ? 0.0 : (double) (heapAfter - heapBefore) / pendingEntries,
+                    idleCpu);
+        }
+    }
+
+    private static void pace(long due) {
+        long wait;
+        while ((wait = due - System.nanoTime()) > 0) {
+            if (wait > 100_000) {
+                LockSupport.parkNanos(wait - 50_000);
+            } else {
+                Thread.onSpinWait();
+            }
+        }
+    }
+
+    private double idleCpuPercent() throws InterruptedException {
+        long cpu0 = os.getProcessCpuTime();
+        long t0 = System.nanoTime();
+        TimeUnit.NANOSECONDS.sleep(idleNanos);
+        return (os.getProcessCpuTime() - cpu0) * 100.0 / (System.nanoTime() - t0);
+    }
+
+    /**
+     * GC tới khi heap đã dùng ổn định (hai lần đo lệch dưới 256KB), tối đa 10 lần.
+     */
+    private static long usedHeapAfterGc() throws InterruptedException {
+        long previous = Long.MAX_VALUE;
+        long used = 0;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(100);
+            used = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            if (Math.abs(used - previous) < 256 * 1024) {
+                break;
+            }
+            previous = used;
+        }
+        return used;
+    }
+
+    /**
+     * Entry mang deadline theo nanoTime để đo jitter chính xác hơn expireAt (ms).
+     */
+    private static final class TimedEntry extends DelayedEntry {
+        final long deadlineNanos;
+
+        TimedEntry(int symbolId, String key, long delayMs) {
+            super(symbolId, key, delayMs);
+            this.deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package local.demo.benchmarks.scheduler;
+
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelayWorkersRegistry;
+import local.demo.thread_delay.DelayedEntry;
+import local.demo.thread_delay.timingWheel.TimingWheelEngine;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Cách dựng một {@link DelayScheduler} để đem đo. Benchmark chỉ đi qua {@code submit}/{@code pending}
+ * nên scheduler mới chỉ cần một strategy là so được ngay với scheduler hiện tại.
+ * <p>
+ * Tên có sẵn: {@code registry} (mỗi symbol một DelayQueue + virtual thread) và {@code wheel}
+ * (timing wheel chia shard). Tên khác được hiểu là tên class implement interface này,
+ * có constructor public không tham số.
+ */
+public interface SchedulerStrategy extends AutoCloseable {
+
+    /**
+     * @param maxSymbols số symbol tối đa benchmark sẽ dùng (id 0..maxSymbols-1)
+     */
+    DelayScheduler create(int maxSymbols, Consumer<DelayedEntry> handler);
+
+    /**
+     * Dừng mọi thread strategy đã tạo.
+     */
+    @Override
+    void close();
+
+    static SchedulerStrategy of(String name) {
+        return switch (name) {
+            case "registry" -> new Registry();
+            case "wheel" -> new Wheel(Runtime.getRuntime().availableProcessors(), 1);
+            default -> {
+                try {
+                    yield (SchedulerStrategy) Class.forName(name).getDeclaredConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("Unknown scheduler: " + name, e);
+                }
+            }
+        };
+    }
+
+    /**
+     * Giống {@code delay.scheduler=registry}: idle timeout 30s như adapter.
+     */
+    final class Registry implements SchedulerStrategy {
+        private final List<DelayScheduler> created = new ArrayList<>();
+
+        @Override
+        public DelayScheduler create(int maxSymbols, Consumer<DelayedEntry> handler) {
+            DelayScheduler scheduler = new DelayWorkersRegistry(30_000, maxSymbols, handler);
+            created.add(scheduler);
+            return scheduler;
+        }
+
+        @Override
+        public void close() {
+            created.forEach(DelayScheduler::close);
+            created.clear();
+        }
+    }
+
+    /**
+     * Giống {@code delay.scheduler=wheel}: mọi scheduler dùng chung một engine.
+     */
+    final class Wheel implements SchedulerStrategy {
+        private final int shards;
+        private final long tickMs;
+        private TimingWheelEngine engine;
+
+        Wheel(int shards, long tickMs) {
+            this.shards = shards;
+            this.tickMs = tickMs;
+        }
+
+        @Override
+        public DelayScheduler create(int maxSymbols, Consumer<DelayedEntry> handler) {
+            if (engine == null) {
+                engine = new TimingWheelEngine(shards, tickMs);
+            }
+            return engine.newScheduler(handler);
+        }
+
+        @Override
+        public void close() {
+            if (engine != null) {
+                engine.shutdown();
+                engine = null;
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package local.demo.benchmarks.scheduler;
+
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelayedEntry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Chi phí một lần {@code submit} khi scheduler đã có sẵn worker/slot cho mọi symbol.
+ * Delay ngắn để số entry pending không phình theo thời gian chạy; handler không làm gì.
+ * Nhiều thread submit: {@code -t 4}. Jitter, CPU lúc rảnh và bộ nhớ mỗi entry đo bằng
+ * {@link SchedulerLoadHarness}.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"--enable-preview", "-Xmx4g"})
+@State(Scope.Benchmark)
+public class SchedulerSubmitBenchmark {
+
+    @Param({"registry", "wheel"})
+    String scheduler;
+
+    @Param({"1000", "10000", "100000"})
+    int symbols;
+
+    @Param({"100"})
+    long delayMs;
+
+    SchedulerStrategy strategy;
+    DelayScheduler delayScheduler;
+    String[] names;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        strategy = SchedulerStrategy.of(scheduler);
+        delayScheduler = strategy.create(symbols, entry -> { });
+        names = new String[symbols];
+        for (int i = 0; i < symbols; i++) {
+            names[i] = "SYM" + i;
+            // dựng trước worker/slot cho mọi symbol, benchmark chỉ đo đường submit nóng
+            delayScheduler.submit(new DelayedEntry(i, names[i], delayMs));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        strategy.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next = ThreadLocalRandom.current().nextInt(1 << 20);
+    }
+
+    @Benchmark
+    public void submit(Cursor cursor) {
+        int id = cursor.next++ % symbols;
+        delayScheduler.submit(new DelayedEntry(id, names[id], delayMs));
+    }
+}
@@ -0,0 +1,93 @@
+package local.demo.thread_delay;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool giới hạn các chunk cùng kích thước, dùng chung giữa nhiều {@link ChunkQueue}.
+ * <p>
+ * Chunk rảnh không bị trả về GC ngay: sau mỗi chu kỳ trim, pool chỉ giải phóng một nửa
+ * số chunk đã nằm rảnh suốt cả chu kỳ trước đó. Sau một burst, các chunk được giữ lại
+ * cho burst kế tiếp và chỉ nhả dần khi thật sự không dùng tới.
+ */
+@Log4j2
+public class ChunkPool {
+
+    private static final long TRIM_INTERVAL_MS = 10_000;
+    private static final Map<Integer, ChunkPool> SHARED = new ConcurrentHashMap<>();
+
+    private final int chunkSize;
+    private final Chunk[] idle;
+    private int idleCount;
+    private int minIdleSinceTrim;
+    private long lastTrimMs = System.currentTimeMillis();
+
+    public ChunkPool(int chunkSize, int maxPooled) {
+        if (chunkSize <= 0 || maxPooled < 0) {
+            throw new IllegalArgumentException("chunkSize must be positive and maxPooled non-negative");
+        }
+        this.chunkSize = chunkSize;
+        this.idle = new Chunk[maxPooled];
+    }
+
+    /**
+     * Pool dùng chung theo kích thước chunk, giữ tối đa 1024 chunk rảnh.
+     */
+    public static ChunkPool shared(int chunkSize) {
+        return SHARED.computeIfAbsent(chunkSize, size -> new ChunkPool(size, 1024));
+    }
+
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+    synchronized Chunk acquire() {
+        if (idleCount == 0) {
+            return new Chunk(chunkSize);
+        }
+        Chunk c = idle[--idleCount];
+        idle[idleCount] = null;
+        if (idleCount < minIdleSinceTrim) {
+            minIdleSinceTrim = idleCount;
+        }
+        return c;
+    }
+
+    synchronized void release(Chunk c) {
+        c.next = null;
+        if (idleCount < idle.length) {
+            idle[idleCount++] = c;
+        }
+        long now = System.currentTimeMillis();
+        if (now - lastTrimMs >= TRIM_INTERVAL_MS) {
+            trim(now);
+        }
+    }
+
+    public synchronized int idleCount() {
+        return idleCount;
+    }
+
+    private void trim(long now) {
+        int release = (minIdleSinceTrim + 1) / 2;
+        for (int i = 0; i < release; i++) {
+            idle[--idleCount] = null;
+        }
+        if (release > 0) {
+            log.debug("[ChunkPool] Released {} idle chunks, {} kept", release, idleCount);
+        }
+        minIdleSinceTrim = idleCount;
+        lastTrimMs = now;
+    }
+
+    static final class Chunk {
+        final byte[][] items;
+        Chunk next;
+
+        Chunk(int size) {
+            this.items = new byte[size][];
+        }
+    }
+}
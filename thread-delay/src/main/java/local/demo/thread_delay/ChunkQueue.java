@@ -0,0 +1,76 @@
+package local.demo.thread_delay;
+
+/**
+ * Queue không giới hạn một producer / một consumer, ghép từ các chunk kích thước cố định.
+ * <p>
+ * Khi chunk cuối đầy, producer chỉ lấy thêm một chunk từ {@link ChunkPool} và nối vào,
+ * không copy mảng như {@code DynamicRingBuffer}. Chunk đã đọc hết được trả lại pool,
+ * queue không bao giờ thu nhỏ trên đường poll.
+ */
+public class ChunkQueue {
+
+    private final ChunkPool pool;
+    private final int chunkSize;
+
+    // producer side
+    private ChunkPool.Chunk tailChunk;
+    private volatile long writeIndex;
+
+    // consumer side
+    private ChunkPool.Chunk headChunk;
+    private volatile long readIndex;
+
+    public ChunkQueue(int chunkSize) {
+        this(ChunkPool.shared(chunkSize));
+    }
+
+    public ChunkQueue(ChunkPool pool) {
+        this.pool = pool;
+        this.chunkSize = pool.getChunkSize();
+        this.tailChunk = pool.acquire();
+        this.headChunk = tailChunk;
+    }
+
+    /**
+     * Producer: thêm vào cuối queue.
+     */
+    public void add(byte[] value) {
+        long w = writeIndex;
+        int idx = (int) (w % chunkSize);
+        if (idx == 0 && w != 0) {
+            ChunkPool.Chunk next = pool.acquire();
+            tailChunk.next = next;
+            tailChunk = next;
+        }
+        tailChunk.items[idx] = value;
+        writeIndex = w + 1; // publish
+    }
+
+    /**
+     * Consumer: lấy phần tử đầu, null nếu rỗng.
+     */
+    public Msg poll() {
+        long r = readIndex;
+        if (r == writeIndex) {
+            return null;
+        }
+        int idx = (int) (r % chunkSize);
+        if (idx == 0 && r != 0) {
+            ChunkPool.Chunk done = headChunk;
+            headChunk = done.next;
+            pool.release(done);
+        }
+        byte[] value = headChunk.items[idx];
+        headChunk.items[idx] = null;
+        readIndex = r + 1;
+        return new Msg(value);
+    }
+
+    public boolean isEmpty() {
+        return readIndex == writeIndex;
+    }
+
+    public long size() {
+        return writeIndex - readIndex;
+    }
+}
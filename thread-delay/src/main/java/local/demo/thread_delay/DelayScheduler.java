@@ -0,0 +1,25 @@
+package local.demo.thread_delay;
+
+/**
+ * Contract chung cho các engine delay: submit một entry cho symbol,
+ * handler sẽ được gọi khi hết delay. Entry của cùng một symbol được
+ * release theo đúng thứ tự submit (FIFO).
+ */
+public interface DelayScheduler {
+
+    void submit(String symbol, long delayMs);
+
+    /**
+     * Submit một entry do caller tự tạo (có thể là subclass mang thêm context),
+     * handler nhận lại đúng instance này khi tới hạn.
+     */
+    void submit(DelayedEntry entry);
+
+    /**
+     * Số entry đang chờ release (ước lượng).
+     */
+    long pending();
+
+    default void close() {
+    }
+}
@@ -0,0 +1,68 @@
+package local.demo.thread_delay;
+
+import jakarta.annotation.PreDestroy;
+import local.demo.thread_delay.timingWheel.TimingWheelEngine;
+import local.demo.zmq_common.symbol.SymbolTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Chọn engine delay theo cấu hình {@code delay.scheduler}:
+ * <ul>
+ *     <li>{@code registry} (mặc định): mỗi symbol một {@link DelayWorkerManager}</li>
+ *     <li>{@code wheel}: timing wheel chia shard dùng chung cho mọi scheduler</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class DelaySchedulerFactory {
+
+    private final String type;
+    private final SymbolTable symbols;
+    private final int wheelShards;
+    private final long wheelTickMs;
+    private final LongAdder activeWorkers = new LongAdder();
+    private TimingWheelEngine wheelEngine;
+
+    public DelaySchedulerFactory(@Value("${delay.scheduler:registry}") String type,
+                                 @Value("${delay.wheel.shards:0}") int wheelShards,
+                                 @Value("${delay.wheel.tick-ms:1}") long wheelTickMs,
+                                 SymbolTable symbols) {
+        this.type = type;
+        this.symbols = symbols;
+        this.wheelShards = wheelShards > 0 ? wheelShards : Runtime.getRuntime().availableProcessors();
+        this.wheelTickMs = wheelTickMs;
+    }
+
+    public synchronized DelayScheduler create(long idleTimeoutMs, Consumer<DelayedEntry> handler) {
+        return switch (type) {
+            case "registry" -> new DelayWorkersRegistry(idleTimeoutMs, symbols.capacity(), handler, activeWorkers);
+            case "wheel" -> {
+                if (wheelEngine == null) {
+                    wheelEngine = new TimingWheelEngine(wheelShards, wheelTickMs, activeWorkers);
+                }
+                yield wheelEngine.newScheduler(handler);
+            }
+            default -> throw new IllegalArgumentException("Unknown delay.scheduler: " + type);
+        };
+    }
+
+    /**
+     * Số worker đang chạy của mọi scheduler đã tạo: virtual thread của registry,
+     * hoặc shard đang có entry của timing wheel.
+     */
+    public long activeWorkers() {
+        return activeWorkers.sum();
+    }
+
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (wheelEngine != null) {
+            wheelEngine.shutdown();
+        }
+    }
+}
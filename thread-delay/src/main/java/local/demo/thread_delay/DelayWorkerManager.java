@@ -1,11 +1,11 @@
 package local.demo.thread_delay;
 
-import local.demo.thread_delay.monitor.WorkerMonitor;
 import lombok.extern.slf4j.Slf4j;
 
 import java.util.concurrent.DelayQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
 @Slf4j
@@ -16,17 +16,33 @@ public class DelayWorkerManager {
     private final AtomicReference<Thread> worker = new AtomicReference<>();
     private final long idleTimeoutMs;
     private final Consumer<DelayedEntry> handler;
+    private final LongAdder activeWorkers;
 
     public DelayWorkerManager(String symbol,
                               long idleTimeoutMs,
                               Consumer<DelayedEntry> handler) {
+        this(symbol, idleTimeoutMs, handler, new LongAdder());
+    }
+
+    /**
+     * @param activeWorkers bộ đếm worker đang chạy, dùng chung giữa các manager
+     */
+    public DelayWorkerManager(String symbol,
+                              long idleTimeoutMs,
+                              Consumer<DelayedEntry> handler,
+                              LongAdder activeWorkers) {
         this.symbol = symbol;
         this.idleTimeoutMs = idleTimeoutMs;
         this.handler = handler;
+        this.activeWorkers = activeWorkers;
     }
 
     public void submit(long delayMs) {
-        queue.offer(new DelayedEntry(symbol, delayMs));
+        submit(new DelayedEntry(symbol, delayMs));
+    }
+
+    public void submit(DelayedEntry entry) {
+        queue.offer(entry);
         startWorkerIfNeeded();
     }
 
@@ -37,7 +53,7 @@ public class DelayWorkerManager {
         Thread vt = Thread.ofVirtual().unstarted(this::processLoop);
 
         if (worker.compareAndSet(existing, vt)) {
-            WorkerMonitor.ACTIVE_WORKERS.incrementAndGet();
+            activeWorkers.increment();
             vt.start();
             log.info("[{}] Virtual worker started", symbol);
         }
@@ -53,23 +69,35 @@ public class DelayWorkerManager {
                 if (entry != null) {
                     lastActive = System.currentTimeMillis();
                     handler.accept(entry);
-                    if (entry.getKey().equals("SYM1")) {
-                        WorkerMonitor.HANDLE_SYM1.incrementAndGet();
-                    }
                 } else if (queue.isEmpty() &&
                         System.currentTimeMillis() - lastActive > idleTimeoutMs) {
-                    WorkerMonitor.ACTIVE_WORKERS.decrementAndGet();
+                    activeWorkers.decrement();
                     log.info("[{}] idle timeout, worker shutting down", symbol);
                     break;
                 }
             }
         } catch (InterruptedException ignored) {
+            activeWorkers.decrement();
         } finally {
             worker.set(null);
-            System.out.printf("[%s] worker stopped%n", symbol);
+            log.info("[{}] worker stopped", symbol);
         }
     }
 
+    /**
+     * Interrupt worker hiện tại (nếu có), submit sau đó sẽ khởi động worker mới.
+     */
+    public void stop() {
+        Thread w = worker.get();
+        if (w != null) {
+            w.interrupt();
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+
     public boolean isRunning() {
         Thread w = worker.get();
         return w != null && w.isAlive();
@@ -1,28 +1,105 @@
 package local.demo.thread_delay;
 
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.function.Consumer;
 
-public class DelayWorkersRegistry {
+public class DelayWorkersRegistry implements DelayScheduler {
 
     private final ConcurrentHashMap<String, DelayWorkerManager> map = new ConcurrentHashMap<>();
+    // entry có symbolId: tra theo index, không hash String
+    private final AtomicReferenceArray<DelayWorkerManager> byId;
     private final long idleTimeoutMs;
     private final Consumer<DelayedEntry> handler;
+    private final LongAdder activeWorkers;
 
     public DelayWorkersRegistry(long idleTimeoutMs,
                                 Consumer<DelayedEntry> handler) {
+        this(idleTimeoutMs, 0, handler);
+    }
+
+    public DelayWorkersRegistry(long idleTimeoutMs,
+                                int maxSymbols,
+                                Consumer<DelayedEntry> handler) {
+        this(idleTimeoutMs, maxSymbols, handler, new LongAdder());
+    }
+
+    public DelayWorkersRegistry(long idleTimeoutMs,
+                                int maxSymbols,
+                                Consumer<DelayedEntry> handler,
+                                LongAdder activeWorkers) {
         this.idleTimeoutMs = idleTimeoutMs;
+        this.byId = new AtomicReferenceArray<>(maxSymbols);
         this.handler = handler;
+        this.activeWorkers = activeWorkers;
     }
 
+    @Override
     public void submit(String symbol, long delayMs) {
+        submit(new DelayedEntry(symbol, delayMs));
+    }
+
+    @Override
+    public void submit(DelayedEntry entry) {
+        int id = entry.getSymbolId();
+        if (id < 0 || id >= byId.length()) {
+            submitByKey(entry);
+            return;
+        }
+        DelayWorkerManager m = byId.get(id);
+        if (m == null) {
+            DelayWorkerManager created = new DelayWorkerManager(entry.getKey(), idleTimeoutMs, handler, activeWorkers);
+            m = byId.compareAndSet(id, null, created) ? created : byId.get(id);
+        }
+
+        m.submit(entry);
+
+        if (!m.isRunning()) {
+            byId.compareAndSet(id, m, null);
+        }
+    }
+
+    private void submitByKey(DelayedEntry entry) {
+        String symbol = entry.getKey();
         DelayWorkerManager m = map.computeIfAbsent(symbol,
-                s -> new DelayWorkerManager(s, idleTimeoutMs, handler));
+                s -> new DelayWorkerManager(s, idleTimeoutMs, handler, activeWorkers));
 
-        m.submit(delayMs);
+        m.submit(entry);
 
         if (!m.isRunning()) {
             map.remove(symbol, m);
         }
     }
+
+    /**
+     * Dừng mọi worker đang chạy, entry còn trong queue bị bỏ.
+     */
+    @Override
+    public void close() {
+        for (DelayWorkerManager m : map.values()) {
+            m.stop();
+        }
+        for (int i = 0; i < byId.length(); i++) {
+            DelayWorkerManager m = byId.get(i);
+            if (m != null) {
+                m.stop();
+            }
+        }
+    }
+
+    @Override
+    public long pending() {
+        long total = 0;
+        for (DelayWorkerManager m : map.values()) {
+            total += m.pending();
+        }
+        for (int i = 0; i < byId.length(); i++) {
+            DelayWorkerManager m = byId.get(i);
+            if (m != null) {
+                total += m.pending();
+            }
+        }
+        return total;
+    }
 }
@@ -4,18 +4,35 @@ import java.util.concurrent.Delayed;
 import java.util.concurrent.TimeUnit;
 
 public class DelayedEntry implements Delayed {
+    private final int symbolId;
     private final String key;
     private final long expireAt;
 
     public DelayedEntry(String key, long delayMs) {
+        this(-1, key, delayMs);
+    }
+
+    /**
+     * @param symbolId id từ SymbolTable, -1 nếu không có
+     */
+    public DelayedEntry(int symbolId, String key, long delayMs) {
+        this.symbolId = symbolId;
         this.key = key;
         this.expireAt = System.currentTimeMillis() + delayMs;
     }
 
+    public int getSymbolId() {
+        return symbolId;
+    }
+
     public String getKey() {
         return key;
     }
 
+    public long getExpireAt() {
+        return expireAt;
+    }
+
     @Override
     public long getDelay(TimeUnit unit) {
         long diff = expireAt - System.currentTimeMillis();
@@ -0,0 +1,7 @@
+package local.demo.thread_delay;
+
+/**
+ * Một message lấy ra từ {@link ChunkQueue}.
+ */
+public record Msg(byte[] value) {
+}
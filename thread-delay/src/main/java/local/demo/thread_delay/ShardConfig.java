@@ -0,0 +1,33 @@
+package local.demo.thread_delay;
+
+import local.demo.zmq_common.shard.ShardMap;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Arrays;
+import java.util.List;
+
+@Configuration
+public class ShardConfig {
+
+    /**
+     * Phần symbol instance này xử lý; subscriber chỉ subscribe prefix của các shard trong map.
+     */
+    @Bean
+    public ShardMap shardMap(@Value("${shard.mode:all}") String mode,
+                             @Value("${shard.ranges:}") String ranges,
+                             @Value("${shard.nodes:}") String nodes,
+                             @Value("${shard.node:}") String node,
+                             @Value("${shard.virtual-nodes:64}") int virtualNodes) {
+        return switch (mode) {
+            case "all" -> ShardMap.all();
+            case "ranges" -> ShardMap.ranges(ranges);
+            case "consistent" -> {
+                List<String> members = Arrays.stream(nodes.split(",")).map(String::trim).filter(s -> !s.isEmpty()).toList();
+                yield ShardMap.consistent(members, node.trim(), virtualNodes);
+            }
+            default -> throw new IllegalArgumentException("Unknown shard.mode: " + mode);
+        };
+    }
+}
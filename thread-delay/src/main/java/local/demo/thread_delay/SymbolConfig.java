@@ -0,0 +1,18 @@
+package local.demo.thread_delay;
+
+import local.demo.zmq_common.symbol.SymbolTable;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class SymbolConfig {
+
+    /**
+     * Dùng chung cho subscriber, ingest và adapter: mọi state theo symbol đánh index bằng id.
+     */
+    @Bean
+    public SymbolTable symbolTable(@Value("${symbols.capacity:65536}") int capacity) {
+        return new SymbolTable(capacity);
+    }
+}
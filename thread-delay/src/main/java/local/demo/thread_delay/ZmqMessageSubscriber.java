@@ -2,97 +2,236 @@ package local.demo.thread_delay;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
-import local.demo.thread_delay.monitor.WorkerMonitor;
-import local.demo.thread_delay.ringBuffer.FixDelayedSymbolCacheAdapter;
+import local.demo.thread_delay.ingest.IngestEvent;
+import local.demo.thread_delay.ingest.IngestPipeline;
+import local.demo.thread_delay.monitor.DelayMetrics;
+import local.demo.thread_delay.monitor.LatencyMetrics;
+import local.demo.zmq_common.frame.MultipartReader;
+import local.demo.zmq_common.receive.ReceiveLoop;
+import local.demo.zmq_common.shard.ShardMap;
+import local.demo.zmq_common.symbol.SymbolTable;
+import local.demo.zmq_common.wire.BinaryDecoder;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.zeromq.ZContext;
+import org.zeromq.ZFrame;
 import org.zeromq.ZMQ;
 import org.zeromq.ZMsg;
 
 import java.nio.charset.StandardCharsets;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Nhận cả hai định dạng cùng lúc: 3 frame text (topic, symbol, body) và 1 frame nhị phân
+ * theo {@link local.demo.zmq_common.wire.WireFormat}, phân biệt theo số frame và magic.
+ * <p>
+ * Khi chạy chia shard ({@code shard.mode} khác {@code all}) chỉ subscribe prefix các shard của
+ * {@link ShardMap}: PUB bỏ message của shard khác trước khi gửi, nên nhiều instance cùng nối một
+ * publisher mỗi instance chỉ nhận (và giữ state cho) phần symbol của mình. Message text không mang shard
+ * nên không tới instance chia shard.
+ * <p>
+ * Socket và thread nhận thuộc {@link ReceiveLoop}: chờ theo {@code zmq.receive.wait-strategy}, mỗi lần
+ * thức dậy đọc tối đa {@code zmq.receive.drain-limit} message.
+ */
 @Slf4j
 @Component
 public class ZmqMessageSubscriber {
 
-    private final FixDelayedSymbolCacheAdapter cacheAdapter;
-    private ZContext context;
-    private ZMQ.Socket subscriber;
-    private Thread thread;
-    private volatile boolean running = true;
-    private final AtomicInteger totalReceived = new AtomicInteger(0);
+    private static final byte[] TOPIC_QUOTE = "quoteAll".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOPIC_HISTORY = "history".getBytes(StandardCharsets.US_ASCII);
+    // bảng symbol đầy thì mọi message symbol mới đều bị bỏ: log tối đa một lần mỗi khoảng này
+    private static final long FULL_WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
 
-    public ZmqMessageSubscriber(FixDelayedSymbolCacheAdapter cacheAdapter) {
-        this.cacheAdapter = cacheAdapter;
+    private final IngestPipeline ingest;
+    private final LatencyMetrics latency;
+    private final SymbolTable symbols;
+    private final LongAdder received;
+    private final LongAdder malformed;
+    private final LongAdder unknownTopic;
+    private final LongAdder symbolTableFull;
+    private final ShardMap shards;
+    private final ReceiveLoop loop;
+    // chỉ thread nhận dùng
+    private final MultipartReader reader;
+    private final BinaryDecoder decoder = new BinaryDecoder();
+    private long receivedNanos; // lúc đọc xong message hiện tại
+    private long lastFullWarnNanos = System.nanoTime() - FULL_WARN_INTERVAL_NANOS;
+
+    public ZmqMessageSubscriber(IngestPipeline ingest,
+                                DelayMetrics metrics,
+                                LatencyMetrics latency,
+                                SymbolTable symbols,
+                                ShardMap shards,
+                                @Value("${zmq.endpoint:tcp://127.0.0.1:5555}") String endpoint,
+                                @Value("${zmq.receive.mode:buffers}") String receiveMode,
+                                @Value("${zmq.receive.max-frame-size:65536}") int maxFrameSize,
+                                @Value("${zmq.receive.wait-strategy:poll}") String waitStrategy,
+                                @Value("${zmq.receive.drain-limit:256}") int drainLimit,
+                                @Value("${zmq.receive.poll-timeout-ms:100}") long pollTimeoutMs,
+                                @Value("${zmq.receive.spin-tries:1000}") int spinTries,
+                                @Value("${zmq.receive.rcvhwm:1000}") int rcvHwm,
+                                @Value("${zmq.receive.rcvbuf:0}") int rcvBuf,
+                                @Value("${zmq.io-threads:1}") int ioThreads) {
+        this.ingest = ingest;
+        this.latency = latency;
+        this.symbols = symbols;
+        this.received = metrics.zmqReceived();
+        this.malformed = metrics.dropped(DelayMetrics.DropReason.MALFORMED);
+        this.unknownTopic = metrics.dropped(DelayMetrics.DropReason.UNKNOWN_TOPIC);
+        this.symbolTableFull = metrics.dropped(DelayMetrics.DropReason.SYMBOL_TABLE_FULL);
+        this.shards = shards;
+        this.reader = new MultipartReader(3, maxFrameSize);
+        ReceiveLoop.Handler handler = switch (receiveMode) {
+            case "buffers" -> this::receiveBuffers;
+            case "frames" -> this::receiveFrames;
+            default -> throw new IllegalArgumentException("Unknown zmq.receive.mode: " + receiveMode);
+        };
+        ReceiveLoop.Settings settings = new ReceiveLoop.Settings(endpoint, ReceiveLoop.WaitStrategy.of(waitStrategy),
+                ioThreads, rcvHwm, rcvBuf, drainLimit, pollTimeoutMs, spinTries);
+        this.loop = new ReceiveLoop("ZmqSubscriberThread", settings, shards::subscribe, handler);
     }
 
     @PostConstruct
     public void start() {
-        context = new ZContext();
-        subscriber = context.createSocket(ZMQ.SUB);
-        subscriber.connect("tcp://127.0.0.1:5555");
-        subscriber.subscribe(ZMQ.SUBSCRIPTION_ALL); // Nhận tất cả topic
-
-        thread = new Thread(this::listenLoop, "ZmqSubscriberThread");
-        thread.start();
-        log.info("[ZMQ] Subscriber started and connected to tcp://127.0.0.1:5555");
+        loop.start();
+        log.info("[ZMQ] Subscriber started and connected to {}, shards: {}, wait={}",
+                loop.settings().endpoint(), shards, loop.settings().waitStrategy());
+    }
+
+    public ReceiveLoop receiveLoop() {
+        return loop;
     }
 
-    private void listenLoop() {
-        while (running && !Thread.currentThread().isInterrupted()) {
-            ZMsg msg = ZMsg.recvMsg(subscriber);
-            if (msg != null) {
-                try {
-                    String topic = msg.popString();
-                    String symbol = msg.popString();
-                    String body = msg.popString();
-
-//                    log.info("[ZMQ] Received topic={} symbol={} body={}", topic, symbol, body);
-
-                    switch (topic) {
-                        case "quoteAll" -> {
-                            cacheAdapter.pushQuote(symbol, body, 60_000);
-                        }
-                        case "history" -> {
-                            if (symbol.equals("SYM1")) {
-                                WorkerMonitor.RECEIVE_SYM1.incrementAndGet();
-                            }
-                            cacheAdapter.pushHistory(symbol, body, 60_000);
-                        }
-                        default -> log.warn("[ZMQ] Unknown topic: {}", topic);
-                    }
-
-                    totalReceived.incrementAndGet();
-                } catch (Exception e) {
-                    log.error("[ZMQ] Error handling message", e);
-                } finally {
-                    msg.destroy();
-                }
+    private boolean receiveFrames(ZMQ.Socket socket) {
+        ZMsg msg = ZMsg.recvMsg(socket, ZMQ.DONTWAIT);
+        if (msg == null) {
+            return false;
+        }
+        receivedNanos = System.nanoTime();
+        try {
+            if (msg.size() != 1 && msg.size() != 3) {
+                received.increment();
+                malformed.increment();
+                log.warn("[ZMQ] Dropped malformed message: frames={}", msg.size());
+                return true;
+            }
+            if (msg.size() == 1) {
+                byte[] frame = msg.pop().getData();
+                onBinary(frame, frame.length);
             } else {
-                try {
-                    Thread.sleep(5);
-                } catch (InterruptedException ignored) {
-                    Thread.currentThread().interrupt();
-                }
+                ZFrame topicFrame = msg.pop();
+                ZFrame symbolFrame = msg.pop();
+                ZFrame bodyFrame = msg.pop();
+                byte[] topic = topicFrame.getData();
+                byte[] symbol = symbolFrame.getData();
+                byte[] body = bodyFrame.getData();
+                onText(topic, topic.length, symbol, symbol.length, body, body.length);
             }
+            received.increment();
+        } finally {
+            msg.destroy();
+        }
+        return true;
+    }
+
+    /**
+     * Đọc frame vào buffer dùng lại, so topic theo bytes, intern symbol không cấp phát
+     * và đưa body thẳng xuống storage: steady state không tạo object nào trên heap phía app.
+     */
+    private boolean receiveBuffers(ZMQ.Socket socket) {
+        if (!reader.read(socket, ZMQ.DONTWAIT)) {
+            return false;
+        }
+        receivedNanos = System.nanoTime();
+        received.increment();
+        if (reader.isTruncated() || (reader.frames() != 1 && reader.frames() != 3)) {
+            malformed.increment();
+            log.warn("[ZMQ] Dropped malformed message: frames={}, truncated={}",
+                    reader.frames(), reader.isTruncated());
+            return true;
+        }
+        if (reader.frames() == 1) {
+            onBinary(reader.frame(0), reader.length(0));
+        } else {
+            onText(reader.frame(0), reader.length(0), reader.frame(1), reader.length(1), reader.frame(2), reader.length(2));
+        }
+        return true;
+    }
+
+    private void onText(byte[] topic, int topicLength, byte[] symbol, int symbolLength, byte[] body, int bodyLength) {
+        int code;
+        if (Arrays.equals(topic, 0, topicLength, TOPIC_QUOTE, 0, TOPIC_QUOTE.length)) {
+            code = IngestEvent.TOPIC_QUOTE;
+        } else if (Arrays.equals(topic, 0, topicLength, TOPIC_HISTORY, 0, TOPIC_HISTORY.length)) {
+            code = IngestEvent.TOPIC_HISTORY;
+        } else {
+            unknownTopic.increment();
+            log.warn("[ZMQ] Unknown topic: {}", new String(topic, 0, topicLength, StandardCharsets.UTF_8));
+            return;
         }
+        // intern sau khi biết topic hợp lệ: message rác không chiếm id symbol
+        int symbolId = intern(symbol, 0, symbolLength);
+        if (symbolId >= 0) {
+            dispatch(code, symbolId, body, 0, bodyLength);
+        }
+    }
+
+    private void onBinary(byte[] frame, int length) {
+        if (!decoder.wrap(frame, 0, length)) {
+            malformed.increment();
+            log.warn("[ZMQ] Dropped binary frame: version={}, length={}",
+                    BinaryDecoder.version(frame, 0, length), length);
+            return;
+        }
+        int topic = decoder.topic();
+        if (topic != IngestEvent.TOPIC_HISTORY && topic != IngestEvent.TOPIC_QUOTE) {
+            unknownTopic.increment();
+            log.warn("[ZMQ] Unknown topic code: {}", topic);
+            return;
+        }
+        // publishNanos là nanoTime của publisher: chỉ so được khi chạy cùng host
+        latency.publishToReceive(topic).record(receivedNanos - decoder.publishNanos());
+        int symbolId = intern(frame, decoder.symbolOffset(), decoder.symbolLength());
+        if (symbolId >= 0) {
+            dispatch(topic, symbolId, frame, decoder.payloadOffset(), decoder.payloadLength());
+        }
+    }
+
+    /**
+     * @return id symbol, -1 nếu bảng symbol đã đầy (message bị bỏ, đếm {@code symbol-table-full})
+     */
+    private int intern(byte[] buf, int offset, int length) {
+        int id = symbols.tryIntern(buf, offset, length);
+        if (id < 0) {
+            symbolTableFull.increment();
+            long now = System.nanoTime();
+            if (now - lastFullWarnNanos >= FULL_WARN_INTERVAL_NANOS) {
+                lastFullWarnNanos = now;
+                log.warn("[ZMQ] SymbolTable full (symbols.capacity={}), dropping messages of new symbols: {} so far",
+                        symbols.capacity(), symbolTableFull.sum());
+            }
+        }
+        return id;
+    }
+
+    private void dispatch(int topic, int symbolId, byte[] buf, int offset, int length) {
+        ingest.publish(topic, symbolId, buf, offset, length, 60_000, receivedNanos);
     }
 
     @PreDestroy
     public void stop() {
-        running = false;
-        if (thread != null) thread.interrupt();
-        if (subscriber != null) subscriber.close();
-        if (context != null) context.close();
+        loop.stop();
         log.info("[ZMQ] Subscriber stopped");
     }
 
     @Scheduled(fixedDelay = 60000)
     public void logStats() {
-        int received = totalReceived.get();
-        log.info("Stats: received={}", received);
+        long busy = loop.busyNanos();
+        long idle = loop.idleNanos();
+        log.info("Stats: received={}, wakeups={}, busy={}ms, idle={}ms ({}% busy)", received.sum(), loop.wakeups(),
+                busy / 1_000_000, idle / 1_000_000, busy + idle == 0 ? 0 : busy * 100 / (busy + idle));
     }
 }
@@ -29,7 +29,10 @@ public class DynamicRingBuffer<T> {
         this.buffer = new byte[initialCapacity][];
     }
 
-    public void offer(byte[] value) {
+    /**
+     * @return false nếu buffer đã đạt max capacity, phần tử bị bỏ
+     */
+    public boolean offer(byte[] value) {
         synchronized (resizeLock) {
             long t = tail;
             long h = head;
@@ -40,7 +43,7 @@ public class DynamicRingBuffer<T> {
                 if (capacity >= maxCapacity) {
                     log.warn("Buffer reached max capacity: {}, unable to resize. Head: {}, Tail: {}",
                             maxCapacity, head, tail);
-                    return; // Đã đạt max capacity, không thể resize
+                    return false; // Đã đạt max capacity, không thể resize
                 }
 
                 int newCapacity = calculateNewCapacity();
@@ -52,12 +55,13 @@ public class DynamicRingBuffer<T> {
                     resize(newCapacity);
                 } else {
                     log.warn("Buffer full, unable to resize. Head: {}, Tail: {}", head, tail);
-                    return;
+                    return false;
                 }
             }
 
             buffer[(int)(t % capacity)] = value;
             tail = t + 1;
+            return true;
         }
     }
 
@@ -0,0 +1,228 @@
+package local.demo.thread_delay.egress;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import local.demo.thread_delay.ingest.IngestEvent;
+import local.demo.thread_delay.monitor.DelayMetrics;
+import local.demo.thread_delay.ringBuffer.MpscRingBuffer;
+import local.demo.thread_delay.ringBuffer.PendingQueue;
+import local.demo.zmq_common.symbol.SymbolTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQException;
+import zmq.ZError;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Feed trễ: mỗi message được release được publish lại ở {@code delay.egress.endpoint}, cùng dạng 3 frame
+ * (topic, symbol, body) như zmq-publisher. Body là nguyên byte[] payload lúc release, không decode;
+ * symbol lấy từ bytes của {@link SymbolTable}.
+ * <p>
+ * Socket ZMQ không thread-safe còn release chạy trên nhiều thread worker, nên mỗi lần release (một tick
+ * của một queue) gom payload vào một {@link Batch} và chỉ đưa một phần tử vào ring MPSC; thread
+ * DelayEgress drain nhiều batch mỗi lần thức dậy rồi gửi liên tiếp.
+ * <p>
+ * Drop được đếm theo lý do: ring đầy ({@code egress-queue}) hoặc subscriber chạm
+ * {@code delay.egress.sndhwm} ({@code egress-hwm}). Socket là XPUB bật NODROP để send trả về false thay vì
+ * bỏ im lặng như PUB; đổi lại message gặp một subscriber đã đầy thì không tới subscriber nào.
+ */
+@Slf4j
+@Component
+public class DelayedPublisher {
+
+    private static final byte[][] TOPIC_NAMES = new byte[3][];
+
+    static {
+        TOPIC_NAMES[IngestEvent.TOPIC_HISTORY] = "history".getBytes(StandardCharsets.US_ASCII);
+        TOPIC_NAMES[IngestEvent.TOPIC_QUOTE] = "quoteAll".getBytes(StandardCharsets.US_ASCII);
+    }
+
+    private static final int DRAIN_LIMIT = 256;
+    private static final long IDLE_PARK_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private final SymbolTable symbols;
+    private final String endpoint;
+    private final int sndHwm;
+    private final MpscRingBuffer<Batch> queue;
+    private final LongAdder sent;
+    private final LongAdder queueDropped;
+    private final LongAdder hwmDropped;
+    private ZContext context;
+    private ZMQ.Socket socket;
+    private Thread thread;
+    private volatile boolean running = true;
+
+    public DelayedPublisher(SymbolTable symbols,
+                            DelayMetrics metrics,
+                            @Value("${delay.egress.endpoint:}") String endpoint,
+                            @Value("${delay.egress.sndhwm:100000}") int sndHwm,
+                            @Value("${delay.egress.queue-size:65536}") int queueSize) {
+        if (Integer.bitCount(queueSize) != 1) {
+            throw new IllegalArgumentException("delay.egress.queue-size must be a power of two");
+        }
+        this.symbols = symbols;
+        this.endpoint = endpoint;
+        this.sndHwm = sndHwm;
+        this.queue = new MpscRingBuffer<>(queueSize);
+        this.sent = metrics.egressSent();
+        this.queueDropped = metrics.dropped(DelayMetrics.DropReason.EGRESS_QUEUE);
+        this.hwmDropped = metrics.dropped(DelayMetrics.DropReason.EGRESS_HWM);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!enabled()) return;
+        context = new ZContext();
+        socket = context.createSocket(SocketType.XPUB);
+        socket.setSndHWM(sndHwm);
+        socket.setXpubNoDrop(true);
+        socket.bind(endpoint);
+        thread = Thread.ofPlatform().name("DelayEgress").daemon(true).start(this::sendLoop);
+        log.info("[Egress] Publishing delayed feed at {} (sndhwm={})", endpoint, sndHwm);
+    }
+
+    public boolean enabled() {
+        return !endpoint.isBlank();
+    }
+
+    /**
+     * Sink cho một lần release: chuyển từng payload cho {@code delegate} và giữ lại để publish.
+     */
+    public Batch newBatch(int topic, PendingQueue.Sink delegate) {
+        return new Batch(topic, delegate);
+    }
+
+    /**
+     * Gọi trên thread release sau khi release xong; không chặn, ring đầy thì cả batch bị drop.
+     */
+    public void publish(Batch batch) {
+        if (batch.count == 0) return;
+        if (!queue.offer(batch)) {
+            queueDropped.add(batch.count);
+        }
+    }
+
+    /**
+     * Số batch đang chờ thread egress.
+     */
+    public int queued() {
+        return queue.size();
+    }
+
+    /**
+     * Thread DelayEgress sở hữu socket từ khi start: chỉ thread này gửi, đọc subscription và đóng socket.
+     */
+    private void sendLoop() {
+        try {
+            while (running) {
+                // mỗi vòng, kể cả lúc ring luôn có batch: subscription mới/huỷ không bị dồn lại
+                drainSubscriptions();
+                if (queue.drainTo(this::send, DRAIN_LIMIT) == 0) {
+                    LockSupport.parkNanos(IDLE_PARK_NANOS);
+                }
+            }
+            queue.drainTo(this::send, queue.capacity()); // gửi nốt trước khi đóng socket
+        } catch (ZMQException e) {
+            if (e.getErrorCode() != ZError.ETERM) {
+                log.error("[Egress] Send loop stopped", e);
+            }
+        } finally {
+            context.destroySocket(socket);
+        }
+    }
+
+    private void send(Batch batch) {
+        byte[] topic = TOPIC_NAMES[batch.topic];
+        byte[] symbol = symbols.bytes(batch.symbolId);
+        long ok = 0;
+        for (int i = 0; i < batch.count; i++) {
+            // NODROP: frame đầu trả về false khi có subscriber chạm HWM, chưa frame nào được gửi
+            if (socket.send(topic, ZMQ.SNDMORE | ZMQ.DONTWAIT)) {
+                socket.send(symbol, ZMQ.SNDMORE | ZMQ.DONTWAIT);
+                socket.send(batch.payloads[i], ZMQ.DONTWAIT);
+                ok++;
+            }
+        }
+        sent.add(ok);
+        if (ok < batch.count) {
+            hwmDropped.add(batch.count - ok);
+        }
+    }
+
+    /**
+     * XPUB nhận message subscribe/unsubscribe, đọc bỏ để không dồn lại.
+     */
+    private void drainSubscriptions() {
+        while (socket.recv(ZMQ.DONTWAIT) != null) {
+            // chỉ cần ZMQ cập nhật bảng subscription
+        }
+    }
+
+    /**
+     * Dừng thread egress rồi đóng context; socket do thread egress đóng.
+     */
+    @PreDestroy
+    public void stop() {
+        if (thread == null) return;
+        running = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            // không đụng tới socket của thread egress: terminate context để lần gọi ZMQ kế tiếp ném ETERM,
+            // thread egress tự đóng socket rồi thoát. term() chờ mọi socket đóng nên chạy nền
+            log.warn("[Egress] Send loop did not stop in time, terminating its context");
+            ZMQ.Context zmqContext = context.getContext();
+            Thread.ofPlatform().daemon().name("DelayEgress-term").start(zmqContext::term);
+        } else {
+            context.close();
+        }
+        thread = null;
+        log.info("[Egress] Stopped");
+    }
+
+    /**
+     * Các payload release cùng một lần của một queue (cùng topic, cùng symbol). Chỉ thread release
+     * ghi, sau khi vào ring chỉ thread egress đọc.
+     */
+    public static final class Batch implements PendingQueue.Sink {
+        private final int topic;
+        private final PendingQueue.Sink delegate;
+        private int symbolId;
+        private byte[][] payloads;
+        private int count;
+
+        private Batch(int topic, PendingQueue.Sink delegate) {
+            this.topic = topic;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void accept(int symbolId, byte[] payload) {
+            delegate.accept(symbolId, payload);
+            if (payloads == null) {
+                payloads = new byte[4][];
+            } else if (count == payloads.length) {
+                payloads = Arrays.copyOf(payloads, count * 2);
+            }
+            this.symbolId = symbolId;
+            payloads[count++] = payload;
+        }
+
+        public int size() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package local.demo.thread_delay.history;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lịch sử đã release của mọi symbol, đánh index bằng id của {@code SymbolTable}.
+ * <p>
+ * Giới hạn áp cho từng symbol: số entry, tuổi (ms, tính từ lúc release) và tổng byte payload.
+ * Entry vượt giới hạn bị bỏ ngay lúc append; {@link #expire(long)} chạy định kỳ để symbol
+ * không còn message mới cũng được dọn theo tuổi, nên bộ nhớ phẳng suốt phiên thay vì phải
+ * {@code clear()} cả map lúc rảnh.
+ */
+public class HistoryStore {
+
+    final int maxEntries;
+    final long maxBytes;
+    final long maxAgeMs;
+
+    private final AtomicReferenceArray<SymbolHistory> histories;
+    private final LongAdder entries = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder evicted = new LongAdder();
+
+    /**
+     * @param maxAgeMs &lt;= 0: không giới hạn tuổi
+     */
+    public HistoryStore(int capacity, int maxEntries, long maxBytes, long maxAgeMs) {
+        if (maxEntries <= 0 || maxBytes <= 0 || maxBytes > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("need maxEntries > 0 and 0 < maxBytes < 2GB");
+        }
+        this.histories = new AtomicReferenceArray<>(capacity);
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.maxAgeMs = maxAgeMs > 0 ? maxAgeMs : Long.MAX_VALUE;
+    }
+
+    /**
+     * Thread release của symbol: lưu bản copy của payload.
+     */
+    public boolean append(int symbolId, byte[] buf, int offset, int length, long nowMs) {
+        SymbolHistory history = histories.get(symbolId);
+        if (history == null) {
+            history = new SymbolHistory(this);
+            histories.set(symbolId, history);
+        }
+        return history.append(buf, offset, length, nowMs);
+    }
+
+    /**
+     * @return null nếu symbol chưa có gì được release
+     */
+    public SymbolHistory get(int symbolId) {
+        return histories.get(symbolId);
+    }
+
+    /**
+     * Dọn theo tuổi mọi symbol trong [0, symbolCount).
+     */
+    public void expire(int symbolCount, long nowMs) {
+        for (int id = 0; id < symbolCount; id++) {
+            SymbolHistory history = histories.get(id);
+            if (history != null) {
+                history.expire(nowMs);
+            }
+        }
+    }
+
+    public long entries() {
+        return entries.sum();
+    }
+
+    public long bytes() {
+        return bytes.sum();
+    }
+
+    public long evicted() {
+        return evicted.sum();
+    }
+
+    void added(int length) {
+        entries.increment();
+        bytes.add(length);
+    }
+
+    void evicted(int length) {
+        entries.decrement();
+        bytes.add(-length);
+        evicted.increment();
+    }
+}
@@ -0,0 +1,187 @@
+package local.demo.thread_delay.history;
+
+import java.util.function.Consumer;
+
+/**
+ * Lịch sử đã release của một symbol, xếp liền nhau trong một vòng byte.
+ * <p>
+ * Payload nằm nối tiếp nhau trong {@code data} (vòng tròn, entry có thể vắt qua cuối mảng),
+ * index riêng giữ offset/length/thời điểm của từng entry cũng theo vòng: mỗi entry tốn
+ * 16 byte index thay cho String + node của deque. Vòng byte và vòng index nới gấp đôi tới
+ * giới hạn; khi đã chạm giới hạn thì entry cũ nhất bị bỏ bằng cách dịch head (O(1)),
+ * mỗi entry bị bỏ đúng một lần nên append là O(1) khấu hao.
+ * <p>
+ * Một thread ghi tại một thời điểm (thread release của symbol), đọc từ thread khác thì
+ * lấy lock của object; lock gần như không bao giờ tranh chấp.
+ */
+public final class SymbolHistory {
+
+    private static final int INITIAL_ENTRIES = 16;
+    private static final int INITIAL_BYTES = 256;
+    private static final byte[] NO_BYTES = new byte[0];
+    private static final int[] NO_INTS = new int[0];
+    private static final long[] NO_LONGS = new long[0];
+
+    private final HistoryStore store;
+
+    private byte[] data = NO_BYTES;
+    private long dataHead;     // vị trí tuyệt đối của byte đầu tiên của entry cũ nhất
+    private long usedBytes;
+
+    private int[] offsets = NO_INTS;
+    private int[] lengths = NO_INTS;
+    private long[] times = NO_LONGS;
+    private long head;         // số thứ tự tuyệt đối của entry cũ nhất
+    private long tail;
+
+    SymbolHistory(HistoryStore store) {
+        this.store = store;
+    }
+
+    /**
+     * Thêm bản copy của [offset, offset + length), bỏ bớt entry cũ theo count/bytes/age.
+     *
+     * @return false nếu payload lớn hơn giới hạn bytes của một symbol (không lưu)
+     */
+    public synchronized boolean append(byte[] buf, int offset, int length, long nowMs) {
+        if (length > store.maxBytes) {
+            return false;
+        }
+        evictOlderThan(nowMs - store.maxAgeMs);
+        while (tail - head >= store.maxEntries) {
+            evictHead();
+        }
+        while (usedBytes + length > store.maxBytes) {
+            evictHead();
+        }
+        ensureCapacity(length);
+
+        int pos = (int) ((dataHead + usedBytes) % data.length);
+        int first = Math.min(length, data.length - pos);
+        System.arraycopy(buf, offset, data, pos, first);
+        System.arraycopy(buf, offset + first, data, 0, length - first);
+
+        int slot = (int) (tail % offsets.length);
+        offsets[slot] = pos;
+        lengths[slot] = length;
+        times[slot] = nowMs;
+        tail++;
+        usedBytes += length;
+        store.added(length);
+        return true;
+    }
+
+    /**
+     * Bỏ các entry cũ hơn {@code maxAgeMs}; symbol rỗng thì trả lại cả vòng byte và index,
+     * để symbol không còn ai gửi không giữ bộ nhớ suốt ngày.
+     */
+    public synchronized void expire(long nowMs) {
+        evictOlderThan(nowMs - store.maxAgeMs);
+        if (head == tail && data.length > 0) {
+            data = NO_BYTES;
+            offsets = NO_INTS;
+            lengths = NO_INTS;
+            times = NO_LONGS;
+            dataHead = 0;
+        }
+    }
+
+    public synchronized int size() {
+        return (int) (tail - head);
+    }
+
+    public synchronized long bytes() {
+        return usedBytes;
+    }
+
+    /**
+     * @return bản copy của entry mới nhất, null nếu rỗng
+     */
+    public synchronized byte[] latest() {
+        return head == tail ? null : copy(tail - 1);
+    }
+
+    /**
+     * Duyệt bản copy của mọi entry từ cũ tới mới, giữ lock trong lúc duyệt.
+     */
+    public synchronized void forEach(Consumer<byte[]> action) {
+        for (long i = head; i < tail; i++) {
+            action.accept(copy(i));
+        }
+    }
+
+    private byte[] copy(long index) {
+        int slot = (int) (index % offsets.length);
+        int pos = offsets[slot];
+        int length = lengths[slot];
+        byte[] out = new byte[length];
+        int first = Math.min(length, data.length - pos);
+        System.arraycopy(data, pos, out, 0, first);
+        System.arraycopy(data, 0, out, first, length - first);
+        return out;
+    }
+
+    private void evictOlderThan(long cutoffMs) {
+        while (head < tail && times[(int) (head % times.length)] < cutoffMs) {
+            evictHead();
+        }
+    }
+
+    private void evictHead() {
+        int slot = (int) (head % lengths.length);
+        int length = lengths[slot];
+        head++;
+        dataHead += length;
+        usedBytes -= length;
+        store.evicted(length);
+    }
+
+    private void ensureCapacity(int length) {
+        if (tail - head == offsets.length) {
+            growIndex();
+        }
+        if (data.length == 0 || usedBytes + length > data.length) {
+            growData(usedBytes + length);
+        }
+    }
+
+    private void growIndex() {
+        int capacity = (int) Math.min(Math.max(INITIAL_ENTRIES, offsets.length * 2L), store.maxEntries);
+        int[] newOffsets = new int[capacity];
+        int[] newLengths = new int[capacity];
+        long[] newTimes = new long[capacity];
+        for (long i = head; i < tail; i++) {
+            int from = (int) (i % offsets.length);
+            int to = (int) (i % capacity);
+            newOffsets[to] = offsets[from];
+            newLengths[to] = lengths[from];
+            newTimes[to] = times[from];
+        }
+        offsets = newOffsets;
+        lengths = newLengths;
+        times = newTimes;
+    }
+
+    /**
+     * Nới vòng byte và dàn phẳng lại từ 0, offset của mọi entry dịch theo.
+     */
+    private void growData(long needed) {
+        long capacity = Math.max(INITIAL_BYTES, data.length);
+        while (capacity < needed) {
+            capacity *= 2;
+        }
+        byte[] newData = new byte[(int) Math.min(capacity, store.maxBytes)];
+        if (usedBytes > 0) {
+            int start = (int) (dataHead % data.length);
+            int first = (int) Math.min(usedBytes, data.length - start);
+            System.arraycopy(data, start, newData, 0, first);
+            System.arraycopy(data, 0, newData, first, (int) usedBytes - first);
+            for (long i = head; i < tail; i++) {
+                int slot = (int) (i % offsets.length);
+                offsets[slot] = (int) Math.floorMod(offsets[slot] - start, (long) data.length);
+            }
+        }
+        data = newData;
+        dataHead = 0;
+    }
+}
@@ -0,0 +1,36 @@
+package local.demo.thread_delay.ingest;
+
+import local.demo.zmq_common.wire.WireFormat;
+
+/**
+ * Slot được cấp phát sẵn trong ring của Disruptor, tái sử dụng cho mọi message.
+ * Body được copy vào buffer riêng của slot (chỉ nới rộng khi gặp body dài hơn) nên
+ * thread socket được dùng lại buffer nhận ngay sau khi publish.
+ */
+public class IngestEvent {
+
+    public static final int TOPIC_HISTORY = WireFormat.TOPIC_HISTORY;
+    public static final int TOPIC_QUOTE = WireFormat.TOPIC_QUOTE;
+
+    int topic;
+    int partition;
+    int symbolId;
+    byte[] body = new byte[256];
+    int bodyLength;
+    long deadlineNanos;
+    long receivedNanos;
+
+    void set(int topic, int partition, int symbolId, byte[] buf, int offset, int length, long deadlineNanos,
+             long receivedNanos) {
+        this.topic = topic;
+        this.partition = partition;
+        this.symbolId = symbolId;
+        if (body.length < length) {
+            body = new byte[Integer.highestOneBit(length) << 1];
+        }
+        System.arraycopy(buf, offset, body, 0, length);
+        this.bodyLength = length;
+        this.deadlineNanos = deadlineNanos;
+        this.receivedNanos = receivedNanos;
+    }
+}
@@ -0,0 +1,265 @@
+package local.demo.thread_delay.ingest;
+
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.ExceptionHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import local.demo.thread_delay.journal.DelayJournal;
+import local.demo.thread_delay.monitor.LatencyMetrics;
+import local.demo.thread_delay.ringBuffer.FixDelayedSymbolCacheAdapter;
+import local.demo.zmq_common.symbol.SymbolTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Tầng ingest giữa socket ZMQ và cache adapter.
+ * <ul>
+ *     <li>{@code ingest.mode=inline}: gọi thẳng adapter trên thread socket (như cũ)</li>
+ *     <li>{@code ingest.mode=disruptor}: thread socket chỉ ghi vào ring cấp phát sẵn,
+ *     N handler xử lý theo partition symbolId % N nên thứ tự theo symbol được giữ nguyên</li>
+ * </ul>
+ * Deadline được tính một lần từ lúc nhận message. Nếu {@code delay.journal.enabled=true}, message
+ * được ghi vào {@link DelayJournal} ngay sau khi adapter nhận (thread socket khi inline, handler khi
+ * disruptor; các handler ghi lần lượt qua lock của journal), message bị {@code MemoryGuardian} bỏ thì
+ * không ghi nên không bị replay. Lúc khởi động pending state được dựng lại từ journal trước khi
+ * subscriber bắt đầu nhận.
+ */
+@Slf4j
+@Component
+public class IngestPipeline {
+
+    private final FixDelayedSymbolCacheAdapter cacheAdapter;
+    private final LatencyMetrics latency;
+    private final SymbolTable symbols;
+    private final boolean disruptorMode;
+    private final int ringSize;
+    private final int handlerCount;
+    private final String waitStrategy;
+    private final DelayJournal journal; // null: không journal
+    private final long journalFlushIntervalMs;
+    private final long journalCheckpointIntervalMs;
+
+    private Disruptor<IngestEvent> disruptor;
+    private RingBuffer<IngestEvent> ringBuffer;
+
+    private final AtomicLong handled = new AtomicLong();
+
+    public IngestPipeline(FixDelayedSymbolCacheAdapter cacheAdapter,
+                          LatencyMetrics latency,
+                          SymbolTable symbols,
+                          @Value("${ingest.mode:inline}") String mode,
+                          @Value("${ingest.disruptor.ring-size:65536}") int ringSize,
+                          @Value("${ingest.disruptor.handlers:4}") int handlerCount,
+                          @Value("${ingest.disruptor.wait-strategy:blocking}") String waitStrategy,
+                          @Value("${delay.journal.enabled:false}") boolean journalEnabled,
+                          @Value("${delay.journal.dir:./data/journal}") String journalDir,
+                          @Value("${delay.journal.segment-size:67108864}") long journalSegmentSize,
+                          @Value("${delay.journal.flush-interval-ms:10}") long journalFlushIntervalMs,
+                          @Value("${delay.journal.checkpoint-interval-ms:1000}") long journalCheckpointIntervalMs) {
+        this.cacheAdapter = cacheAdapter;
+        this.latency = latency;
+        this.symbols = symbols;
+        this.disruptorMode = switch (mode) {
+            case "inline" -> false;
+            case "disruptor" -> true;
+            default -> throw new IllegalArgumentException("Unknown ingest.mode: " + mode);
+        };
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("ingest.disruptor.ring-size must be a power of two");
+        }
+        this.ringSize = ringSize;
+        this.handlerCount = handlerCount;
+        this.waitStrategy = waitStrategy;
+        this.journal = journalEnabled ? new DelayJournal(Path.of(journalDir), journalSegmentSize) : null;
+        this.journalFlushIntervalMs = journalFlushIntervalMs;
+        this.journalCheckpointIntervalMs = journalCheckpointIntervalMs;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (journal != null) {
+            recover();
+        }
+        if (!disruptorMode) return;
+
+        disruptor = new Disruptor<>(IngestEvent::new, ringSize,
+                Thread.ofPlatform().name("IngestHandler-", 0).daemon(true).factory(),
+                ProducerType.SINGLE, waitStrategy(waitStrategy));
+
+        PartitionHandler[] handlers = new PartitionHandler[handlerCount];
+        for (int i = 0; i < handlerCount; i++) {
+            handlers[i] = new PartitionHandler(i);
+        }
+        disruptor.handleEventsWith(handlers);
+        disruptor.setDefaultExceptionHandler(new LoggingExceptionHandler());
+        ringBuffer = disruptor.start();
+        log.info("[Ingest] Disruptor started: ringSize={}, handlers={}, waitStrategy={}",
+                ringSize, handlerCount, waitStrategy);
+    }
+
+    /**
+     * Dựng lại pending state từ journal ngay trên thread khởi động, trước khi có message mới:
+     * entry đã quá hạn được release ở lượt timer đầu tiên, thứ tự theo symbol giữ như lúc ghi.
+     */
+    private void recover() {
+        journal.recover((topic, buf, symbolOffset, symbolLength, payloadOffset, payloadLength, deadlineNanos) -> {
+            int symbolId = symbols.intern(buf, symbolOffset, symbolLength);
+            switch (topic) {
+                case IngestEvent.TOPIC_QUOTE ->
+                        cacheAdapter.pushQuoteAt(symbolId, buf, payloadOffset, payloadLength, deadlineNanos);
+                case IngestEvent.TOPIC_HISTORY ->
+                        cacheAdapter.pushHistoryAt(symbolId, buf, payloadOffset, payloadLength, deadlineNanos);
+                default -> log.warn("[Ingest] Unknown topic code in journal: {}", topic);
+            }
+        });
+        journal.start(journalFlushIntervalMs, journalCheckpointIntervalMs, cacheAdapter::oldestPendingDeadline);
+    }
+
+    /**
+     * Gọi từ thread socket (single producer). Body nằm trong buffer của caller: inline thì
+     * adapter copy thẳng vào storage, disruptor thì copy vào slot của ring.
+     * Buffer được dùng lại ngay khi hàm trả về.
+     *
+     * @param receivedNanos lúc đọc xong message ({@link System#nanoTime()}), để đo receive-to-enqueue
+     */
+    public void publish(int topic, int symbolId, byte[] buf, int offset, int length, long delayMs,
+                        long receivedNanos) {
+        long deadlineNanos = receivedNanos + delayMs * 1_000_000L;
+        if (!disruptorMode) {
+            dispatch(topic, symbolId, buf, offset, length, deadlineNanos, receivedNanos);
+            return;
+        }
+        long seq = ringBuffer.next();
+        try {
+            ringBuffer.get(seq).set(topic, symbolId % handlerCount, symbolId, buf, offset, length, deadlineNanos,
+                    receivedNanos);
+        } finally {
+            ringBuffer.publish(seq);
+        }
+    }
+
+    private void dispatch(int topic, int symbolId, byte[] buf, int offset, int length, long deadlineNanos,
+                          long receivedNanos) {
+        boolean accepted;
+        switch (topic) {
+            case IngestEvent.TOPIC_QUOTE ->
+                    accepted = cacheAdapter.pushQuoteAt(symbolId, buf, offset, length, deadlineNanos);
+            case IngestEvent.TOPIC_HISTORY ->
+                    accepted = cacheAdapter.pushHistoryAt(symbolId, buf, offset, length, deadlineNanos);
+            default -> {
+                log.warn("[Ingest] Unknown topic code: {}", topic);
+                return;
+            }
+        }
+        if (accepted && journal != null) {
+            // journal chỉ có một writer: các handler của disruptor ghi lần lượt
+            synchronized (journal) {
+                journal.append(topic, symbols.bytes(symbolId), buf, offset, length, deadlineNanos);
+            }
+        }
+        latency.receiveToEnqueue(topic).record(System.nanoTime() - receivedNanos);
+    }
+
+    private static WaitStrategy waitStrategy(String name) {
+        return switch (name) {
+            case "blocking" -> new BlockingWaitStrategy();
+            case "sleeping" -> new SleepingWaitStrategy();
+            case "yielding" -> new YieldingWaitStrategy();
+            case "busy-spin" -> new BusySpinWaitStrategy();
+            default -> throw new IllegalArgumentException("Unknown ingest.disruptor.wait-strategy: " + name);
+        };
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (disruptor != null) {
+            try {
+                disruptor.shutdown(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                log.warn("[Ingest] Disruptor did not drain in time, halting", e);
+                disruptor.halt();
+            }
+            log.info("[Ingest] Disruptor stopped");
+        }
+        // sau disruptor: handler còn ghi journal tới event cuối
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * Số event các handler đã xử lý, cộng dồn mỗi khi hết batch.
+     */
+    long handled() {
+        return handled.get();
+    }
+
+    @Scheduled(fixedDelay = 60000)
+    public void logStats() {
+        if (journal != null) {
+            log.info("[Ingest] journal appended={}, segments={}", journal.appended(), journal.segmentCount());
+        }
+        if (!disruptorMode) return;
+        log.info("[Ingest] published={}, handled={}, remainingCapacity={}",
+                ringBuffer.getCursor() + 1, handled.get(), ringBuffer.remainingCapacity());
+    }
+
+    /**
+     * Mỗi handler thấy mọi event nhưng chỉ xử lý partition của mình.
+     * Bộ đếm được cộng dồn cục bộ và chỉ flush một lần ở cuối batch.
+     */
+    private final class PartitionHandler implements EventHandler<IngestEvent> {
+
+        private final int ordinal;
+        private int batchCount;
+
+        PartitionHandler(int ordinal) {
+            this.ordinal = ordinal;
+        }
+
+        @Override
+        public void onEvent(IngestEvent event, long sequence, boolean endOfBatch) {
+            if (event.partition == ordinal) {
+                dispatch(event.topic, event.symbolId, event.body, 0, event.bodyLength, event.deadlineNanos,
+                        event.receivedNanos);
+                batchCount++;
+            }
+            if (endOfBatch && batchCount > 0) {
+                handled.addAndGet(batchCount);
+                batchCount = 0;
+            }
+        }
+    }
+
+    private static final class LoggingExceptionHandler implements ExceptionHandler<IngestEvent> {
+
+        @Override
+        public void handleEventException(Throwable ex, long sequence, IngestEvent event) {
+            log.error("[Ingest] Error handling event seq={} symbolId={}", sequence, event.symbolId, ex);
+        }
+
+        @Override
+        public void handleOnStartException(Throwable ex) {
+            log.error("[Ingest] Handler failed to start", ex);
+        }
+
+        @Override
+        public void handleOnShutdownException(Throwable ex) {
+            log.error("[Ingest] Handler failed to shut down", ex);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package local.demo.thread_delay.journal;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Write-ahead journal memory-mapped cho các message đang chờ delay, để pending state sống qua restart.
+ * <p>
+ * Mỗi lúc một writer (caller tự serialize) append record vào segment hiện tại; segment đầy
+ * thì được đóng (sealed) và mở segment mới {@code <index>.journal}. Đường ghi chỉ là copy vào
+ * vùng nhớ đã map, không có syscall: thread flush gọi {@code force()} gom theo
+ * {@code flushIntervalMs} (group commit), nên mất tối đa chừng ấy dữ liệu khi máy sập.
+ * <p>
+ * Release watermark: mọi entry có deadline nhỏ hơn {@code min(now, oldestPending)} đã được
+ * release, nên segment đã sealed có deadline lớn nhất dưới watermark được xoá nguyên file
+ * (unmap + delete, không phải compact). Watermark được ghi vào file {@code checkpoint} để lúc
+ * khôi phục bỏ qua các record đã release trong segment còn lại; record release sau checkpoint
+ * cuối có thể được replay lại (at-least-once).
+ * <p>
+ * Record (little-endian): {@code length:int crc32c:int deadlineEpochMs:long topic:byte
+ * symbolLength:short symbol payload}. CRC phủ từ deadline tới hết payload, record hỏng
+ * (ghi dở lúc sập) kết thúc việc đọc segment đó. Deadline lưu theo epoch ms vì nanoTime không
+ * sống qua restart; symbol lưu bằng tên vì id của {@code SymbolTable} chỉ có nghĩa trong một process.
+ */
+@Log4j2
+public class DelayJournal implements AutoCloseable {
+
+    static final int HEADER = 19;
+    private static final String SUFFIX = ".journal";
+    private static final String CHECKPOINT = "checkpoint";
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED.withOrder(ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle ARRAY_INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle ARRAY_LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle ARRAY_SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private final Path dir;
+    private final long segmentSize;
+    private final FileChannel checkpoint;
+    private final ConcurrentLinkedDeque<Segment> segments = new ConcurrentLinkedDeque<>();
+
+    // quy đổi nanoTime <-> epoch ms cố định trong một process, đồng hồ hệ thống nhảy cũng không lệch
+    private final long epochBase = System.currentTimeMillis();
+    private final long nanoBase = System.nanoTime();
+
+    // writer side
+    private final CRC32C crc = new CRC32C();
+    private final byte[] header = new byte[HEADER];
+    private Segment active;
+    private long nextIndex;
+    private volatile long appended;
+
+    private Thread flusher;
+    private volatile boolean closed;
+
+    public DelayJournal(Path dir, long segmentSize) {
+        if (segmentSize <= HEADER || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentSize must be in (" + HEADER + ", " + Integer.MAX_VALUE + "]");
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(dir);
+            this.checkpoint = FileChannel.open(dir.resolve(CHECKPOINT),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open journal in " + dir, e);
+        }
+    }
+
+    /**
+     * Map các segment còn lại trên đĩa và replay theo thứ tự ghi mọi record có deadline không nhỏ hơn
+     * checkpoint. Phải gọi một lần, trước {@link #append} đầu tiên; sau đó record mới vào segment mới.
+     *
+     * @return số record đã replay
+     */
+    public long recover(RecordHandler handler) {
+        long started = System.nanoTime();
+        long watermark = readCheckpoint();
+        long replayed = 0;
+        byte[] scratch = new byte[256];
+        for (Path path : listSegments()) {
+            Segment segment = Segment.map(path, index(path));
+            segments.addLast(segment);
+            nextIndex = segment.index + 1;
+            MemorySegment memory = segment.memory;
+            long pos = 0;
+            while (pos + HEADER <= memory.byteSize()) {
+                int length = memory.get(INT, pos);
+                if (length == 0) {
+                    break;
+                }
+                if (length < HEADER || pos + length > memory.byteSize()) {
+                    log.warn("[Journal] {}: bad record length {} at {}, ignoring rest of segment", path, length, pos);
+                    break;
+                }
+                if (scratch.length < length) {
+                    scratch = new byte[Integer.highestOneBit(length) << 1];
+                }
+                MemorySegment.copy(memory, ValueLayout.JAVA_BYTE, pos, scratch, 0, length);
+                crc.reset();
+                crc.update(scratch, 8, length - 8);
+                if ((int) crc.getValue() != (int) ARRAY_INT.get(scratch, 4)) {
+                    log.warn("[Journal] {}: checksum mismatch at {}, ignoring rest of segment", path, pos);
+                    break;
+                }
+                long deadlineEpochMs = (long) ARRAY_LONG.get(scratch, 8);
+                long deadlineNanos = toNanos(deadlineEpochMs);
+                segment.maxDeadlineNanos = Math.max(segment.maxDeadlineNanos, deadlineNanos);
+                if (deadlineEpochMs >= watermark) {
+                    int symbolLength = Short.toUnsignedInt((short) ARRAY_SHORT.get(scratch, 17));
+                    handler.accept(scratch[16], scratch, HEADER, symbolLength,
+                            HEADER + symbolLength, length - HEADER - symbolLength, deadlineNanos);
+                    replayed++;
+                }
+                pos += length;
+            }
+            segment.position = pos;
+            segment.forcedPosition = pos;
+            segment.sealed = true;
+        }
+        active = Segment.create(segmentPath(nextIndex), nextIndex++, segmentSize);
+        segments.addLast(active);
+        log.info("[Journal] Recovered {} records from {} segments in {} ms (checkpoint={})",
+                replayed, segments.size() - 1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started), watermark);
+        return replayed;
+    }
+
+    /**
+     * Writer: ghi một record. Chỉ copy vào vùng nhớ đã map, bền vững sau lần flush kế tiếp.
+     *
+     * @param deadlineNanos deadline theo {@link System#nanoTime()}, không giảm theo thứ tự append
+     */
+    public void append(int topic, byte[] symbol, byte[] buf, int offset, int length, long deadlineNanos) {
+        if (closed) {
+            return;
+        }
+        int recordLength = HEADER + symbol.length + length;
+        if (symbol.length > 0xFFFF || recordLength > segmentSize) {
+            throw new IllegalArgumentException("Record too large for journal segment: " + recordLength);
+        }
+        if (active.position + recordLength > segmentSize) {
+            roll();
+        }
+        ARRAY_LONG.set(header, 8, toEpochMs(deadlineNanos));
+        header[16] = (byte) topic;
+        ARRAY_SHORT.set(header, 17, (short) symbol.length);
+        crc.reset();
+        crc.update(header, 8, HEADER - 8);
+        crc.update(symbol, 0, symbol.length);
+        crc.update(buf, offset, length);
+        ARRAY_INT.set(header, 0, recordLength);
+        ARRAY_INT.set(header, 4, (int) crc.getValue());
+
+        MemorySegment memory = active.memory;
+        long pos = active.position;
+        MemorySegment.copy(header, 0, memory, ValueLayout.JAVA_BYTE, pos, HEADER);
+        MemorySegment.copy(symbol, 0, memory, ValueLayout.JAVA_BYTE, pos + HEADER, symbol.length);
+        MemorySegment.copy(buf, offset, memory, ValueLayout.JAVA_BYTE, pos + HEADER + symbol.length, length);
+        if (deadlineNanos > active.maxDeadlineNanos) {
+            active.maxDeadlineNanos = deadlineNanos;
+        }
+        active.position = pos + recordLength;
+        appended++;
+    }
+
+    private void roll() {
+        active.sealed = true;
+        active = Segment.create(segmentPath(nextIndex), nextIndex++, segmentSize);
+        segments.addLast(active);
+    }
+
+    /**
+     * Chạy thread flush: {@code force()} các segment có dữ liệu mới mỗi {@code flushIntervalMs},
+     * và mỗi {@code checkpointIntervalMs} tính watermark, ghi checkpoint và xoá segment đã release hết.
+     *
+     * @param oldestPending mọi entry có deadline (nanoTime) nhỏ hơn giá trị này đã được release
+     */
+    public void start(long flushIntervalMs, long checkpointIntervalMs, LongSupplier oldestPending) {
+        flusher = Thread.ofPlatform().name("JournalFlusher").daemon(true).start(() -> {
+            long nextCheckpoint = System.nanoTime();
+            while (!closed) {
+                try {
+                    flush();
+                    if (System.nanoTime() - nextCheckpoint >= 0) {
+                        checkpoint(oldestPending.getAsLong());
+                        nextCheckpoint = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(checkpointIntervalMs);
+                    }
+                    Thread.sleep(flushIntervalMs);
+                } catch (InterruptedException e) {
+                    return;
+                } catch (RuntimeException e) {
+                    log.error("[Journal] Flush failed", e);
+                }
+            }
+        });
+    }
+
+    /**
+     * Force mọi segment còn dữ liệu chưa xuống đĩa. Chỉ gọi từ thread flush (hoặc sau khi writer đã dừng).
+     */
+    void flush() {
+        for (Segment segment : segments) {
+            if (segment.durable) {
+                continue;
+            }
+            boolean sealed = segment.sealed;
+            long position = segment.position;
+            if (position != segment.forcedPosition) {
+                segment.memory.force();
+                segment.forcedPosition = position;
+            }
+            if (sealed) {
+                segment.durable = true;
+            }
+        }
+    }
+
+    /**
+     * Ghi watermark xuống file checkpoint rồi xoá các segment đầu hàng đã sealed và release hết.
+     * Chỉ gọi từ thread flush.
+     */
+    void checkpoint(long oldestPendingNanos) {
+        long watermark = Math.min(System.nanoTime(), oldestPendingNanos);
+        Segment head;
+        while ((head = segments.peekFirst()) != null && head.sealed && head.maxDeadlineNanos < watermark) {
+            segments.pollFirst();
+            head.delete();
+        }
+        // trừ 1ms vì quy đổi sang epoch làm tròn xuống: thà replay trùng còn hơn bỏ sót
+        writeCheckpoint(toEpochMs(watermark) - 1);
+    }
+
+    public long appended() {
+        return appended;
+    }
+
+    public int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        if (flusher != null) {
+            flusher.interrupt();
+            try {
+                flusher.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        if (active != null) {
+            active.sealed = true;
+        }
+        flush();
+        for (Segment segment : segments) {
+            segment.arena.close();
+        }
+        try {
+            checkpoint.close();
+        } catch (IOException e) {
+            log.warn("[Journal] Cannot close checkpoint file", e);
+        }
+        log.info("[Journal] Closed: appended={}, segments={}", appended, segments.size());
+    }
+
+    private long toEpochMs(long nanos) {
+        return epochBase + Math.floorDiv(nanos - nanoBase, 1_000_000L);
+    }
+
+    private long toNanos(long epochMs) {
+        return nanoBase + (epochMs - epochBase) * 1_000_000L;
+    }
+
+    private long readCheckpoint() {
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            return checkpoint.read(buf, 0) == Long.BYTES ? buf.getLong(0) : Long.MIN_VALUE;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot read journal checkpoint", e);
+        }
+    }
+
+    private void writeCheckpoint(long watermarkEpochMs) {
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buf.putLong(0, watermarkEpochMs);
+            checkpoint.write(buf, 0);
+            checkpoint.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot write journal checkpoint", e);
+        }
+    }
+
+    private List<Path> listSegments() {
+        try (Stream<Path> files = Files.list(dir)) {
+            List<Path> paths = new ArrayList<>(files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).toList());
+            paths.sort((a, b) -> Long.compare(index(a), index(b)));
+            return paths;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot list journal segments in " + dir, e);
+        }
+    }
+
+    private Path segmentPath(long index) {
+        return dir.resolve(String.format("%020d%s", index, SUFFIX));
+    }
+
+    private static long index(Path path) {
+        String name = path.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SUFFIX.length()));
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        /**
+         * Buffer được dùng lại cho record kế tiếp.
+         *
+         * @param deadlineNanos deadline quy về {@link System#nanoTime()} của process hiện tại, có thể đã qua
+         */
+        void accept(int topic, byte[] buf, int symbolOffset, int symbolLength,
+                    int payloadOffset, int payloadLength, long deadlineNanos);
+    }
+
+    private static final class Segment {
+        final long index;
+        final Path path;
+        final Arena arena;
+        final MemorySegment memory;
+
+        volatile long position;                       // writer ghi
+        volatile long maxDeadlineNanos = Long.MIN_VALUE;
+        volatile boolean sealed;
+        long forcedPosition;                          // thread flush
+        boolean durable;                              // sealed và đã force hết
+
+        private Segment(long index, Path path, Arena arena, MemorySegment memory) {
+            this.index = index;
+            this.path = path;
+            this.arena = arena;
+            this.memory = memory;
+        }
+
+        static Segment create(Path path, long index, long size) {
+            return open(path, index, size, StandardOpenOption.CREATE_NEW);
+        }
+
+        static Segment map(Path path, long index) {
+            try {
+                return open(path, index, Files.size(path), StandardOpenOption.READ);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot map journal segment " + path, e);
+            }
+        }
+
+        private static Segment open(Path path, long index, long size, StandardOpenOption mode) {
+            Arena arena = Arena.ofShared();
+            try (FileChannel channel = FileChannel.open(path, mode, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                // file mới được nới tới size (sparse), mapping vẫn sống sau khi đóng channel
+                return new Segment(index, path, arena, channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena));
+            } catch (IOException e) {
+                arena.close();
+                throw new UncheckedIOException("Cannot map journal segment " + path, e);
+            }
+        }
+
+        void delete() {
+            arena.close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("[Journal] Cannot delete segment {}", path, e);
+            }
+        }
+    }
+}
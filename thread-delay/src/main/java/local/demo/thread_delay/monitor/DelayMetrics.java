@@ -0,0 +1,113 @@
+package local.demo.thread_delay.monitor;
+
+import local.demo.thread_delay.ingest.IngestEvent;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bộ đếm trên đường nóng, thay cho các {@code AtomicInteger} dùng chung (một cache line mọi thread ingest
+ * cùng tranh nhau). Mỗi bộ đếm là một {@link LongAdder}: ghi là cộng vào cell của thread hiện tại,
+ * chỉ lúc đọc mới cộng các cell lại, nên chi phí mỗi message chỉ vài ns.
+ * <p>
+ * Component này không phụ thuộc bean nào để mọi tầng đều inject được;
+ * {@link MetricsExporter} đọc các bộ đếm khi export.
+ */
+@Component
+public class DelayMetrics {
+
+    static final String[] TOPICS = new String[3];
+
+    static {
+        TOPICS[IngestEvent.TOPIC_HISTORY] = "history";
+        TOPICS[IngestEvent.TOPIC_QUOTE] = "quote";
+    }
+
+    /**
+     * Lý do message bị bỏ trước khi vào pending queue hoặc sau khi release, ở tầng egress
+     * (bỏ do budget được {@link MemoryGuardian} đếm).
+     */
+    public enum DropReason {
+        MALFORMED("malformed"),
+        UNKNOWN_TOPIC("unknown-topic"),
+        SYMBOL_TABLE_FULL("symbol-table-full"),
+        EGRESS_QUEUE("egress-queue"),
+        EGRESS_HWM("egress-hwm");
+
+        final String tag;
+
+        DropReason(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    private final LongAdder[] received = adders(TOPICS.length);
+    private final LongAdder[] released = adders(TOPICS.length);
+    private final LongAdder releaseNanos = new LongAdder();
+    private final LongAdder zmqReceived = new LongAdder();
+    private final LongAdder egressSent = new LongAdder();
+    private final LongAdder[] dropped = adders(DropReason.values().length);
+
+    /**
+     * Message đã nhận vào pending store (heap hoặc tầng mmap) của topic.
+     */
+    public LongAdder received(int topic) {
+        return received[topic];
+    }
+
+    /**
+     * Entry đã release khỏi pending queue của topic.
+     */
+    public LongAdder released(int topic) {
+        return released[topic];
+    }
+
+    /**
+     * Tổng thời gian chạy release (ns).
+     */
+    public LongAdder releaseNanos() {
+        return releaseNanos;
+    }
+
+    /**
+     * Message đọc được từ socket ZMQ, kể cả message bị bỏ sau đó.
+     */
+    public LongAdder zmqReceived() {
+        return zmqReceived;
+    }
+
+    /**
+     * Message đã được publish lại trên feed trễ.
+     */
+    public LongAdder egressSent() {
+        return egressSent;
+    }
+
+    public LongAdder dropped(DropReason reason) {
+        return dropped[reason.ordinal()];
+    }
+
+    public long received() {
+        long total = 0;
+        for (LongAdder adder : received) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    public long released() {
+        long total = 0;
+        for (LongAdder adder : released) {
+            total += adder.sum();
+        }
+        return total;
+    }
+
+    private static LongAdder[] adders(int count) {
+        LongAdder[] adders = new LongAdder[count];
+        for (int i = 0; i < count; i++) {
+            adders[i] = new LongAdder();
+        }
+        return adders;
+    }
+}
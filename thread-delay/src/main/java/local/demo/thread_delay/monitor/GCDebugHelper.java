@@ -1,6 +1,7 @@
 package local.demo.thread_delay.monitor;
 
 import jakarta.annotation.PostConstruct;
+import local.demo.thread_delay.DelaySchedulerFactory;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
@@ -21,9 +22,14 @@ public class GCDebugHelper {
 
     private final List<GarbageCollectorMXBean> gcBeans = ManagementFactory.getGarbageCollectorMXBeans();
     private final MemoryMXBean memoryBean = ManagementFactory.getMemoryMXBean();
+    private final DelaySchedulerFactory schedulers;
     private long lastGcCount = 0;
     private long lastGcTime = 0;
 
+    public GCDebugHelper(DelaySchedulerFactory schedulers) {
+        this.schedulers = schedulers;
+    }
+
     @PostConstruct
     public void init() {
         log.info("[GCDebugHelper] Initialized with GC beans: {}",
@@ -75,10 +81,7 @@ public class GCDebugHelper {
 
     @Scheduled(fixedDelay = 10000)
     public void checkWorkers() {
-        int running = WorkerMonitor.ACTIVE_WORKERS.get();
-        log.info("[GCDebugHelper] RECEIVE_SYM1 : {}", WorkerMonitor.RECEIVE_SYM1.get());
-        log.info("[GCDebugHelper] HANDLE_SYM1 : {}", WorkerMonitor.HANDLE_SYM1.get());
-        log.info("[GCDebugHelper] HANDLED_SYM1 : {}", WorkerMonitor.HANDLED_SYM1.get());
+        long running = schedulers.activeWorkers();
 
         if (running == 0) {
             long now = System.currentTimeMillis();
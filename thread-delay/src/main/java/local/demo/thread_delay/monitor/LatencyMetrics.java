@@ -0,0 +1,101 @@
+package local.demo.thread_delay.monitor;
+
+import local.demo.zmq_common.latency.LatencyHistogram;
+import local.demo.zmq_common.latency.LatencyRecorder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Độ trễ end-to-end theo topic, đo bằng nanoTime:
+ * <ul>
+ *     <li>{@code publish-to-receive}: publishNanos trong header nhị phân tới lúc đọc xong frame.
+ *     Chỉ có nghĩa khi publisher chạy cùng host (nanoTime cùng đồng hồ monotonic của OS)</li>
+ *     <li>{@code receive-to-enqueue}: đọc xong frame tới lúc payload nằm trong pending queue</li>
+ *     <li>{@code release-jitter}: deadline tới lúc release thực sự chạy</li>
+ * </ul>
+ * In percentile định kỳ và nếu có {@code latency.export.file} thì ghi thêm CSV (đơn vị micro giây).
+ */
+@Slf4j
+@Component
+public class LatencyMetrics {
+
+    private final LatencyRecorder[] publishToReceive = recorders("publish-to-receive");
+    private final LatencyRecorder[] receiveToEnqueue = recorders("receive-to-enqueue");
+    private final LatencyRecorder[] releaseJitter = recorders("release-jitter");
+    private final Path exportFile;
+
+    public LatencyMetrics(@Value("${latency.export.file:}") String exportFile) {
+        this.exportFile = exportFile.isBlank() ? null : Path.of(exportFile);
+    }
+
+    public LatencyRecorder publishToReceive(int topic) {
+        return publishToReceive[topic];
+    }
+
+    public LatencyRecorder receiveToEnqueue(int topic) {
+        return receiveToEnqueue[topic];
+    }
+
+    public LatencyRecorder releaseJitter(int topic) {
+        return releaseJitter[topic];
+    }
+
+    @Scheduled(fixedDelay = 30000)
+    public void report() {
+        StringBuilder csv = exportFile != null ? new StringBuilder() : null;
+        long timestamp = Instant.now().toEpochMilli();
+        for (LatencyRecorder[] metric : new LatencyRecorder[][]{publishToReceive, receiveToEnqueue, releaseJitter}) {
+            for (int topic = 0; topic < DelayMetrics.TOPICS.length; topic++) {
+                if (DelayMetrics.TOPICS[topic] == null) continue;
+                LatencyHistogram h = metric[topic].snapshot();
+                if (h.count() == 0) continue;
+                log.info("[Latency] {} {}: count={}, p50={} us, p99={} us, p99.9={} us, max={} us",
+                        metric[topic].name(), DelayMetrics.TOPICS[topic], h.count(), micros(h.percentile(50)),
+                        micros(h.percentile(99)), micros(h.percentile(99.9)), micros(h.max()));
+                if (csv != null) {
+                    csv.append(timestamp).append(',').append(metric[topic].name()).append(',')
+                            .append(DelayMetrics.TOPICS[topic]).append(',').append(h.count()).append(',')
+                            .append(micros(h.percentile(50))).append(',').append(micros(h.percentile(99))).append(',')
+                            .append(micros(h.percentile(99.9))).append(',').append(micros(h.max())).append('\n');
+                }
+            }
+        }
+        if (csv != null && !csv.isEmpty()) {
+            export(csv);
+        }
+    }
+
+    private void export(StringBuilder csv) {
+        try {
+            if (Files.notExists(exportFile)) {
+                csv.insert(0, "timestamp_ms,metric,topic,count,p50_us,p99_us,p999_us,max_us\n");
+            }
+            Files.writeString(exportFile, csv, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            log.warn("[Latency] Export to {} failed", exportFile, e);
+        }
+    }
+
+    private static LatencyRecorder[] recorders(String name) {
+        LatencyRecorder[] recorders = new LatencyRecorder[DelayMetrics.TOPICS.length];
+        for (int topic = 0; topic < DelayMetrics.TOPICS.length; topic++) {
+            recorders[topic] = new LatencyRecorder(name);
+        }
+        return recorders;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.1f", nanos / 1000.0);
+    }
+}
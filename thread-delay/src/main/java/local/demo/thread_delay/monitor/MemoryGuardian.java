@@ -1,46 +1,137 @@
 package local.demo.thread_delay.monitor;
 
-import local.demo.thread_delay.DelayWorkersRegistry;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 
-import java.util.List;
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Admission control theo byte payload đang chờ delay.
+ * <p>
+ * Mỗi pending queue đếm chính xác byte của mình và cộng dồn vào bộ đếm của topic ở đây
+ * (xem {@code PendingQueue}), nên tổng pending luôn biết được mà không phải quét.
+ * Khi message mới làm tổng vượt {@code memory.budget-bytes}, adapter áp {@code memory.policy}:
+ * <ul>
+ *     <li>{@code reject-newest}: bỏ message mới, đếm theo topic</li>
+ *     <li>{@code drop-oldest}: bỏ entry cũ nhất chưa release của cùng symbol cho tới khi đủ chỗ,
+ *     symbol không còn gì để bỏ thì bỏ message mới</li>
+ *     <li>{@code conflate}: message mới đè lên entry cuối của symbol nếu cùng tick
+ *     {@code memory.conflate-tick-ms} (mọi topic); budget khi đó là mềm</li>
+ *     <li>{@code pause}: thread ingest dừng tới khi đủ chỗ; socket không được đọc nên message dồn lại
+ *     ở HWM của ZMQ (và publisher tự bỏ theo HWM của nó) thay vì dồn trong heap</li>
+ * </ul>
+ * Budget 0 = không giới hạn.
+ */
 @Log4j2
 @Component
 public class MemoryGuardian {
 
-    private final List<DelayWorkersRegistry> managers = new CopyOnWriteArrayList<>();
+    public enum Policy { REJECT_NEWEST, DROP_OLDEST, CONFLATE, PAUSE }
 
-    public void registerManagers(List<DelayWorkersRegistry> list) {
-        managers.addAll(list);
+    private final long budgetBytes;
+    private final Policy policy;
+    private final long conflateTickMs;
+    private final AtomicLong[] pendingBytes = new AtomicLong[DelayMetrics.TOPICS.length];
+    private final LongAdder[] rejected = new LongAdder[DelayMetrics.TOPICS.length];
+    private final LongAdder[] dropped = new LongAdder[DelayMetrics.TOPICS.length];
+    private final LongAdder pausedNanos = new LongAdder();
+
+    public MemoryGuardian(@Value("${memory.budget-bytes:0}") long budgetBytes,
+                          @Value("${memory.policy:reject-newest}") String policy,
+                          @Value("${memory.conflate-tick-ms:10}") long conflateTickMs) {
+        this.budgetBytes = budgetBytes;
+        this.policy = switch (policy) {
+            case "reject-newest" -> Policy.REJECT_NEWEST;
+            case "drop-oldest" -> Policy.DROP_OLDEST;
+            case "conflate" -> Policy.CONFLATE;
+            case "pause" -> Policy.PAUSE;
+            default -> throw new IllegalArgumentException("Unknown memory.policy: " + policy);
+        };
+        if (this.policy == Policy.CONFLATE && conflateTickMs <= 0) {
+            throw new IllegalArgumentException("memory.conflate-tick-ms must be > 0");
+        }
+        this.conflateTickMs = conflateTickMs;
+        for (int topic = 0; topic < DelayMetrics.TOPICS.length; topic++) {
+            pendingBytes[topic] = new AtomicLong();
+            rejected[topic] = new LongAdder();
+            dropped[topic] = new LongAdder();
+        }
+    }
+
+    /**
+     * Bộ đếm byte pending của topic, truyền cho các pending queue của topic đó.
+     */
+    public AtomicLong pendingBytes(int topic) {
+        return pendingBytes[topic];
+    }
+
+    public long pendingBytes() {
+        long total = 0;
+        for (AtomicLong bytes : pendingBytes) {
+            total += bytes.get();
+        }
+        return total;
+    }
+
+    /**
+     * @param incoming số byte của message sắp được thêm
+     */
+    public boolean overBudget(int incoming) {
+        return budgetBytes > 0 && pendingBytes() + incoming > budgetBytes;
+    }
+
+    public Policy policy() {
+        return policy;
+    }
+
+    public long conflateTickMs() {
+        return conflateTickMs;
+    }
+
+    public void rejected(int topic) {
+        rejected[topic].increment();
+    }
+
+    public void dropped(int topic) {
+        dropped[topic].increment();
+    }
+
+    public LongAdder rejectedCounter(int topic) {
+        return rejected[topic];
+    }
+
+    public LongAdder droppedCounter(int topic) {
+        return dropped[topic];
     }
 
     /**
-     * Kiểm tra định kỳ mỗi 20 giây
+     * {@code pause}: chặn thread gọi tới khi thêm {@code incoming} byte không còn vượt budget
+     * (release của scheduler chạy trên thread khác nên luôn tiến được) hoặc thread bị interrupt.
      */
-//    @Scheduled(fixedDelay = 20_000) // sau mỗi 60s, khi lần trước chạy xong
-//    public void checkWorkersAndMemory() {
-//        if (managers.isEmpty()) {
-//            log.warn("[MemoryGuardian] No DelayWorkersRegistry registered.");
-//            return;
-//        }
-//        boolean allIdle = managers.stream().noneMatch(DelayWorkersRegistry::isRunning);
-//
-//        long usedMb = usedMemoryMb();
-//        long totalMb = totalMemoryMb();
-//
-//        if (allIdle) {
-//            log.info("[MemoryGuardian] All DelayWorkers are idle. Used: {}/{} MB. Triggering GC...", usedMb, totalMb);
-//            System.gc();
-//            sleep(1000);
-//            long after = usedMemoryMb();
-//            log.info("[MemoryGuardian] GC done. Before: {} MB → After: {} MB", usedMb, after);
-//        } else {
-//            log.debug("[MemoryGuardian] Workers active. Used: {}/{} MB", usedMb, totalMb);
-//        }
-//    }
+    public void awaitBudget(int incoming) {
+        long start = System.nanoTime();
+        while (overBudget(incoming) && !Thread.currentThread().isInterrupted()) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        pausedNanos.add(System.nanoTime() - start);
+    }
+
+    @Scheduled(fixedDelay = 30000)
+    public void report() {
+        for (int topic = 0; topic < DelayMetrics.TOPICS.length; topic++) {
+            if (DelayMetrics.TOPICS[topic] == null) continue;
+            log.info("[MemoryGuardian] {}: pendingBytes={}, rejected={}, dropped={}", DelayMetrics.TOPICS[topic],
+                    pendingBytes[topic].get(), rejected[topic].sum(), dropped[topic].sum());
+        }
+        log.info("[MemoryGuardian] pendingBytes={}/{} (policy={}), paused={} ms, heap used={}/{} MB",
+                pendingBytes(), budgetBytes > 0 ? budgetBytes : "unlimited", policy,
+                TimeUnit.NANOSECONDS.toMillis(pausedNanos.sum()), usedMemoryMb(), totalMemoryMb());
+    }
 
     private long usedMemoryMb() {
         Runtime rt = Runtime.getRuntime();
@@ -50,11 +141,4 @@ public class MemoryGuardian {
     private long totalMemoryMb() {
         return Runtime.getRuntime().totalMemory() / 1024 / 1024;
     }
-
-    private void sleep(long ms) {
-        try {
-            Thread.sleep(ms);
-        } catch (InterruptedException ignored) {
-        }
-    }
 }
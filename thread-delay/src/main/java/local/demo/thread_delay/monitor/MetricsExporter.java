@@ -0,0 +1,283 @@
+package local.demo.thread_delay.monitor;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Measurement;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.jvm.JvmMemoryMetrics;
+import io.micrometer.core.instrument.binder.jvm.JvmThreadMetrics;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import local.demo.thread_delay.DelaySchedulerFactory;
+import local.demo.thread_delay.ZmqMessageSubscriber;
+import local.demo.thread_delay.egress.DelayedPublisher;
+import local.demo.thread_delay.ringBuffer.FixDelayedSymbolCacheAdapter;
+import local.demo.zmq_common.receive.ReceiveLoop;
+import local.demo.zmq_common.shard.ShardMap;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.management.Attribute;
+import javax.management.AttributeList;
+import javax.management.AttributeNotFoundException;
+import javax.management.DynamicMBean;
+import javax.management.JMException;
+import javax.management.MBeanAttributeInfo;
+import javax.management.MBeanInfo;
+import javax.management.ObjectName;
+import javax.management.ReflectionException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Đưa số liệu của service vào một Micrometer {@link MeterRegistry} và export ra ngoài:
+ * JMX ({@code local.demo.thread_delay:type=Metrics}, mỗi meter một attribute) và HTTP text
+ * ({@code GET /metrics} trên {@code metrics.http.port}, dạng {@code name{tag="v"} value}).
+ * <p>
+ * Đường nóng không đi qua Micrometer: counter chỉ là function counter đọc {@link LongAdder}
+ * của {@link DelayMetrics}/{@link MemoryGuardian}, gauge tính lúc export, nên chi phí mỗi message
+ * không đổi khi có thêm meter.
+ */
+@Slf4j
+@Component
+public class MetricsExporter {
+
+    private static final String OBJECT_NAME = "local.demo.thread_delay:type=Metrics";
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final DelayMetrics metrics;
+    private final int httpPort;
+    private final boolean jmxEnabled;
+    private HttpServer server;
+    private ExecutorService serverExecutor;
+    private ObjectName objectName;
+
+    // zmq.receive.rate: lấy mẫu mỗi giây
+    private long lastZmqReceived;
+    private long lastSampleNanos = System.nanoTime();
+    private volatile double zmqReceiveRate;
+
+    public MetricsExporter(DelayMetrics metrics,
+                           MemoryGuardian guardian,
+                           FixDelayedSymbolCacheAdapter cacheAdapter,
+                           DelaySchedulerFactory schedulers,
+                           DelayedPublisher egress,
+                           ShardMap shards,
+                           ZmqMessageSubscriber subscriber,
+                           @Value("${metrics.http.port:0}") int httpPort,
+                           @Value("${metrics.jmx.enabled:true}") boolean jmxEnabled) {
+        this.metrics = metrics;
+        this.httpPort = httpPort;
+        this.jmxEnabled = jmxEnabled;
+
+        for (int topic = 0; topic < DelayMetrics.TOPICS.length; topic++) {
+            String name = DelayMetrics.TOPICS[topic];
+            if (name == null) continue;
+            int t = topic;
+            counter("delay.received", metrics.received(topic), "topic", name);
+            counter("delay.released", metrics.released(topic), "topic", name);
+            counter("delay.dropped", guardian.rejectedCounter(topic), "topic", name, "reason", "over-budget");
+            counter("delay.dropped", guardian.droppedCounter(topic), "topic", name, "reason", "drop-oldest");
+            Gauge.builder("delay.pending.entries", () -> cacheAdapter.pendingEntries(t))
+                    .tag("topic", name).register(registry);
+            Gauge.builder("delay.pending.bytes", () -> guardian.pendingBytes(t).get())
+                    .tag("topic", name).baseUnit("bytes").register(registry);
+            Gauge.builder("delay.spilled.bytes", () -> cacheAdapter.spilledBytes(t))
+                    .tag("topic", name).baseUnit("bytes").register(registry);
+        }
+        for (DelayMetrics.DropReason reason : DelayMetrics.DropReason.values()) {
+            counter("delay.dropped", metrics.dropped(reason), "topic", "none", "reason", reason.tag);
+        }
+        FunctionCounter.builder("delay.conflated", cacheAdapter, FixDelayedSymbolCacheAdapter::conflatedQuotes)
+                .tag("topic", "quote").register(registry);
+        Gauge.builder("delay.workers.active", schedulers::activeWorkers).register(registry);
+        // entry quá hạn lâu nhất chưa được release; 0 nếu không có entry nào quá hạn
+        TimeGauge.builder("delay.release.lag", () -> Math.max(0, System.nanoTime() - cacheAdapter.oldestPendingDeadline()),
+                TimeUnit.NANOSECONDS).register(registry);
+        counter("zmq.received", metrics.zmqReceived());
+        counter("delay.egress.sent", metrics.egressSent());
+        Gauge.builder("delay.egress.queued", egress::queued).register(registry);
+        // số shard instance này giữ trên tổng 256, cộng trên cả cụm phải đúng 256
+        Gauge.builder("zmq.shards.owned", shards::shardCount).register(registry);
+        // thread nhận: thời gian đọc/xử lý và thời gian chờ, busy/(busy+idle) là mức dùng của thread
+        ReceiveLoop loop = subscriber.receiveLoop();
+        FunctionCounter.builder("zmq.receive.busy", loop, l -> l.busyNanos() / 1e9).baseUnit("seconds").register(registry);
+        FunctionCounter.builder("zmq.receive.idle", loop, l -> l.idleNanos() / 1e9).baseUnit("seconds").register(registry);
+        FunctionCounter.builder("zmq.receive.wakeups", loop, ReceiveLoop::wakeups).register(registry);
+        Gauge.builder("zmq.receive.rate", () -> zmqReceiveRate).baseUnit("messages/s").register(registry);
+
+        new JvmMemoryMetrics().bindTo(registry);
+        new JvmThreadMetrics().bindTo(registry);
+    }
+
+    public MeterRegistry registry() {
+        return registry;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (jmxEnabled) {
+            try {
+                objectName = new ObjectName(OBJECT_NAME);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(new MetricsMBean(), objectName);
+            } catch (JMException e) {
+                log.warn("[Metrics] Cannot register MBean {}", OBJECT_NAME, e);
+                objectName = null;
+            }
+        }
+        if (httpPort > 0) {
+            try {
+                server = HttpServer.create(new InetSocketAddress(httpPort), 0);
+                serverExecutor = Executors.newSingleThreadExecutor(
+                        Thread.ofPlatform().name("MetricsHttp").daemon(true).factory());
+                server.setExecutor(serverExecutor);
+                server.createContext("/metrics", exchange -> {
+                    byte[] body = render().getBytes(StandardCharsets.UTF_8);
+                    exchange.getResponseHeaders().add("Content-Type", "text/plain; charset=utf-8");
+                    exchange.sendResponseHeaders(200, body.length);
+                    try (OutputStream out = exchange.getResponseBody()) {
+                        out.write(body);
+                    }
+                });
+                server.start();
+                log.info("[Metrics] Serving http://0.0.0.0:{}/metrics", httpPort);
+            } catch (IOException e) {
+                // không có endpoint cũng không nên làm service dừng
+                log.warn("[Metrics] Cannot bind metrics endpoint on port {}", httpPort, e);
+                server = null;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.stop(0);
+            serverExecutor.shutdown();
+        }
+        if (objectName != null) {
+            try {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+            } catch (JMException e) {
+                log.warn("[Metrics] Cannot unregister MBean {}", OBJECT_NAME, e);
+            }
+        }
+        registry.close();
+    }
+
+    @Scheduled(fixedRate = 1000)
+    public void sampleRates() {
+        long now = System.nanoTime();
+        long received = metrics.zmqReceived().sum();
+        zmqReceiveRate = (received - lastZmqReceived) * 1e9 / Math.max(1, now - lastSampleNanos);
+        lastZmqReceived = received;
+        lastSampleNanos = now;
+    }
+
+    /**
+     * Giá trị hiện tại của mọi meter, khoá theo {@code name{tag="v",...}}; meter có nhiều measurement
+     * (timer, summary) thêm hậu tố theo statistic.
+     */
+    Map<String, Double> snapshot() {
+        Map<String, Double> values = new LinkedHashMap<>();
+        for (Meter meter : registry.getMeters()) {
+            Meter.Id id = meter.getId();
+            StringBuilder tags = new StringBuilder();
+            for (Tag tag : id.getTagsAsIterable()) {
+                tags.append(tags.isEmpty() ? "{" : ",").append(tag.getKey()).append("=\"").append(tag.getValue()).append('"');
+            }
+            if (!tags.isEmpty()) {
+                tags.append('}');
+            }
+            String name = id.getName().replace('.', '_');
+            List<Measurement> measurements = new ArrayList<>();
+            meter.measure().forEach(measurements::add);
+            for (Measurement measurement : measurements) {
+                String key = measurements.size() == 1 ? name : name + "_" + measurement.getStatistic().getTagValueRepresentation();
+                values.put(key + tags, measurement.getValue());
+            }
+        }
+        return values;
+    }
+
+    String render() {
+        StringBuilder out = new StringBuilder();
+        snapshot().forEach((key, value) -> out.append(key).append(' ').append(value).append('\n'));
+        return out.toString();
+    }
+
+    private void counter(String name, LongAdder adder, String... tags) {
+        FunctionCounter.builder(name, adder, LongAdder::sum).tags(tags).register(registry);
+    }
+
+    /**
+     * Attribute động: mỗi key của {@link #snapshot()} là một attribute read-only kiểu Double.
+     */
+    private final class MetricsMBean implements DynamicMBean {
+
+        @Override
+        public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            Double value = snapshot().get(attribute);
+            if (value == null) {
+                throw new AttributeNotFoundException(attribute);
+            }
+            return value;
+        }
+
+        @Override
+        public AttributeList getAttributes(String[] attributes) {
+            Map<String, Double> values = snapshot();
+            AttributeList list = new AttributeList();
+            for (String attribute : attributes) {
+                Double value = values.get(attribute);
+                if (value != null) {
+                    list.add(new Attribute(attribute, value));
+                }
+            }
+            return list;
+        }
+
+        @Override
+        public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            // JMX báo attribute không ghi được bằng AttributeNotFoundException, client hiểu được lỗi này
+            throw new AttributeNotFoundException("Metrics are read-only: " + attribute.getName());
+        }
+
+        @Override
+        public AttributeList setAttributes(AttributeList attributes) {
+            return new AttributeList();
+        }
+
+        @Override
+        public Object invoke(String actionName, Object[] params, String[] signature) throws ReflectionException {
+            throw new ReflectionException(new NoSuchMethodException(actionName), "No operations");
+        }
+
+        @Override
+        public MBeanInfo getMBeanInfo() {
+            MBeanAttributeInfo[] attributes = snapshot().keySet().stream()
+                    .map(key -> new MBeanAttributeInfo(key, Double.class.getName(), key, true, false, false))
+                    .toArray(MBeanAttributeInfo[]::new);
+            return new MBeanInfo(MetricsExporter.class.getName(), "thread-delay metrics",
+                    attributes, null, null, null);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package local.demo.thread_delay.offheap;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Arena off-heap cho payload đang chờ delay.
+ * <p>
+ * Payload được copy vào các slab {@link MemorySegment} cấp phát theo kiểu bump-pointer,
+ * mỗi thread producer ghi vào slab riêng của nó nên không cần lock trên đường ghi.
+ * Entry pending chỉ giữ một handle {@code long} = (slab, offset, length).
+ * Mỗi slab đếm số entry còn sống; khi slab đã đầy (sealed) và entry cuối cùng được release
+ * thì cả slab được giải phóng một lần, GC không phải nhìn thấy từng payload.
+ */
+@Log4j2
+public class PayloadArena implements AutoCloseable {
+
+    private static final int SLAB_BITS = 16;
+    private static final int OFFSET_BITS = 26;
+    private static final int LENGTH_BITS = 22;
+    private static final int MAX_SLABS = 1 << SLAB_BITS;
+    private static final long MAX_SLAB_SIZE = 1L << OFFSET_BITS;
+    private static final int MAX_LENGTH = (1 << LENGTH_BITS) - 1;
+
+    private final long slabSize;
+    private final int maxIdleSlabs;
+    private final AtomicReferenceArray<Slab> slabs = new AtomicReferenceArray<>(MAX_SLABS);
+    private final ThreadLocal<Slab> current = new ThreadLocal<>();
+    private final ArrayDeque<Slab> idleSlabs = new ArrayDeque<>();
+    private final ArrayDeque<Integer> freeIds = new ArrayDeque<>();
+    private int nextId;
+
+    private final AtomicLong bytesInUse = new AtomicLong();
+    private final AtomicInteger liveSlabs = new AtomicInteger();
+
+    public PayloadArena(long slabSize, int maxIdleSlabs) {
+        if (slabSize <= 0 || slabSize > MAX_SLAB_SIZE) {
+            throw new IllegalArgumentException("slabSize must be in (0, " + MAX_SLAB_SIZE + "]");
+        }
+        this.slabSize = slabSize;
+        this.maxIdleSlabs = maxIdleSlabs;
+    }
+
+    /**
+     * Copy payload vào slab của thread hiện tại.
+     *
+     * @return handle dùng cho {@link #read}, {@link #length} và {@link #release}
+     */
+    public long store(byte[] src, int offset, int length) {
+        if (length > MAX_LENGTH || length > slabSize) {
+            throw new IllegalArgumentException("Payload too large for arena: " + length);
+        }
+        Slab slab = current.get();
+        if (slab == null || slab.writeOffset + length > slabSize) {
+            if (slab != null) {
+                seal(slab);
+            }
+            slab = newSlab();
+            current.set(slab);
+        }
+        long off = slab.writeOffset;
+        MemorySegment.copy(src, offset, slab.segment, ValueLayout.JAVA_BYTE, off, length);
+        slab.writeOffset = off + length;
+        slab.live.incrementAndGet();
+        bytesInUse.addAndGet(length);
+        return ((long) slab.id << (OFFSET_BITS + LENGTH_BITS)) | (off << LENGTH_BITS) | length;
+    }
+
+    public static int length(long handle) {
+        return (int) (handle & MAX_LENGTH);
+    }
+
+    public void read(long handle, byte[] dst, int dstOffset) {
+        Slab slab = slabs.get(slabId(handle));
+        MemorySegment.copy(slab.segment, ValueLayout.JAVA_BYTE, offset(handle), dst, dstOffset, length(handle));
+    }
+
+    public byte[] toArray(long handle) {
+        byte[] dst = new byte[length(handle)];
+        read(handle, dst, 0);
+        return dst;
+    }
+
+    /**
+     * View trực tiếp lên payload, chỉ hợp lệ tới khi handle được release.
+     */
+    public MemorySegment slice(long handle) {
+        return slabs.get(slabId(handle)).segment.asSlice(offset(handle), length(handle));
+    }
+
+    /**
+     * Đánh dấu entry đã được release, slab được giải phóng khi không còn entry nào.
+     */
+    public void release(long handle) {
+        Slab slab = slabs.get(slabId(handle));
+        bytesInUse.addAndGet(-length(handle));
+        if (slab.live.decrementAndGet() == 0) {
+            free(slab);
+        }
+    }
+
+    public long bytesInUse() {
+        return bytesInUse.get();
+    }
+
+    public int liveSlabs() {
+        return liveSlabs.get();
+    }
+
+    public long offHeapBytes() {
+        return (long) liveSlabs.get() * slabSize;
+    }
+
+    @Override
+    public synchronized void close() {
+        for (int i = 0; i < MAX_SLABS; i++) {
+            Slab slab = slabs.getAndSet(i, null);
+            if (slab != null) {
+                slab.arena.close();
+            }
+        }
+        for (Slab slab : idleSlabs) {
+            slab.arena.close();
+        }
+        idleSlabs.clear();
+        liveSlabs.set(0);
+    }
+
+    private static int slabId(long handle) {
+        return (int) (handle >>> (OFFSET_BITS + LENGTH_BITS));
+    }
+
+    private static long offset(long handle) {
+        return (handle >>> LENGTH_BITS) & (MAX_SLAB_SIZE - 1);
+    }
+
+    /**
+     * Slab đầy: bỏ tham chiếu của writer, nếu mọi entry đã release thì giải phóng luôn.
+     */
+    private void seal(Slab slab) {
+        if (slab.live.decrementAndGet() == 0) {
+            free(slab);
+        }
+    }
+
+    private synchronized Slab newSlab() {
+        Integer freeId = freeIds.poll();
+        int id;
+        if (freeId != null) {
+            id = freeId;
+        } else if (nextId < MAX_SLABS) {
+            id = nextId++;
+        } else {
+            throw new IllegalStateException("PayloadArena exhausted " + MAX_SLABS + " slabs");
+        }
+        Slab slab = idleSlabs.poll();
+        if (slab == null) {
+            Arena arena = Arena.ofShared();
+            slab = new Slab(arena, arena.allocate(slabSize, 8));
+        }
+        slab.id = id;
+        slab.writeOffset = 0;
+        slab.live.set(1); // tham chiếu của writer, bỏ khi seal
+        slabs.set(id, slab);
+        liveSlabs.incrementAndGet();
+        return slab;
+    }
+
+    private synchronized void free(Slab slab) {
+        slabs.compareAndSet(slab.id, slab, null);
+        freeIds.push(slab.id);
+        liveSlabs.decrementAndGet();
+        if (idleSlabs.size() < maxIdleSlabs) {
+            idleSlabs.push(slab);
+        } else {
+            slab.arena.close();
+            log.debug("[PayloadArena] Closed slab, live slabs: {}", liveSlabs.get());
+        }
+    }
+
+    private static final class Slab {
+        final Arena arena;
+        final MemorySegment segment;
+        final AtomicInteger live = new AtomicInteger();
+        int id;
+        long writeOffset;
+
+        Slab(Arena arena, MemorySegment segment) {
+            this.arena = arena;
+            this.segment = segment;
+        }
+    }
+}
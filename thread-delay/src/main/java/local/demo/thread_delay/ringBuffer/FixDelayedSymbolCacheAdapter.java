@@ -1,156 +1,476 @@
 package local.demo.thread_delay.ringBuffer;
 
 import jakarta.annotation.PostConstruct;
-import local.demo.thread_delay.DelayWorkersRegistry;
+import jakarta.annotation.PreDestroy;
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelaySchedulerFactory;
 import local.demo.thread_delay.DelayedEntry;
+import local.demo.thread_delay.egress.DelayedPublisher;
+import local.demo.thread_delay.history.HistoryStore;
+import local.demo.thread_delay.ingest.IngestEvent;
+import local.demo.thread_delay.monitor.DelayMetrics;
+import local.demo.thread_delay.monitor.LatencyMetrics;
 import local.demo.thread_delay.monitor.MemoryGuardian;
-import local.demo.thread_delay.monitor.WorkerMonitor;
+import local.demo.thread_delay.offheap.PayloadArena;
+import local.demo.thread_delay.tier.SpillLog;
+import local.demo.zmq_common.symbol.SymbolTable;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-
 import java.nio.charset.StandardCharsets;
-import java.util.Deque;
-import java.util.List;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
 
 @Slf4j
 @Service
 public class FixDelayedSymbolCacheAdapter {
 
-    private final DelayWorkersRegistry historyRegistry;
-    private final DelayWorkersRegistry quoteRegistry;
+    private final DelayScheduler historyRegistry;
+    private final DelayScheduler quoteRegistry;
 
-    private final Map<String, Deque<String>> historicalMap = new ConcurrentHashMap<>();
-    private final Map<String, Deque<byte[]>> historicalRing = new ConcurrentHashMap<>();
+    // State theo symbol, đánh index bằng id của SymbolTable.
+    // *Ring: chỉ thread ingest sở hữu symbol ghi; history/quoteMap: chỉ thread release ghi.
+    private final SymbolTable symbols;
+    private final HistoryStore history;
+    private final PendingQueue[] historicalRing;
 
-    private final Map<String, String> quoteMap = new ConcurrentHashMap<>();
-    private final Map<String, Deque<byte[]>> quoteRing = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<String> quoteMap;
+    private final PendingQueue[] quoteRing;
 
-    private final AtomicInteger totalReceived = new AtomicInteger(0);
-    private final AtomicInteger totalProcessed = new AtomicInteger(0);
-    private final AtomicLong totalProcessingTimeMs = new AtomicLong(0);
+    private final PendingQueue.Sink historySink = this::storeHistory;
+    private final PendingQueue.Sink quoteSink = this::storeQuote;
 
     private final MemoryGuardian guardian;
+    private final DelayMetrics metrics;
+    private final LatencyMetrics latency;
+    private final DelayedPublisher egress;
+    private final PayloadArena arena; // null: payload pending nằm trên heap
+    private final long quoteConflateTickMs; // 0: giữ mọi quote
+
+    // Tiered: entry còn xa deadline hơn hot window nằm trong SpillLog (mmap) thay vì heap,
+    // thread TierLoader đưa dần vào queue khi tới hot window. null: mọi entry ở heap.
+    private final long hotWindowNanos;
+    private final SpillLog historySpill;
+    private final SpillLog quoteSpill;
+    private final SpillLog.RecordHandler historyPromoter = this::promoteHistory;
+    private final SpillLog.RecordHandler quotePromoter = this::promoteQuote;
+    private Thread tierLoader;
+    private volatile boolean running = true;
     private static final int RING_SIZE = 10_000;
 
-    public FixDelayedSymbolCacheAdapter(MemoryGuardian guardian) {
+    public FixDelayedSymbolCacheAdapter(MemoryGuardian guardian,
+                                        DelayMetrics metrics,
+                                        LatencyMetrics latency,
+                                        DelayedPublisher egress,
+                                        DelaySchedulerFactory schedulerFactory,
+                                        SymbolTable symbols,
+                                        @Value("${delay.payload.store:heap}") String payloadStore,
+                                        @Value("${delay.payload.slab-size:4194304}") long slabSize,
+                                        @Value("${delay.payload.max-idle-slabs:4}") int maxIdleSlabs,
+                                        @Value("${history.max-entries:10000}") int historyMaxEntries,
+                                        @Value("${history.max-bytes:1048576}") long historyMaxBytes,
+                                        @Value("${history.max-age-ms:0}") long historyMaxAgeMs,
+                                        @Value("${delay.quote.mode:all}") String quoteMode,
+                                        @Value("${delay.quote.conflate-tick-ms:10}") long conflateTickMs,
+                                        @Value("${delay.tier.hot-window-ms:0}") long hotWindowMs,
+                                        @Value("${delay.tier.dir:./data/tier}") String tierDir,
+                                        @Value("${delay.tier.segment-size:67108864}") long tierSegmentSize) {
         this.guardian = guardian;
+        this.metrics = metrics;
+        this.latency = latency;
+        this.egress = egress;
+        this.symbols = symbols;
+        this.history = new HistoryStore(symbols.capacity(), historyMaxEntries, historyMaxBytes, historyMaxAgeMs);
+        this.historicalRing = new PendingQueue[symbols.capacity()];
+        this.quoteMap = new AtomicReferenceArray<>(symbols.capacity());
+        this.quoteRing = new PendingQueue[symbols.capacity()];
+        this.arena = switch (payloadStore) {
+            case "heap" -> null;
+            case "offheap" -> new PayloadArena(slabSize, maxIdleSlabs);
+            default -> throw new IllegalArgumentException("Unknown delay.payload.store: " + payloadStore);
+        };
+        // quoteMap chỉ giữ giá trị mới nhất: conflate bỏ các quote bị đè trong cùng tick ngay lúc nhận
+        this.quoteConflateTickMs = switch (quoteMode) {
+            case "all" -> 0;
+            case "conflate" -> {
+                if (conflateTickMs <= 0) {
+                    throw new IllegalArgumentException("delay.quote.conflate-tick-ms must be > 0");
+                }
+                yield conflateTickMs;
+            }
+            default -> throw new IllegalArgumentException("Unknown delay.quote.mode: " + quoteMode);
+        };
+
+        this.hotWindowNanos = TimeUnit.MILLISECONDS.toNanos(hotWindowMs);
+        if (hotWindowMs > 0) {
+            this.historySpill = new SpillLog(Path.of(tierDir, "history"), tierSegmentSize);
+            this.quoteSpill = new SpillLog(Path.of(tierDir, "quote"), tierSegmentSize);
+        } else {
+            this.historySpill = null;
+            this.quoteSpill = null;
+        }
 
-        // mỗi symbol 1 worker riêng
-        this.historyRegistry = new DelayWorkersRegistry(30_000, this::processMain);
-        this.quoteRegistry = new DelayWorkersRegistry(30_000, this::processQuote);
+        // registry: mỗi symbol 1 worker riêng, wheel: timing wheel dùng chung
+        this.historyRegistry = schedulerFactory.create(30_000, this::processMain);
+        this.quoteRegistry = schedulerFactory.create(30_000, this::processQuote);
     }
 
     @PostConstruct
     public void register() {
-        guardian.registerManagers(List.of(historyRegistry, quoteRegistry));
+        if (historySpill != null) {
+            tierLoader = Thread.ofPlatform().name("TierLoader").daemon(true).start(this::loadTier);
+            log.info("[Tier] hot window {} ms, older entries spill to mmap segments", hotWindowNanos / 1_000_000);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        running = false;
+        if (tierLoader != null) {
+            LockSupport.unpark(tierLoader);
+            try {
+                tierLoader.join(TimeUnit.SECONDS.toMillis(5));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            historySpill.close();
+            quoteSpill.close();
+        }
     }
 
     // -------------------- PROCESS MAIN ----------------------------
 
     public void processMain(DelayedEntry entry) {
         long start = System.nanoTime();
+        int released = 0;
         try {
-            Deque<byte[]> rb = historicalRing.get(entry.getKey());
-            if (rb != null) {
-                byte[] val = rb.pollFirst();
-                if (val != null) {
-                    if (entry.getKey().equals("SYM1")) {
-                        WorkerMonitor.HANDLED_SYM1.incrementAndGet();
-                    }
-                    historicalMap
-                            .computeIfAbsent(entry.getKey(), k -> new ConcurrentLinkedDeque<>())
-                            .addLast(new String(val));
-                } else {
-                        log.warn("process main map value null {}", entry.getKey());
-                }
-                if (rb.isEmpty()) {
-                    historicalRing.remove(entry.getKey());
-                }
-            } else {
-                log.warn("[ZMQ] No historical ring found for {}", entry.getKey());
-            }
+            PendingQueue pending = ((PendingQueue.Timer) entry).getQueue();
+            released = release(IngestEvent.TOPIC_HISTORY, pending, historySink);
         } finally {
-            recordProcessingTime(start);
+            recordProcessingTime(IngestEvent.TOPIC_HISTORY, start, released);
         }
     }
 
+    private void storeHistory(int symbolId, byte[] val) {
+        history.append(symbolId, val, 0, val.length, System.currentTimeMillis());
+    }
+
     // -------------------- PROCESS QUOTE ----------------------------
 
     public void processQuote(DelayedEntry entry) {
         long start = System.nanoTime();
+        int released = 0;
         try {
-            Deque<byte[]> rb = quoteRing.get(entry.getKey());
-            if (rb != null) {
-                byte[] val = rb.pollFirst();
-                if (val != null) {
-                    quoteMap.put(entry.getKey(), new String(val));
-                }
-                if (rb.isEmpty()) {
-                    quoteRing.remove(entry.getKey());
-                }
-            }
+            PendingQueue pending = ((PendingQueue.Timer) entry).getQueue();
+            released = release(IngestEvent.TOPIC_QUOTE, pending, quoteSink);
         } finally {
-            recordProcessingTime(start);
+            recordProcessingTime(IngestEvent.TOPIC_QUOTE, start, released);
+        }
+    }
+
+    private void storeQuote(int symbolId, byte[] val) {
+        quoteMap.set(symbolId, new String(val));
+    }
+
+    /**
+     * Release các entry tới hạn vào {@code sink}; khi bật egress, cả lần release được publish lại thành
+     * một batch. Sink không giữ payload nên egress dùng thẳng byte[] đó, không copy.
+     */
+    private int release(int topic, PendingQueue pending, PendingQueue.Sink sink) {
+        if (!egress.enabled()) {
+            return pending.release(System.nanoTime(), sink);
         }
+        DelayedPublisher.Batch batch = egress.newBatch(topic, sink);
+        int released = pending.release(System.nanoTime(), batch);
+        egress.publish(batch);
+        return released;
     }
 
     // -------------------- PUSH METHODS ----------------------------
 
+    /**
+     * Như {@link #pushHistoryAt}: chỉ gọi từ thread ingest (producer duy nhất của pending queue).
+     */
     public void pushHistory(String key, String value, long delayMs) {
-        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
-        historicalRing
-                .computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>())
-                .addLast(raw);
+        pushHistory(symbols.intern(key), value.getBytes(StandardCharsets.UTF_8), delayMs);
+    }
 
-        totalReceived.incrementAndGet();
-        historyRegistry.submit(key, delayMs);  // <-- worker riêng cho từng symbol
-//        if (key.equals("SYM1")) {
-//            log.info("pushHistory " + value);
-//        }
+    public void pushHistory(int symbolId, byte[] raw, long delayMs) {
+        pushHistoryAt(symbolId, raw, 0, raw.length, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+    }
+
+    /**
+     * Nhận body thẳng từ buffer nhận của socket, buffer được dùng lại ngay sau khi hàm trả về.
+     *
+     * @param deadlineNanos lúc được release theo {@link System#nanoTime()}
+     * @return false nếu message bị bỏ theo policy của {@link MemoryGuardian}
+     */
+    public boolean pushHistoryAt(int symbolId, byte[] buf, int offset, int length, long deadlineNanos) {
+        if (spill(historySpill, symbolId, buf, offset, length, deadlineNanos)
+                || admit(IngestEvent.TOPIC_HISTORY, historyQueue(symbolId), buf, offset, length, deadlineNanos)) {
+            metrics.received(IngestEvent.TOPIC_HISTORY).increment();
+            return true;
+        }
+        return false;
     }
 
+    /**
+     * Như {@link #pushQuoteAt}: chỉ gọi từ thread ingest (producer duy nhất của pending queue).
+     */
     public void pushQuote(String key, String value, long delayMs) {
-        byte[] raw = value.getBytes(StandardCharsets.UTF_8);
-        quoteRing
-                .computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>())
-                .addLast(raw);
+        pushQuote(symbols.intern(key), value.getBytes(StandardCharsets.UTF_8), delayMs);
+    }
+
+    public void pushQuote(int symbolId, byte[] raw, long delayMs) {
+        pushQuoteAt(symbolId, raw, 0, raw.length, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs));
+    }
 
-        totalReceived.incrementAndGet();
-        quoteRegistry.submit(key, delayMs);   // <-- worker riêng cho từng symbol
+    /**
+     * @return false nếu message bị bỏ theo policy của {@link MemoryGuardian}
+     */
+    public boolean pushQuoteAt(int symbolId, byte[] buf, int offset, int length, long deadlineNanos) {
+        if (spill(quoteSpill, symbolId, buf, offset, length, deadlineNanos)
+                || admit(IngestEvent.TOPIC_QUOTE, quoteQueue(symbolId), buf, offset, length, deadlineNanos)) {
+            metrics.received(IngestEvent.TOPIC_QUOTE).increment();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Ghi vào tầng mmap nếu deadline còn xa hơn hot window, hoặc topic đang có entry nằm trong đó
+     * (entry mới không được vượt lên trước entry cũ của cùng symbol).
+     * <p>
+     * Quyền ghi vào queue của symbol chuyển qua lại theo backlog: còn backlog thì chỉ TierLoader
+     * append vào queue, hết backlog (TierLoader đã append xong record cuối) thì thread ingest append thẳng.
+     *
+     * @return false nếu entry phải vào heap ngay
+     */
+    private boolean spill(SpillLog spill, int symbolId, byte[] buf, int offset, int length, long deadlineNanos) {
+        if (spill == null || (!spill.hasBacklog() && deadlineNanos - System.nanoTime() <= hotWindowNanos)) {
+            return false;
+        }
+        spill.append(symbolId, buf, offset, length, deadlineNanos);
+        return true;
+    }
+
+    private void loadTier() {
+        while (running) {
+            try {
+                long horizon = System.nanoTime() + hotWindowNanos;
+                int loaded = historySpill.poll(horizon, historyPromoter) + quoteSpill.poll(horizon, quotePromoter);
+                if (loaded == 0) {
+                    LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+                }
+            } catch (RuntimeException e) {
+                log.error("[Tier] Load failed", e);
+            }
+        }
+    }
+
+    private void promoteHistory(int symbolId, byte[] buf, int offset, int length, long deadlineNanos) {
+        admit(IngestEvent.TOPIC_HISTORY, historyQueue(symbolId), buf, offset, length, deadlineNanos);
+    }
+
+    private void promoteQuote(int symbolId, byte[] buf, int offset, int length, long deadlineNanos) {
+        admit(IngestEvent.TOPIC_QUOTE, quoteQueue(symbolId), buf, offset, length, deadlineNanos);
+    }
+
+    /**
+     * Thêm vào queue nếu còn trong budget, không thì áp policy của {@link MemoryGuardian}.
+     * Chạy trên thread producer của queue nên được phép drop/conflate trên chính queue đó.
+     *
+     * @return false nếu message bị bỏ
+     */
+    private boolean admit(int topic, PendingQueue pending, byte[] buf, int offset, int length, long deadlineNanos) {
+        if (guardian.overBudget(length)) {
+            switch (guardian.policy()) {
+                case REJECT_NEWEST -> {
+                    guardian.rejected(topic);
+                    return false;
+                }
+                case DROP_OLDEST -> {
+                    while (guardian.overBudget(length) && pending.dropOldest()) {
+                        guardian.dropped(topic);
+                    }
+                    if (guardian.overBudget(length)) {
+                        guardian.rejected(topic);
+                        return false;
+                    }
+                }
+                case CONFLATE -> {
+                    pending.appendConflatingAt(buf, offset, length, deadlineNanos, guardian.conflateTickMs());
+                    return true;
+                }
+                case PAUSE -> guardian.awaitBudget(length);
+            }
+        }
+        pending.appendAt(buf, offset, length, deadlineNanos);
+        return true;
+    }
+
+    /**
+     * Mọi entry có deadline ({@link System#nanoTime()}) nhỏ hơn giá trị này đã được release.
+     * Quét cả hai mảng queue, chỉ dùng cho việc định kỳ (journal xoá segment).
+     */
+    public long oldestPendingDeadline() {
+        long oldest = Long.MAX_VALUE;
+        for (PendingQueue[] ring : new PendingQueue[][]{historicalRing, quoteRing}) {
+            for (PendingQueue pending : ring) {
+                if (pending != null) {
+                    oldest = Math.min(oldest, pending.oldestDeadline());
+                }
+            }
+        }
+        if (historySpill != null) {
+            oldest = Math.min(oldest, Math.min(historySpill.oldestDeadline(), quoteSpill.oldestDeadline()));
+        }
+        return oldest;
+    }
+
+    /**
+     * Số entry chờ release của topic, gồm cả phần nằm ở tầng mmap. Quét mảng queue, dùng cho export.
+     */
+    public long pendingEntries(int topic) {
+        PendingQueue[] ring = topic == IngestEvent.TOPIC_QUOTE ? quoteRing : historicalRing;
+        long total = 0;
+        for (int id = 0, n = symbols.size(); id < n; id++) {
+            PendingQueue pending = ring[id];
+            if (pending != null) {
+                total += pending.size();
+            }
+        }
+        SpillLog spill = topic == IngestEvent.TOPIC_QUOTE ? quoteSpill : historySpill;
+        return spill != null ? total + spill.backlog() : total;
+    }
+
+    /**
+     * Số byte payload của topic đang nằm ở tầng mmap (0 nếu tắt tiered).
+     */
+    public long spilledBytes(int topic) {
+        SpillLog spill = topic == IngestEvent.TOPIC_QUOTE ? quoteSpill : historySpill;
+        return spill != null ? spill.backlogBytes() : 0;
+    }
+
+    /**
+     * Số quote đã bị conflate (đè lên entry cuối cùng tick) của mọi symbol.
+     */
+    public long conflatedQuotes() {
+        long total = 0;
+        for (int id = 0, n = symbols.size(); id < n; id++) {
+            PendingQueue pending = quoteRing[id];
+            if (pending != null) {
+                total += pending.conflated();
+            }
+        }
+        return total;
+    }
+
+    private PendingQueue historyQueue(int symbolId) {
+        PendingQueue pending = historicalRing[symbolId];
+        if (pending == null) {
+            pending = new PendingQueue(symbolId, symbols.name(symbolId), historyRegistry, arena,
+                    latency.releaseJitter(IngestEvent.TOPIC_HISTORY), 0,
+                    guardian.pendingBytes(IngestEvent.TOPIC_HISTORY));
+            historicalRing[symbolId] = pending;
+        }
+        return pending;
+    }
+
+    private PendingQueue quoteQueue(int symbolId) {
+        PendingQueue pending = quoteRing[symbolId];
+        if (pending == null) {
+            pending = new PendingQueue(symbolId, symbols.name(symbolId), quoteRegistry, arena,
+                    latency.releaseJitter(IngestEvent.TOPIC_QUOTE), quoteConflateTickMs,
+                    guardian.pendingBytes(IngestEvent.TOPIC_QUOTE));
+            quoteRing[symbolId] = pending;
+        }
+        return pending;
     }
 
     // -------------------- STATS ----------------------------
 
-    private void recordProcessingTime(long startNano) {
-        long durationMs = (System.nanoTime() - startNano) / 1_000_000;
-        totalProcessed.incrementAndGet();
-        totalProcessingTimeMs.addAndGet(durationMs);
+    private void recordProcessingTime(int topic, long startNano, int released) {
+        metrics.released(topic).add(released);
+        metrics.releaseNanos().add(System.nanoTime() - startNano);
     }
 
     @Scheduled(fixedDelay = 30000)
     public void logStats() {
-        int received = totalReceived.get();
-        int processed = totalProcessed.get();
-        long totalTime = totalProcessingTimeMs.get();
-        double avgTime = processed > 0 ? (double) totalTime / processed : 0.0;
+        long received = metrics.received();
+        long processed = metrics.released();
+        long totalTimeNanos = metrics.releaseNanos().sum();
+        double avgTimeUs = processed > 0 ? totalTimeNanos / 1000.0 / processed : 0.0;
+
+        int historyCount = 0, ringHistoryCount = 0, quoteCount = 0, ringQuoteCount = 0;
+        long pendingHistory = 0, pendingQuote = 0, conflatedQuote = 0;
+        int topSymbol = -1;
+        long topBytes = 0;
+        for (int id = 0, n = symbols.size(); id < n; id++) {
+            if (history.get(id) != null) historyCount++;
+            if (quoteMap.get(id) != null) quoteCount++;
+            long symbolBytes = 0;
+            PendingQueue h = historicalRing[id];
+            if (h != null) {
+                ringHistoryCount++;
+                pendingHistory += h.size();
+                symbolBytes += h.pendingBytes();
+            }
+            PendingQueue q = quoteRing[id];
+            if (q != null) {
+                ringQuoteCount++;
+                pendingQuote += q.size();
+                conflatedQuote += q.conflated();
+                symbolBytes += q.pendingBytes();
+            }
+            if (symbolBytes > topBytes) {
+                topBytes = symbolBytes;
+                topSymbol = id;
+            }
+        }
 
         log.info("[MapSize] historicalMap={}, ringHistory={}, quoteMap={}, ringQuote={}",
-                historicalMap.size(), historicalRing.size(),
-                quoteMap.size(), quoteRing.size());
+                historyCount, ringHistoryCount, quoteCount, ringQuoteCount);
+
+        log.info("[History] entries={}, bytes={}, evicted={}", history.entries(), history.bytes(), history.evicted());
+
+        log.info("📊 Stats: received={}, processed={}, totalTime={} ms, avgTime={} us/msg",
+                received, processed, totalTimeNanos / 1_000_000, String.format("%.2f", avgTimeUs));
 
-        log.info("📊 Stats: received={}, processed={}, totalTime={} ms, avgTime={} ms/msg",
-                received, processed, totalTime, String.format("%.2f", avgTime));
+        log.info("[Scheduler] pendingHistory={}, pendingQuote={}, conflatedQuote={}, timers={}",
+                pendingHistory, pendingQuote, conflatedQuote, historyRegistry.pending() + quoteRegistry.pending());
 
-        if (historicalRing.isEmpty() && quoteRing.isEmpty()) {
+        if (topSymbol >= 0) {
+            log.info("[Pending] largest symbol={} pendingBytes={}", symbols.name(topSymbol), topBytes);
+        }
+
+        if (historySpill != null) {
+            log.info("[Tier] spilledHistory={} ({} bytes, {} segments), spilledQuote={} ({} bytes, {} segments)",
+                    historySpill.backlog(), historySpill.backlogBytes(), historySpill.segmentCount(),
+                    quoteSpill.backlog(), quoteSpill.backlogBytes(), quoteSpill.segmentCount());
+        }
+
+        if (arena != null) {
+            log.info("[PayloadArena] bytesInUse={}, liveSlabs={}, offHeapBytes={}",
+                    arena.bytesInUse(), arena.liveSlabs(), arena.offHeapBytes());
+        }
+
+        if (pendingHistory == 0 && pendingQuote == 0 && (historySpill == null
+                || historySpill.backlog() + quoteSpill.backlog() == 0)) {
             log.info("[Result] historicalMap={}, historicalMapValues {}, quoteMap={}",
-                    historicalMap.size(), historicalMap.size(), quoteMap.size());
+                    historyCount, history.entries(), quoteCount);
         }
     }
+
+    /**
+     * Dọn history theo tuổi cho cả symbol không còn message mới.
+     */
+    @Scheduled(fixedDelay = 10000)
+    public void expireHistory() {
+        history.expire(symbols.size(), System.currentTimeMillis());
+    }
 }
\ No newline at end of file
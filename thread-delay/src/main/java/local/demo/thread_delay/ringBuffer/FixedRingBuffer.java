@@ -15,15 +15,19 @@ public class FixedRingBuffer<T> {
         this.mask = sizePowerOfTwo - 1;
     }
 
-    public synchronized void offer(byte[] value) {
+    /**
+     * @return false nếu buffer đầy, caller quyết định xử lý
+     */
+    public synchronized boolean offer(byte[] value) {
         long t = tail;
         long h = head;
         if (t - h == buffer.length) {
-            log.warn("Full buffer size: " + buffer.length + " head: " + head + " tail: " + tail);
-            return; // full
+            log.warn("Full buffer size: {} head: {} tail: {}", buffer.length, h, t);
+            return false; // full
         }
         buffer[(int)(t & mask)] = value;
         tail = t + 1;
+        return true;
     }
 
     public synchronized byte[] poll() {
@@ -0,0 +1,48 @@
+package local.demo.thread_delay.ringBuffer;
+
+import java.util.function.Consumer;
+
+/**
+ * Hành vi khi ring đầy. Được gọi trên thread producer với phần tử chưa vào được ring.
+ */
+@FunctionalInterface
+public interface FullPolicy<E> {
+
+    /**
+     * @param attempt số lần đã gặp ring đầy cho phần tử này, bắt đầu từ 1
+     * @return true để thử offer lại, false để offer trả về false
+     */
+    boolean onFull(E element, int attempt);
+
+    /**
+     * Trả về false ngay, caller tự xử lý.
+     */
+    static <E> FullPolicy<E> reject() {
+        return (element, attempt) -> false;
+    }
+
+    /**
+     * Chờ consumer giải phóng chỗ: spin, sau đó yield, tối đa maxAttempts lần.
+     */
+    static <E> FullPolicy<E> spin(int maxAttempts) {
+        return (element, attempt) -> {
+            if (attempt > maxAttempts) return false;
+            if (attempt < 100) {
+                Thread.onSpinWait();
+            } else {
+                Thread.yield();
+            }
+            return true;
+        };
+    }
+
+    /**
+     * Chuyển phần tử sang nơi khác (overflow, counter, log...), offer vẫn trả về false.
+     */
+    static <E> FullPolicy<E> overflowTo(Consumer<? super E> overflow) {
+        return (element, attempt) -> {
+            overflow.accept(element);
+            return false;
+        };
+    }
+}
@@ -0,0 +1,86 @@
+package local.demo.thread_delay.ringBuffer;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.function.Consumer;
+
+/**
+ * Base cho các ring lock-free kích thước cố định (power of two).
+ * Index được đọc/ghi qua VarHandle với acquire/release, không dùng lock.
+ * Khi đầy, {@link #offer(Object)} hỏi {@link FullPolicy} và trả về false nếu không vào được,
+ * không bao giờ bỏ dữ liệu một cách im lặng.
+ */
+public abstract class LockFreeRingBuffer<E> extends RingIndices {
+
+    static final VarHandle PRODUCER_INDEX;
+    static final VarHandle CONSUMER_INDEX;
+    static final VarHandle ELEMENTS = MethodHandles.arrayElementVarHandle(Object[].class);
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            PRODUCER_INDEX = lookup.findVarHandle(RingProducerFields.class, "producerIndex", long.class);
+            CONSUMER_INDEX = lookup.findVarHandle(RingConsumerFields.class, "consumerIndex", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    protected final Object[] buffer;
+    protected final int mask;
+    private final FullPolicy<? super E> fullPolicy;
+
+    protected LockFreeRingBuffer(int sizePowerOfTwo, FullPolicy<? super E> fullPolicy) {
+        if (sizePowerOfTwo <= 0 || Integer.bitCount(sizePowerOfTwo) != 1) {
+            throw new IllegalArgumentException("Size must be a positive power of two");
+        }
+        this.buffer = new Object[sizePowerOfTwo];
+        this.mask = sizePowerOfTwo - 1;
+        this.fullPolicy = fullPolicy;
+    }
+
+    /**
+     * @return true nếu phần tử đã vào ring, false nếu ring đầy và policy không thử lại
+     */
+    public boolean offer(E value) {
+        if (value == null) {
+            throw new NullPointerException("Null elements are not supported");
+        }
+        int attempt = 0;
+        while (!tryOffer(value)) {
+            if (!fullPolicy.onFull(value, ++attempt)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Một lần thử offer, không gọi policy.
+     */
+    protected abstract boolean tryOffer(E value);
+
+    public abstract E poll();
+
+    /**
+     * Lấy tối đa max phần tử theo thứ tự và đẩy cho consumer, consumer index chỉ publish một lần.
+     *
+     * @return số phần tử đã drain
+     */
+    public abstract int drainTo(Consumer<? super E> consumer, int max);
+
+    public int capacity() {
+        return buffer.length;
+    }
+
+    public int size() {
+        // đọc consumer trước để kết quả không âm
+        long c = (long) CONSUMER_INDEX.getAcquire(this);
+        long p = (long) PRODUCER_INDEX.getAcquire(this);
+        return (int) Math.min(p - c, buffer.length);
+    }
+
+    public boolean isEmpty() {
+        return (long) CONSUMER_INDEX.getAcquire(this) >= (long) PRODUCER_INDEX.getAcquire(this);
+    }
+}
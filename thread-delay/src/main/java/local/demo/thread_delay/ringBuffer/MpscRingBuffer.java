@@ -0,0 +1,77 @@
+package local.demo.thread_delay.ringBuffer;
+
+import java.util.function.Consumer;
+
+/**
+ * Ring nhiều producer, một consumer. Producer giành slot bằng CAS trên producer index,
+ * sau đó publish phần tử bằng release-store vào chính slot; consumer coi slot null là
+ * chưa được publish.
+ */
+public class MpscRingBuffer<E> extends LockFreeRingBuffer<E> {
+
+    public MpscRingBuffer(int sizePowerOfTwo) {
+        this(sizePowerOfTwo, FullPolicy.reject());
+    }
+
+    public MpscRingBuffer(int sizePowerOfTwo, FullPolicy<? super E> fullPolicy) {
+        super(sizePowerOfTwo, fullPolicy);
+    }
+
+    @Override
+    protected boolean tryOffer(E value) {
+        long p;
+        do {
+            p = (long) PRODUCER_INDEX.getVolatile(this);
+            long c = (long) CONSUMER_INDEX.getAcquire(this);
+            if (p - c >= buffer.length) {
+                return false;
+            }
+        } while (!PRODUCER_INDEX.compareAndSet(this, p, p + 1));
+
+        ELEMENTS.setRelease(buffer, (int) (p & mask), value);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long c = consumerIndex;
+        int idx = (int) (c & mask);
+        Object value = ELEMENTS.getAcquire(buffer, idx);
+        if (value == null) {
+            if (c >= (long) PRODUCER_INDEX.getAcquire(this)) {
+                return null;
+            }
+            // slot đã được giành nhưng producer chưa ghi xong
+            do {
+                Thread.onSpinWait();
+                value = ELEMENTS.getAcquire(buffer, idx);
+            } while (value == null);
+        }
+        buffer[idx] = null;
+        CONSUMER_INDEX.setRelease(this, c + 1);
+        return (E) value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Consumer<? super E> consumer, int max) {
+        long c = consumerIndex;
+        int n = 0;
+        try {
+            while (n < max) {
+                int idx = (int) ((c + n) & mask);
+                Object value = ELEMENTS.getAcquire(buffer, idx);
+                if (value == null) {
+                    break; // rỗng hoặc producer chưa publish xong, để lần sau
+                }
+                buffer[idx] = null;
+                n++;
+                consumer.accept((E) value);
+            }
+        } finally {
+            CONSUMER_INDEX.setRelease(this, c + n);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,437 @@
+package local.demo.thread_delay.ringBuffer;
+
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelayedEntry;
+import local.demo.thread_delay.offheap.PayloadArena;
+import local.demo.zmq_common.latency.LatencyRecorder;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hàng đợi pending của một symbol: deadline nằm cạnh payload trong cùng một slot,
+ * append-only và FIFO (mọi message cùng một delay nên deadline tăng dần).
+ * <p>
+ * Một producer (thread ingest) và một consumer (thread của scheduler). Thay vì mỗi message
+ * một {@link DelayedEntry}, queue chỉ giữ tối đa một timer đang chờ: khi tới hạn, consumer
+ * drain tuần tự mọi entry đã hết delay rồi hẹn lại timer cho entry đầu tiên còn lại.
+ * <p>
+ * Nếu có {@link PayloadArena}, payload được copy ra off-heap và slot chỉ giữ handle,
+ * byte[] chỉ được tạo lại lúc release.
+ * <p>
+ * Deadline tính bằng {@link System#nanoTime()}; timer chỉ có độ phân giải ms nên delay của timer
+ * được làm tròn lên, entry không bao giờ bị release sớm. Nếu có {@link LatencyRecorder},
+ * mỗi entry được release ghi lại độ trễ so với deadline của nó.
+ * <p>
+ * {@link #oldestDeadline()} cho thread khác (journal) biết mọi entry có deadline nhỏ hơn nó đã được release.
+ * <p>
+ * Chế độ conflate (quote chỉ cần giá trị mới nhất): deadline được làm tròn lên bội của tick, message
+ * rơi vào cùng tick với entry cuối chưa release thì thay payload của entry đó (CAS với consumer)
+ * thay vì thêm slot mới. Mỗi tick release đúng giá trị mới nhất, không sớm hơn deadline của nó.
+ * <p>
+ * Payload của slot được trao qua CAS/getAndSet nên producer còn lấy lại được entry cũ nhất chưa
+ * release ({@link #dropOldest()}) khi vượt budget bộ nhớ. Số byte payload đang chờ được đếm chính xác
+ * theo queue và cộng dồn vào bộ đếm chung của topic.
+ */
+public class PendingQueue {
+
+    private static final int SEGMENT_SIZE = 1024;
+    private static final long NONE = Long.MIN_VALUE;
+    private static final long TAKEN = -1L;
+    private static final VarHandle PAYLOADS = MethodHandles.arrayElementVarHandle(byte[][].class);
+    private static final VarHandle HANDLES = MethodHandles.arrayElementVarHandle(long[].class);
+
+    private final int symbolId;
+    private final String symbol;
+    private final DelayScheduler scheduler;
+    private final PayloadArena arena; // null: giữ payload trên heap
+    private final LatencyRecorder releaseJitter; // null: không đo
+    private final long conflateTickNanos; // 0: giữ mọi message
+    private final AtomicLong pendingBytes = new AtomicLong();
+    private final AtomicLong topicBytes;
+    // tick lớn nhất từng dùng để làm tròn deadline, oldestDeadline trừ đi để vẫn là cận dưới
+    private volatile long hintSlackNanos;
+    private final AtomicBoolean armed = new AtomicBoolean(false);
+    // ghi bởi bên nào vừa arm timer (producer) hoặc vừa release xong (consumer)
+    private volatile long oldestDeadline = Long.MAX_VALUE;
+
+    // producer side
+    private Segment tailSegment;
+    private volatile long writeIndex;
+    private int lastIdx;
+    private int lastLength;
+    private long lastDeadline = NONE;
+    private byte[] lastPayload;
+    private long lastHandle;
+    private volatile long conflated;
+    private long dropIndex;
+    private volatile long dropped;
+
+    // consumer side
+    private Segment headSegment;     // producer đọc khi drop, sau readIndex
+    private volatile long readIndex;
+
+    public PendingQueue(int symbolId, String symbol, DelayScheduler scheduler) {
+        this(symbolId, symbol, scheduler, null);
+    }
+
+    public PendingQueue(int symbolId, String symbol, DelayScheduler scheduler, PayloadArena arena) {
+        this(symbolId, symbol, scheduler, arena, null);
+    }
+
+    public PendingQueue(int symbolId, String symbol, DelayScheduler scheduler, PayloadArena arena,
+                        LatencyRecorder releaseJitter) {
+        this(symbolId, symbol, scheduler, arena, releaseJitter, 0);
+    }
+
+    public PendingQueue(int symbolId, String symbol, DelayScheduler scheduler, PayloadArena arena,
+                        LatencyRecorder releaseJitter, long conflateTickMs) {
+        this(symbolId, symbol, scheduler, arena, releaseJitter, conflateTickMs, null);
+    }
+
+    /**
+     * @param conflateTickMs &gt; 0: bật conflate với tick này
+     * @param topicBytes     bộ đếm byte pending chung của topic, null: chỉ đếm trong queue
+     */
+    public PendingQueue(int symbolId, String symbol, DelayScheduler scheduler, PayloadArena arena,
+                        LatencyRecorder releaseJitter, long conflateTickMs, AtomicLong topicBytes) {
+        this.symbolId = symbolId;
+        this.symbol = symbol;
+        this.scheduler = scheduler;
+        this.arena = arena;
+        this.releaseJitter = releaseJitter;
+        this.conflateTickNanos = Math.max(0, conflateTickMs) * 1_000_000L;
+        this.hintSlackNanos = conflateTickNanos;
+        this.topicBytes = topicBytes != null ? topicBytes : new AtomicLong();
+        this.tailSegment = new Segment(arena != null, 0);
+        this.headSegment = tailSegment;
+    }
+
+    public int getSymbolId() {
+        return symbolId;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    /**
+     * Producer: thêm payload, deadline = now + delayMs, hẹn timer nếu queue chưa có.
+     * Trên heap, queue giữ luôn mảng payload (không copy).
+     */
+    public void append(byte[] payload, long delayMs) {
+        add(payload, 0, payload.length, false, System.nanoTime() + delayMs * 1_000_000L, conflateTickNanos);
+    }
+
+    /**
+     * Như {@link #append(byte[], long)} nhưng copy [offset, offset + length) nên caller được dùng
+     * lại buffer. Với arena, bytes đi thẳng ra off-heap, không cấp phát gì trên heap.
+     */
+    public void append(byte[] buf, int offset, int length, long delayMs) {
+        appendAt(buf, offset, length, System.nanoTime() + delayMs * 1_000_000L);
+    }
+
+    /**
+     * Như {@link #append(byte[], int, int, long)} với deadline ({@link System#nanoTime()}) tính sẵn,
+     * ví dụ tính từ lúc nhận message hoặc khôi phục từ journal. Deadline phải không nhỏ hơn
+     * deadline của entry trước đó.
+     */
+    public void appendAt(byte[] buf, int offset, int length, long deadlineNanos) {
+        add(buf, offset, length, true, deadlineNanos, conflateTickNanos);
+    }
+
+    /**
+     * Như {@link #appendAt} nhưng conflate theo {@code tickMs} cho riêng message này, kể cả khi queue
+     * không ở chế độ conflate (admission control dùng khi vượt budget).
+     */
+    public void appendConflatingAt(byte[] buf, int offset, int length, long deadlineNanos, long tickMs) {
+        add(buf, offset, length, true, deadlineNanos, Math.max(tickMs * 1_000_000L, conflateTickNanos));
+    }
+
+    private void add(byte[] buf, int offset, int length, boolean copy, long deadlineNanos, long tickNanos) {
+        // entry trước có thể đã bị làm tròn lên: giữ deadline không giảm
+        if (deadlineNanos < lastDeadline) {
+            deadlineNanos = lastDeadline;
+        }
+        if (tickNanos > 0) {
+            if (tickNanos > hintSlackNanos) {
+                hintSlackNanos = tickNanos;
+            }
+            deadlineNanos = Math.ceilDiv(deadlineNanos, tickNanos) * tickNanos;
+            if (deadlineNanos == lastDeadline && replaceLast(buf, offset, length, copy)) {
+                return;
+            }
+        }
+        int idx = reserve(deadlineNanos);
+        if (arena != null) {
+            lastHandle = arena.store(buf, offset, length);
+            tailSegment.handles[idx] = lastHandle;
+        } else {
+            lastPayload = copy ? Arrays.copyOfRange(buf, offset, offset + length) : buf;
+            tailSegment.payloads[idx] = lastPayload;
+        }
+        lastIdx = idx;
+        lastLength = length;
+        lastDeadline = deadlineNanos;
+        addBytes(length);
+        publish(deadlineNanos);
+    }
+
+    /**
+     * Thay payload của entry cuối nếu consumer chưa lấy nó.
+     *
+     * @return false nếu consumer đã lấy, caller thêm entry mới như bình thường
+     */
+    private boolean replaceLast(byte[] buf, int offset, int length, boolean copy) {
+        if (arena != null) {
+            long handle = arena.store(buf, offset, length);
+            if (HANDLES.compareAndSet(tailSegment.handles, lastIdx, lastHandle, handle)) {
+                arena.release(lastHandle);
+                lastHandle = handle;
+                replaced(length);
+                return true;
+            }
+            arena.release(handle);
+            return false;
+        }
+        byte[] payload = copy ? Arrays.copyOfRange(buf, offset, offset + length) : buf;
+        if (PAYLOADS.compareAndSet(tailSegment.payloads, lastIdx, lastPayload, payload)) {
+            lastPayload = payload;
+            replaced(length);
+            return true;
+        }
+        return false;
+    }
+
+    private void replaced(int length) {
+        addBytes(length - lastLength);
+        lastLength = length;
+        conflated = conflated + 1;
+    }
+
+    /**
+     * Producer: bỏ entry cũ nhất còn giữ payload (không giao cho sink) để nhường bộ nhớ.
+     * Slot vẫn còn trong queue tới khi consumer đi qua, chỉ payload bị lấy ra.
+     *
+     * @return false nếu không còn entry nào để bỏ
+     */
+    public boolean dropOldest() {
+        long w = writeIndex;
+        long r = Math.max(readIndex, dropIndex);
+        // headSegment đọc sau readIndex nên không cũ hơn readIndex; không giữ segment nào lại
+        Segment segment = headSegment;
+        r = Math.max(r, segment.base);
+        while (r < w) {
+            while (r >= segment.base + SEGMENT_SIZE) {
+                segment = segment.next;
+            }
+            int idx = (int) (r - segment.base);
+            r++;
+            dropIndex = r;
+            int length = take(segment, idx);
+            if (length >= 0) {
+                addBytes(-length);
+                dropped = dropped + 1;
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Lấy payload khỏi slot (producer drop hoặc consumer release, ai tới trước thì được).
+     *
+     * @return độ dài payload, -1 nếu slot đã bị lấy
+     */
+    private int take(Segment segment, int idx) {
+        if (arena != null) {
+            long handle = (long) HANDLES.getAndSet(segment.handles, idx, TAKEN);
+            if (handle == TAKEN) {
+                return -1;
+            }
+            arena.release(handle);
+            return PayloadArena.length(handle);
+        }
+        byte[] payload = (byte[]) PAYLOADS.getAndSet(segment.payloads, idx, (byte[]) null);
+        return payload == null ? -1 : payload.length;
+    }
+
+    private void addBytes(long delta) {
+        pendingBytes.addAndGet(delta);
+        topicBytes.addAndGet(delta);
+    }
+
+    private int reserve(long deadlineNanos) {
+        long w = writeIndex;
+        int idx = (int) (w % SEGMENT_SIZE);
+        if (idx == 0 && w != 0) {
+            Segment next = new Segment(arena != null, w);
+            tailSegment.next = next;
+            tailSegment = next;
+        }
+        tailSegment.deadlines[idx] = deadlineNanos;
+        return idx;
+    }
+
+    private void publish(long deadlineNanos) {
+        writeIndex = writeIndex + 1; // publish
+
+        if (armed.compareAndSet(false, true)) {
+            oldestDeadline = deadlineNanos - hintSlackNanos;
+            scheduler.submit(new Timer(this, timerDelayMs(deadlineNanos, System.nanoTime())));
+        }
+    }
+
+    /**
+     * Consumer: release theo thứ tự mọi entry có deadline <= now, sau đó hẹn lại timer
+     * cho entry kế tiếp hoặc disarm nếu queue đã rỗng.
+     *
+     * @param now thời điểm theo {@link System#nanoTime()}
+     * @return số entry đã release
+     */
+    public int release(long now, Sink sink) {
+        int released = 0;
+        long releasedBytes = 0;
+        long limit = writeIndex;
+        while (readIndex < limit) {
+            int idx = (int) (readIndex % SEGMENT_SIZE);
+            // chỉ bước sang segment mới khi thật sự lấy entry, headDeadline() dựa vào điều này
+            Segment segment = (idx == 0 && readIndex != 0) ? headSegment.next : headSegment;
+            long deadline = segment.deadlines[idx];
+            if (deadline > now) {
+                break;
+            }
+            headSegment = segment;
+            byte[] payload;
+            if (arena != null) {
+                long handle = (long) HANDLES.getAndSet(headSegment.handles, idx, TAKEN);
+                payload = handle == TAKEN ? null : arena.toArray(handle);
+                if (payload != null) {
+                    arena.release(handle);
+                }
+            } else {
+                payload = (byte[]) PAYLOADS.getAndSet(headSegment.payloads, idx, (byte[]) null);
+            }
+            readIndex++;
+            if (payload == null) {
+                continue; // producer đã drop
+            }
+            if (releaseJitter != null) {
+                releaseJitter.record(now - deadline);
+            }
+            released++;
+            releasedBytes += payload.length;
+            sink.accept(symbolId, payload);
+        }
+        if (releasedBytes > 0) {
+            addBytes(-releasedBytes);
+        }
+        rearm(now);
+        return released;
+    }
+
+    public boolean isEmpty() {
+        return readIndex == writeIndex;
+    }
+
+    public long size() {
+        return writeIndex - readIndex;
+    }
+
+    /**
+     * Tổng byte payload đang chờ trong queue (đã trừ entry bị drop/conflate).
+     */
+    public long pendingBytes() {
+        return pendingBytes.get();
+    }
+
+    /**
+     * Số entry producer đã drop trước khi tới hạn.
+     */
+    public long dropped() {
+        return dropped;
+    }
+
+    /**
+     * Số message đã thay payload của entry cuối thay vì thêm entry mới.
+     */
+    public long conflated() {
+        return conflated;
+    }
+
+    /**
+     * Đọc được từ thread bất kỳ: cận dưới deadline (trước khi làm tròn theo tick conflate) của các entry
+     * chưa release, {@link Long#MAX_VALUE} nếu queue rỗng lúc consumer chạy lần cuối. Có thể trễ so với
+     * producer một chút (entry vừa append khi timer còn đang hẹn) nhưng entry đó luôn có deadline lớn hơn.
+     */
+    public long oldestDeadline() {
+        return oldestDeadline;
+    }
+
+    private void rearm(long now) {
+        long head = headDeadline();
+        if (head == NONE) {
+            // phải ghi trước khi disarm: sau đó producer arm timer sẽ ghi đè bằng deadline của nó
+            oldestDeadline = Long.MAX_VALUE;
+            armed.set(false);
+            // producer có thể đã append ngay sau lần kiểm tra ở trên
+            if (isEmpty() || !armed.compareAndSet(false, true)) {
+                return;
+            }
+            head = headDeadline();
+        }
+        oldestDeadline = head - hintSlackNanos;
+        scheduler.submit(new Timer(this, timerDelayMs(head, now)));
+    }
+
+    private static long timerDelayMs(long deadlineNanos, long now) {
+        return Math.max(0, Math.ceilDiv(deadlineNanos - now, 1_000_000L));
+    }
+
+    private long headDeadline() {
+        if (readIndex == writeIndex) {
+            return NONE;
+        }
+        int idx = (int) (readIndex % SEGMENT_SIZE);
+        Segment segment = (idx == 0 && readIndex != 0) ? headSegment.next : headSegment;
+        return segment.deadlines[idx];
+    }
+
+    /**
+     * Timer của queue: handler lấy lại queue trực tiếp, không cần lookup theo symbol.
+     */
+    public static final class Timer extends DelayedEntry {
+        private final PendingQueue queue;
+
+        Timer(PendingQueue queue, long delayMs) {
+            super(queue.symbolId, queue.symbol, delayMs);
+            this.queue = queue;
+        }
+
+        public PendingQueue getQueue() {
+            return queue;
+        }
+    }
+
+    @FunctionalInterface
+    public interface Sink {
+        void accept(int symbolId, byte[] payload);
+    }
+
+    private static final class Segment {
+        final long base; // index của slot đầu tiên
+        final long[] deadlines = new long[SEGMENT_SIZE];
+        final byte[][] payloads;
+        final long[] handles;
+        Segment next;
+
+        Segment(boolean offHeap, long base) {
+            this.base = base;
+            this.payloads = offHeap ? null : new byte[SEGMENT_SIZE][];
+            this.handles = offHeap ? new long[SEGMENT_SIZE] : null;
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package local.demo.thread_delay.ringBuffer;
+
+/**
+ * Layout index có padding cho các ring lock-free: producer index và consumer index
+ * (cùng giá trị cache của phía đối diện) nằm trên các cache line riêng.
+ * Field của superclass luôn được xếp trước subclass nên padding theo tầng kế thừa là ổn định.
+ */
+abstract class RingPadding0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+abstract class RingProducerFields extends RingPadding0 {
+    long producerIndex;
+    long producerLimit; // consumerIndex + capacity, chỉ producer đọc/ghi (SPSC)
+}
+
+abstract class RingPadding1 extends RingProducerFields {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+abstract class RingConsumerFields extends RingPadding1 {
+    long consumerIndex;
+    long producerCache; // producerIndex đã thấy gần nhất, chỉ consumer đọc/ghi
+}
+
+abstract class RingIndices extends RingConsumerFields {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
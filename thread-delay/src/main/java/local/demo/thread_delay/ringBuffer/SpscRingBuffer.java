@@ -0,0 +1,74 @@
+package local.demo.thread_delay.ringBuffer;
+
+import java.util.function.Consumer;
+
+/**
+ * Ring một producer, một consumer. Mỗi phía chỉ ghi index của mình (release) và cache
+ * index của phía kia, chỉ đọc lại (acquire) khi cache cho thấy đầy / rỗng.
+ */
+public class SpscRingBuffer<E> extends LockFreeRingBuffer<E> {
+
+    public SpscRingBuffer(int sizePowerOfTwo) {
+        this(sizePowerOfTwo, FullPolicy.reject());
+    }
+
+    public SpscRingBuffer(int sizePowerOfTwo, FullPolicy<? super E> fullPolicy) {
+        super(sizePowerOfTwo, fullPolicy);
+    }
+
+    @Override
+    protected boolean tryOffer(E value) {
+        long p = producerIndex;
+        if (p >= producerLimit) {
+            producerLimit = (long) CONSUMER_INDEX.getAcquire(this) + buffer.length;
+            if (p >= producerLimit) {
+                return false;
+            }
+        }
+        buffer[(int) (p & mask)] = value;
+        PRODUCER_INDEX.setRelease(this, p + 1);
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public E poll() {
+        long c = consumerIndex;
+        if (c >= producerCache) {
+            producerCache = (long) PRODUCER_INDEX.getAcquire(this);
+            if (c >= producerCache) {
+                return null;
+            }
+        }
+        int idx = (int) (c & mask);
+        E value = (E) buffer[idx];
+        buffer[idx] = null;
+        CONSUMER_INDEX.setRelease(this, c + 1);
+        return value;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public int drainTo(Consumer<? super E> consumer, int max) {
+        long c = consumerIndex;
+        long available = producerCache - c;
+        if (available < max) {
+            producerCache = (long) PRODUCER_INDEX.getAcquire(this);
+            available = producerCache - c;
+        }
+        int limit = (int) Math.min(available, max);
+        int n = 0;
+        try {
+            while (n < limit) {
+                int idx = (int) ((c + n) & mask);
+                E value = (E) buffer[idx];
+                buffer[idx] = null;
+                n++;
+                consumer.accept(value);
+            }
+        } finally {
+            CONSUMER_INDEX.setRelease(this, c + n);
+        }
+        return n;
+    }
+}
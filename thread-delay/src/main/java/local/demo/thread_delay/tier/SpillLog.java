@@ -0,0 +1,253 @@
+package local.demo.thread_delay.tier;
+
+import lombok.extern.log4j.Log4j2;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Tầng lạnh của pending store: log tuần tự trên các segment file memory-mapped.
+ * <p>
+ * Message còn xa deadline được append vào cuối log thay vì giữ trên heap; một reader duy nhất
+ * ({@link #poll}) đọc lại từ đầu log các record sắp tới hạn để đưa vào pending queue trên heap.
+ * Record được append theo thứ tự nhận nên đọc theo thứ tự file là đủ, không cần index. Reader đi
+ * qua hết segment nào thì segment đó được unmap và xoá ngay, nên đĩa chỉ giữ phần chưa đọc.
+ * <p>
+ * Đây chỉ là chỗ chứa tạm trong một process (độ bền qua restart là việc của journal): file cũ
+ * trong thư mục bị xoá lúc mở, record dùng byte order native và deadline theo {@link System#nanoTime()}.
+ * <p>
+ * Record: {@code length:int symbolId:int deadlineNanos:long payload}; {@code length = -1} đánh dấu
+ * hết segment. Append có lock vì ở chế độ disruptor nhiều handler cùng ghi một topic.
+ */
+@Log4j2
+public class SpillLog implements AutoCloseable {
+
+    static final int HEADER = 16;
+    private static final int END = -1;
+    private static final String SUFFIX = ".spill";
+    private static final ValueLayout.OfInt INT = ValueLayout.JAVA_INT_UNALIGNED;
+    private static final ValueLayout.OfLong LONG = ValueLayout.JAVA_LONG_UNALIGNED;
+
+    private final Path dir;
+    private final long segmentSize;
+    private final AtomicInteger segmentCount = new AtomicInteger();
+
+    // writer side (giữ lock)
+    private Segment writeSegment;
+    private long writePosition;
+    private long nextIndex;
+    private long writtenBytes;
+    private volatile long written;
+
+    // reader side
+    private Segment readSegment;
+    private long readPosition;
+    private byte[] scratch = new byte[256];
+    private volatile long promoted;
+    private volatile long promotedBytes;
+    private volatile long oldestDeadline = Long.MAX_VALUE;
+
+    private volatile boolean closed;
+
+    public SpillLog(Path dir, long segmentSize) {
+        if (segmentSize <= HEADER || segmentSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("segmentSize must be in (" + HEADER + ", " + Integer.MAX_VALUE + "]");
+        }
+        this.dir = dir;
+        this.segmentSize = segmentSize;
+        try {
+            Files.createDirectories(dir);
+            try (Stream<Path> files = Files.list(dir)) {
+                for (Path path : files.filter(p -> p.getFileName().toString().endsWith(SUFFIX)).toList()) {
+                    Files.delete(path);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot open spill log in " + dir, e);
+        }
+        this.writeSegment = newSegment(segmentSize);
+        this.readSegment = writeSegment;
+    }
+
+    /**
+     * Writer: copy payload vào cuối log. Buffer được dùng lại ngay sau khi hàm trả về.
+     */
+    public synchronized void append(int symbolId, byte[] buf, int offset, int length, long deadlineNanos) {
+        if (closed) {
+            return;
+        }
+        long size = writeSegment.memory.byteSize();
+        if (writePosition + HEADER + length > size) {
+            if (writePosition + Integer.BYTES <= size) {
+                writeSegment.memory.set(INT, writePosition, END);
+            }
+            // record lớn hơn segment thì có segment riêng vừa đủ
+            Segment next = newSegment(Math.max(segmentSize, HEADER + length));
+            writeSegment.next = next; // publish trước record đầu tiên của next (qua written)
+            writeSegment = next;
+            writePosition = 0;
+        }
+        MemorySegment memory = writeSegment.memory;
+        memory.set(INT, writePosition, length);
+        memory.set(INT, writePosition + 4, symbolId);
+        memory.set(LONG, writePosition + 8, deadlineNanos);
+        MemorySegment.copy(buf, offset, memory, ValueLayout.JAVA_BYTE, writePosition + HEADER, length);
+        writePosition += HEADER + length;
+        writtenBytes += length;
+        written = written + 1; // publish
+    }
+
+    /**
+     * Còn record chưa được đọc lại. Writer dùng để quyết định: đã có record nằm trong log thì
+     * record mới của topic cũng phải vào log, để không vượt lên trước record cũ của cùng symbol.
+     */
+    public boolean hasBacklog() {
+        return written != promoted;
+    }
+
+    /**
+     * Reader: đọc theo thứ tự mọi record có deadline &lt;= {@code horizonNanos}, dừng ở record
+     * đầu tiên chưa tới horizon. Chỉ gọi từ một thread.
+     *
+     * @return số record đã giao cho handler
+     */
+    public int poll(long horizonNanos, RecordHandler handler) {
+        int count = 0;
+        long limit = written;
+        long head = Long.MAX_VALUE;
+        long bytes = 0;
+        long done = promoted;
+        while (done < limit) {
+            MemorySegment memory = readSegment.memory;
+            if (readPosition + Integer.BYTES > memory.byteSize() || memory.get(INT, readPosition) == END) {
+                advance();
+                continue;
+            }
+            long deadline = memory.get(LONG, readPosition + 8);
+            if (deadline > horizonNanos) {
+                head = deadline;
+                break;
+            }
+            int length = memory.get(INT, readPosition);
+            int symbolId = memory.get(INT, readPosition + 4);
+            if (scratch.length < length) {
+                scratch = new byte[Integer.highestOneBit(length) << 1];
+            }
+            MemorySegment.copy(memory, ValueLayout.JAVA_BYTE, readPosition + HEADER, scratch, 0, length);
+            handler.accept(symbolId, scratch, 0, length, deadline);
+            readPosition += HEADER + length;
+            bytes += length;
+            count++;
+            // chỉ tăng sau khi handler xong: writer thấy hết backlog thì record cuối đã nằm trong queue
+            promoted = ++done;
+        }
+        if (bytes > 0) {
+            promotedBytes = promotedBytes + bytes;
+        }
+        oldestDeadline = head;
+        return count;
+    }
+
+    private void advance() {
+        Segment next = readSegment.next;
+        readSegment.delete();
+        segmentCount.decrementAndGet();
+        readSegment = next;
+        readPosition = 0;
+        if (next.next != null) {
+            // segment đã sealed: nạp trước cả file vào page cache, tránh page fault rải rác lúc đọc
+            next.memory.load();
+        }
+    }
+
+    /**
+     * Đọc được từ thread bất kỳ: deadline của record đầu log lúc {@link #poll} chạy lần cuối,
+     * {@link Long#MAX_VALUE} nếu khi đó log rỗng. Record append sau đó luôn có deadline lớn hơn
+     * {@code now + hot window} nên không làm giá trị này sai với người dùng cận dưới theo {@code now}.
+     */
+    public long oldestDeadline() {
+        return oldestDeadline;
+    }
+
+    public long backlog() {
+        return written - promoted;
+    }
+
+    public synchronized long backlogBytes() {
+        return writtenBytes - promotedBytes;
+    }
+
+    public long spilled() {
+        return written;
+    }
+
+    public int segmentCount() {
+        return segmentCount.get();
+    }
+
+    /**
+     * Gọi sau khi writer và reader đã dừng; record chưa đọc bị bỏ cùng file.
+     */
+    @Override
+    public synchronized void close() {
+        if (closed) return;
+        closed = true;
+        for (Segment segment = readSegment; segment != null; segment = segment.next) {
+            segment.delete();
+        }
+        log.info("[SpillLog] {} closed: spilled={}, dropped unread={}", dir, written, written - promoted);
+    }
+
+    private Segment newSegment(long size) {
+        Path path = dir.resolve(String.format("%020d%s", nextIndex++, SUFFIX));
+        Arena arena = Arena.ofShared();
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MemorySegment memory = channel.map(FileChannel.MapMode.READ_WRITE, 0, size, arena);
+            segmentCount.incrementAndGet();
+            return new Segment(path, arena, memory);
+        } catch (IOException e) {
+            arena.close();
+            throw new UncheckedIOException("Cannot map spill segment " + path, e);
+        }
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        /**
+         * Buffer được dùng lại cho record kế tiếp.
+         */
+        void accept(int symbolId, byte[] buf, int offset, int length, long deadlineNanos);
+    }
+
+    private static final class Segment {
+        final Path path;
+        final Arena arena;
+        final MemorySegment memory;
+        volatile Segment next;
+
+        Segment(Path path, Arena arena, MemorySegment memory) {
+            this.path = path;
+            this.arena = arena;
+            this.memory = memory;
+        }
+
+        void delete() {
+            arena.close();
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("[SpillLog] Cannot delete segment {}", path, e);
+            }
+        }
+    }
+}
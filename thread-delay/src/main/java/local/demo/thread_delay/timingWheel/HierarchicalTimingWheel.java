@@ -0,0 +1,138 @@
+package local.demo.thread_delay.timingWheel;
+
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel 4 tầng x 256 slot, chỉ dùng bởi một thread (shard).
+ * <p>
+ * Tầng của một entry được chọn theo các bit cao chung giữa deadline và tick hiện tại
+ * (aligned wheel), nên insert và expire đều O(1). Khi tick bước sang epoch mới của tầng L,
+ * bucket tương ứng ở tầng L được hạ xuống các tầng dưới theo đúng thứ tự đã thêm,
+ * nhờ vậy các entry có cùng deadline tick luôn được fire theo thứ tự insert.
+ */
+final class HierarchicalTimingWheel {
+
+    private static final int BITS = 8;
+    private static final int SLOTS = 1 << BITS;
+    private static final int MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    private static final long SPAN_MASK = (1L << (BITS * LEVELS)) - 1;
+
+    private final TimerEntry[] heads = new TimerEntry[LEVELS * SLOTS];
+    private final TimerEntry[] tails = new TimerEntry[LEVELS * SLOTS];
+
+    // deadline vượt quá 4 tầng, được xếp lại mỗi khi tầng trên cùng quay hết một vòng
+    private TimerEntry overflowHead;
+    private TimerEntry overflowTail;
+
+    /** Tick kế tiếp cần expire, mọi tick nhỏ hơn đã được xử lý. */
+    private long currentTick;
+    private long size;
+
+    HierarchicalTimingWheel(long startTick) {
+        this.currentTick = startTick;
+    }
+
+    void add(TimerEntry e) {
+        size++;
+        place(e);
+    }
+
+    /**
+     * Expire mọi tick <= targetTick, gọi action theo thứ tự deadline, cùng tick thì theo thứ tự add.
+     */
+    int advanceTo(long targetTick, Consumer<TimerEntry> action) {
+        int fired = 0;
+        while (currentTick <= targetTick) {
+            if (size == 0) {
+                currentTick = targetTick + 1;
+                break;
+            }
+            long t = currentTick;
+            if ((t & MASK) == 0) {
+                cascade(t);
+            }
+            int idx = (int) (t & MASK);
+            TimerEntry e = heads[idx];
+            heads[idx] = null;
+            tails[idx] = null;
+            while (e != null) {
+                TimerEntry next = e.bucketNext;
+                e.bucketNext = null;
+                size--;
+                fired++;
+                action.accept(e);
+                e = next;
+            }
+            currentTick = t + 1;
+        }
+        return fired;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    long size() {
+        return size;
+    }
+
+    long currentTick() {
+        return currentTick;
+    }
+
+    private void place(TimerEntry e) {
+        long d = Math.max(e.deadlineTick, currentTick);
+        long diff = d ^ currentTick;
+        int level = diff == 0 ? 0 : (63 - Long.numberOfLeadingZeros(diff)) / BITS;
+        if (level >= LEVELS) {
+            if (overflowTail == null) {
+                overflowHead = e;
+            } else {
+                overflowTail.bucketNext = e;
+            }
+            overflowTail = e;
+            return;
+        }
+        int idx = level * SLOTS + (int) ((d >>> (BITS * level)) & MASK);
+        if (tails[idx] == null) {
+            heads[idx] = e;
+        } else {
+            tails[idx].bucketNext = e;
+        }
+        tails[idx] = e;
+    }
+
+    /**
+     * Gọi khi t bắt đầu một epoch mới của tầng 0. Các tầng cao hơn được hạ xuống trước
+     * (từ trên xuống) để thứ tự insert của cùng một deadline không bị đảo.
+     */
+    private void cascade(long t) {
+        if ((t & SPAN_MASK) == 0 && overflowHead != null) {
+            TimerEntry e = overflowHead;
+            overflowHead = null;
+            overflowTail = null;
+            replace(e);
+        }
+        int top = 1;
+        while (top < LEVELS - 1 && (t & ((1L << (BITS * (top + 1))) - 1)) == 0) {
+            top++;
+        }
+        for (int level = top; level >= 1; level--) {
+            int idx = level * SLOTS + (int) ((t >>> (BITS * level)) & MASK);
+            TimerEntry e = heads[idx];
+            heads[idx] = null;
+            tails[idx] = null;
+            replace(e);
+        }
+    }
+
+    private void replace(TimerEntry e) {
+        while (e != null) {
+            TimerEntry next = e.bucketNext;
+            e.bucketNext = null;
+            place(e);
+            e = next;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package local.demo.thread_delay.timingWheel;
+
+import local.demo.thread_delay.DelayedEntry;
+
+/**
+ * Node trong timing wheel: giữ {@link DelayedEntry} sẽ trả cho handler,
+ * deadline tính theo tick và các con trỏ intrusive cho inbox / bucket.
+ */
+final class TimerEntry {
+
+    final TimingWheelScheduler owner;
+    final DelayedEntry entry;
+    final long deadlineTick;
+
+    // inbox MPSC (stack) và bucket list dùng hai con trỏ riêng
+    TimerEntry inboxNext;
+    TimerEntry bucketNext;
+
+    TimerEntry(TimingWheelScheduler owner, DelayedEntry entry, long deadlineTick) {
+        this.owner = owner;
+        this.entry = entry;
+        this.deadlineTick = deadlineTick;
+    }
+}
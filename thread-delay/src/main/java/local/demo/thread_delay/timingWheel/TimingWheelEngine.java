@@ -0,0 +1,193 @@
+package local.demo.thread_delay.timingWheel;
+
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelayedEntry;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Engine delay dùng chung thay cho mô hình mỗi symbol một DelayQueue + virtual thread.
+ * <p>
+ * Symbol được hash cố định vào một trong N shard, mỗi shard là một platform thread sở hữu
+ * một {@link HierarchicalTimingWheel}. Producer chỉ push entry vào inbox lock-free của shard,
+ * shard tự đưa vào wheel và fire handler. Cùng symbol luôn vào cùng shard nên thứ tự FIFO
+ * theo symbol được giữ nguyên. Shard rỗng thì park hẳn, không có timed wakeup.
+ */
+@Slf4j
+public class TimingWheelEngine {
+
+    private final Shard[] shards;
+    private final long tickNanos;
+    private final long originNanos = System.nanoTime();
+    private final LongAdder activeWorkers;
+    private volatile boolean running = true;
+
+    public TimingWheelEngine(int shardCount, long tickMs) {
+        this(shardCount, tickMs, new LongAdder());
+    }
+
+    /**
+     * @param activeWorkers bộ đếm worker đang có việc: shard có entry trong wheel được tính là một worker
+     */
+    public TimingWheelEngine(int shardCount, long tickMs, LongAdder activeWorkers) {
+        if (shardCount <= 0 || tickMs <= 0) {
+            throw new IllegalArgumentException("shardCount and tickMs must be positive");
+        }
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.activeWorkers = activeWorkers;
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            shards[i] = new Shard(i);
+        }
+        for (Shard shard : shards) {
+            shard.thread.start();
+        }
+        log.info("[TimingWheel] Started {} shards, tick={} ms", shardCount, tickMs);
+    }
+
+    public DelayScheduler newScheduler(Consumer<DelayedEntry> handler) {
+        return new TimingWheelScheduler(this, handler);
+    }
+
+    void submit(TimingWheelScheduler owner, DelayedEntry entry) {
+        long delayMs = entry.getExpireAt() - System.currentTimeMillis();
+        long deadlineNanos = System.nanoTime() - originNanos + TimeUnit.MILLISECONDS.toNanos(Math.max(delayMs, 0));
+        long deadlineTick = (deadlineNanos + tickNanos - 1) / tickNanos;
+        shardFor(entry).enqueue(new TimerEntry(owner, entry, deadlineTick));
+    }
+
+    public long pending() {
+        long total = 0;
+        for (Shard shard : shards) {
+            total += shard.size;
+        }
+        return total;
+    }
+
+    public void shutdown() {
+        running = false;
+        for (Shard shard : shards) {
+            LockSupport.unpark(shard.thread);
+        }
+        for (Shard shard : shards) {
+            try {
+                shard.thread.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        log.info("[TimingWheel] Stopped");
+    }
+
+    private Shard shardFor(DelayedEntry entry) {
+        int id = entry.getSymbolId();
+        if (id >= 0) {
+            return shards[id % shards.length];
+        }
+        int h = entry.getKey().hashCode();
+        h ^= (h >>> 16);
+        return shards[Math.floorMod(h, shards.length)];
+    }
+
+    private long nowTick() {
+        return (System.nanoTime() - originNanos) / tickNanos;
+    }
+
+    private final class Shard implements Runnable {
+
+        private final AtomicReference<TimerEntry> inbox = new AtomicReference<>();
+        private final HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(nowTick());
+        private final Thread thread;
+        private volatile long size;
+        private boolean active;
+
+        Shard(int index) {
+            this.thread = Thread.ofPlatform()
+                    .name("TimingWheel-" + index)
+                    .daemon(true)
+                    .unstarted(this);
+        }
+
+        void enqueue(TimerEntry e) {
+            TimerEntry head;
+            do {
+                head = inbox.get();
+                e.inboxNext = head;
+            } while (!inbox.compareAndSet(head, e));
+            if (head == null) {
+                LockSupport.unpark(thread);
+            }
+        }
+
+        @Override
+        public void run() {
+            while (running) {
+                if (wheel.isEmpty()) {
+                    // wheel rỗng: nhảy thẳng tới tick hiện tại trước khi nhận entry mới
+                    wheel.advanceTo(nowTick(), this::fire);
+                }
+                drainInbox();
+                long now = nowTick();
+                wheel.advanceTo(now, this::fire);
+                size = wheel.size();
+
+                if (wheel.isEmpty()) {
+                    if (active) {
+                        active = false;
+                        activeWorkers.decrement();
+                    }
+                    if (inbox.get() == null) {
+                        LockSupport.park(this);
+                    }
+                } else {
+                    if (!active) {
+                        active = true;
+                        activeWorkers.increment();
+                    }
+                    long waitNanos = originNanos + (now + 1) * tickNanos - System.nanoTime();
+                    if (waitNanos > 0 && inbox.get() == null) {
+                        LockSupport.parkNanos(this, waitNanos);
+                    }
+                }
+            }
+            if (active) {
+                activeWorkers.decrement();
+            }
+        }
+
+        private void drainInbox() {
+            TimerEntry stack = inbox.getAndSet(null);
+            if (stack == null) return;
+
+            // inbox là stack nên đảo lại để giữ thứ tự submit
+            TimerEntry fifo = null;
+            while (stack != null) {
+                TimerEntry next = stack.inboxNext;
+                stack.inboxNext = fifo;
+                fifo = stack;
+                stack = next;
+            }
+            while (fifo != null) {
+                TimerEntry next = fifo.inboxNext;
+                fifo.inboxNext = null;
+                wheel.add(fifo);
+                fifo = next;
+            }
+        }
+
+        private void fire(TimerEntry e) {
+            e.owner.pending.decrement();
+            try {
+                e.owner.handler.accept(e.entry);
+            } catch (Exception ex) {
+                log.error("[TimingWheel] Handler failed for {}", e.entry.getKey(), ex);
+            }
+        }
+    }
+}
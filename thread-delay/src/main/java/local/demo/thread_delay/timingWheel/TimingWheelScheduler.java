@@ -0,0 +1,39 @@
+package local.demo.thread_delay.timingWheel;
+
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelayedEntry;
+
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * {@link DelayScheduler} chạy trên {@link TimingWheelEngine} dùng chung.
+ * Mỗi instance chỉ giữ handler và bộ đếm pending của riêng nó.
+ */
+public class TimingWheelScheduler implements DelayScheduler {
+
+    private final TimingWheelEngine engine;
+    final Consumer<DelayedEntry> handler;
+    final LongAdder pending = new LongAdder();
+
+    TimingWheelScheduler(TimingWheelEngine engine, Consumer<DelayedEntry> handler) {
+        this.engine = engine;
+        this.handler = handler;
+    }
+
+    @Override
+    public void submit(String symbol, long delayMs) {
+        submit(new DelayedEntry(symbol, delayMs));
+    }
+
+    @Override
+    public void submit(DelayedEntry entry) {
+        pending.increment();
+        engine.submit(this, entry);
+    }
+
+    @Override
+    public long pending() {
+        return pending.sum();
+    }
+}
@@ -0,0 +1,33 @@
+package local.demo.thread_delay;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ChunkQueueTest {
+
+    @Test
+    void growsByChunksAndRecyclesThem() {
+        ChunkPool pool = new ChunkPool(16, 8);
+        ChunkQueue queue = new ChunkQueue(pool);
+
+        for (int i = 0; i < 100; i++) {
+            queue.add(new byte[]{(byte) i});
+        }
+        assertEquals(100, queue.size());
+        for (int i = 0; i < 100; i++) {
+            assertEquals((byte) i, queue.poll().value()[0]);
+        }
+        assertNull(queue.poll());
+        assertTrue(queue.isEmpty());
+        // 6 chunk đã đọc hết quay về pool, chunk thứ 7 vẫn được queue giữ
+        assertEquals(6, pool.idleCount());
+
+        for (int i = 0; i < 40; i++) {
+            queue.add(new byte[]{(byte) i});
+        }
+        assertEquals(4, pool.idleCount());
+    }
+}
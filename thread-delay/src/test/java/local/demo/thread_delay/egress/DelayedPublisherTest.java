@@ -0,0 +1,73 @@
+package local.demo.thread_delay.egress;
+
+import local.demo.thread_delay.ingest.IngestEvent;
+import local.demo.thread_delay.monitor.DelayMetrics;
+import local.demo.zmq_common.symbol.SymbolTable;
+import org.junit.jupiter.api.Test;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class DelayedPublisherTest {
+
+    @Test
+    void republishesReleasedPayloadsAsThreeFrames() throws Exception {
+        SymbolTable symbols = new SymbolTable(16);
+        int sym = symbols.intern("SYM1");
+        DelayMetrics metrics = new DelayMetrics();
+        DelayedPublisher egress = new DelayedPublisher(symbols, metrics, "tcp://127.0.0.1:5599", 1000, 16);
+        egress.start();
+        try (ZContext context = new ZContext()) {
+            ZMQ.Socket sub = context.createSocket(SocketType.SUB);
+            sub.setReceiveTimeOut(5000);
+            sub.connect("tcp://127.0.0.1:5599");
+            sub.subscribe("history".getBytes(StandardCharsets.US_ASCII));
+            Thread.sleep(300); // chờ subscription tới XPUB
+
+            List<byte[]> stored = new ArrayList<>();
+            DelayedPublisher.Batch batch = egress.newBatch(IngestEvent.TOPIC_HISTORY, (id, payload) -> stored.add(payload));
+            byte[] first = "a".getBytes(StandardCharsets.UTF_8);
+            byte[] second = "bb".getBytes(StandardCharsets.UTF_8);
+            batch.accept(sym, first);
+            batch.accept(sym, second);
+            egress.publish(batch);
+            // batch rỗng (tick không release gì) không vào ring
+            egress.publish(egress.newBatch(IngestEvent.TOPIC_HISTORY, (id, payload) -> { }));
+
+            assertSame(first, stored.get(0)); // sink vẫn nhận đúng payload
+            for (byte[] expected : List.of(first, second)) {
+                byte[] topic = sub.recv();
+                assertNotNull(topic, "timed out");
+                assertArrayEquals("history".getBytes(StandardCharsets.US_ASCII), topic);
+                assertArrayEquals("SYM1".getBytes(StandardCharsets.US_ASCII), sub.recv());
+                assertArrayEquals(expected, sub.recv());
+            }
+        } finally {
+            egress.stop();
+        }
+        assertEquals(2, metrics.egressSent().sum());
+        assertEquals(0, metrics.dropped(DelayMetrics.DropReason.EGRESS_HWM).sum());
+        assertEquals(0, metrics.dropped(DelayMetrics.DropReason.EGRESS_QUEUE).sum());
+    }
+
+    @Test
+    void stopReleasesTheEndpoint() {
+        SymbolTable symbols = new SymbolTable(4);
+        DelayMetrics metrics = new DelayMetrics();
+        for (int i = 0; i < 2; i++) {
+            // socket do thread egress đóng: bind lại cùng endpoint được ngay sau stop
+            DelayedPublisher egress = new DelayedPublisher(symbols, metrics, "tcp://127.0.0.1:5599", 1000, 16);
+            egress.start();
+            egress.stop();
+        }
+    }
+}
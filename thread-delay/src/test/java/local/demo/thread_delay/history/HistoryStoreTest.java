@@ -0,0 +1,72 @@
+package local.demo.thread_delay.history;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class HistoryStoreTest {
+
+    @Test
+    void keepsNewestEntriesWithinCountAndBytes() {
+        HistoryStore store = new HistoryStore(4, 100, 2000, 0);
+        for (int i = 0; i < 1000; i++) {
+            append(store, 1, "payload-" + i, i);
+        }
+        SymbolHistory history = store.get(1);
+        // vòng byte vắt qua cuối mảng nhiều lần, vẫn giữ đúng thứ tự và nội dung
+        List<String> kept = contents(history);
+        assertEquals(100, kept.size());
+        assertEquals("payload-900", kept.get(0));
+        assertEquals("payload-999", kept.get(99));
+        assertEquals(100, store.entries());
+        assertEquals(900, store.evicted());
+
+        HistoryStore small = new HistoryStore(4, 100, 64, 0);
+        for (int i = 0; i < 10; i++) {
+            append(small, 0, "0123456789-" + i, i);
+        }
+        assertEquals(List.of("0123456789-5", "0123456789-6", "0123456789-7", "0123456789-8", "0123456789-9"),
+                contents(small.get(0)));
+        assertEquals(60, small.bytes());
+        assertFalse(small.append(0, new byte[65], 0, 65, 10));
+    }
+
+    @Test
+    void expiresByAgeAndFreesIdleSymbols() {
+        HistoryStore store = new HistoryStore(4, 100, 1000, 1000);
+        for (int i = 0; i < 10; i++) {
+            append(store, 2, "t" + i, i * 200L);
+        }
+        // append ở t=1800 đã bỏ các entry trước t=800
+        assertEquals(List.of("t4", "t5", "t6", "t7", "t8", "t9"), contents(store.get(2)));
+
+        store.expire(4, 2500);
+        assertEquals(List.of("t8", "t9"), contents(store.get(2)));
+
+        store.expire(4, 10_000);
+        assertEquals(0, store.get(2).size());
+        assertNull(store.get(2).latest());
+        assertEquals(0, store.bytes());
+
+        append(store, 2, "again", 10_000);
+        assertArrayEquals("again".getBytes(StandardCharsets.UTF_8), store.get(2).latest());
+    }
+
+    private static void append(HistoryStore store, int symbolId, String value, long nowMs) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        store.append(symbolId, bytes, 0, bytes.length, nowMs);
+    }
+
+    private static List<String> contents(SymbolHistory history) {
+        List<String> out = new ArrayList<>();
+        history.forEach(b -> out.add(new String(b, StandardCharsets.UTF_8)));
+        return out;
+    }
+}
@@ -0,0 +1,160 @@
+package local.demo.thread_delay.ingest;
+
+import local.demo.thread_delay.DelaySchedulerFactory;
+import local.demo.thread_delay.egress.DelayedPublisher;
+import local.demo.thread_delay.monitor.DelayMetrics;
+import local.demo.thread_delay.monitor.LatencyMetrics;
+import local.demo.thread_delay.monitor.MemoryGuardian;
+import local.demo.thread_delay.ringBuffer.FixDelayedSymbolCacheAdapter;
+import local.demo.zmq_common.symbol.SymbolTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+class IngestPipelineTest {
+
+    private static final long DELAY_MS = 60_000;
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @ValueSource(strings = {"inline", "disruptor"})
+    void journalsOnlyMessagesTheAdapterAccepted(String mode) {
+        // budget 8 byte, reject-newest: message 4 byte thứ ba bị bỏ và không được replay
+        Fixture first = new Fixture(mode, new MemoryGuardian(8, "reject-newest", 10));
+        int symbolId = first.symbols.intern("AAA");
+        for (int i = 0; i < 3; i++) {
+            byte[] body = ("q-" + i).getBytes(StandardCharsets.US_ASCII);
+            first.pipeline.publish(IngestEvent.TOPIC_QUOTE, symbolId, body, 0, body.length, DELAY_MS,
+                    System.nanoTime());
+        }
+        first.close();
+        assertEquals(2, first.metrics.received(IngestEvent.TOPIC_QUOTE).sum());
+        assertEquals(1, first.guardian.rejectedCounter(IngestEvent.TOPIC_QUOTE).sum());
+
+        Fixture restarted = new Fixture(mode, new MemoryGuardian(0, "reject-newest", 10));
+        restarted.close();
+        assertEquals(2, restarted.metrics.received(IngestEvent.TOPIC_QUOTE).sum());
+    }
+
+    @Test
+    void disruptorHandlersKeepPerSymbolOrderAndFlushAtEndOfBatch() throws Exception {
+        int handlers = 4;
+        int symbolCount = 10;
+        int perSymbol = 500;
+        // ring nhỏ: producer quay vòng nhiều lần, handler nhận nhiều batch có kích thước khác nhau
+        Fixture fixture = new Fixture("disruptor", new MemoryGuardian(0, "reject-newest", 10), 64, handlers);
+        int[] ids = new int[symbolCount];
+        for (int s = 0; s < symbolCount; s++) {
+            ids[s] = fixture.symbols.intern("SYM" + s);
+        }
+        for (int i = 0; i < perSymbol; i++) {
+            for (int s = 0; s < symbolCount; s++) {
+                byte[] body = Integer.toString(i).getBytes(StandardCharsets.US_ASCII);
+                fixture.pipeline.publish(IngestEvent.TOPIC_HISTORY, ids[s], body, 0, body.length, DELAY_MS,
+                        System.nanoTime());
+            }
+        }
+        int total = symbolCount * perSymbol;
+
+        // không còn event mới: bộ đếm chỉ tới được total nếu mỗi handler flush ở cuối batch
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (fixture.pipeline.handled() < total && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(total, fixture.pipeline.handled());
+        fixture.close();
+        assertEquals(total, fixture.metrics.received(IngestEvent.TOPIC_HISTORY).sum());
+
+        RecordingAdapter recorded = fixture.adapter;
+        String[] threadOfPartition = new String[handlers];
+        for (int s = 0; s < symbolCount; s++) {
+            int symbolId = ids[s];
+            List<Integer> values = recorded.values.get(symbolId);
+            assertEquals(perSymbol, values.size());
+            for (int i = 0; i < perSymbol; i++) {
+                assertEquals(i, values.get(i), "symbol " + symbolId + " out of order");
+            }
+            // mỗi symbol chỉ do một handler xử lý, các symbol cùng partition dùng chung handler đó
+            Set<String> threads = recorded.threads.get(symbolId);
+            assertEquals(1, threads.size());
+            String thread = threads.iterator().next();
+            int partition = symbolId % handlers;
+            if (threadOfPartition[partition] == null) {
+                threadOfPartition[partition] = thread;
+            }
+            assertEquals(threadOfPartition[partition], thread);
+        }
+        for (int p = 0; p < handlers; p++) {
+            for (int q = p + 1; q < handlers; q++) {
+                assertNotEquals(threadOfPartition[p], threadOfPartition[q]);
+            }
+        }
+    }
+
+    /**
+     * Ghi lại giá trị và thread của mỗi lần adapter nhận history, theo symbol.
+     */
+    private static final class RecordingAdapter extends FixDelayedSymbolCacheAdapter {
+        final Map<Integer, List<Integer>> values = new ConcurrentHashMap<>();
+        final Map<Integer, Set<String>> threads = new ConcurrentHashMap<>();
+
+        RecordingAdapter(MemoryGuardian guardian, DelayMetrics metrics, LatencyMetrics latency,
+                         DelaySchedulerFactory schedulers, SymbolTable symbols, Path tierDir) {
+            super(guardian, metrics, latency, new DelayedPublisher(symbols, metrics, "", 1000, 1024), schedulers,
+                    symbols, "heap", 1 << 20, 1, 100, 1 << 20, 0, "all", 10, 0, tierDir.toString(), 1 << 20);
+        }
+
+        @Override
+        public boolean pushHistoryAt(int symbolId, byte[] buf, int offset, int length, long deadlineNanos) {
+            // list của một symbol chỉ do một handler ghi nên không cần đồng bộ thêm
+            values.computeIfAbsent(symbolId, id -> new ArrayList<>())
+                    .add(Integer.parseInt(new String(buf, offset, length, StandardCharsets.US_ASCII)));
+            threads.computeIfAbsent(symbolId, id -> ConcurrentHashMap.newKeySet())
+                    .add(Thread.currentThread().getName());
+            return super.pushHistoryAt(symbolId, buf, offset, length, deadlineNanos);
+        }
+    }
+
+    private final class Fixture {
+        final SymbolTable symbols = new SymbolTable(16);
+        final DelayMetrics metrics = new DelayMetrics();
+        final MemoryGuardian guardian;
+        final DelaySchedulerFactory schedulers = new DelaySchedulerFactory("registry", 0, 1, symbols);
+        final RecordingAdapter adapter;
+        final IngestPipeline pipeline;
+
+        Fixture(String mode, MemoryGuardian guardian) {
+            this(mode, guardian, 1024, 2);
+        }
+
+        Fixture(String mode, MemoryGuardian guardian, int ringSize, int handlers) {
+            this.guardian = guardian;
+            LatencyMetrics latency = new LatencyMetrics("");
+            adapter = new RecordingAdapter(guardian, metrics, latency, schedulers, symbols, dir.resolve("tier"));
+            pipeline = new IngestPipeline(adapter, latency, symbols, mode, ringSize, handlers, "blocking",
+                    true, dir.resolve("journal").toString(), 1 << 20, 10, 1000);
+            pipeline.start();
+        }
+
+        void close() {
+            pipeline.stop();
+            adapter.stop();
+            schedulers.shutdown();
+        }
+    }
+}
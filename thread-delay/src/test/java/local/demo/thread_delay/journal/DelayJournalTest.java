@@ -0,0 +1,108 @@
+package local.demo.thread_delay.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class DelayJournalTest {
+
+    private static final byte[] SYMBOL = "SYM1".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void recoversRecordsInOrderAcrossSegments() {
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        try (DelayJournal journal = new DelayJournal(dir, 128)) {
+            journal.recover(replayed(new ArrayList<>()));
+            for (int i = 0; i < 10; i++) {
+                byte[] payload = ("payload-" + i).getBytes(StandardCharsets.UTF_8);
+                journal.append(i % 2 + 1, SYMBOL, payload, 0, payload.length, deadline + i);
+            }
+            assertTrue(journal.segmentCount() > 1);
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (DelayJournal journal = new DelayJournal(dir, 128)) {
+            assertEquals(10, journal.recover(replayed(replayed)));
+        }
+        for (int i = 0; i < 10; i++) {
+            assertEquals((i % 2 + 1) + ":SYM1:payload-" + i, replayed.get(i));
+        }
+    }
+
+    @Test
+    void deletesReleasedSegmentsAndSkipsThemOnRecovery() throws IOException {
+        long now = System.nanoTime();
+        try (DelayJournal journal = new DelayJournal(dir, 128)) {
+            journal.recover(replayed(new ArrayList<>()));
+            for (int i = 0; i < 10; i++) {
+                byte[] payload = ("released-" + i).getBytes(StandardCharsets.UTF_8);
+                journal.append(1, SYMBOL, payload, 0, payload.length, now - 10_000_000_000L);
+            }
+            byte[] payload = "pending".getBytes(StandardCharsets.UTF_8);
+            journal.append(1, SYMBOL, payload, 0, payload.length, now + 60_000_000_000L);
+
+            // queue còn giữ entry "pending": mọi thứ trước deadline của nó đã release
+            journal.checkpoint(now + 60_000_000_000L);
+            assertEquals(1, journal.segmentCount());
+            assertEquals(1, segmentFiles());
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (DelayJournal journal = new DelayJournal(dir, 128)) {
+            journal.recover(replayed(replayed));
+        }
+        assertEquals(List.of("1:SYM1:pending"), replayed);
+    }
+
+    @Test
+    void stopsAtTornRecord() throws IOException {
+        long deadline = System.nanoTime() + 60_000_000_000L;
+        try (DelayJournal journal = new DelayJournal(dir, 4096)) {
+            journal.recover(replayed(new ArrayList<>()));
+            for (int i = 0; i < 3; i++) {
+                byte[] payload = ("payload-" + i).getBytes(StandardCharsets.UTF_8);
+                journal.append(1, SYMBOL, payload, 0, payload.length, deadline);
+            }
+        }
+        // hỏng một byte payload của record cuối, như lúc máy sập giữa chừng
+        int recordLength = DelayJournal.HEADER + SYMBOL.length + "payload-0".length();
+        try (Stream<Path> files = Files.list(dir);
+             RandomAccessFile file = new RandomAccessFile(
+                     files.filter(p -> p.toString().endsWith(".journal")).findFirst().orElseThrow().toFile(), "rw")) {
+            file.seek(3L * recordLength - 1);
+            file.write('X');
+        }
+
+        List<String> replayed = new ArrayList<>();
+        try (DelayJournal journal = new DelayJournal(dir, 4096)) {
+            assertEquals(2, journal.recover(replayed(replayed)));
+        }
+        assertEquals(List.of("1:SYM1:payload-0", "1:SYM1:payload-1"), replayed);
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.toString().endsWith(".journal")).count();
+        }
+    }
+
+    private static DelayJournal.RecordHandler replayed(List<String> out) {
+        return (topic, buf, symbolOffset, symbolLength, payloadOffset, payloadLength, deadlineNanos) ->
+                out.add(topic + ":" + new String(buf, symbolOffset, symbolLength, StandardCharsets.UTF_8)
+                        + ":" + new String(buf, payloadOffset, payloadLength, StandardCharsets.UTF_8));
+    }
+}
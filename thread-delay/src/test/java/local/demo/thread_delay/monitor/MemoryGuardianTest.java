@@ -0,0 +1,151 @@
+package local.demo.thread_delay.monitor;
+
+import local.demo.thread_delay.DelaySchedulerFactory;
+import local.demo.thread_delay.egress.DelayedPublisher;
+import local.demo.thread_delay.ingest.IngestEvent;
+import local.demo.thread_delay.ringBuffer.FixDelayedSymbolCacheAdapter;
+import local.demo.zmq_common.symbol.SymbolTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MemoryGuardianTest {
+
+    private static final int QUOTE = IngestEvent.TOPIC_QUOTE;
+    private static final int HISTORY = IngestEvent.TOPIC_HISTORY;
+    private static final long FAR = TimeUnit.SECONDS.toNanos(60);
+
+    private final SymbolTable symbols = new SymbolTable(16);
+    private final DelayMetrics metrics = new DelayMetrics();
+    private final DelaySchedulerFactory schedulers = new DelaySchedulerFactory("registry", 0, 1, symbols);
+    private final int a = symbols.intern("AAA");
+    private final int b = symbols.intern("BBB");
+    private FixDelayedSymbolCacheAdapter adapter;
+
+    @AfterEach
+    void tearDown() {
+        if (adapter != null) {
+            adapter.stop();
+        }
+        schedulers.shutdown();
+    }
+
+    @Test
+    void budgetIsInclusiveAndSharedByTopics() {
+        MemoryGuardian guardian = new MemoryGuardian(10, "reject-newest", 10);
+        guardian.pendingBytes(QUOTE).set(6);
+        assertFalse(guardian.overBudget(4)); // vừa đủ budget
+        assertTrue(guardian.overBudget(5));
+        guardian.pendingBytes(HISTORY).set(3);
+        assertEquals(9, guardian.pendingBytes());
+        assertTrue(guardian.overBudget(2));
+
+        MemoryGuardian unlimited = new MemoryGuardian(0, "reject-newest", 10);
+        unlimited.pendingBytes(QUOTE).set(Long.MAX_VALUE / 2);
+        assertFalse(unlimited.overBudget(Integer.MAX_VALUE));
+
+        assertThrows(IllegalArgumentException.class, () -> new MemoryGuardian(10, "nope", 10));
+        assertThrows(IllegalArgumentException.class, () -> new MemoryGuardian(10, "conflate", 0));
+    }
+
+    @Test
+    void rejectNewestKeepsQueuedEntries() {
+        MemoryGuardian guardian = new MemoryGuardian(8, "reject-newest", 10);
+        adapter = adapter(guardian);
+        long deadline = System.nanoTime() + FAR;
+        assertTrue(push(QUOTE, a, "1111", deadline));
+        assertTrue(push(QUOTE, b, "2222", deadline)); // đúng bằng budget vẫn nhận
+        assertFalse(push(QUOTE, a, "3", deadline));
+
+        assertEquals(8, guardian.pendingBytes(QUOTE).get());
+        assertEquals(2, adapter.pendingEntries(QUOTE));
+        assertEquals(1, guardian.rejectedCounter(QUOTE).sum());
+        assertEquals(0, guardian.droppedCounter(QUOTE).sum());
+        assertEquals(2, metrics.received(QUOTE).sum());
+    }
+
+    @Test
+    void dropOldestEvictsOnlyTheSameSymbol() {
+        MemoryGuardian guardian = new MemoryGuardian(8, "drop-oldest", 10);
+        adapter = adapter(guardian);
+        long deadline = System.nanoTime() + FAR;
+        assertTrue(push(HISTORY, a, "aaaa", deadline));
+        assertTrue(push(HISTORY, a, "bbbb", deadline + 1));
+        assertTrue(push(HISTORY, a, "cc", deadline + 2)); // bỏ "aaaa"
+        assertEquals(6, guardian.pendingBytes(HISTORY).get());
+        assertEquals(1, guardian.droppedCounter(HISTORY).sum());
+
+        // BBB chưa có gì để bỏ: message mới bị bỏ, entry của AAA giữ nguyên
+        assertFalse(push(HISTORY, b, "xxx", deadline));
+        assertEquals(6, guardian.pendingBytes(HISTORY).get());
+        assertEquals(1, guardian.rejectedCounter(HISTORY).sum());
+
+        // lớn hơn cả budget: bỏ hết entry của AAA rồi vẫn không đủ chỗ
+        assertFalse(push(HISTORY, a, "123456789", deadline + 3));
+        assertEquals(0, guardian.pendingBytes(HISTORY).get());
+        assertEquals(3, guardian.droppedCounter(HISTORY).sum());
+        assertEquals(2, guardian.rejectedCounter(HISTORY).sum());
+        assertEquals(3, metrics.received(HISTORY).sum());
+    }
+
+    @Test
+    void conflateReplacesWithinATickOnceOverBudget() {
+        MemoryGuardian guardian = new MemoryGuardian(4, "conflate", 10);
+        adapter = adapter(guardian);
+        long deadline = System.nanoTime() + FAR;
+        assertTrue(push(QUOTE, a, "aaaa", deadline)); // trong budget: thêm bình thường
+        assertTrue(push(QUOTE, a, "bb", deadline)); // vượt budget: mở tick mới, budget mềm
+        assertEquals(6, guardian.pendingBytes(QUOTE).get());
+        assertEquals(2, adapter.pendingEntries(QUOTE));
+
+        assertTrue(push(QUOTE, a, "c", deadline)); // cùng tick: đè entry cuối
+        assertEquals(5, guardian.pendingBytes(QUOTE).get());
+        assertEquals(2, adapter.pendingEntries(QUOTE));
+
+        assertTrue(push(QUOTE, a, "ddd", deadline + TimeUnit.SECONDS.toNanos(1))); // tick khác
+        assertEquals(8, guardian.pendingBytes(QUOTE).get());
+        assertEquals(3, adapter.pendingEntries(QUOTE));
+        assertEquals(0, guardian.rejectedCounter(QUOTE).sum());
+        assertEquals(0, guardian.droppedCounter(QUOTE).sum());
+        assertEquals(4, metrics.received(QUOTE).sum());
+    }
+
+    @Test
+    void pauseBlocksIngestUntilReleaseFreesTheBudget() throws Exception {
+        MemoryGuardian guardian = new MemoryGuardian(8, "pause", 10);
+        adapter = adapter(guardian);
+        assertTrue(push(QUOTE, a, "12345678", System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300)));
+
+        AtomicBoolean accepted = new AtomicBoolean();
+        Thread ingest = Thread.ofPlatform().start(() -> accepted.set(push(QUOTE, b, "9999", System.nanoTime() + FAR)));
+        ingest.join(100);
+        assertTrue(ingest.isAlive(), "push must wait for the budget");
+
+        ingest.join(TimeUnit.SECONDS.toMillis(5)); // entry đầu được release sau 300 ms
+        assertFalse(ingest.isAlive());
+        assertTrue(accepted.get());
+        assertEquals(4, guardian.pendingBytes(QUOTE).get());
+        assertEquals(0, guardian.rejectedCounter(QUOTE).sum());
+    }
+
+    private boolean push(int topic, int symbolId, String value, long deadlineNanos) {
+        byte[] body = value.getBytes(StandardCharsets.US_ASCII);
+        return topic == QUOTE
+                ? adapter.pushQuoteAt(symbolId, body, 0, body.length, deadlineNanos)
+                : adapter.pushHistoryAt(symbolId, body, 0, body.length, deadlineNanos);
+    }
+
+    private FixDelayedSymbolCacheAdapter adapter(MemoryGuardian guardian) {
+        return new FixDelayedSymbolCacheAdapter(guardian, metrics, new LatencyMetrics(""),
+                new DelayedPublisher(symbols, metrics, "", 1000, 1024), schedulers, symbols,
+                "heap", 1 << 20, 1, 100, 1 << 20, 0, "all", 10, 0, "unused", 1 << 20);
+    }
+}
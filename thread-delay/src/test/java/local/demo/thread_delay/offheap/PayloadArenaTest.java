@@ -0,0 +1,31 @@
+package local.demo.thread_delay.offheap;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PayloadArenaTest {
+
+    @Test
+    void freesSlabOnceAllEntriesReleased() {
+        try (PayloadArena arena = new PayloadArena(1024, 0)) {
+            long[] handles = new long[100];
+            for (int i = 0; i < handles.length; i++) {
+                byte[] payload = ("payload-" + i + "-0123456789").getBytes(StandardCharsets.UTF_8);
+                handles[i] = arena.store(payload, 0, payload.length);
+            }
+            assertEquals(3, arena.liveSlabs());
+
+            for (int i = 0; i < handles.length; i++) {
+                assertEquals("payload-" + i + "-0123456789",
+                        new String(arena.toArray(handles[i]), StandardCharsets.UTF_8));
+                arena.release(handles[i]);
+            }
+            // slab đang ghi vẫn còn tham chiếu của writer, các slab đã đầy được giải phóng
+            assertEquals(1, arena.liveSlabs());
+            assertEquals(0, arena.bytesInUse());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package local.demo.thread_delay.ringBuffer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LockFreeRingBufferTest {
+
+    @Test
+    void spscReportsFullAndDrainsInOrder() {
+        List<Integer> overflow = new ArrayList<>();
+        SpscRingBuffer<Integer> ring = new SpscRingBuffer<>(4, FullPolicy.overflowTo(overflow::add));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(ring.offer(i));
+        }
+        assertFalse(ring.offer(99));
+        assertEquals(List.of(99), overflow);
+
+        List<Integer> out = new ArrayList<>();
+        assertEquals(3, ring.drainTo(out::add, 3));
+        assertEquals(List.of(0, 1, 2), out);
+        assertTrue(ring.offer(4));
+        assertEquals(3, ring.poll());
+        assertEquals(4, ring.poll());
+        assertNull(ring.poll());
+        assertTrue(ring.isEmpty());
+    }
+
+    @Test
+    void mpscKeepsPerProducerOrder() throws InterruptedException {
+        int producers = 4;
+        int perProducer = 200_000;
+        MpscRingBuffer<long[]> ring = new MpscRingBuffer<>(1024, FullPolicy.spin(Integer.MAX_VALUE));
+
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int id = p;
+            Thread t = new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    ring.offer(new long[]{id, i});
+                }
+            });
+            threads.add(t);
+            t.start();
+        }
+
+        long[] next = new long[producers];
+        int received = 0;
+        while (received < producers * perProducer) {
+            received += ring.drainTo(v -> {
+                assertEquals(next[(int) v[0]], v[1]);
+                next[(int) v[0]]++;
+            }, 256);
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        for (long n : next) {
+            assertEquals(perProducer, n);
+        }
+        assertTrue(ring.isEmpty());
+    }
+}
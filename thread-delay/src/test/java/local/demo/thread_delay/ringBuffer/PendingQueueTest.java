@@ -0,0 +1,187 @@
+package local.demo.thread_delay.ringBuffer;
+
+import local.demo.thread_delay.DelayScheduler;
+import local.demo.thread_delay.DelayedEntry;
+import local.demo.thread_delay.offheap.PayloadArena;
+import local.demo.zmq_common.latency.LatencyHistogram;
+import local.demo.zmq_common.latency.LatencyRecorder;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PendingQueueTest {
+
+    private static final class RecordingScheduler implements DelayScheduler {
+        final List<DelayedEntry> timers = new ArrayList<>();
+
+        @Override
+        public void submit(String symbol, long delayMs) {
+            submit(new DelayedEntry(symbol, delayMs));
+        }
+
+        @Override
+        public void submit(DelayedEntry entry) {
+            timers.add(entry);
+        }
+
+        @Override
+        public long pending() {
+            return timers.size();
+        }
+    }
+
+    @Test
+    void armsOneTimerAndDrainsInOrder() {
+        RecordingScheduler scheduler = new RecordingScheduler();
+        PendingQueue queue = new PendingQueue(0, "SYM1", scheduler);
+        for (int i = 0; i < 3000; i++) {
+            queue.append(new byte[]{(byte) i}, 0);
+        }
+        assertEquals(1, scheduler.timers.size());
+        assertSame(queue, ((PendingQueue.Timer) scheduler.timers.get(0)).getQueue());
+
+        List<Byte> out = new ArrayList<>();
+        int released = queue.release(System.nanoTime(), (symbolId, payload) -> out.add(payload[0]));
+
+        assertEquals(3000, released);
+        for (int i = 0; i < 3000; i++) {
+            assertEquals((byte) i, out.get(i));
+        }
+        assertTrue(queue.isEmpty());
+        // queue rỗng: không hẹn thêm timer, lần append sau sẽ arm lại
+        assertEquals(1, scheduler.timers.size());
+        queue.append(new byte[]{1}, 0);
+        assertEquals(2, scheduler.timers.size());
+    }
+
+    @Test
+    void keepsEntriesNotYetDueAndRearms() {
+        RecordingScheduler scheduler = new RecordingScheduler();
+        PendingQueue queue = new PendingQueue(0, "SYM1", scheduler);
+        queue.append(new byte[]{1}, 0);
+        queue.append(new byte[]{2}, 60_000);
+
+        int released = queue.release(System.nanoTime(), (symbolId, payload) -> { });
+
+        assertEquals(1, released);
+        assertEquals(1, queue.size());
+        assertEquals(2, scheduler.timers.size());
+        assertTrue(scheduler.timers.get(1).getExpireAt() - System.currentTimeMillis() > 50_000);
+    }
+
+    @Test
+    void stopsExactlyAtSegmentBoundary() {
+        RecordingScheduler scheduler = new RecordingScheduler();
+        PendingQueue queue = new PendingQueue(0, "SYM1", scheduler);
+        for (int i = 0; i < 1024; i++) {
+            queue.append(new byte[]{1}, 0);
+        }
+        queue.append(new byte[]{2}, 60_000);
+
+        long now = System.nanoTime();
+        assertEquals(1024, queue.release(now, (symbolId, payload) -> { }));
+        assertEquals(1, queue.size());
+
+        List<Byte> out = new ArrayList<>();
+        assertEquals(1, queue.release(now + 120_000_000_000L, (symbolId, payload) -> out.add(payload[0])));
+        assertEquals(List.of((byte) 2), out);
+        assertTrue(queue.isEmpty());
+    }
+
+    @Test
+    void recordsLatenessAgainstDeadline() {
+        RecordingScheduler scheduler = new RecordingScheduler();
+        LatencyRecorder jitter = new LatencyRecorder("release-jitter");
+        PendingQueue queue = new PendingQueue(0, "SYM1", scheduler, null, jitter);
+        queue.append(new byte[]{1}, 0);
+        queue.append(new byte[]{2}, 0);
+        queue.append(new byte[]{3}, 60_000);
+
+        long lateBy = 5_000_000;
+        long before = System.currentTimeMillis();
+        assertEquals(2, queue.release(System.nanoTime() + lateBy, (symbolId, payload) -> { }));
+
+        LatencyHistogram histogram = jitter.snapshot();
+        assertEquals(2, histogram.count());
+        assertTrue(histogram.percentile(50) >= lateBy);
+        // entry còn lại: timer làm tròn lên ms, không bao giờ hẹn sớm hơn deadline
+        assertTrue(scheduler.timers.get(1).getExpireAt() >= before + 59_994);
+    }
+
+    @Test
+    void conflatesQuotesWithinSameTick() {
+        try (PayloadArena arena = new PayloadArena(4096, 0)) {
+            for (PayloadArena store : new PayloadArena[]{null, arena}) {
+                RecordingScheduler scheduler = new RecordingScheduler();
+                PendingQueue queue = new PendingQueue(0, "SYM1", scheduler, store, null, 10);
+                long tick = 10_000_000L;
+                long base = Math.ceilDiv(System.nanoTime(), tick) * tick + tick;
+                byte[] buf = new byte[1];
+                for (int i = 0; i < 30; i++) {
+                    // 10 message mỗi tick, deadline trong (base + k*tick - tick, base + k*tick]
+                    buf[0] = (byte) i;
+                    queue.appendAt(buf, 0, 1, base + (i / 10) * tick - tick + 1 + (i % 10));
+                }
+                assertEquals(3, queue.size());
+                assertEquals(27, queue.conflated());
+
+                List<Byte> out = new ArrayList<>();
+                // deadline đã làm tròn lên cuối tick: chưa tới cuối tick đầu thì chưa release
+                assertEquals(0, queue.release(base - 1, (symbolId, payload) -> out.add(payload[0])));
+                assertEquals(1, queue.release(base, (symbolId, payload) -> out.add(payload[0])));
+
+                assertEquals(2, queue.release(base + 2 * tick, (symbolId, payload) -> out.add(payload[0])));
+
+                // entry cuối đã bị lấy thì message cùng tick thành entry mới
+                buf[0] = 99;
+                queue.appendAt(buf, 0, 1, base + 2 * tick - 5);
+                assertEquals(1, queue.size());
+                assertEquals(27, queue.conflated());
+                assertEquals(1, queue.release(base + 2 * tick, (symbolId, payload) -> out.add(payload[0])));
+                assertEquals(List.of((byte) 9, (byte) 19, (byte) 29, (byte) 99), out);
+            }
+            assertEquals(0, arena.bytesInUse());
+        }
+    }
+
+    @Test
+    void dropsOldestAndTracksPendingBytes() {
+        try (PayloadArena arena = new PayloadArena(4096, 0)) {
+            for (PayloadArena store : new PayloadArena[]{null, arena}) {
+                RecordingScheduler scheduler = new RecordingScheduler();
+                AtomicLong topicBytes = new AtomicLong();
+                PendingQueue queue = new PendingQueue(0, "SYM1", scheduler, store, null, 0, topicBytes);
+                // vắt qua ranh giới segment để drop phải bước sang segment kế tiếp
+                for (int i = 0; i < 1100; i++) {
+                    queue.append(new byte[]{(byte) i, 0, 0}, 0);
+                }
+                assertEquals(3300, queue.pendingBytes());
+                assertEquals(3300, topicBytes.get());
+
+                for (int i = 0; i < 1030; i++) {
+                    assertTrue(queue.dropOldest());
+                }
+                assertEquals(210, queue.pendingBytes());
+                assertEquals(210, topicBytes.get());
+                assertEquals(1030, queue.dropped());
+
+                List<Byte> out = new ArrayList<>();
+                // slot đã drop vẫn được consumer đi qua nhưng không giao cho sink
+                assertEquals(70, queue.release(System.nanoTime(), (symbolId, payload) -> out.add(payload[0])));
+                assertEquals((byte) 1030, out.get(0));
+                assertEquals((byte) 1099, out.get(69));
+                assertTrue(queue.isEmpty());
+                assertEquals(0, topicBytes.get());
+                assertFalse(queue.dropOldest());
+            }
+            assertEquals(0, arena.bytesInUse());
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package local.demo.thread_delay.tier;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SpillLogTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void readsBackUpToHorizonAndDeletesConsumedSegments() throws IOException {
+        try (SpillLog spill = new SpillLog(dir, 128)) {
+            for (int i = 0; i < 20; i++) {
+                byte[] payload = ("payload-" + i).getBytes(StandardCharsets.UTF_8);
+                spill.append(i % 3, payload, 0, payload.length, 1_000L + i);
+            }
+            assertTrue(spill.hasBacklog());
+            assertTrue(spill.segmentCount() > 3);
+            assertEquals(spill.segmentCount(), files());
+
+            List<String> out = new ArrayList<>();
+            SpillLog.RecordHandler handler = (symbolId, buf, offset, length, deadlineNanos) ->
+                    out.add(symbolId + ":" + new String(buf, offset, length, StandardCharsets.UTF_8) + "@" + deadlineNanos);
+
+            // chưa tới horizon thì không đọc, và deadline của record đầu log được công bố
+            assertEquals(0, spill.poll(999, handler));
+            assertEquals(1_000L, spill.oldestDeadline());
+
+            assertEquals(10, spill.poll(1_009, handler));
+            assertEquals("0:payload-0@1000", out.get(0));
+            assertEquals("0:payload-9@1009", out.get(9));
+            assertEquals(10, spill.backlog());
+            assertEquals(1_010L, spill.oldestDeadline());
+
+            assertEquals(10, spill.poll(Long.MAX_VALUE, handler));
+            assertEquals("1:payload-19@1019", out.get(19));
+            assertFalse(spill.hasBacklog());
+            assertEquals(0, spill.backlogBytes());
+            assertEquals(Long.MAX_VALUE, spill.oldestDeadline());
+            // chỉ còn segment writer đang ghi
+            assertEquals(1, spill.segmentCount());
+            assertEquals(1, files());
+        }
+        assertEquals(0, files());
+    }
+
+    @Test
+    void recordLargerThanSegmentGetsItsOwnSegment() {
+        try (SpillLog spill = new SpillLog(dir, 64)) {
+            byte[] big = new byte[500];
+            big[499] = 7;
+            spill.append(5, new byte[]{1}, 0, 1, 1);
+            spill.append(5, big, 0, big.length, 2);
+            spill.append(5, new byte[]{3}, 0, 1, 3);
+
+            List<Integer> lengths = new ArrayList<>();
+            List<Byte> last = new ArrayList<>();
+            assertEquals(3, spill.poll(3, (symbolId, buf, offset, length, deadlineNanos) -> {
+                lengths.add(length);
+                last.add(buf[offset + length - 1]);
+            }));
+            assertEquals(List.of(1, 500, 1), lengths);
+            assertEquals(List.of((byte) 1, (byte) 7, (byte) 3), last);
+        }
+    }
+
+    private long files() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+package local.demo.thread_delay.timingWheel;
+
+import local.demo.thread_delay.DelayedEntry;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    private static TimerEntry entry(String key, long deadlineTick) {
+        return new TimerEntry(null, new DelayedEntry(key, 0), deadlineTick);
+    }
+
+    @Test
+    void firesInDeadlineOrder() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(0);
+        wheel.add(entry("c", 70_000));
+        wheel.add(entry("a", 5));
+        wheel.add(entry("b", 300));
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(4, e -> fired.add(e.entry.getKey()));
+        assertTrue(fired.isEmpty());
+
+        wheel.advanceTo(100_000, e -> fired.add(e.entry.getKey() + "@" + wheel.currentTick()));
+        assertEquals(List.of("a@5", "b@300", "c@70000"), fired);
+        assertTrue(wheel.isEmpty());
+    }
+
+    @Test
+    void keepsInsertOrderForSameTickAcrossCascade() {
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(200);
+        // "first" nằm ở tầng 1, "second" được add sau khi đã cascade xuống tầng 0
+        wheel.add(entry("first", 300));
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(260, e -> fired.add(e.entry.getKey()));
+        wheel.add(entry("second", 300));
+        wheel.advanceTo(300, e -> fired.add(e.entry.getKey()));
+        assertEquals(List.of("first", "second"), fired);
+    }
+
+    @Test
+    void handlesDeadlinesBeyondTopLevel() {
+        long start = (1L << 32) - 10;
+        HierarchicalTimingWheel wheel = new HierarchicalTimingWheel(start);
+        wheel.add(entry("far", start + 20));
+        wheel.add(entry("near", start + 5));
+
+        List<String> fired = new ArrayList<>();
+        wheel.advanceTo(start + 19, e -> fired.add(e.entry.getKey()));
+        assertEquals(List.of("near"), fired);
+        wheel.advanceTo(start + 20, e -> fired.add(e.entry.getKey()));
+        assertEquals(List.of("near", "far"), fired);
+    }
+}
@@ -0,0 +1,127 @@
+package local.demo.thread_snapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * History gần nhất của một symbol: vòng cố định {@code capacity} entry, một writer, nhiều reader.
+ * <p>
+ * Reader không lock và không bao giờ chặn writer (kiểu seqlock): writer tăng {@code claimed} trước khi
+ * ghi slot và tăng {@code published} sau khi ghi xong. Reader copy các slot trong
+ * {@code [published - n, published)} rồi đọc lại {@code claimed}: slot nào writer đã bắt đầu ghi đè
+ * trong lúc copy (index &lt; claimed - capacity) thì bị bỏ khỏi kết quả, nên kết quả luôn là một
+ * đoạn liên tục, đúng thứ tự và không lẫn entry mới vào chỗ entry cũ.
+ * <p>
+ * Mỗi lần ghi mang epoch snapshot hiện tại; ring nhớ số entry lúc bắt đầu epoch mới nhất để
+ * {@link #entriesAt(long)} trả đúng history tại điểm cắt, kể cả khi writer đã ghi tiếp sau điểm đó.
+ */
+public final class HistoryRing {
+
+    private final AtomicReferenceArray<String> slots;
+    private final int capacity;
+    private volatile long claimed;
+    private volatile long published;
+    // epoch của lần ghi gần nhất và published ngay trước lần ghi đầu tiên của epoch đó
+    private volatile long epoch;
+    private volatile long epochStart;
+
+    public HistoryRing(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Writer (một thread duy nhất): thêm entry, entry cũ nhất bị ghi đè khi vòng đầy.
+     */
+    public void add(String value) {
+        add(value, epoch);
+    }
+
+    public void add(String value, long epoch) {
+        long index = published;
+        if (epoch != this.epoch) {
+            epochStart = index;
+            this.epoch = epoch; // ghi trước published: reader thấy entry mới thì thấy epochStart
+        }
+        claimed = index + 1;
+        slots.setRelease((int) (index % capacity), value);
+        published = index + 1;
+    }
+
+    /**
+     * @return tối đa {@code n} entry mới nhất, cũ trước mới sau
+     */
+    public List<String> latest(int n) {
+        long end = published;
+        return range(Math.max(0, end - Math.min(n, capacity)), end);
+    }
+
+    /**
+     * History tại điểm cắt {@code cut}: các entry ghi trước epoch {@code cut}, cũ trước mới sau.
+     *
+     * @return null nếu writer đã ghi đè một phần các entry đó (trong lúc copy hoặc đã ghi hơn
+     * {@code capacity} entry sau điểm cắt)
+     */
+    public List<String> entriesAt(long cut) {
+        long end = published;
+        if (epoch >= cut) {
+            end = epochStart;
+        }
+        long start = Math.max(0, end - capacity);
+        List<String> out = range(start, end);
+        return out.size() == end - start ? out : null;
+    }
+
+    private List<String> range(long start, long end) {
+        String[] copy = new String[(int) (end - start)];
+        for (long i = start; i < end; i++) {
+            copy[(int) (i - start)] = slots.getAcquire((int) (i % capacity));
+        }
+        // slot của index < claimed - capacity có thể đã bị ghi đè trong lúc copy
+        long valid = Math.max(start, claimed - capacity);
+        List<String> out = new ArrayList<>((int) Math.max(0, end - valid));
+        for (long i = valid; i < end; i++) {
+            out.add(copy[(int) (i - start)]);
+        }
+        return out;
+    }
+
+    /**
+     * Epoch của lần ghi gần nhất.
+     */
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Entry mới nhất, null nếu chưa có gì.
+     */
+    public String last() {
+        while (true) {
+            long end = published;
+            if (end == 0) {
+                return null;
+            }
+            String value = slots.getAcquire((int) ((end - 1) % capacity));
+            if (claimed - capacity < end) {
+                return value;
+            }
+            // writer đã đi trọn một vòng trong lúc đọc: đọc lại entry mới nhất
+        }
+    }
+
+    /**
+     * Tổng số entry đã thêm (cũng là version của history).
+     */
+    public long version() {
+        return published;
+    }
+
+    public int size() {
+        return (int) Math.min(published, capacity);
+    }
+}
@@ -0,0 +1,13 @@
+package local.demo.thread_snapshot;
+
+/**
+ * Giá trị quote mới nhất của một symbol, bất biến: mỗi lần cập nhật writer tạo bản mới và
+ * publish thay cho bản cũ (copy-on-write), reader giữ bản nào thì bản đó không bao giờ đổi.
+ *
+ * @param version     số lần quote của symbol đã được cập nhật, tăng dần từ 1
+ * @param updatedAtMs lúc cập nhật (epoch ms)
+ * @param epoch       epoch snapshot lúc bản này được ghi,
+ *                    xem {@link SymbolCacheAdapter#writeSnapshot(java.nio.file.Path)}
+ */
+public record QuoteSnapshot(String symbol, String value, long version, long updatedAtMs, long epoch) {
+}
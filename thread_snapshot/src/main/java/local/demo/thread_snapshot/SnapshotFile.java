@@ -0,0 +1,313 @@
+package local.demo.thread_snapshot;
+
+import local.demo.zmq_common.symbol.SymbolTable;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * File snapshot nhị phân của toàn bộ cache tại một điểm cắt (epoch), big-endian:
+ * <pre>
+ * header : magic "TSNP" int | format int | epoch long | createdAtMs long | symbolCount int | indexOffset int
+ * record : quoteVersion long (0 = chưa có quote) [| updatedAtMs long | valueLength int | value bytes]
+ *          historyCount int | historyBytes int | (entryLength int | entry bytes) x historyCount
+ * index  : (nameLength u16 | name bytes | recordOffset int) x symbolCount
+ * trailer: magic "TEND" int | symbolCount int
+ * </pre>
+ * Đọc lại bằng {@link #open(Path, SymbolTable)}: file được mmap, chỉ phần index (vài chục byte mỗi symbol)
+ * được đọc để intern symbol (cả loạt, {@link SymbolTable#internAll}) và lấy offset; quote và history
+ * chỉ decode khi có người hỏi, nên thời gian khởi động không phụ thuộc lượng dữ liệu. Index nằm cuối
+ * file vì offset chỉ biết sau khi ghi record. Một mapping tối đa 2GB.
+ */
+public final class SnapshotFile {
+
+    static final int MAGIC = 0x54534E50;   // "TSNP"
+    static final int TRAILER = 0x54454E44; // "TEND"
+    static final int FORMAT = 1;
+    static final int HEADER_SIZE = 32;
+    private static final int INDEX_OFFSET_POS = 28;
+
+    private final Path path;
+    private final MappedByteBuffer buf;
+    private final long epoch;
+    private final long createdAtMs;
+    private final int symbolCount;
+    // offset của record theo id symbol, 0 nếu symbol không có trong file
+    private final int[] offsets;
+
+    private SnapshotFile(Path path, MappedByteBuffer buf, long epoch, long createdAtMs, int symbolCount, int[] offsets) {
+        this.path = path;
+        this.buf = buf;
+        this.epoch = epoch;
+        this.createdAtMs = createdAtMs;
+        this.symbolCount = symbolCount;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Mmap file và intern mọi symbol trong đó vào {@code symbols}.
+     *
+     * @throws IOException file hỏng, ghi dở hoặc khác format
+     */
+    public static SnapshotFile open(Path path, SymbolTable symbols) throws IOException {
+        MappedByteBuffer buf;
+        int size;
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + channel.size() + " bytes");
+            }
+            size = (int) channel.size();
+            if (size < HEADER_SIZE + 8) {
+                throw new IOException("Snapshot truncated: " + size + " bytes");
+            }
+            buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        }
+        if (buf.getInt(0) != MAGIC || buf.getInt(4) != FORMAT) {
+            throw new IOException("Not a snapshot file (format " + FORMAT + "): " + path);
+        }
+        long epoch = buf.getLong(8);
+        long createdAtMs = buf.getLong(16);
+        int symbolCount = buf.getInt(24);
+        if (buf.getInt(size - 8) != TRAILER || buf.getInt(size - 4) != symbolCount) {
+            throw new IOException("Snapshot trailer missing: " + path);
+        }
+        byte[][] names = new byte[symbolCount][];
+        int[] recordOffsets = new int[symbolCount];
+        try {
+            int pos = buf.getInt(INDEX_OFFSET_POS);
+            for (int i = 0; i < symbolCount; i++) {
+                names[i] = new byte[buf.getShort(pos) & 0xFFFF];
+                buf.get(pos + 2, names[i]);
+                pos += 2 + names[i].length;
+                recordOffsets[i] = buf.getInt(pos);
+                pos += 4;
+            }
+        } catch (IndexOutOfBoundsException e) {
+            throw new IOException("Snapshot index corrupted: " + path, e);
+        }
+        // một lần lock cho cả file thay vì mỗi symbol một lần insert
+        int[] ids = symbols.internAll(names);
+        int[] offsets = new int[symbols.capacity()];
+        for (int i = 0; i < symbolCount; i++) {
+            offsets[ids[i]] = recordOffsets[i];
+        }
+        return new SnapshotFile(path, buf, epoch, createdAtMs, symbolCount, offsets);
+    }
+
+    public Path path() {
+        return path;
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    public long createdAtMs() {
+        return createdAtMs;
+    }
+
+    public int symbolCount() {
+        return symbolCount;
+    }
+
+    /**
+     * @return quote của symbol trong file (epoch 0), null nếu không có
+     */
+    public QuoteSnapshot quote(int symbolId, String symbol) {
+        int pos = record(symbolId);
+        if (pos == 0) {
+            return null;
+        }
+        long version = buf.getLong(pos);
+        if (version == 0) {
+            return null;
+        }
+        long updatedAtMs = buf.getLong(pos + 8);
+        return new QuoteSnapshot(symbol, string(pos + 16), version, updatedAtMs, 0);
+    }
+
+    /**
+     * @return tối đa {@code n} history entry mới nhất của symbol trong file, cũ trước mới sau
+     */
+    public List<String> history(int symbolId, int n) {
+        int pos = record(symbolId);
+        if (pos == 0 || n <= 0) {
+            return List.of();
+        }
+        pos = skipQuote(pos);
+        int count = buf.getInt(pos);
+        pos += 8;
+        for (int skip = count - n; skip > 0; skip--) {
+            pos += 4 + buf.getInt(pos);
+        }
+        List<String> out = new ArrayList<>(Math.min(n, count));
+        for (int i = Math.max(0, count - n); i < count; i++) {
+            out.add(string(pos));
+            pos += 4 + buf.getInt(pos);
+        }
+        return out;
+    }
+
+    /**
+     * Copy nguyên phần quote của symbol (đã ở dạng file) sang snapshot mới, không decode.
+     */
+    void copyQuote(int symbolId, Writer out) throws IOException {
+        int pos = record(symbolId);
+        if (pos == 0) {
+            out.noQuote();
+        } else {
+            out.raw(buf, pos, skipQuote(pos) - pos);
+        }
+    }
+
+    /**
+     * Copy nguyên khối history của symbol sang snapshot mới, không decode.
+     */
+    void copyHistory(int symbolId, Writer out) throws IOException {
+        int pos = record(symbolId);
+        if (pos == 0) {
+            out.history(List.of());
+        } else {
+            pos = skipQuote(pos);
+            out.raw(buf, pos, 8 + buf.getInt(pos + 4));
+        }
+    }
+
+    private int record(int symbolId) {
+        return symbolId < offsets.length ? offsets[symbolId] : 0;
+    }
+
+    private int skipQuote(int pos) {
+        return buf.getLong(pos) == 0 ? pos + 8 : pos + 20 + buf.getInt(pos + 16);
+    }
+
+    private String string(int pos) {
+        byte[] bytes = new byte[buf.getInt(pos)];
+        buf.get(pos + 4, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Ghi tuần tự một snapshot: với từng symbol gọi {@link #symbol}, rồi đúng một lần ghi quote
+     * ({@link #quote}/{@link #noQuote}) và một lần ghi history ({@link #history}), cuối cùng {@link #close()}.
+     */
+    public static final class Writer implements Closeable {
+
+        private final FileChannel channel;
+        private final DataOutputStream out;
+        private final int symbolCount;
+        private final byte[][] names;
+        private final int[] recordOffsets;
+        private int written;
+        private byte[] copyBuffer = new byte[4096];
+
+        public Writer(Path path, long epoch, long createdAtMs, int symbolCount) throws IOException {
+            this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            this.out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+            this.symbolCount = symbolCount;
+            this.names = new byte[symbolCount][];
+            this.recordOffsets = new int[symbolCount];
+            out.writeInt(MAGIC);
+            out.writeInt(FORMAT);
+            out.writeLong(epoch);
+            out.writeLong(createdAtMs);
+            out.writeInt(symbolCount);
+            out.writeInt(0); // indexOffset, ghi lại khi close
+        }
+
+        public void symbol(byte[] name) throws IOException {
+            if (name.length > 0xFFFF) {
+                throw new IllegalArgumentException("Symbol too long: " + name.length + " bytes");
+            }
+            names[written] = name;
+            recordOffsets[written] = position();
+            written++;
+        }
+
+        public void quote(QuoteSnapshot quote) throws IOException {
+            out.writeLong(quote.version());
+            out.writeLong(quote.updatedAtMs());
+            writeString(quote.value());
+        }
+
+        public void noQuote() throws IOException {
+            out.writeLong(0);
+        }
+
+        public void history(List<String> entries) throws IOException {
+            // historyBytes đứng trước khối: encode trước để biết độ dài
+            int length = 0;
+            byte[][] encoded = new byte[entries.size()][];
+            for (int i = 0; i < encoded.length; i++) {
+                encoded[i] = entries.get(i).getBytes(StandardCharsets.UTF_8);
+                length += 4 + encoded[i].length;
+            }
+            out.writeInt(encoded.length);
+            out.writeInt(length);
+            for (byte[] entry : encoded) {
+                out.writeInt(entry.length);
+                out.write(entry);
+            }
+        }
+
+        void raw(ByteBuffer src, int offset, int length) throws IOException {
+            if (copyBuffer.length < length) {
+                copyBuffer = new byte[Math.max(length, copyBuffer.length * 2)];
+            }
+            src.get(offset, copyBuffer, 0, length);
+            out.write(copyBuffer, 0, length);
+        }
+
+        private void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private int position() throws IOException {
+            int size = out.size(); // DataOutputStream dừng ở Integer.MAX_VALUE khi tràn
+            if (size == Integer.MAX_VALUE) {
+                throw new IOException("Snapshot exceeds 2GB");
+            }
+            return size;
+        }
+
+        /**
+         * Ghi index, trailer và fsync: file chỉ hợp lệ sau khi close thành công.
+         */
+        @Override
+        public void close() throws IOException {
+            try {
+                if (written != symbolCount) {
+                    throw new IllegalStateException("Wrote " + written + " of " + symbolCount + " symbols");
+                }
+                int indexOffset = position();
+                for (int i = 0; i < symbolCount; i++) {
+                    out.writeShort(names[i].length);
+                    out.write(names[i]);
+                    out.writeInt(recordOffsets[i]);
+                }
+                out.writeInt(TRAILER);
+                out.writeInt(symbolCount);
+                position();
+                out.flush();
+                channel.write(ByteBuffer.allocate(4).putInt(0, indexOffset), INDEX_OFFSET_POS);
+                channel.force(true);
+            } finally {
+                out.close();
+            }
+        }
+    }
+}
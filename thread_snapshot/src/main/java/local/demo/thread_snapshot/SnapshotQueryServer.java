@@ -0,0 +1,307 @@
+package local.demo.thread_snapshot;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import local.demo.zmq_common.frame.MultipartReader;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQException;
+import zmq.ZError;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Endpoint đọc cache qua ZMQ: mỗi endpoint trong {@code snapshot.query.endpoint} (phân cách bằng dấu phẩy)
+ * là một ROUTER với thread riêng, thread đó nhận, xử lý và trả lời luôn (đọc cache chỉ tốn vài trăm ns,
+ * không có chặng proxy hay worker nào ở giữa). Các endpoint không chia sẻ gì nên thêm endpoint là thêm
+ * thông lượng theo số core; client DEALER connect tới mọi endpoint thì ZMQ tự rải request vòng tròn.
+ * <p>
+ * Client dùng REQ, hoặc DEALER tự thêm frame rỗng để gửi nhiều request không chờ reply (pipeline), giữ
+ * số request chưa có reply dưới {@code snapshot.query.hwm}: vượt mức đó ROUTER bỏ reply. Nhiều symbol
+ * trong một request thì dùng {@code BATCH}. Thread query chỉ đọc {@link SymbolCacheAdapter} nên không bao
+ * giờ chặn thread subscriber.
+ * <p>
+ * Request: frame đầu là lệnh, các frame sau là tham số (symbol tối đa {@value #MAX_FRAME_SIZE} byte).
+ * Reply: frame đầu là trạng thái ({@code OK}, {@code NOT_FOUND}, {@code ERR} kèm một frame lý do).
+ * Request được đọc vào buffer dùng lại và reply ghi thẳng từ các buffer đó, không tạo ZMsg/ZFrame/String
+ * nào ngoài value trả về.
+ * <ul>
+ *     <li>{@code QUOTE <symbol>} → {@code OK <version> <updatedAtMs> <value>}</li>
+ *     <li>{@code HISTORY <symbol> <n>} → {@code OK <entry>...} (cũ trước mới sau)</li>
+ *     <li>{@code BATCH <symbol>...} → {@code OK} rồi mỗi symbol 3 frame {@code <symbol> <version> <value>},
+ *     symbol chưa có quote thì version {@code 0} và value rỗng; tối đa {@value #MAX_BATCH} symbol</li>
+ *     <li>{@code SNAPSHOT} → {@code OK}: bắt đầu ghi một snapshot file ở nền rồi trả lời ngay, xem
+ *     {@link SnapshotService#snapshotAsync()}</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class SnapshotQueryServer {
+
+    static final String OK = "OK";
+    static final String NOT_FOUND = "NOT_FOUND";
+    static final String ERR = "ERR";
+    static final int MAX_BATCH = 1024;
+    static final int MAX_FRAME_SIZE = 256;
+
+    private static final byte[] OK_BYTES = ascii(OK);
+    private static final byte[] NOT_FOUND_BYTES = ascii(NOT_FOUND);
+    private static final byte[] ERR_BYTES = ascii(ERR);
+    private static final byte[] EMPTY = new byte[0];
+    private static final byte[] QUOTE = ascii("QUOTE");
+    private static final byte[] HISTORY = ascii("HISTORY");
+    private static final byte[] BATCH = ascii("BATCH");
+    private static final byte[] SNAPSHOT = ascii("SNAPSHOT");
+
+    private final SymbolCacheAdapter cacheAdapter;
+    private final SnapshotService snapshots;
+    private final List<String> endpoints;
+    private final int hwm;
+    private ZContext context;
+    private final List<Thread> workers = new ArrayList<>();
+
+    public SnapshotQueryServer(SymbolCacheAdapter cacheAdapter,
+                               SnapshotService snapshots,
+                               @Value("${snapshot.query.endpoint:tcp://127.0.0.1:5560}") String endpoints,
+                               @Value("${snapshot.query.hwm:10000}") int hwm) {
+        if (hwm <= 0) {
+            throw new IllegalArgumentException("snapshot.query.hwm must be positive");
+        }
+        this.cacheAdapter = cacheAdapter;
+        this.snapshots = snapshots;
+        this.endpoints = Arrays.stream(endpoints.split(",")).map(String::trim).filter(e -> !e.isEmpty()).toList();
+        this.hwm = hwm;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (endpoints.isEmpty()) return;
+        // mỗi endpoint một I/O thread: encode/decode TCP cũng không dùng chung
+        context = new ZContext(endpoints.size());
+        for (int i = 0; i < endpoints.size(); i++) {
+            ZMQ.Socket socket = context.createSocket(SocketType.ROUTER);
+            socket.setRcvHWM(hwm);
+            socket.setSndHWM(hwm);
+            socket.bind(endpoints.get(i));
+            workers.add(Thread.ofPlatform().name("SnapshotQuery-" + i).daemon(true)
+                    .start(() -> serve(socket)));
+        }
+        log.info("[Query] Serving snapshot reads at {}", endpoints);
+    }
+
+    /**
+     * Chạy trên thread sở hữu {@code socket} tới khi context bị terminate, rồi tự đóng socket.
+     * Envelope của ROUTER (identity, frame rỗng nếu client là REQ hoặc DEALER có frame rỗng) được gắn
+     * lại nguyên vẹn vào reply.
+     */
+    private void serve(ZMQ.Socket socket) {
+        // envelope + lệnh + tối đa MAX_BATCH symbol
+        MultipartReader request = new MultipartReader(MAX_BATCH + 3, MAX_FRAME_SIZE);
+        Reply reply = new Reply();
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                if (!request.read(socket, 0)) {
+                    if (socket.errno() == ZError.ETERM) {
+                        return;
+                    }
+                    continue;
+                }
+                reply.reset();
+                reply.add(request.frame(0), 0, request.length(0));
+                int first = 1;
+                if (request.frames() > 1 && request.length(1) == 0) {
+                    reply.add(EMPTY);
+                    first = 2;
+                }
+                int envelope = reply.size();
+                try {
+                    if (request.isTruncated()) {
+                        throw new IllegalArgumentException("Request too large: at most " + MAX_BATCH
+                                + " symbols of " + MAX_FRAME_SIZE + " bytes");
+                    }
+                    handle(request, first, reply);
+                } catch (RuntimeException e) {
+                    reply.truncate(envelope);
+                    reply.add(ERR_BYTES);
+                    reply.add(String.valueOf(e.getMessage()));
+                }
+                reply.send(socket);
+            }
+        } catch (ZMQException e) {
+            if (e.getErrorCode() != ZError.ETERM) {
+                log.error("[Query] {} stopped", Thread.currentThread().getName(), e);
+            }
+        } finally {
+            context.destroySocket(socket);
+        }
+    }
+
+    /**
+     * @param first index frame lệnh trong {@code request}
+     */
+    private void handle(MultipartReader request, int first, Reply reply) {
+        int args = request.frames() - first - 1;
+        if (args < 0) {
+            throw new IllegalArgumentException("Missing command");
+        }
+        if (request.frameEquals(first, QUOTE)) {
+            requireArgs(args, 1);
+            QuoteSnapshot quote = cacheAdapter.latestQuote(request.frame(first + 1), 0, request.length(first + 1));
+            if (quote == null) {
+                reply.add(NOT_FOUND_BYTES);
+            } else {
+                reply.add(OK_BYTES);
+                reply.add(quote.version());
+                reply.add(quote.updatedAtMs());
+                reply.add(quote.value());
+            }
+        } else if (request.frameEquals(first, HISTORY)) {
+            requireArgs(args, 2);
+            String count = new String(request.frame(first + 2), 0, request.length(first + 2), StandardCharsets.US_ASCII);
+            int n;
+            try {
+                n = Integer.parseInt(count);
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Invalid n: " + count);
+            }
+            List<String> entries = cacheAdapter.history(request.frame(first + 1), 0, request.length(first + 1), n);
+            reply.add(OK_BYTES);
+            for (String entry : entries) {
+                reply.add(entry);
+            }
+        } else if (request.frameEquals(first, BATCH)) {
+            reply.add(OK_BYTES);
+            for (int i = first + 1; i < request.frames(); i++) {
+                QuoteSnapshot quote = cacheAdapter.latestQuote(request.frame(i), 0, request.length(i));
+                reply.add(request.frame(i), 0, request.length(i));
+                reply.add(quote == null ? 0 : quote.version());
+                if (quote == null) {
+                    reply.add(EMPTY);
+                } else {
+                    reply.add(quote.value());
+                }
+            }
+        } else if (request.frameEquals(first, SNAPSHOT)) {
+            // ghi file mất vài giây với nhiều symbol: không giữ thread query
+            snapshots.snapshotAsync();
+            reply.add(OK_BYTES);
+        } else {
+            throw new IllegalArgumentException("Unknown command: "
+                    + new String(request.frame(first), 0, request.length(first), StandardCharsets.UTF_8));
+        }
+    }
+
+    private static void requireArgs(int args, int required) {
+        if (args < required) {
+            throw new IllegalArgumentException("Missing argument");
+        }
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    /**
+     * Terminate context ở nền (term() chờ mọi socket đóng) để recv của các thread query trả về ETERM,
+     * mỗi thread tự đóng socket của mình rồi thoát.
+     */
+    @PreDestroy
+    public void stop() {
+        if (context == null) return;
+        ZMQ.Context zmqContext = context.getContext();
+        Thread term = Thread.ofPlatform().name("SnapshotQueryTerm").daemon(true).start(zmqContext::term);
+        try {
+            for (Thread worker : workers) {
+                worker.join(TimeUnit.SECONDS.toMillis(1));
+            }
+            term.join(TimeUnit.SECONDS.toMillis(1));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        log.info("[Query] Stopped");
+    }
+
+    /**
+     * Các frame của một reply, dùng lại cho mọi request của một thread query: frame trỏ thẳng vào buffer
+     * nguồn (frame request, hằng số, value), số được ghi vào một scratch riêng.
+     */
+    private static final class Reply {
+        private byte[][] buffers = new byte[16][];
+        private int[] offsets = new int[16];
+        private int[] lengths = new int[16];
+        private int count;
+        private byte[] scratch = new byte[1024];
+        private int scratchUsed;
+
+        void reset() {
+            count = 0;
+            scratchUsed = 0;
+        }
+
+        int size() {
+            return count;
+        }
+
+        void truncate(int size) {
+            count = size;
+        }
+
+        void add(byte[] buf) {
+            add(buf, 0, buf.length);
+        }
+
+        void add(byte[] buf, int offset, int length) {
+            if (count == buffers.length) {
+                buffers = Arrays.copyOf(buffers, count * 2);
+                offsets = Arrays.copyOf(offsets, count * 2);
+                lengths = Arrays.copyOf(lengths, count * 2);
+            }
+            buffers[count] = buf;
+            offsets[count] = offset;
+            lengths[count] = length;
+            count++;
+        }
+
+        void add(String value) {
+            add(value.getBytes(StandardCharsets.UTF_8));
+        }
+
+        /**
+         * Số thập phân ASCII, không cấp phát trừ khi scratch hết chỗ.
+         */
+        void add(long value) {
+            if (scratch.length - scratchUsed < 20) {
+                // frame đã thêm vẫn trỏ vào scratch cũ nên không copy sang
+                scratch = new byte[scratch.length];
+                scratchUsed = 0;
+            }
+            int end = scratchUsed + 20;
+            int pos = end;
+            long rest = value < 0 ? value : -value; // luôn âm để Long.MIN_VALUE không tràn
+            do {
+                scratch[--pos] = (byte) ('0' - rest % 10);
+                rest /= 10;
+            } while (rest != 0);
+            if (value < 0) {
+                scratch[--pos] = '-';
+            }
+            add(scratch, pos, end - pos);
+            scratchUsed = end;
+        }
+
+        void send(ZMQ.Socket socket) {
+            for (int i = 0; i < count; i++) {
+                socket.send(buffers[i], offsets[i], lengths[i], i < count - 1 ? ZMQ.SNDMORE : 0);
+            }
+        }
+    }
+}
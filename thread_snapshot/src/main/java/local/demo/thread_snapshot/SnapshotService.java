@@ -0,0 +1,191 @@
+package local.demo.thread_snapshot;
+
+import jakarta.annotation.PreDestroy;
+import local.demo.zmq_common.symbol.SymbolTable;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Stream;
+
+/**
+ * Snapshot file của {@link SymbolCacheAdapter} trong {@code snapshot.file.dir}: nạp file mới nhất lúc
+ * khởi động (trước khi subscriber nhận message), ghi định kỳ mỗi {@code snapshot.file.interval-ms},
+ * theo yêu cầu ({@link #snapshot()}, hoặc {@link #snapshotAsync()} cho lệnh {@code SNAPSHOT} của
+ * {@link SnapshotQueryServer}) và một lần khi tắt, sau khi subscriber đã dừng.
+ * <p>
+ * File tên {@code snapshot-<epoch>.snap}, ghi vào {@code .tmp} rồi đổi tên nên không bao giờ thấy file
+ * ghi dở; giữ lại {@code snapshot.file.retain} file mới nhất.
+ */
+@Slf4j
+@Service
+public class SnapshotService {
+
+    private static final String PREFIX = "snapshot-";
+    private static final String SUFFIX = ".snap";
+
+    private final SymbolCacheAdapter cacheAdapter;
+    private final Path dir;
+    private final int retain;
+    private volatile Path loaded;
+    private final ExecutorService writer = Executors.newSingleThreadExecutor(
+            Thread.ofPlatform().name("SnapshotWriter").daemon(true).factory());
+    // yêu cầu async chưa bắt đầu ghi, yêu cầu đến sau dùng chung
+    private final AtomicReference<CompletableFuture<Path>> queued = new AtomicReference<>();
+
+    public SnapshotService(SymbolCacheAdapter cacheAdapter,
+                           SymbolTable symbols,
+                           @Value("${snapshot.file.dir:./data/snapshot}") String dir,
+                           @Value("${snapshot.file.retain:3}") int retain) {
+        if (retain <= 0) {
+            throw new IllegalArgumentException("snapshot.file.retain must be positive");
+        }
+        this.cacheAdapter = cacheAdapter;
+        this.dir = dir.isBlank() ? null : Path.of(dir);
+        this.retain = retain;
+        if (this.dir != null) {
+            restore(symbols);
+        }
+    }
+
+    /**
+     * Thử từ file mới nhất trở về trước, file hỏng thì bỏ qua.
+     */
+    private void restore(SymbolTable symbols) {
+        for (Path file : files().reversed()) {
+            long start = System.nanoTime();
+            try {
+                SnapshotFile snapshot = SnapshotFile.open(file, symbols);
+                cacheAdapter.restore(snapshot);
+                loaded = file;
+                log.info("[Snapshot] Restored {} (epoch={}, symbols={}) in {} ms", file, snapshot.epoch(),
+                        snapshot.symbolCount(), (System.nanoTime() - start) / 1_000_000);
+                return;
+            } catch (IOException | RuntimeException e) {
+                log.warn("[Snapshot] Cannot restore {}, trying older snapshot", file, e);
+            }
+        }
+        log.info("[Snapshot] No snapshot in {}, starting empty", dir);
+    }
+
+    @Scheduled(fixedDelayString = "${snapshot.file.interval-ms:60000}",
+            initialDelayString = "${snapshot.file.interval-ms:60000}")
+    public void scheduledSnapshot() {
+        if (dir == null) return;
+        try {
+            snapshot();
+        } catch (IOException e) {
+            log.error("[Snapshot] Periodic snapshot failed", e);
+        }
+    }
+
+    /**
+     * Ghi một snapshot tại điểm cắt mới.
+     *
+     * @return file vừa ghi
+     */
+    public synchronized Path snapshot() throws IOException {
+        if (dir == null) {
+            throw new IllegalStateException("snapshot.file.dir is not configured");
+        }
+        Files.createDirectories(dir);
+        long start = System.nanoTime();
+        Path tmp = dir.resolve(PREFIX + "writing" + SUFFIX + ".tmp");
+        long epoch;
+        try {
+            epoch = cacheAdapter.writeSnapshot(tmp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(tmp);
+            throw e;
+        }
+        Path file = dir.resolve(PREFIX + String.format("%020d", epoch) + SUFFIX);
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        log.info("[Snapshot] Wrote {} ({} bytes) in {} ms", file, Files.size(file),
+                (System.nanoTime() - start) / 1_000_000);
+        prune();
+        return file;
+    }
+
+    /**
+     * Ghi một snapshot trên thread ghi snapshot, trả về ngay. Yêu cầu đến khi đã có một yêu cầu chưa bắt
+     * đầu ghi thì gộp vào yêu cầu đó (điểm cắt của nó vẫn sau cả hai).
+     *
+     * @return hoàn thành với file vừa ghi, hoặc lỗi nếu ghi thất bại (lỗi đã được log)
+     */
+    public CompletableFuture<Path> snapshotAsync() {
+        if (dir == null) {
+            throw new IllegalStateException("snapshot.file.dir is not configured");
+        }
+        CompletableFuture<Path> future = new CompletableFuture<>();
+        CompletableFuture<Path> pending = queued.compareAndExchange(null, future);
+        if (pending != null) {
+            return pending;
+        }
+        writer.execute(() -> {
+            queued.compareAndSet(future, null); // từ đây yêu cầu mới cần điểm cắt mới
+            try {
+                future.complete(snapshot());
+            } catch (IOException | RuntimeException e) {
+                log.error("[Snapshot] Requested snapshot failed", e);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private void prune() {
+        List<Path> files = files();
+        for (Path old : files.subList(0, Math.max(0, files.size() - retain))) {
+            if (old.equals(loaded)) continue; // vẫn đang được mmap làm base
+            try {
+                Files.deleteIfExists(old);
+            } catch (IOException e) {
+                log.warn("[Snapshot] Cannot delete {}", old, e);
+            }
+        }
+    }
+
+    /**
+     * @return các file snapshot, cũ trước mới sau (tên chứa epoch đệm số 0)
+     */
+    private List<Path> files() {
+        if (!Files.isDirectory(dir)) {
+            return List.of();
+        }
+        try (Stream<Path> stream = Files.list(dir)) {
+            return stream.filter(p -> {
+                        String name = p.getFileName().toString();
+                        return name.startsWith(PREFIX) && name.endsWith(SUFFIX);
+                    })
+                    .sorted()
+                    .toList();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Subscriber phụ thuộc bean này nên đã dừng trước: snapshot cuối có đủ mọi message đã nhận.
+     */
+    @PreDestroy
+    public void stop() {
+        writer.shutdown();
+        if (dir == null) return;
+        try {
+            snapshot();
+        } catch (IOException | RuntimeException e) {
+            log.error("[Snapshot] Final snapshot failed", e);
+        }
+    }
+}
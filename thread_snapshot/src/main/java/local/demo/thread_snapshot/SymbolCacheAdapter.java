@@ -1,50 +1,293 @@
 package local.demo.thread_snapshot;
 
+import local.demo.zmq_common.symbol.SymbolTable;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.util.Deque;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.ConcurrentLinkedDeque;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * State mới nhất theo symbol và đường đọc cho service khác.
+ * <p>
+ * Chỉ thread subscriber ghi. Đọc được từ thread bất kỳ, không lock và không chặn writer:
+ * quote là {@link QuoteSnapshot} bất biến thay nguyên bản mỗi lần cập nhật, history là
+ * {@link HistoryRing} giữ {@code snapshot.history.capacity} entry gần nhất của mỗi symbol.
+ * <p>
+ * Snapshot ra file theo epoch ({@link #writeSnapshot(Path)}): tăng epoch là có ngay một điểm cắt,
+ * writer không dừng. Mỗi lần ghi mang epoch hiện tại; với symbol thread ghi file chưa tới, quote bị thay
+ * lần đầu sau điểm cắt được giữ lại trong {@code preservedQuotes} và history ring được copy sang
+ * {@code preservedHistory} ở lần ghi đầu tiên sau điểm cắt (writer có thể ghi đè trọn ring trước khi
+ * thread ghi file tới symbol đó), nên thread ghi file đọc được đúng trạng thái tại điểm cắt trong khi
+ * ingest vẫn chạy.
+ * <p>
+ * Sau {@link #restore(SnapshotFile)}, symbol chưa có dữ liệu mới đọc thẳng từ file đã mmap; quote và
+ * history của một symbol chỉ được decode khi có người đọc hoặc ở lần ghi đầu tiên của symbol đó.
+ */
 @Slf4j
 @Service
 public class SymbolCacheAdapter {
-    private final Map<String, Deque<String>> historicalMap = new ConcurrentHashMap<>();
+    // đánh index bằng id của SymbolTable, chỉ thread subscriber ghi
+    private final SymbolTable symbols;
+    private final AtomicReferenceArray<HistoryRing> historicalMap;
 
-    private final Map<String, String> quoteMap = new ConcurrentHashMap<>();
+    private final AtomicReferenceArray<QuoteSnapshot> quoteMap;
+    // quote trước điểm cắt của snapshot đang ghi, chỉ có với symbol đã được cập nhật sau điểm cắt
+    private final AtomicReferenceArray<QuoteSnapshot> preservedQuotes;
+    // history tại điểm cắt, chỉ có với symbol được ghi history sau điểm cắt trước khi thread snapshot tới
+    private final AtomicReferenceArray<List<String>> preservedHistory;
+    // id đầu tiên thread snapshot chưa ghi xong, MAX_VALUE khi không ghi snapshot
+    private volatile int snapshotProgress = Integer.MAX_VALUE;
+    private final int historyCapacity;
+    private volatile long epoch;
+    // snapshot đã nạp lúc khởi động, null nếu khởi động rỗng
+    private volatile SnapshotFile base;
 
-    private final AtomicInteger totalReceived = new AtomicInteger(0);
-    private final AtomicInteger totalProcessed = new AtomicInteger(0);
-    private final AtomicLong totalProcessingTimeMs = new AtomicLong(0);
+    private final LongAdder totalReceived = new LongAdder();
+    private final LongAdder totalReads = new LongAdder();
 
+    public SymbolCacheAdapter(SymbolTable symbols,
+                              @Value("${snapshot.history.capacity:1024}") int historyCapacity) {
+        this.symbols = symbols;
+        this.historicalMap = new AtomicReferenceArray<>(symbols.capacity());
+        this.quoteMap = new AtomicReferenceArray<>(symbols.capacity());
+        this.preservedQuotes = new AtomicReferenceArray<>(symbols.capacity());
+        this.preservedHistory = new AtomicReferenceArray<>(symbols.capacity());
+        this.historyCapacity = historyCapacity;
+    }
 
     public void pushHistory(String key, String value) {
-        totalReceived.incrementAndGet();
-        historicalMap
-                .computeIfAbsent(key, k -> new ConcurrentLinkedDeque<>())
-                .addLast(value);
+        pushHistory(symbols.intern(key), value);
+    }
+
+    public void pushHistory(int symbolId, String value) {
+        totalReceived.increment();
+        HistoryRing history = historicalMap.get(symbolId);
+        if (history == null) {
+            history = new HistoryRing(historyCapacity);
+            SnapshotFile base = this.base;
+            if (base != null) {
+                for (String entry : base.history(symbolId, historyCapacity)) {
+                    history.add(entry, 0);
+                }
+            }
+            historicalMap.set(symbolId, history);
+        }
+        long epoch = this.epoch; // đọc trước snapshotProgress, xem writeSnapshot
+        if (history.epoch() < epoch && symbolId >= snapshotProgress) {
+            // lần ghi đầu sau điểm cắt, thread snapshot chưa ghi symbol này: giữ lại trước khi ghi đè
+            preservedHistory.set(symbolId, history.latest(historyCapacity));
+        }
+        history.add(value, epoch);
+    }
+
+    /**
+     * Body đọc thẳng từ buffer nhận của socket, chỉ decode một lần thành String để lưu.
+     */
+    public void pushHistory(int symbolId, byte[] buf, int offset, int length) {
+        pushHistory(symbolId, new String(buf, offset, length, StandardCharsets.UTF_8));
     }
 
     public void pushQuote(String key, String value) {
-        totalReceived.incrementAndGet();
-        quoteMap.put(key, value);
+        pushQuote(symbols.intern(key), value);
+    }
+
+    public void pushQuote(int symbolId, String value) {
+        totalReceived.increment();
+        QuoteSnapshot previous = quoteMap.get(symbolId);
+        if (previous == null) {
+            previous = baseQuote(symbolId); // version tiếp nối snapshot
+        }
+        long epoch = this.epoch; // đọc trước snapshotProgress, xem writeSnapshot
+        if ((previous == null || previous.epoch() < epoch) && symbolId >= snapshotProgress) {
+            preservedQuotes.set(symbolId, previous); // trước khi thay: thread snapshot cần bản này
+        }
+        long version = previous == null ? 1 : previous.version() + 1;
+        quoteMap.set(symbolId, new QuoteSnapshot(symbols.name(symbolId), value, version, System.currentTimeMillis(), epoch));
+    }
+
+    public void pushQuote(int symbolId, byte[] buf, int offset, int length) {
+        pushQuote(symbolId, new String(buf, offset, length, StandardCharsets.UTF_8));
+    }
+
+    // -------------------- READ API ----------------------------
+
+    /**
+     * @return quote mới nhất, null nếu symbol chưa có quote
+     */
+    public QuoteSnapshot latestQuote(String symbol) {
+        byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+        return latestQuote(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Như {@link #latestQuote(String)}, tên symbol đọc thẳng từ buffer (ví dụ frame của request).
+     */
+    public QuoteSnapshot latestQuote(byte[] buf, int offset, int length) {
+        totalReads.increment();
+        int id = symbols.find(buf, offset, length);
+        return id < 0 ? null : quote(id);
+    }
+
+    /**
+     * @return tối đa {@code n} history entry mới nhất (cũ trước mới sau), rỗng nếu symbol chưa có history
+     */
+    public List<String> history(String symbol, int n) {
+        byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+        return history(bytes, 0, bytes.length, n);
+    }
+
+    public List<String> history(byte[] buf, int offset, int length, int n) {
+        totalReads.increment();
+        int id = symbols.find(buf, offset, length);
+        if (id < 0 || n <= 0) {
+            return List.of();
+        }
+        HistoryRing history = historicalMap.get(id);
+        if (history != null) {
+            return history.latest(n);
+        }
+        SnapshotFile base = this.base;
+        return base == null ? List.of() : base.history(id, n);
+    }
+
+    /**
+     * Quote mới nhất của nhiều symbol một lần, theo thứ tự hỏi; symbol chưa có quote không có trong kết quả.
+     * Mỗi symbol là một snapshot riêng: các giá trị không nhất thiết cùng một thời điểm.
+     */
+    public Map<String, QuoteSnapshot> latestQuotes(Collection<String> symbolNames) {
+        totalReads.increment();
+        Map<String, QuoteSnapshot> out = new LinkedHashMap<>();
+        for (String symbol : symbolNames) {
+            int id = find(symbol);
+            QuoteSnapshot quote = id < 0 ? null : quote(id);
+            if (quote != null) {
+                out.put(symbol, quote);
+            }
+        }
+        return out;
+    }
+
+    // -------------------- SNAPSHOT ----------------------------
+
+    private QuoteSnapshot quote(int id) {
+        QuoteSnapshot quote = quoteMap.get(id);
+        return quote != null ? quote : baseQuote(id);
+    }
+
+    private QuoteSnapshot baseQuote(int id) {
+        SnapshotFile base = this.base;
+        return base == null ? null : base.quote(id, symbols.name(id));
+    }
+
+    /**
+     * Nạp snapshot lúc khởi động, trước khi subscriber chạy. Không decode gì: mọi đọc của symbol chưa
+     * có dữ liệu mới đi thẳng vào file.
+     */
+    public void restore(SnapshotFile file) {
+        epoch = file.epoch();
+        base = file;
+    }
+
+    /**
+     * Ghi trạng thái tại một điểm cắt mới vào {@code path}, đồng thời với thread subscriber.
+     * Message đang được xử lý đúng lúc tăng epoch có thể rơi vào trước hoặc sau điểm cắt, nhưng
+     * luôn trọn vẹn một phía.
+     *
+     * @return epoch của điểm cắt
+     */
+    public synchronized long writeSnapshot(Path path) throws IOException {
+        // trước khi tăng epoch: writer thấy epoch mới thì cũng thấy snapshot đang chạy
+        snapshotProgress = 0;
+        long cut = epoch + 1;
+        epoch = cut; // mọi lần ghi từ đây thuộc về sau điểm cắt
+        int count = symbols.size();
+        SnapshotFile base = this.base;
+        try (SnapshotFile.Writer out = new SnapshotFile.Writer(path, cut, System.currentTimeMillis(), count)) {
+            for (int id = 0; id < count; id++) {
+                out.symbol(symbols.bytes(id));
+                QuoteSnapshot live = quoteMap.get(id);
+                QuoteSnapshot quote = live;
+                if (live != null && live.epoch() >= cut) {
+                    quote = preservedQuotes.get(id); // writer đã giữ lại trước khi thay
+                }
+                if (quote != null) {
+                    out.quote(quote);
+                } else if (live == null && base != null) {
+                    base.copyQuote(id, out); // chưa có quote mới: giữ nguyên bản trong file
+                } else {
+                    out.noQuote();
+                }
+                HistoryRing history = historicalMap.get(id);
+                if (history != null) {
+                    out.history(historyAt(id, history, cut));
+                } else if (base != null) {
+                    base.copyHistory(id, out);
+                } else {
+                    out.history(List.of());
+                }
+                snapshotProgress = id + 1;
+            }
+        } finally {
+            snapshotProgress = Integer.MAX_VALUE;
+            for (int id = 0, n = symbols.size(); id < n; id++) {
+                preservedQuotes.lazySet(id, null);
+                preservedHistory.lazySet(id, null);
+            }
+        }
+        return cut;
+    }
+
+    /**
+     * Ring còn nguyên history tại điểm cắt nếu writer chưa ghi gì sau điểm cắt tới lúc copy xong,
+     * ngược lại writer đã giữ lại bản trước lần ghi đầu tiên đó.
+     */
+    private List<String> historyAt(int id, HistoryRing history, long cut) {
+        while (history.epoch() < cut) {
+            List<String> entries = history.entriesAt(cut);
+            if (entries != null && history.epoch() < cut) {
+                return entries;
+            }
+            // message đang xử lý lúc tăng epoch (vẫn thuộc trước điểm cắt) vừa ghi đè slot đang copy: copy lại
+        }
+        return preservedHistory.get(id);
+    }
+
+    public long epoch() {
+        return epoch;
+    }
+
+    /**
+     * Tra id mà không intern: symbol lạ từ phía đọc không làm đầy bảng.
+     */
+    private int find(String symbol) {
+        byte[] bytes = symbol.getBytes(StandardCharsets.UTF_8);
+        return symbols.find(bytes, 0, bytes.length);
     }
 
     @Scheduled(fixedDelay = 60000)
     public void logStats() {
-        int received = totalReceived.get();
-        int processed = totalProcessed.get();
-        long totalTime = totalProcessingTimeMs.get();
-        double avgTime = processed > 0 ? (double) totalTime / processed : 0.0;
-
-        log.info("[MapSize] historicalMap={}, quoteMap={}", historicalMap.size(), quoteMap.size());
+        int historyCount = 0, quoteCount = 0;
+        long historyEntries = 0;
+        for (int id = 0, n = symbols.size(); id < n; id++) {
+            HistoryRing history = historicalMap.get(id);
+            if (history != null) {
+                historyCount++;
+                historyEntries += history.size();
+            }
+            if (quoteMap.get(id) != null) quoteCount++;
+        }
+        log.info("[MapSize] historicalMap={} ({} entries), quoteMap={}", historyCount, historyEntries, quoteCount);
 
-        log.info("📊 Stats: received={}, processed={}, totalTime={} ms, avgTime={} ms/msg",
-                received, processed, totalTime, String.format("%.2f", avgTime));
+        log.info("📊 Stats: received={}, reads={}", totalReceived.sum(), totalReads.sum());
     }
 }
@@ -2,87 +2,166 @@ package local.demo.thread_snapshot;
 
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.PreDestroy;
+import local.demo.zmq_common.frame.MultipartReader;
+import local.demo.zmq_common.receive.ReceiveLoop;
+import local.demo.zmq_common.symbol.SymbolTable;
+import local.demo.zmq_common.wire.BinaryDecoder;
+import local.demo.zmq_common.wire.WireFormat;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import org.zeromq.ZContext;
 import org.zeromq.ZMQ;
-import org.zeromq.ZMsg;
 
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Nhận cả message text 3 frame lẫn frame nhị phân theo {@link WireFormat}.
+ * Chỉ chạy sau khi {@link SnapshotService} đã nạp snapshot, dừng trước khi snapshot cuối được ghi.
+ * Thread nhận là một {@link ReceiveLoop} chờ theo {@code zmq.receive.wait-strategy}.
+ */
 @Slf4j
 @Component
+@DependsOn("snapshotService")
 public class ZmqMessageSubscriber {
 
+    private static final byte[] TOPIC_QUOTE = "quoteAll".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOPIC_HISTORY = "history".getBytes(StandardCharsets.US_ASCII);
+    // bảng symbol đầy thì mọi message symbol mới đều bị bỏ: log tối đa một lần mỗi khoảng này
+    private static final long FULL_WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
     private final SymbolCacheAdapter cacheAdapter;
-    private ZContext context;
-    private ZMQ.Socket subscriber;
-    private Thread thread;
-    private volatile boolean running = true;
+    private final SymbolTable symbols;
+    private final int sym1;
+    private final ReceiveLoop loop;
+    // message bị bỏ vì bảng symbol đầy
+    private final LongAdder symbolTableFull = new LongAdder();
+    // chỉ thread nhận dùng; frame được đọc vào buffer dùng lại, body chỉ decode một lần khi lưu vào cache
+    private final MultipartReader reader = new MultipartReader(3, 65536);
+    private final BinaryDecoder decoder = new BinaryDecoder();
+    private long lastFullWarnNanos = System.nanoTime() - FULL_WARN_INTERVAL_NANOS;
 
-    public ZmqMessageSubscriber(SymbolCacheAdapter cacheAdapter) {
+    public ZmqMessageSubscriber(SymbolCacheAdapter cacheAdapter,
+                                SymbolTable symbols,
+                                @Value("${zmq.endpoint:tcp://127.0.0.1:5555}") String endpoint,
+                                @Value("${zmq.receive.wait-strategy:poll}") String waitStrategy,
+                                @Value("${zmq.receive.drain-limit:256}") int drainLimit,
+                                @Value("${zmq.receive.poll-timeout-ms:100}") long pollTimeoutMs,
+                                @Value("${zmq.receive.spin-tries:1000}") int spinTries,
+                                @Value("${zmq.receive.rcvhwm:1000}") int rcvHwm,
+                                @Value("${zmq.receive.rcvbuf:0}") int rcvBuf,
+                                @Value("${zmq.io-threads:1}") int ioThreads) {
         this.cacheAdapter = cacheAdapter;
+        this.symbols = symbols;
+        this.sym1 = symbols.intern("SYM1");
+        ReceiveLoop.Settings settings = new ReceiveLoop.Settings(endpoint, ReceiveLoop.WaitStrategy.of(waitStrategy),
+                ioThreads, rcvHwm, rcvBuf, drainLimit, pollTimeoutMs, spinTries);
+        this.loop = new ReceiveLoop("ZmqSubscriberThread", settings,
+                socket -> socket.subscribe(ZMQ.SUBSCRIPTION_ALL), this::receive); // Nhận tất cả topic
     }
 
     @PostConstruct
     public void start() {
-        context = new ZContext();
-        subscriber = context.createSocket(ZMQ.SUB);
-        subscriber.connect("tcp://127.0.0.1:5555");
-        subscriber.subscribe(ZMQ.SUBSCRIPTION_ALL); // Nhận tất cả topic
-
-        thread = new Thread(this::listenLoop, "ZmqSubscriberThread");
-        thread.start();
-        log.info("[ZMQ] Subscriber started and connected to tcp://127.0.0.1:5555");
+        loop.start();
+        log.info("[ZMQ] Subscriber started and connected to {}, wait={}",
+                loop.settings().endpoint(), loop.settings().waitStrategy());
     }
 
-    private void listenLoop() {
-        while (running && !Thread.currentThread().isInterrupted()) {
-            ZMsg msg = ZMsg.recvMsg(subscriber, ZMQ.DONTWAIT);
-            if (msg != null) {
-                try {
-                    String topic = msg.popString();
-                    String symbol = msg.popString();
-                    String body = msg.popString();
+    private boolean receive(ZMQ.Socket socket) {
+        if (!reader.read(socket, ZMQ.DONTWAIT)) {
+            return false;
+        }
+        if (reader.isTruncated() || (reader.frames() != 1 && reader.frames() != 3)) {
+            log.warn("[ZMQ] Dropped malformed message: frames={}, truncated={}",
+                    reader.frames(), reader.isTruncated());
+            return true;
+        }
+        if (reader.frames() == 1) {
+            byte[] frame = reader.frame(0);
+            if (!decoder.wrap(frame, 0, reader.length(0))) {
+                log.warn("[ZMQ] Dropped binary frame: version={}, length={}",
+                        BinaryDecoder.version(frame, 0, reader.length(0)), reader.length(0));
+                return true;
+            }
+            int topic = decoder.topic();
+            if (topic != WireFormat.TOPIC_QUOTE && topic != WireFormat.TOPIC_HISTORY) {
+                log.warn("[ZMQ] Unknown topic code: {}", topic);
+                return true;
+            }
+            int symbolId = intern(frame, decoder.symbolOffset(), decoder.symbolLength());
+            if (symbolId >= 0) {
+                handle(topic, symbolId, frame, decoder.payloadOffset(), decoder.payloadLength());
+            }
+            return true;
+        }
 
-//                    log.info("[ZMQ] Received topic={} symbol={} body={}", topic, symbol, body);
-                    if (symbol.equals("SYM1")) {
-                        log.info("GET " + body);
-                    }
+        int topic;
+        if (reader.frameEquals(0, TOPIC_QUOTE)) {
+            topic = WireFormat.TOPIC_QUOTE;
+        } else if (reader.frameEquals(0, TOPIC_HISTORY)) {
+            topic = WireFormat.TOPIC_HISTORY;
+        } else {
+            log.warn("[ZMQ] Unknown topic: {}",
+                    new String(reader.frame(0), 0, reader.length(0), StandardCharsets.UTF_8));
+            return true;
+        }
+        // intern sau khi biết topic hợp lệ: message rác không chiếm id symbol
+        int symbolId = intern(reader.frame(1), 0, reader.length(1));
+        if (symbolId >= 0) {
+            handle(topic, symbolId, reader.frame(2), 0, reader.length(2));
+        }
+        return true;
+    }
 
-                    switch (topic) {
-                        case "quoteAll" -> {
+    /**
+     * @return id symbol, -1 nếu bảng symbol đã đầy (message bị bỏ và được đếm)
+     */
+    private int intern(byte[] buf, int offset, int length) {
+        int id = symbols.tryIntern(buf, offset, length);
+        if (id < 0) {
+            symbolTableFull.increment();
+            long now = System.nanoTime();
+            if (now - lastFullWarnNanos >= FULL_WARN_INTERVAL_NANOS) {
+                lastFullWarnNanos = now;
+                log.warn("[ZMQ] SymbolTable full (symbols.capacity={}), dropping messages of new symbols: {} so far",
+                        symbols.capacity(), symbolTableFull.sum());
+            }
+        }
+        return id;
+    }
 
-//                            cacheAdapter.pushQuote(symbol, body);
-                        }
-                        case "history" -> {
-                            if (symbol.equals("SYM1")) {
-                                log.info("Switch " + body);
-                            }
-                            cacheAdapter.pushHistory(symbol, body);
-                        }
-                        default -> log.warn("[ZMQ] Unknown topic: {}", topic);
-                    }
+    private void handle(int topic, int symbolId, byte[] body, int offset, int length) {
+//        log.info("[ZMQ] Received symbol={}", symbols.name(symbolId));
+        if (symbolId == sym1) {
+            log.info("GET " + new String(body, offset, length, StandardCharsets.UTF_8));
+        }
 
-                } catch (Exception e) {
-                    log.error("[ZMQ] Error handling message", e);
-                } finally {
-                    msg.destroy();
-                }
-            } else {
-                try {
-                    Thread.sleep(5);
-                } catch (InterruptedException ignored) {
-                    Thread.currentThread().interrupt();
+        switch (topic) {
+            case WireFormat.TOPIC_QUOTE -> cacheAdapter.pushQuote(symbolId, body, offset, length);
+            case WireFormat.TOPIC_HISTORY -> {
+                if (symbolId == sym1) {
+                    log.info("Switch " + new String(body, offset, length, StandardCharsets.UTF_8));
                 }
+                cacheAdapter.pushHistory(symbolId, body, offset, length);
             }
         }
     }
 
     @PreDestroy
     public void stop() {
-        running = false;
-        if (thread != null) thread.interrupt();
-        if (subscriber != null) subscriber.close();
-        if (context != null) context.close();
+        loop.stop();
         log.info("[ZMQ] Subscriber stopped");
     }
+
+    @Scheduled(fixedDelay = 60000)
+    public void logStats() {
+        long busy = loop.busyNanos();
+        long idle = loop.idleNanos();
+        log.info("[ZMQ] Stats: received={}, symbolTableFull={}, wakeups={}, busy={}ms, idle={}ms ({}% busy)",
+                loop.messages(), symbolTableFull.sum(), loop.wakeups(), busy / 1_000_000, idle / 1_000_000,
+                busy + idle == 0 ? 0 : busy * 100 / (busy + idle));
+    }
 }
@@ -0,0 +1,57 @@
+package local.demo.thread_snapshot;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HistoryRingTest {
+
+    @Test
+    void returnsNewestEntriesOldestFirst() {
+        HistoryRing ring = new HistoryRing(4);
+        assertNull(ring.last());
+        assertEquals(List.of(), ring.latest(3));
+
+        for (int i = 0; i < 10; i++) {
+            ring.add("v" + i);
+        }
+        assertEquals(List.of("v7", "v8", "v9"), ring.latest(3));
+        // không trả nhiều hơn capacity
+        assertEquals(List.of("v6", "v7", "v8", "v9"), ring.latest(100));
+        assertEquals("v9", ring.last());
+        assertEquals(10, ring.version());
+        assertEquals(4, ring.size());
+    }
+
+    @Test
+    void readersSeeContiguousRunsWhileWriterWraps() throws InterruptedException {
+        HistoryRing ring = new HistoryRing(8);
+        int total = 2_000_000;
+        AtomicReference<String> failure = new AtomicReference<>();
+        Thread reader = new Thread(() -> {
+            while (ring.version() < total && failure.get() == null) {
+                List<String> entries = ring.latest(8);
+                for (int i = 1; i < entries.size(); i++) {
+                    int prev = Integer.parseInt(entries.get(i - 1));
+                    int cur = Integer.parseInt(entries.get(i));
+                    if (cur != prev + 1) {
+                        failure.set("not contiguous: " + entries);
+                        return;
+                    }
+                }
+            }
+        });
+        reader.start();
+        for (int i = 0; i < total; i++) {
+            ring.add(Integer.toString(i));
+        }
+        reader.join();
+        assertNull(failure.get());
+        assertTrue(ring.latest(8).contains(Integer.toString(total - 1)));
+    }
+}
@@ -0,0 +1,102 @@
+package local.demo.thread_snapshot;
+
+import local.demo.zmq_common.symbol.SymbolTable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotFileTest {
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void restoresFromMappedFileAndKeepsIngesting() throws Exception {
+        SymbolCacheAdapter cache = new SymbolCacheAdapter(new SymbolTable(16), 4);
+        cache.pushQuote("AAA", "q1");
+        cache.pushQuote("AAA", "q2");
+        for (int i = 0; i < 6; i++) {
+            cache.pushHistory("AAA", "a" + i);
+        }
+        cache.pushHistory("BBB", "b0");
+        long epoch = cache.writeSnapshot(dir.resolve("first.snap"));
+
+        SymbolTable symbols = new SymbolTable(16);
+        SnapshotFile file = SnapshotFile.open(dir.resolve("first.snap"), symbols);
+        SymbolCacheAdapter restored = new SymbolCacheAdapter(symbols, 4);
+        restored.restore(file);
+        assertEquals(epoch, file.epoch());
+        assertEquals(2, file.symbolCount());
+
+        QuoteSnapshot quote = restored.latestQuote("AAA");
+        assertEquals("q2", quote.value());
+        assertEquals(2, quote.version());
+        assertNull(restored.latestQuote("BBB"));
+        assertEquals(List.of("a4", "a5"), restored.history("AAA", 2));
+        assertEquals(List.of("a2", "a3", "a4", "a5"), restored.history("AAA", 10));
+
+        // feed mới chồng lên snapshot: history tiếp nối, version quote tiếp tục tăng
+        restored.pushHistory("AAA", "a6");
+        restored.pushQuote("AAA", "q3");
+        assertEquals(List.of("a3", "a4", "a5", "a6"), restored.history("AAA", 10));
+        assertEquals(3, restored.latestQuote("AAA").version());
+
+        // BBB chưa có gì mới: khối history được copy thẳng từ file cũ
+        restored.writeSnapshot(dir.resolve("second.snap"));
+        SymbolTable again = new SymbolTable(16);
+        SymbolCacheAdapter second = new SymbolCacheAdapter(again, 4);
+        second.restore(SnapshotFile.open(dir.resolve("second.snap"), again));
+        assertEquals(List.of("a3", "a4", "a5", "a6"), second.history("AAA", 10));
+        assertEquals(List.of("b0"), second.history("BBB", 10));
+        assertEquals("q3", second.latestQuote("AAA").value());
+        assertTrue(second.epoch() > epoch);
+    }
+
+    @Test
+    void snapshotIsConsistentWhileWriterRuns() throws Exception {
+        SymbolCacheAdapter cache = new SymbolCacheAdapter(new SymbolTable(16), 8);
+        AtomicBoolean running = new AtomicBoolean(true);
+        // mỗi vòng ghi theo thứ tự AAA history, BBB history, AAA quote
+        Thread writer = new Thread(() -> {
+            for (int i = 0; running.get(); i++) {
+                cache.pushHistory("AAA", Integer.toString(i));
+                cache.pushHistory("BBB", Integer.toString(i));
+                cache.pushQuote("AAA", Integer.toString(i));
+            }
+        });
+        writer.start();
+        try {
+            for (int round = 0; round < 50; round++) {
+                Path path = dir.resolve("round-" + round + ".snap");
+                cache.writeSnapshot(path);
+                SymbolTable symbols = new SymbolTable(16);
+                SymbolCacheAdapter restored = new SymbolCacheAdapter(symbols, 8);
+                restored.restore(SnapshotFile.open(path, symbols));
+
+                List<String> a = restored.history("AAA", 8);
+                if (a.isEmpty()) continue;
+                int lastA = Integer.parseInt(a.getLast());
+                // ring đầy đủ tại điểm cắt dù writer đã ghi đè trọn vòng trong lúc ghi file
+                assertEquals(Math.min(8, lastA + 1), a.size(), "AAA=" + a);
+                assertEquals(lastA - a.size() + 1, Integer.parseInt(a.getFirst()), "AAA=" + a);
+                List<String> b = restored.history("BBB", 1);
+                int lastB = b.isEmpty() ? -1 : Integer.parseInt(b.getFirst());
+                QuoteSnapshot quote = restored.latestQuote("AAA");
+                int lastQuote = quote == null ? -1 : Integer.parseInt(quote.value());
+                // điểm cắt nằm giữa hai message liên tiếp của writer
+                assertTrue(lastB == lastA || lastB == lastA - 1, "AAA=" + lastA + " BBB=" + lastB);
+                assertTrue(lastQuote == lastB || lastQuote == lastB - 1, "BBB=" + lastB + " quote=" + lastQuote);
+            }
+        } finally {
+            running.set(false);
+            writer.join();
+        }
+    }
+}
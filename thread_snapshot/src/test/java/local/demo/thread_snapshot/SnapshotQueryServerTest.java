@@ -0,0 +1,163 @@
+package local.demo.thread_snapshot;
+
+import local.demo.zmq_common.symbol.SymbolTable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMsg;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SnapshotQueryServerTest {
+
+    private static final String ENDPOINT = "tcp://127.0.0.1:5598";
+
+    @TempDir
+    Path dir;
+
+    private SnapshotQueryServer server;
+    private ZContext context;
+    private ZMQ.Socket client;
+
+    @BeforeEach
+    void setUp() {
+        SymbolTable symbols = new SymbolTable(16);
+        SymbolCacheAdapter cache = new SymbolCacheAdapter(symbols, 8);
+        cache.pushQuote("AAA", "q1");
+        cache.pushQuote("AAA", "q2");
+        for (int i = 0; i < 4; i++) {
+            cache.pushHistory("AAA", "a" + i);
+        }
+        server = new SnapshotQueryServer(cache, new SnapshotService(cache, symbols, dir.toString(), 3), ENDPOINT, 100);
+        server.start();
+        context = new ZContext();
+        client = context.createSocket(SocketType.REQ);
+        client.connect(ENDPOINT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        context.close();
+        server.stop();
+    }
+
+    @Test
+    void quoteAndNotFound() {
+        List<String> reply = call("QUOTE", "AAA");
+        assertEquals(4, reply.size());
+        assertEquals(List.of("OK", "2"), reply.subList(0, 2));
+        assertTrue(Long.parseLong(reply.get(2)) > 0);
+        assertEquals("q2", reply.get(3));
+        assertEquals(List.of("NOT_FOUND"), call("QUOTE", "NOPE"));
+    }
+
+    @Test
+    void historyReturnsNewestEntriesOldestFirst() {
+        assertEquals(List.of("OK", "a2", "a3"), call("HISTORY", "AAA", "2"));
+        assertEquals(List.of("OK", "a0", "a1", "a2", "a3"), call("HISTORY", "AAA", "100"));
+        assertEquals(List.of("OK"), call("HISTORY", "AAA", "0"));
+        assertEquals(List.of("OK"), call("HISTORY", "NOPE", "2"));
+    }
+
+    @Test
+    void batchAnswersEverySymbolInOrder() {
+        assertEquals(List.of("OK", "NOPE", "0", "", "AAA", "2", "q2"), call("BATCH", "NOPE", "AAA"));
+        assertEquals(List.of("OK"), call("BATCH"));
+    }
+
+    @Test
+    void errors() {
+        assertEquals(List.of("ERR", "Invalid n: x"), call("HISTORY", "AAA", "x"));
+        assertEquals(List.of("ERR", "Missing argument"), call("HISTORY", "AAA"));
+        assertEquals(List.of("ERR", "Missing argument"), call("QUOTE"));
+        assertEquals(List.of("ERR", "Unknown command: FOO"), call("FOO", "AAA"));
+
+        String[] tooMany = new String[SnapshotQueryServer.MAX_BATCH + 2];
+        tooMany[0] = "BATCH";
+        for (int i = 1; i < tooMany.length; i++) {
+            tooMany[i] = "AAA";
+        }
+        assertEquals("ERR", call(tooMany).getFirst());
+        // sau lỗi endpoint vẫn trả lời bình thường
+        assertEquals("OK", call("QUOTE", "AAA").getFirst());
+    }
+
+    @Test
+    void snapshotRepliesBeforeTheFileIsWritten() throws Exception {
+        assertEquals(List.of("OK"), call("SNAPSHOT"));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (snapshotFiles() == 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, snapshotFiles());
+    }
+
+    @Test
+    void pipelinedDealerGetsRepliesInOrder() {
+        ZMQ.Socket dealer = context.createSocket(SocketType.DEALER);
+        dealer.connect(ENDPOINT);
+        for (int i = 0; i < 50; i++) {
+            dealer.sendMore("");
+            dealer.sendMore("HISTORY");
+            dealer.sendMore("AAA");
+            dealer.send(Integer.toString(i % 5));
+        }
+        for (int i = 0; i < 50; i++) {
+            ZMsg reply = ZMsg.recvMsg(dealer);
+            assertEquals("", reply.popString()); // frame rỗng của envelope được trả lại
+            assertEquals("OK", reply.popString());
+            assertEquals(Math.min(i % 5, 4), reply.size());
+        }
+    }
+
+    @Test
+    void stopReleasesTheEndpoint() {
+        assertEquals("OK", call("QUOTE", "AAA").getFirst());
+        server.stop();
+        // socket đã được thread query đóng: bind lại được ngay
+        SymbolTable symbols = new SymbolTable(4);
+        SymbolCacheAdapter cache = new SymbolCacheAdapter(symbols, 1);
+        server = new SnapshotQueryServer(cache, new SnapshotService(cache, symbols, "", 1), ENDPOINT, 100);
+        server.start();
+        ZMQ.Socket again = context.createSocket(SocketType.REQ);
+        again.connect(ENDPOINT);
+        again.send("SNAPSHOT");
+        assertEquals(List.of("ERR", "snapshot.file.dir is not configured"), strings(ZMsg.recvMsg(again)));
+    }
+
+    private List<String> call(String... frames) {
+        ZMsg request = new ZMsg();
+        for (String frame : frames) {
+            request.add(frame);
+        }
+        request.send(client);
+        return strings(ZMsg.recvMsg(client));
+    }
+
+    private static List<String> strings(ZMsg msg) {
+        List<String> out = new ArrayList<>();
+        String frame;
+        while ((frame = msg.popString()) != null) {
+            out.add(frame);
+        }
+        return out;
+    }
+
+    private long snapshotFiles() throws Exception {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.filter(p -> p.getFileName().toString().endsWith(".snap")).count();
+        }
+    }
+}
@@ -3,7 +3,7 @@ package local.demo.thread_snapshot;
 import org.junit.jupiter.api.Test;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "snapshot.file.dir=target/test-snapshot")
 class ThreadSnapshotApplicationTests {
 
 	@Test
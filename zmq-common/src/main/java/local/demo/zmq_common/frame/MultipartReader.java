@@ -0,0 +1,101 @@
+package local.demo.zmq_common.frame;
+
+import org.zeromq.ZMQ;
+
+import java.util.Arrays;
+
+/**
+ * Đọc một message multipart vào các buffer cấp phát sẵn, dùng lại cho mọi message.
+ * <p>
+ * Thay cho {@code ZMsg.recvMsg} + {@code popString()}: không tạo ZMsg/ZFrame/String nào,
+ * caller đọc thẳng {@link #frame(int)} trong khoảng [0, {@link #length(int)}).
+ * Buffer chỉ hợp lệ tới lần {@link #read} kế tiếp nên ai cần giữ lâu hơn phải tự copy.
+ * <p>
+ * Không thread-safe: mỗi socket một reader.
+ */
+public final class MultipartReader {
+
+    private final int maxFrameSize;
+    private final byte[][] frames;
+    private final int[] lengths;
+    private final byte[] discard;
+    private int count;
+    private boolean truncated;
+
+    /**
+     * @param maxFrames    số frame giữ lại, frame thừa bị đọc bỏ và đánh dấu {@link #isTruncated()}
+     * @param maxFrameSize kích thước tối đa mỗi frame, dài hơn sẽ bị cắt và đánh dấu {@link #isTruncated()}
+     */
+    public MultipartReader(int maxFrames, int maxFrameSize) {
+        if (maxFrames <= 0 || maxFrameSize <= 0) {
+            throw new IllegalArgumentException("maxFrames and maxFrameSize must be positive");
+        }
+        this.maxFrameSize = maxFrameSize;
+        // thêm 1 byte: recv() chỉ trả về số byte đã copy nên phải đọc dư một byte mới biết frame bị cắt
+        this.frames = new byte[maxFrames][maxFrameSize + 1];
+        this.lengths = new int[maxFrames];
+        this.discard = new byte[1];
+    }
+
+    /**
+     * Đọc trọn một message (mọi frame còn lại của message luôn được đọc hết khỏi socket).
+     *
+     * @param flags flags cho frame đầu, ví dụ {@link ZMQ#DONTWAIT}
+     * @return false nếu không có message (DONTWAIT) hoặc socket lỗi, xem {@code socket.errno()}
+     */
+    public boolean read(ZMQ.Socket socket, int flags) {
+        count = 0;
+        truncated = false;
+        int n = socket.recv(frames[0], 0, maxFrameSize + 1, flags);
+        if (n < 0) {
+            return false;
+        }
+        accept(n);
+        while (socket.hasReceiveMore()) {
+            if (count < frames.length) {
+                accept(socket.recv(frames[count], 0, maxFrameSize + 1, 0));
+            } else {
+                socket.recv(discard, 0, discard.length, 0);
+                truncated = true;
+            }
+        }
+        return true;
+    }
+
+    private void accept(int n) {
+        if (n > maxFrameSize) {
+            truncated = true;
+            n = maxFrameSize;
+        }
+        lengths[count++] = n;
+    }
+
+    /**
+     * @return số frame đã giữ lại của message vừa đọc
+     */
+    public int frames() {
+        return count;
+    }
+
+    public byte[] frame(int index) {
+        return frames[index];
+    }
+
+    public int length(int index) {
+        return lengths[index];
+    }
+
+    /**
+     * So sánh frame với một hằng số bytes, không cấp phát.
+     */
+    public boolean frameEquals(int index, byte[] expected) {
+        return Arrays.equals(frames[index], 0, lengths[index], expected, 0, expected.length);
+    }
+
+    /**
+     * @return true nếu message vừa đọc có frame dài hơn maxFrameSize hoặc nhiều frame hơn maxFrames
+     */
+    public boolean isTruncated() {
+        return truncated;
+    }
+}
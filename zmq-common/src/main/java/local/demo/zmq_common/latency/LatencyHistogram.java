@@ -0,0 +1,119 @@
+package local.demo.zmq_common.latency;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * Histogram độ trễ kiểu HDR (log-linear) tính bằng nano giây.
+ * <p>
+ * Mỗi lũy thừa của 2 được chia thành {@value #SUB_BUCKETS} bucket tuyến tính nên sai số tương đối
+ * của mọi percentile không quá 1/{@value #SUB_BUCKETS} (~0.8%), giá trị dưới {@value #SUB_BUCKETS} ns
+ * được đếm chính xác. Giá trị vượt {@link #MAX_VALUE} (~73 phút) bị kẹp lại, giá trị âm tính là 0.
+ * <p>
+ * Nhiều thread ghi được cùng lúc (record chỉ là vài phép bit và một lần cộng atomic, không lock,
+ * không cấp phát), thread khác đọc bất kỳ lúc nào qua {@link #mergeInto(LatencyHistogram)}: kết quả đọc
+ * có thể lệch vài sample đang ghi dở. Để các thread ghi không tranh nhau cache line, dùng
+ * {@link LatencyRecorder} chia ra nhiều histogram.
+ */
+public final class LatencyHistogram {
+
+    static final int SUB_BITS = 7;
+    static final int SUB_BUCKETS = 1 << SUB_BITS;
+    static final int MAX_BITS = 42;
+    public static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    private static final int BUCKETS = (MAX_BITS - SUB_BITS + 1) * SUB_BUCKETS;
+
+    private static final VarHandle COUNTS = MethodHandles.arrayElementVarHandle(long[].class);
+    private static final VarHandle TOTAL;
+    private static final VarHandle MAX;
+
+    static {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup();
+            TOTAL = lookup.findVarHandle(LatencyHistogram.class, "totalCount", long.class);
+            MAX = lookup.findVarHandle(LatencyHistogram.class, "maxValue", long.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final long[] counts = new long[BUCKETS];
+    private long totalCount;
+    private long maxValue;
+
+    public void record(long nanos) {
+        long value = nanos < 0 ? 0 : Math.min(nanos, MAX_VALUE);
+        COUNTS.getAndAdd(counts, indexOf(value), 1L);
+        TOTAL.getAndAdd(this, 1L);
+        long max = (long) MAX.getOpaque(this);
+        while (value > max && !MAX.weakCompareAndSet(this, max, value)) {
+            max = (long) MAX.getOpaque(this);
+        }
+    }
+
+    /**
+     * Cộng dồn histogram này vào {@code target} (target không được có thread khác đang ghi).
+     */
+    public void mergeInto(LatencyHistogram target) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long count = (long) COUNTS.getOpaque(counts, i);
+            if (count != 0) {
+                target.counts[i] += count;
+                total += count;
+            }
+        }
+        // tổng lấy từ các bucket để percentile luôn khớp với chính các bucket đã đọc
+        target.totalCount += total;
+        target.maxValue = Math.max(target.maxValue, (long) MAX.getOpaque(this));
+    }
+
+    public long count() {
+        return (long) TOTAL.getOpaque(this);
+    }
+
+    public long max() {
+        return (long) MAX.getOpaque(this);
+    }
+
+    /**
+     * Giá trị tại percentile (0..100): cận trên của bucket chứa sample thứ ceil(p% * count),
+     * không vượt quá max đã ghi nhận. Histogram rỗng trả về 0.
+     */
+    public long percentile(double percentile) {
+        long total = totalCount;
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100.0, Math.max(0.0, percentile)) / 100.0 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                return Math.min(highestEquivalentValue(i), maxValue);
+            }
+        }
+        return maxValue;
+    }
+
+    static int indexOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = 63 - Long.numberOfLeadingZeros(value) - SUB_BITS;
+        return (shift + 1) * SUB_BUCKETS + (int) (value >>> shift) - SUB_BUCKETS;
+    }
+
+    static long lowestEquivalentValue(int index) {
+        int group = index / SUB_BUCKETS;
+        if (group <= 1) {
+            return index;
+        }
+        int shift = group - 1;
+        return (long) (index - shift * SUB_BUCKETS) << shift;
+    }
+
+    static long highestEquivalentValue(int index) {
+        return index + 1 < BUCKETS ? lowestEquivalentValue(index + 1) - 1 : MAX_VALUE;
+    }
+}
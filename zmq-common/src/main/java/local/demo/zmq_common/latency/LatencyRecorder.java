@@ -0,0 +1,64 @@
+package local.demo.zmq_common.latency;
+
+/**
+ * Ghi độ trễ từ nhiều thread: thread ghi vào một trong số {@link LatencyHistogram} cố định chọn theo
+ * hash của thread id (ít tranh chấp cache line), các histogram chỉ được gộp lại lúc đọc.
+ * <p>
+ * Số histogram không phụ thuộc số thread ghi: thread worker của scheduler registry là virtual thread
+ * tạo lại sau mỗi lần rảnh, giữ một histogram cho mỗi thread sẽ làm bộ nhớ và chi phí
+ * {@link #snapshot()} tăng mãi.
+ */
+public final class LatencyRecorder {
+
+    private static final int MAX_STRIPES = 64;
+
+    private final String name;
+    private final LatencyHistogram[] stripes;
+    private final int mask;
+
+    public LatencyRecorder(String name) {
+        this(name, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripes số histogram, làm tròn lên luỹ thừa của 2 (tối đa {@value #MAX_STRIPES})
+     */
+    public LatencyRecorder(String name, int stripes) {
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be positive");
+        }
+        int count = Math.min(MAX_STRIPES, Integer.highestOneBit(stripes * 2 - 1));
+        this.name = name;
+        this.stripes = new LatencyHistogram[count];
+        for (int i = 0; i < count; i++) {
+            this.stripes[i] = new LatencyHistogram();
+        }
+        this.mask = count - 1;
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public void record(long nanos) {
+        long id = Thread.currentThread().threadId();
+        // id thread tăng dần: trộn bit để các thread liên tiếp rơi vào histogram khác nhau
+        int h = (int) ((id * 0x9E3779B97F4A7C15L) >>> 32);
+        stripes[h & mask].record(nanos);
+    }
+
+    /**
+     * Histogram gộp từ mọi thread tại thời điểm gọi (luỹ kế từ lúc khởi động).
+     */
+    public LatencyHistogram snapshot() {
+        LatencyHistogram merged = new LatencyHistogram();
+        for (LatencyHistogram histogram : stripes) {
+            histogram.mergeInto(merged);
+        }
+        return merged;
+    }
+
+    int stripes() {
+        return stripes.length;
+    }
+}
@@ -0,0 +1,227 @@
+package local.demo.zmq_common.receive;
+
+import lombok.extern.slf4j.Slf4j;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+import org.zeromq.ZMQException;
+import zmq.ZError;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Thread nhận của một socket SUB, dùng chung cho các subscriber: mỗi lần thức dậy đọc không chặn tối đa
+ * {@code drainLimit} message, hết message thì chờ theo {@link WaitStrategy}:
+ * <ul>
+ *   <li>{@code poll}: chặn trong {@link ZMQ.Poller} tới khi socket đọc được hoặc hết {@code pollTimeoutMs}
+ *       (để kiểm tra cờ dừng); không tốn CPU khi rảnh, đổi lại mỗi lần thức dậy qua một lượt poll.</li>
+ *   <li>{@code spin-yield}: spin {@code spinTries} vòng rồi {@link Thread#yield()} tới khi có message;
+ *       độ trễ thấp mà vẫn nhường core cho thread khác.</li>
+ *   <li>{@code busy-spin}: chỉ spin, giữ trọn một core, cho triển khai cần độ trễ thấp nhất.</li>
+ * </ul>
+ * Thời gian bận (đọc và xử lý message) và rảnh (chờ) được cộng dồn để biết thread nhận còn dư bao nhiêu.
+ * Socket chỉ được dùng trên thread nhận (socket ZMQ không thread-safe): thread nhận tự đóng socket khi
+ * thoát, {@link #stop()} chỉ hạ cờ dừng và chờ, không interrupt thread nhận.
+ */
+@Slf4j
+public final class ReceiveLoop {
+
+    public enum WaitStrategy {
+        POLL, SPIN_YIELD, BUSY_SPIN;
+
+        public static WaitStrategy of(String name) {
+            return switch (name) {
+                case "poll" -> POLL;
+                case "spin-yield" -> SPIN_YIELD;
+                case "busy-spin" -> BUSY_SPIN;
+                default -> throw new IllegalArgumentException("Unknown wait strategy: " + name);
+            };
+        }
+    }
+
+    /**
+     * Đọc tối đa một message bằng {@link ZMQ#DONTWAIT}; chạy trên thread nhận.
+     */
+    @FunctionalInterface
+    public interface Handler {
+        /**
+         * @return false nếu socket không còn message
+         */
+        boolean receive(ZMQ.Socket socket);
+    }
+
+    /**
+     * @param endpoint      một hoặc nhiều endpoint cách nhau bởi dấu phẩy, socket SUB nối tới tất cả
+     * @param ioThreads     số I/O thread của ZContext
+     * @param rcvHwm        số message tối đa chờ trong socket, vượt thì ZMQ bỏ (ZMQ mặc định 1000)
+     * @param rcvBuf        SO_RCVBUF byte, 0 = mặc định của OS
+     * @param drainLimit    số message tối đa mỗi lần thức dậy trước khi kiểm tra lại cờ dừng
+     * @param pollTimeoutMs với {@code poll}: thời gian chờ tối đa mỗi lượt, cũng là độ trễ tối đa khi dừng
+     * @param spinTries     với {@code spin-yield}: số vòng spin trước khi yield
+     */
+    public record Settings(String endpoint, WaitStrategy waitStrategy, int ioThreads, int rcvHwm, int rcvBuf,
+                           int drainLimit, long pollTimeoutMs, int spinTries) {
+        public Settings {
+            if (ioThreads <= 0 || drainLimit <= 0 || pollTimeoutMs <= 0 || spinTries < 0) {
+                throw new IllegalArgumentException("ioThreads, drainLimit, pollTimeoutMs must be positive and spinTries non-negative");
+            }
+        }
+    }
+
+    private final String name;
+    private final Settings settings;
+    private final Consumer<ZMQ.Socket> subscribe;
+    private final Handler handler;
+    private ZContext context;
+    private ZMQ.Socket socket;
+    private Thread thread;
+    private volatile boolean running;
+
+    // chỉ thread nhận ghi
+    private volatile long messages;
+    private volatile long wakeups;
+    private volatile long busyNanos;
+    private volatile long idleNanos;
+
+    /**
+     * @param subscribe đăng ký subscription cho socket trước khi thread nhận chạy
+     */
+    public ReceiveLoop(String name, Settings settings, Consumer<ZMQ.Socket> subscribe, Handler handler) {
+        this.name = name;
+        this.settings = settings;
+        this.subscribe = subscribe;
+        this.handler = handler;
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        context = new ZContext(settings.ioThreads());
+        socket = context.createSocket(SocketType.SUB);
+        socket.setRcvHWM(settings.rcvHwm());
+        if (settings.rcvBuf() > 0) {
+            socket.setReceiveBufferSize(settings.rcvBuf());
+        }
+        for (String endpoint : settings.endpoint().split(",")) {
+            socket.connect(endpoint.trim());
+        }
+        subscribe.accept(socket);
+        running = true;
+        thread = Thread.ofPlatform().name(name).start(this::run);
+    }
+
+    private void run() {
+        ZMQ.Poller poller = null;
+        if (settings.waitStrategy() == WaitStrategy.POLL) {
+            poller = context.createPoller(1);
+            poller.register(socket, ZMQ.Poller.POLLIN);
+        }
+        int spins = 0;
+        try {
+            while (running) {
+                long start = System.nanoTime();
+                int n = drain();
+                if (n > 0) {
+                    busyNanos += System.nanoTime() - start;
+                    messages += n;
+                    wakeups++;
+                    spins = 0;
+                    continue;
+                }
+                switch (settings.waitStrategy()) {
+                    case POLL -> poller.poll(settings.pollTimeoutMs());
+                    case SPIN_YIELD -> {
+                        if (spins < settings.spinTries()) {
+                            spins++;
+                            Thread.onSpinWait();
+                        } else {
+                            Thread.yield();
+                        }
+                    }
+                    case BUSY_SPIN -> Thread.onSpinWait();
+                }
+                // lượt đọc không được gì cũng tính là rảnh
+                idleNanos += System.nanoTime() - start;
+            }
+        } catch (ZMQException e) {
+            if (e.getErrorCode() != ZError.ETERM) {
+                log.error("[ZMQ] Receive loop {} stopped", name, e);
+            }
+        } finally {
+            if (poller != null) {
+                poller.close();
+            }
+            context.destroySocket(socket);
+        }
+    }
+
+    private int drain() {
+        int n = 0;
+        while (n < settings.drainLimit()) {
+            try {
+                if (!handler.receive(socket)) {
+                    break;
+                }
+            } catch (ZMQException e) {
+                throw e;
+            } catch (Exception e) {
+                log.error("[ZMQ] Error handling message", e);
+            }
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Dừng thread nhận (chờ tối đa lượt chờ hiện tại) rồi đóng context; socket do thread nhận đóng.
+     */
+    public synchronized void stop() {
+        if (thread == null) return;
+        running = false;
+        try {
+            thread.join(Math.max(TimeUnit.SECONDS.toMillis(5), 2 * settings.pollTimeoutMs()));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            // handler đang bị chặn (ví dụ chờ bộ nhớ): không đụng tới socket của thread nhận, chỉ terminate
+            // context để lần gọi ZMQ kế tiếp trên thread nhận ném ETERM, thread nhận tự đóng socket rồi thoát.
+            // term() chờ mọi socket đóng nên chạy nền, không giữ thread gọi stop()
+            log.warn("[ZMQ] Receive loop {} did not stop in time, terminating its context", name);
+            ZMQ.Context zmqContext = context.getContext();
+            Thread.ofPlatform().daemon().name(name + "-term").start(zmqContext::term);
+        } else {
+            context.close();
+        }
+        thread = null;
+    }
+
+    public Settings settings() {
+        return settings;
+    }
+
+    /**
+     * Tổng số message đã đọc (kể cả message handler ném lỗi).
+     */
+    public long messages() {
+        return messages;
+    }
+
+    /**
+     * Số lần thức dậy có ít nhất một message; {@link #messages()} / wakeups là số message gom mỗi lần.
+     */
+    public long wakeups() {
+        return wakeups;
+    }
+
+    public long busyNanos() {
+        return busyNanos;
+    }
+
+    /**
+     * Thời gian chờ message, cập nhật sau mỗi lượt chờ (với {@code poll} chậm nhất {@code pollTimeoutMs}).
+     */
+    public long idleNanos() {
+        return idleNanos;
+    }
+}
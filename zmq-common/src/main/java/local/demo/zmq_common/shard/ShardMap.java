@@ -0,0 +1,174 @@
+package local.demo.zmq_common.shard;
+
+import local.demo.zmq_common.wire.WireFormat;
+import org.zeromq.ZMQ;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Tập shard ({@link WireFormat#SHARD_COUNT} shard cố định, shard của symbol là {@link WireFormat#shardOf})
+ * mà một instance subscriber sở hữu. Mỗi instance chỉ subscribe prefix của shard mình giữ nên PUB lọc
+ * ngay phía publisher, tải mỗi instance tỉ lệ với số shard nó giữ.
+ * <p>
+ * Hai cách chia:
+ * <ul>
+ *   <li>{@link #ranges}: liệt kê khoảng shard, chia tay được đúng ý nhưng thêm node phải sửa mọi node.</li>
+ *   <li>{@link #consistent}: consistent hashing với virtual node trên danh sách node chung; thêm/bớt một
+ *       node chỉ chuyển khoảng 1/N shard, các shard còn lại giữ nguyên chủ. Mọi node phải cấu hình
+ *       cùng danh sách và cùng số virtual node.</li>
+ * </ul>
+ * Chỉ message nhị phân từ {@link WireFormat#VERSION_2} mang shard; message text 3 frame không khớp prefix
+ * nào nên instance chạy chia shard không nhận chúng.
+ */
+public final class ShardMap {
+
+    private final BitSet owned;
+    private final String description;
+
+    private ShardMap(BitSet owned, String description) {
+        this.owned = owned;
+        this.description = description;
+    }
+
+    /**
+     * Giữ mọi shard (không chia), subscribe tất cả kể cả message text.
+     */
+    public static ShardMap all() {
+        BitSet owned = new BitSet(WireFormat.SHARD_COUNT);
+        owned.set(0, WireFormat.SHARD_COUNT);
+        return new ShardMap(owned, "all");
+    }
+
+    /**
+     * @param spec danh sách khoảng đóng cách nhau dấu phẩy, ví dụ {@code 0-63,128-191,255}
+     */
+    public static ShardMap ranges(String spec) {
+        BitSet owned = new BitSet(WireFormat.SHARD_COUNT);
+        for (String part : spec.split(",")) {
+            String range = part.trim();
+            if (range.isEmpty()) continue;
+            int dash = range.indexOf('-');
+            int from;
+            int to;
+            try {
+                from = Integer.parseInt(dash < 0 ? range : range.substring(0, dash).trim());
+                to = dash < 0 ? from : Integer.parseInt(range.substring(dash + 1).trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Bad shard range: " + range, e);
+            }
+            if (from < 0 || to >= WireFormat.SHARD_COUNT || from > to) {
+                throw new IllegalArgumentException("Shard range out of [0, " + (WireFormat.SHARD_COUNT - 1) + "]: " + range);
+            }
+            owned.set(from, to + 1);
+        }
+        if (owned.isEmpty()) {
+            throw new IllegalArgumentException("No shard in range spec: " + spec);
+        }
+        return new ShardMap(owned, "ranges " + spec);
+    }
+
+    /**
+     * @param nodes        tên mọi node trong cụm, thứ tự không quan trọng
+     * @param self         tên node này, phải có trong {@code nodes}
+     * @param virtualNodes số điểm trên vòng hash mỗi node, càng nhiều chia càng đều
+     */
+    public static ShardMap consistent(List<String> nodes, String self, int virtualNodes) {
+        int index = nodes.indexOf(self);
+        if (index < 0) {
+            throw new IllegalArgumentException("Node " + self + " not in " + nodes);
+        }
+        int[] owners = assign(nodes, virtualNodes);
+        BitSet owned = new BitSet(WireFormat.SHARD_COUNT);
+        for (int shard = 0; shard < owners.length; shard++) {
+            if (owners[shard] == index) {
+                owned.set(shard);
+            }
+        }
+        return new ShardMap(owned, "consistent " + self + " of " + nodes);
+    }
+
+    /**
+     * @return với mỗi shard, index trong {@code nodes} của node sở hữu: điểm đầu tiên trên vòng hash
+     * không nhỏ hơn vị trí của shard (vòng quanh về điểm nhỏ nhất)
+     */
+    static int[] assign(List<String> nodes, int virtualNodes) {
+        if (nodes.isEmpty() || virtualNodes <= 0) {
+            throw new IllegalArgumentException("Need at least one node and one virtual node");
+        }
+        // điểm trên vòng: 32 bit cao là hash không dấu, 32 bit thấp là index node (hoà thì node đứng trước thắng)
+        long[] ring = new long[nodes.size() * virtualNodes];
+        int n = 0;
+        for (int node = 0; node < nodes.size(); node++) {
+            for (int v = 0; v < virtualNodes; v++) {
+                byte[] key = (nodes.get(node) + "#" + v).getBytes(StandardCharsets.UTF_8);
+                ring[n++] = (Integer.toUnsignedLong(hash(key)) << 32) | node;
+            }
+        }
+        Arrays.sort(ring);
+        int[] owners = new int[WireFormat.SHARD_COUNT];
+        for (int shard = 0; shard < owners.length; shard++) {
+            long position = Integer.toUnsignedLong(mix(shard)) << 32;
+            int i = Arrays.binarySearch(ring, position);
+            if (i < 0) i = -i - 1;
+            if (i == ring.length) i = 0;
+            owners[shard] = (int) ring[i];
+        }
+        return owners;
+    }
+
+    private static int hash(byte[] key) {
+        int h = 0x811C9DC5;
+        for (byte b : key) {
+            h = (h ^ b) * 0x01000193;
+        }
+        return mix(h);
+    }
+
+    // fmix32 của murmur3
+    private static int mix(int h) {
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h;
+    }
+
+    public boolean owns(int shard) {
+        return owned.get(shard);
+    }
+
+    public boolean ownsAll() {
+        return owned.cardinality() == WireFormat.SHARD_COUNT;
+    }
+
+    public int shardCount() {
+        return owned.cardinality();
+    }
+
+    public int[] shards() {
+        return owned.stream().toArray();
+    }
+
+    /**
+     * Đăng ký subscription cho socket SUB: giữ mọi shard thì subscribe tất cả, ngược lại một prefix
+     * {@link WireFormat#shardPrefix} cho mỗi shard.
+     */
+    public void subscribe(ZMQ.Socket socket) {
+        if (ownsAll()) {
+            socket.subscribe(ZMQ.SUBSCRIPTION_ALL);
+            return;
+        }
+        for (int shard = owned.nextSetBit(0); shard >= 0; shard = owned.nextSetBit(shard + 1)) {
+            socket.subscribe(WireFormat.shardPrefix(shard));
+        }
+    }
+
+    @Override
+    public String toString() {
+        return description + " (" + shardCount() + "/" + WireFormat.SHARD_COUNT + " shards)";
+    }
+}
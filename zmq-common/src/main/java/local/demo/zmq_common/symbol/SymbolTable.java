@@ -0,0 +1,191 @@
+package local.demo.zmq_common.symbol;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Từ điển symbol: đổi bytes của symbol thành id int liên tục (0, 1, 2...) ngay lúc ingest.
+ * <p>
+ * Lookup không lock và không cấp phát: băm thẳng trên byte[] của frame rồi so sánh bytes.
+ * Chỉ lần đầu gặp một symbol mới copy bytes và tạo String tên (dưới lock). Bảng có kích thước
+ * cố định nên mọi state theo symbol có thể đặt trong mảng đánh index bằng id.
+ */
+public final class SymbolTable {
+
+    private final int capacity;
+    private final AtomicReferenceArray<Entry> slots;
+    private final AtomicReferenceArray<Entry> byId;
+    private final int mask;
+    private volatile int size;
+
+    public SymbolTable(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive");
+        }
+        this.capacity = capacity;
+        int tableSize = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1) << 1; // load factor <= 0.5
+        this.slots = new AtomicReferenceArray<>(tableSize);
+        this.byId = new AtomicReferenceArray<>(capacity);
+        this.mask = tableSize - 1;
+    }
+
+    public int intern(byte[] buf) {
+        return intern(buf, 0, buf.length);
+    }
+
+    public int intern(String symbol) {
+        return intern(symbol.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return id của symbol, tạo mới nếu chưa có
+     * @throws IllegalStateException nếu bảng đã đầy
+     */
+    public int intern(byte[] buf, int offset, int length) {
+        int id = tryIntern(buf, offset, length);
+        if (id < 0) {
+            throw new IllegalStateException("SymbolTable full, capacity=" + capacity);
+        }
+        return id;
+    }
+
+    /**
+     * Như {@link #intern(byte[], int, int)} nhưng không ném khi bảng đầy, cho đường nhận message:
+     * symbol mới sau khi đầy chỉ là một message bị bỏ, không phải lỗi.
+     *
+     * @return id của symbol, -1 nếu symbol chưa có và bảng đã đầy
+     */
+    public int tryIntern(byte[] buf, int offset, int length) {
+        int h = hash(buf, offset, length);
+        int id = probe(buf, offset, length, h);
+        return id >= 0 ? id : insert(buf, offset, length, h);
+    }
+
+    /**
+     * Intern cả loạt symbol dưới một lần lock, cho lúc nạp snapshot (hàng triệu symbol): slot ghi bằng
+     * plain store, {@code size} cập nhật một lần ở cuối, String tên chỉ tạo khi {@link #name(int)} được
+     * gọi. Mảng bytes được giữ làm bytes của symbol, không copy: caller không được sửa sau đó.
+     *
+     * @return id theo đúng thứ tự của {@code names}
+     * @throws IllegalStateException nếu bảng đầy giữa chừng (các symbol trước đó vẫn được intern)
+     */
+    public synchronized int[] internAll(byte[][] names) {
+        int[] ids = new int[names.length];
+        int next = size;
+        try {
+            for (int k = 0; k < names.length; k++) {
+                byte[] bytes = names[k];
+                int h = hash(bytes, 0, bytes.length);
+                // đang giữ lock nên không ai chèn song song: dò và chèn chung một lượt, plain load
+                int i = h & mask;
+                Entry e;
+                while ((e = slots.getPlain(i)) != null && (e.hash != h || !Arrays.equals(e.bytes, bytes))) {
+                    i = (i + 1) & mask;
+                }
+                if (e == null) {
+                    if (next >= capacity) {
+                        throw new IllegalStateException("SymbolTable full, capacity=" + capacity);
+                    }
+                    e = new Entry(bytes, null, next++, h);
+                    byId.setPlain(e.id, e);
+                    slots.setPlain(i, e);
+                }
+                ids[k] = e.id;
+            }
+        } finally {
+            size = next;
+        }
+        return ids;
+    }
+
+    /**
+     * @return id hoặc -1 nếu symbol chưa được intern
+     */
+    public int find(byte[] buf, int offset, int length) {
+        return probe(buf, offset, length, hash(buf, offset, length));
+    }
+
+    public String name(int id) {
+        Entry e = byId.get(id);
+        String name = e.name;
+        if (name == null) {
+            // String bất biến: hai thread cùng tạo hay thấy qua data race đều an toàn
+            name = new String(e.bytes, StandardCharsets.UTF_8);
+            e.name = name;
+        }
+        return name;
+    }
+
+    /**
+     * Bytes gốc của symbol, không được sửa.
+     */
+    public byte[] bytes(int id) {
+        return byId.get(id).bytes;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    private int probe(byte[] buf, int offset, int length, int h) {
+        for (int i = h & mask; ; i = (i + 1) & mask) {
+            Entry e = slots.get(i);
+            if (e == null) {
+                return -1;
+            }
+            if (e.hash == h && Arrays.equals(e.bytes, 0, e.bytes.length, buf, offset, offset + length)) {
+                return e.id;
+            }
+        }
+    }
+
+    private synchronized int insert(byte[] buf, int offset, int length, int h) {
+        // thread khác có thể vừa thêm đúng symbol này
+        int existing = probe(buf, offset, length, h);
+        if (existing >= 0) {
+            return existing;
+        }
+        int id = size;
+        if (id >= capacity) {
+            return -1;
+        }
+        byte[] bytes = Arrays.copyOfRange(buf, offset, offset + length);
+        Entry e = new Entry(bytes, new String(bytes, StandardCharsets.UTF_8), id, h);
+        byId.set(id, e);
+        int i = h & mask;
+        while (slots.get(i) != null) {
+            i = (i + 1) & mask;
+        }
+        slots.set(i, e);
+        size = id + 1;
+        return id;
+    }
+
+    private static int hash(byte[] buf, int offset, int length) {
+        int h = 0x811C9DC5;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = (h ^ buf[i]) * 0x01000193;
+        }
+        return h ^ (h >>> 16);
+    }
+
+    private static final class Entry {
+        // field final: thread đọc không lock vẫn thấy đủ bytes/id/hash dù slot được publish bằng plain store
+        final byte[] bytes;
+        final int id;
+        final int hash;
+        String name;
+
+        Entry(byte[] bytes, String name, int id, int hash) {
+            this.bytes = bytes;
+            this.name = name;
+            this.id = id;
+            this.hash = hash;
+        }
+    }
+}
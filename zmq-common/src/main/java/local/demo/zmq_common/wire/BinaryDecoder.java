@@ -0,0 +1,106 @@
+package local.demo.zmq_common.wire;
+
+import static local.demo.zmq_common.wire.BinaryEncoder.INT;
+import static local.demo.zmq_common.wire.BinaryEncoder.LONG;
+import static local.demo.zmq_common.wire.BinaryEncoder.SHORT;
+import static local.demo.zmq_common.wire.WireFormat.*;
+
+/**
+ * Flyweight đọc message theo {@link WireFormat} ngay trên buffer nhận, không copy và không cấp phát.
+ * Các getter chỉ hợp lệ sau một lần {@link #wrap} thành công và tới khi buffer bị ghi đè.
+ */
+public final class BinaryDecoder {
+
+    private byte[] buf;
+    private int offset;
+    // offset + độ dài phần thêm của version (byte shard), các OFF_* tính từ đây
+    private int fields;
+    private int headerSize;
+    private int version;
+
+    /**
+     * @return false nếu frame không phải định dạng nhị phân, version không hỗ trợ hoặc độ dài sai
+     */
+    public boolean wrap(byte[] buf, int offset, int length) {
+        if (length < HEADER_SIZE_V1 || !hasMagic(buf, offset, length)) {
+            return false;
+        }
+        int v = buf[offset + OFF_VERSION];
+        if (v < VERSION_1 || v > CURRENT_VERSION) {
+            return false;
+        }
+        int extra = v >= VERSION_2 ? 1 : 0;
+        int header = HEADER_SIZE_V1 + extra;
+        if (length < header) {
+            return false;
+        }
+        int fields = offset + extra;
+        int symbolLength = Short.toUnsignedInt((short) SHORT.get(buf, fields + OFF_SYMBOL_LENGTH));
+        int payloadLength = (int) INT.get(buf, fields + OFF_PAYLOAD_LENGTH);
+        if (payloadLength < 0 || header + symbolLength + payloadLength != length) {
+            return false;
+        }
+        this.buf = buf;
+        this.offset = offset;
+        this.fields = fields;
+        this.headerSize = header;
+        this.version = v;
+        return true;
+    }
+
+    /**
+     * Version ghi trong frame, dùng để phân biệt frame có magic nhưng version lạ khi {@link #wrap} trả về false.
+     */
+    public static int version(byte[] buf, int offset, int length) {
+        return length > OFF_VERSION ? buf[offset + OFF_VERSION] : -1;
+    }
+
+    public int version() {
+        return version;
+    }
+
+    /**
+     * @return shard ghi trong frame, frame version 1 không có nên tính lại từ symbol
+     */
+    public int shard() {
+        return version >= VERSION_2
+                ? Byte.toUnsignedInt(buf[offset + OFF_SHARD])
+                : shardOf(buf, symbolOffset(), symbolLength());
+    }
+
+    public int topic() {
+        return buf[fields + OFF_TOPIC];
+    }
+
+    public int symbolId() {
+        return (int) INT.get(buf, fields + OFF_SYMBOL_ID);
+    }
+
+    public long sequence() {
+        return (long) LONG.get(buf, fields + OFF_SEQUENCE);
+    }
+
+    public long publishNanos() {
+        return (long) LONG.get(buf, fields + OFF_PUBLISH_NANOS);
+    }
+
+    public byte[] buffer() {
+        return buf;
+    }
+
+    public int symbolOffset() {
+        return offset + headerSize;
+    }
+
+    public int symbolLength() {
+        return Short.toUnsignedInt((short) SHORT.get(buf, fields + OFF_SYMBOL_LENGTH));
+    }
+
+    public int payloadOffset() {
+        return symbolOffset() + symbolLength();
+    }
+
+    public int payloadLength() {
+        return (int) INT.get(buf, fields + OFF_PAYLOAD_LENGTH);
+    }
+}
@@ -0,0 +1,74 @@
+package local.demo.zmq_common.wire;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+import static local.demo.zmq_common.wire.WireFormat.*;
+
+/**
+ * Ghi message theo {@link WireFormat} vào một buffer dùng lại (chỉ nới rộng khi cần).
+ * Không thread-safe: mỗi thread gửi một encoder.
+ */
+public final class BinaryEncoder {
+
+    static final VarHandle INT = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle LONG = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    static final VarHandle SHORT = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.LITTLE_ENDIAN);
+
+    private byte[] buffer;
+    private int length;
+
+    public BinaryEncoder() {
+        this(256);
+    }
+
+    public BinaryEncoder(int initialCapacity) {
+        this.buffer = new byte[Math.max(HEADER_SIZE, initialCapacity)];
+    }
+
+    /**
+     * Shard tính từ tên symbol; publisher có cache shard theo symbol id thì gọi bản có tham số {@code shard}.
+     *
+     * @return số byte đã ghi, message nằm trong [0, length) của {@link #buffer()}
+     */
+    public int encode(int topic, int symbolId, byte[] symbol, long sequence, long publishNanos,
+                      byte[] payload, int payloadOffset, int payloadLength) {
+        return encode(topic, symbolId, symbol, shardOf(symbol), sequence, publishNanos,
+                payload, payloadOffset, payloadLength);
+    }
+
+    public int encode(int topic, int symbolId, byte[] symbol, int shard, long sequence, long publishNanos,
+                      byte[] payload, int payloadOffset, int payloadLength) {
+        if (symbol.length > MAX_SYMBOL_LENGTH) {
+            throw new IllegalArgumentException("symbol too long: " + symbol.length);
+        }
+        int total = HEADER_SIZE + symbol.length + payloadLength;
+        if (buffer.length < total) {
+            buffer = new byte[Integer.highestOneBit(total) << 1];
+        }
+        byte[] buf = buffer;
+        buf[0] = MAGIC_0;
+        buf[1] = MAGIC_1;
+        buf[OFF_VERSION] = CURRENT_VERSION;
+        buf[OFF_SHARD] = (byte) shard;
+        buf[1 + OFF_TOPIC] = (byte) topic;
+        INT.set(buf, 1 + OFF_SYMBOL_ID, symbolId);
+        LONG.set(buf, 1 + OFF_SEQUENCE, sequence);
+        LONG.set(buf, 1 + OFF_PUBLISH_NANOS, publishNanos);
+        INT.set(buf, 1 + OFF_PAYLOAD_LENGTH, payloadLength);
+        SHORT.set(buf, 1 + OFF_SYMBOL_LENGTH, (short) symbol.length);
+        System.arraycopy(symbol, 0, buf, HEADER_SIZE, symbol.length);
+        System.arraycopy(payload, payloadOffset, buf, HEADER_SIZE + symbol.length, payloadLength);
+        length = total;
+        return total;
+    }
+
+    public byte[] buffer() {
+        return buffer;
+    }
+
+    public int length() {
+        return length;
+    }
+}
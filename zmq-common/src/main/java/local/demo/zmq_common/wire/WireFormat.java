@@ -0,0 +1,97 @@
+package local.demo.zmq_common.wire;
+
+/**
+ * Định dạng nhị phân giữa publisher và subscriber: một frame duy nhất gồm header cố định,
+ * tên symbol rồi payload (opaque).
+ * <pre>
+ * offset  size  field
+ *      0     2  magic 0xD7 0x1A (không phải ASCII nên không trùng topic dạng text)
+ *      2     1  version
+ *      3     1  shard của symbol (chỉ từ version 2, xem {@link #shardOf})
+ *    3+s     1  topic code                      (s = 1 từ version 2, 0 với version 1)
+ *    4+s     4  symbol id (id phía publisher)
+ *    8+s     8  sequence theo symbol
+ *   16+s     8  thời điểm publish, System.nanoTime() của publisher
+ *   24+s     4  payload length
+ *   28+s     2  symbol length
+ *   30+s     .  symbol bytes, rồi payload bytes
+ * </pre>
+ * Số nguyên ghi little-endian. Shard đứng ngay sau version để {@link #shardPrefix} (magic, version, shard)
+ * dùng làm prefix subscription ZMQ: subscriber chỉ giữ một phần symbol được PUB lọc ngay phía publisher,
+ * không phải nhận hết rồi bỏ. Decoder vẫn đọc được frame version 1. Message text cũ là 3 frame (topic, symbol, body) nên subscriber
+ * phân biệt hai định dạng theo số frame và magic, hai loại producer chạy song song được.
+ * <p>
+ * nanoTime chỉ so sánh được giữa các process trên cùng một host (CLOCK_MONOTONIC trên Linux).
+ */
+public final class WireFormat {
+
+    public static final byte MAGIC_0 = (byte) 0xD7;
+    public static final byte MAGIC_1 = (byte) 0x1A;
+    public static final byte VERSION_1 = 1;
+    /** Thêm byte shard sau version. */
+    public static final byte VERSION_2 = 2;
+    /** Version mới nhất mà encoder ghi và decoder hiểu. */
+    public static final byte CURRENT_VERSION = VERSION_2;
+
+    /** Số shard cố định, vừa một byte; instance sở hữu tập shard chứ không sở hữu symbol trực tiếp. */
+    public static final int SHARD_COUNT = 256;
+
+    public static final int TOPIC_HISTORY = 1;
+    public static final int TOPIC_QUOTE = 2;
+
+    static final int OFF_VERSION = 2;
+    static final int OFF_SHARD = 3;
+    // offset các field sau từ đầu frame version 1; version 2 cộng thêm 1
+    static final int OFF_TOPIC = 3;
+    static final int OFF_SYMBOL_ID = 4;
+    static final int OFF_SEQUENCE = 8;
+    static final int OFF_PUBLISH_NANOS = 16;
+    static final int OFF_PAYLOAD_LENGTH = 24;
+    static final int OFF_SYMBOL_LENGTH = 28;
+    static final int HEADER_SIZE_V1 = 30;
+    public static final int HEADER_SIZE = HEADER_SIZE_V1 + 1;
+
+    public static final int MAX_SYMBOL_LENGTH = 0xFFFF;
+
+    private WireFormat() {
+    }
+
+    /**
+     * @return true nếu frame bắt đầu bằng magic của định dạng nhị phân (chưa kiểm tra version)
+     */
+    public static boolean hasMagic(byte[] buf, int offset, int length) {
+        return length >= 2 && buf[offset] == MAGIC_0 && buf[offset + 1] == MAGIC_1;
+    }
+
+    /**
+     * Shard của symbol theo bytes tên, ổn định giữa các process và các lần chạy (không dùng String.hashCode
+     * hay id intern vốn phụ thuộc thứ tự gặp symbol).
+     */
+    public static int shardOf(byte[] symbol, int offset, int length) {
+        int h = 0x811C9DC5;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            h = (h ^ symbol[i]) * 0x01000193;
+        }
+        // FNV-1a trộn yếu ở bit thấp, fmix32 của murmur3 trước khi lấy byte thấp
+        h ^= h >>> 16;
+        h *= 0x85EBCA6B;
+        h ^= h >>> 13;
+        h *= 0xC2B2AE35;
+        h ^= h >>> 16;
+        return h & (SHARD_COUNT - 1);
+    }
+
+    public static int shardOf(byte[] symbol) {
+        return shardOf(symbol, 0, symbol.length);
+    }
+
+    /**
+     * Prefix subscription ZMQ khớp mọi frame nhị phân {@link #CURRENT_VERSION} của một shard.
+     */
+    public static byte[] shardPrefix(int shard) {
+        if (shard < 0 || shard >= SHARD_COUNT) {
+            throw new IllegalArgumentException("shard out of range: " + shard);
+        }
+        return new byte[]{MAGIC_0, MAGIC_1, CURRENT_VERSION, (byte) shard};
+    }
+}
@@ -0,0 +1,67 @@
+package local.demo.zmq_common.frame;
+
+import org.junit.jupiter.api.Test;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MultipartReaderTest {
+
+    @Test
+    void readsFramesIntoReusedBuffersAndFlagsTruncation() {
+        try (ZContext context = new ZContext()) {
+            ZMQ.Socket out = context.createSocket(SocketType.PAIR);
+            ZMQ.Socket in = context.createSocket(SocketType.PAIR);
+            out.bind("inproc://multipart-reader");
+            in.connect("inproc://multipart-reader");
+
+            MultipartReader reader = new MultipartReader(3, 8);
+            assertFalse(reader.read(in, ZMQ.DONTWAIT));
+
+            out.sendMore("history");
+            out.sendMore("SYM1");
+            out.send("12345678");
+            assertTrue(reader.read(in, 0));
+            assertEquals(3, reader.frames());
+            assertTrue(reader.frameEquals(0, "history".getBytes(StandardCharsets.US_ASCII)));
+            assertFalse(reader.frameEquals(0, "historyX".getBytes(StandardCharsets.US_ASCII)));
+            assertEquals("SYM1", new String(reader.frame(1), 0, reader.length(1), StandardCharsets.US_ASCII));
+            assertEquals(8, reader.length(2));
+            assertFalse(reader.isTruncated());
+            byte[] buffer = reader.frame(2);
+
+            // body quá dài bị cắt, frame thứ 4 bị đọc bỏ, message sau vẫn đọc đúng
+            out.sendMore("quoteAll");
+            out.sendMore("SYM2");
+            out.sendMore("123456789");
+            out.send("extra");
+            out.send("next");
+            assertTrue(reader.read(in, 0));
+            assertEquals(3, reader.frames());
+            assertEquals(8, reader.length(2));
+            assertTrue(reader.isTruncated());
+            assertSame(buffer, reader.frame(2));
+
+            assertTrue(reader.read(in, 0));
+            assertEquals(1, reader.frames());
+            assertEquals("next", new String(reader.frame(0), 0, reader.length(0), StandardCharsets.US_ASCII));
+            assertFalse(reader.isTruncated());
+
+            // frame nào cũng ngắn nhưng thừa frame: message không còn nguyên vẹn
+            out.sendMore("a");
+            out.sendMore("b");
+            out.sendMore("c");
+            out.send("d");
+            assertTrue(reader.read(in, 0));
+            assertEquals(3, reader.frames());
+            assertTrue(reader.isTruncated());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package local.demo.zmq_common.latency;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LatencyHistogramTest {
+
+    @Test
+    void bucketsAreContiguousAndWithinOnePercent() {
+        for (long value = 0; value < 1_000_000; value += 7) {
+            int index = LatencyHistogram.indexOf(value);
+            assertTrue(LatencyHistogram.lowestEquivalentValue(index) <= value);
+            assertTrue(LatencyHistogram.highestEquivalentValue(index) >= value);
+        }
+        assertEquals(LatencyHistogram.MAX_VALUE,
+                LatencyHistogram.highestEquivalentValue(LatencyHistogram.indexOf(LatencyHistogram.MAX_VALUE)));
+        long value = 60_000_000_000L;
+        int index = LatencyHistogram.indexOf(value);
+        long width = LatencyHistogram.highestEquivalentValue(index) - LatencyHistogram.lowestEquivalentValue(index) + 1;
+        assertTrue(width <= value / LatencyHistogram.SUB_BUCKETS);
+    }
+
+    @Test
+    void percentilesFromMergedThreads() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder("test");
+        Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            int offset = t;
+            threads[t] = new Thread(() -> {
+                // mỗi thread ghi 1/4 dải 1..10000 us
+                for (int i = 1 + offset; i <= 10_000; i += 4) {
+                    recorder.record(i * 1_000L);
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        LatencyHistogram merged = recorder.snapshot();
+        assertEquals(10_000, merged.count());
+        assertEquals(10_000_000, merged.max());
+        assertWithin(5_000_000, merged.percentile(50));
+        assertWithin(9_900_000, merged.percentile(99));
+        assertWithin(9_990_000, merged.percentile(99.9));
+        assertEquals(10_000_000, merged.percentile(100));
+    }
+
+    @Test
+    void shortLivedThreadsShareFixedStripes() throws InterruptedException {
+        LatencyRecorder recorder = new LatencyRecorder("test", 4);
+        // như worker registry: mỗi thread ghi vài sample rồi kết thúc, số histogram không tăng theo
+        for (int round = 0; round < 20; round++) {
+            Thread[] threads = new Thread[100];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = Thread.ofVirtual().start(() -> {
+                    for (int i = 0; i < 100; i++) {
+                        recorder.record(1_000L);
+                    }
+                });
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+        }
+        assertEquals(4, recorder.stripes());
+        assertEquals(200_000, recorder.snapshot().count());
+        assertEquals(1_000, recorder.snapshot().max());
+    }
+
+    @Test
+    void clampsOutOfRangeValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.percentile(99));
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        LatencyHistogram merged = new LatencyHistogram();
+        histogram.mergeInto(merged);
+        assertEquals(0, merged.percentile(50));
+        assertEquals(LatencyHistogram.MAX_VALUE, merged.max());
+        assertEquals(LatencyHistogram.MAX_VALUE, merged.percentile(100));
+    }
+
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(Math.abs(actual - expected) <= expected / LatencyHistogram.SUB_BUCKETS,
+                () -> "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,105 @@
+package local.demo.zmq_common.receive;
+
+import local.demo.zmq_common.frame.MultipartReader;
+import org.junit.jupiter.api.Test;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReceiveLoopTest {
+
+    private static final String ENDPOINT = "tcp://127.0.0.1:5597";
+
+    @Test
+    void everyStrategyReceivesAllMessagesAndStopsPromptly() throws Exception {
+        for (ReceiveLoop.WaitStrategy wait : ReceiveLoop.WaitStrategy.values()) {
+            try (ZContext context = new ZContext()) {
+                ZMQ.Socket pub = context.createSocket(SocketType.PUB);
+                pub.bind(ENDPOINT);
+
+                MultipartReader reader = new MultipartReader(2, 64);
+                AtomicInteger received = new AtomicInteger();
+                ReceiveLoop loop = new ReceiveLoop("test-" + wait,
+                        new ReceiveLoop.Settings(ENDPOINT, wait, 1, 10_000, 0, 16, 50, 100),
+                        socket -> socket.subscribe("t".getBytes(StandardCharsets.US_ASCII)),
+                        socket -> {
+                            if (!reader.read(socket, ZMQ.DONTWAIT)) return false;
+                            received.incrementAndGet();
+                            return true;
+                        });
+                loop.start();
+                Thread.sleep(300); // chờ subscription tới PUB
+                for (int i = 0; i < 1000; i++) {
+                    pub.send("t", ZMQ.SNDMORE);
+                    pub.send(Integer.toString(i));
+                }
+                pub.send("other"); // không khớp subscription
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+                while (received.get() < 1000 && System.nanoTime() < deadline) {
+                    Thread.sleep(10);
+                }
+
+                long stopStart = System.nanoTime();
+                loop.stop();
+                assertTrue(System.nanoTime() - stopStart < TimeUnit.SECONDS.toNanos(1), wait + " stop too slow");
+                assertEquals(1000, received.get(), wait.toString());
+                assertEquals(1000, loop.messages(), wait.toString());
+                assertTrue(loop.wakeups() >= 1000 / 16, wait.toString()); // tối đa 16 message mỗi lần
+                assertTrue(loop.busyNanos() > 0 && loop.idleNanos() > 0, wait.toString());
+            }
+        }
+    }
+
+    @Test
+    void blockedHandlerClosesItsOwnSocketAfterStopTimesOut() throws Exception {
+        try (ZContext context = new ZContext()) {
+            ZMQ.Socket pub = context.createSocket(SocketType.PUB);
+            pub.bind(ENDPOINT);
+
+            CountDownLatch entered = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            AtomicReference<Thread> receiver = new AtomicReference<>();
+            ReceiveLoop loop = new ReceiveLoop("test-blocked",
+                    new ReceiveLoop.Settings(ENDPOINT, ReceiveLoop.WaitStrategy.POLL, 1, 1000, 0, 16, 50, 0),
+                    socket -> socket.subscribe(ZMQ.SUBSCRIPTION_ALL),
+                    socket -> {
+                        if (socket.recv(ZMQ.DONTWAIT) == null) return false;
+                        receiver.set(Thread.currentThread());
+                        entered.countDown();
+                        try {
+                            release.await(); // như handler chờ bộ nhớ
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return true;
+                    });
+            loop.start();
+            Thread.sleep(300);
+            pub.send("x");
+            assertTrue(entered.await(5, TimeUnit.SECONDS));
+
+            loop.stop(); // hết thời gian chờ, chỉ terminate context
+            assertTrue(receiver.get().isAlive());
+            release.countDown();
+            receiver.get().join(TimeUnit.SECONDS.toMillis(5));
+            assertFalse(receiver.get().isAlive());
+        }
+    }
+
+    @Test
+    void rejectsUnknownStrategy() {
+        assertEquals(ReceiveLoop.WaitStrategy.SPIN_YIELD, ReceiveLoop.WaitStrategy.of("spin-yield"));
+        assertThrows(IllegalArgumentException.class, () -> ReceiveLoop.WaitStrategy.of("sleep"));
+    }
+}
@@ -0,0 +1,57 @@
+package local.demo.zmq_common.shard;
+
+import local.demo.zmq_common.wire.WireFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ShardMapTest {
+
+    @Test
+    void rangesCoverListedShardsOnly() {
+        ShardMap map = ShardMap.ranges("0-3, 10,255");
+        assertEquals(6, map.shardCount());
+        assertTrue(map.owns(3));
+        assertTrue(map.owns(10));
+        assertTrue(map.owns(255));
+        assertFalse(map.owns(4));
+        assertFalse(map.ownsAll());
+        assertTrue(ShardMap.ranges("0-255").ownsAll());
+        assertThrows(IllegalArgumentException.class, () -> ShardMap.ranges("0-256"));
+        assertThrows(IllegalArgumentException.class, () -> ShardMap.ranges("5-1"));
+        assertThrows(IllegalArgumentException.class, () -> ShardMap.ranges("x"));
+    }
+
+    @Test
+    void consistentHashingPartitionsAndMovesOnlyToNewNode() {
+        List<String> three = List.of("node-a", "node-b", "node-c");
+        List<String> four = List.of("node-a", "node-b", "node-c", "node-d");
+        int[] before = ShardMap.assign(three, 64);
+        int[] after = ShardMap.assign(four, 64);
+
+        int[] counts = new int[four.size()];
+        for (int shard = 0; shard < WireFormat.SHARD_COUNT; shard++) {
+            counts[after[shard]]++;
+            // thêm node-d: shard đổi chủ chỉ có thể chuyển sang node-d
+            if (after[shard] != before[shard]) {
+                assertEquals(3, after[shard]);
+            }
+        }
+        for (int count : counts) {
+            assertTrue(count > WireFormat.SHARD_COUNT / 4 / 2, "unbalanced: " + count);
+        }
+
+        // mỗi shard đúng một node sở hữu
+        int total = 0;
+        for (String node : four) {
+            total += ShardMap.consistent(four, node, 64).shardCount();
+        }
+        assertEquals(WireFormat.SHARD_COUNT, total);
+        assertThrows(IllegalArgumentException.class, () -> ShardMap.consistent(three, "node-d", 64));
+    }
+}
@@ -0,0 +1,51 @@
+package local.demo.zmq_common.symbol;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SymbolTableTest {
+
+    @Test
+    void assignsDenseIdsAndMatchesOnBytes() {
+        SymbolTable table = new SymbolTable(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, table.intern("SYM" + i));
+        }
+        byte[] frame = "xxSYM42yy".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(42, table.intern(frame, 2, 5));
+        assertEquals(42, table.find(frame, 2, 5));
+        assertEquals("SYM42", table.name(42));
+        assertEquals(-1, table.find(frame, 0, 3));
+        assertEquals(1000, table.size());
+        assertThrows(IllegalStateException.class, () -> table.intern("SYM1000"));
+        byte[] full = "SYM1000".getBytes(StandardCharsets.US_ASCII);
+        assertEquals(-1, table.tryIntern(full, 0, full.length));
+        assertEquals(42, table.tryIntern(frame, 2, 5)); // symbol đã có vẫn tra được khi đầy
+    }
+
+    @Test
+    void internAllKeepsOrderAndReusesExistingIds() {
+        SymbolTable table = new SymbolTable(4);
+        assertEquals(0, table.intern("B"));
+        int[] ids = table.internAll(bytes("A", "B", "C", "A"));
+        assertArrayEquals(new int[]{1, 0, 2, 1}, ids);
+        assertEquals("C", table.name(2));
+        assertEquals(2, table.find("C".getBytes(StandardCharsets.US_ASCII), 0, 1));
+        assertEquals(3, table.intern("D")); // intern thường tiếp nối sau loạt
+        assertThrows(IllegalStateException.class, () -> table.internAll(bytes("E")));
+        assertEquals(4, table.size());
+    }
+
+    private static byte[][] bytes(String... names) {
+        byte[][] out = new byte[names.length][];
+        for (int i = 0; i < names.length; i++) {
+            out[i] = names[i].getBytes(StandardCharsets.US_ASCII);
+        }
+        return out;
+    }
+}
@@ -0,0 +1,82 @@
+package local.demo.zmq_common.wire;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BinaryCodecTest {
+
+    @Test
+    void roundTripsHeaderSymbolAndPayload() {
+        BinaryEncoder encoder = new BinaryEncoder(8);
+        byte[] symbol = "SYM42".getBytes(StandardCharsets.US_ASCII);
+        byte[] payload = "xx{\"px\":1.5}yy".getBytes(StandardCharsets.UTF_8);
+        int length = encoder.encode(WireFormat.TOPIC_QUOTE, 42, symbol, 7L, 123_456_789L, payload, 2, payload.length - 4);
+        assertEquals(WireFormat.HEADER_SIZE + symbol.length + payload.length - 4, length);
+
+        // frame nằm giữa một buffer nhận lớn hơn
+        byte[] frame = new byte[length + 10];
+        System.arraycopy(encoder.buffer(), 0, frame, 5, length);
+
+        BinaryDecoder decoder = new BinaryDecoder();
+        assertTrue(decoder.wrap(frame, 5, length));
+        assertEquals(WireFormat.CURRENT_VERSION, decoder.version());
+        assertEquals(WireFormat.TOPIC_QUOTE, decoder.topic());
+        assertEquals(WireFormat.shardOf(symbol), decoder.shard());
+        assertEquals(42, decoder.symbolId());
+        assertEquals(7L, decoder.sequence());
+        assertEquals(123_456_789L, decoder.publishNanos());
+        assertEquals("SYM42", new String(frame, decoder.symbolOffset(), decoder.symbolLength(), StandardCharsets.US_ASCII));
+        assertEquals("{\"px\":1.5}", new String(frame, decoder.payloadOffset(), decoder.payloadLength(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void rejectsTextFramesUnknownVersionsAndBadLengths() {
+        BinaryDecoder decoder = new BinaryDecoder();
+        byte[] text = "history".getBytes(StandardCharsets.US_ASCII);
+        assertFalse(decoder.wrap(text, 0, text.length));
+
+        BinaryEncoder encoder = new BinaryEncoder();
+        byte[] symbol = "SYM1".getBytes(StandardCharsets.US_ASCII);
+        int length = encoder.encode(WireFormat.TOPIC_HISTORY, 1, symbol, 0, 0, new byte[16], 0, 16);
+        byte[] frame = Arrays.copyOf(encoder.buffer(), length);
+        assertTrue(decoder.wrap(frame, 0, length));
+        assertFalse(decoder.wrap(frame, 0, length - 1));
+
+        frame[2] = (byte) (WireFormat.CURRENT_VERSION + 1);
+        assertTrue(WireFormat.hasMagic(frame, 0, length));
+        assertFalse(decoder.wrap(frame, 0, length));
+        assertEquals(WireFormat.CURRENT_VERSION + 1, BinaryDecoder.version(frame, 0, length));
+    }
+
+    @Test
+    void shardPrefixMatchesFrameStartAndVersion1StillDecodes() {
+        BinaryEncoder encoder = new BinaryEncoder();
+        byte[] symbol = "SYM7".getBytes(StandardCharsets.US_ASCII);
+        byte[] payload = "{}".getBytes(StandardCharsets.UTF_8);
+        int length = encoder.encode(WireFormat.TOPIC_HISTORY, 7, symbol, 3L, 9L, payload, 0, payload.length);
+        byte[] prefix = WireFormat.shardPrefix(WireFormat.shardOf(symbol));
+        assertArrayEquals(prefix, Arrays.copyOf(encoder.buffer(), prefix.length));
+
+        // frame version 1: bỏ byte shard, header ngắn hơn một byte
+        byte[] v1 = new byte[length - 1];
+        System.arraycopy(encoder.buffer(), 0, v1, 0, 3);
+        System.arraycopy(encoder.buffer(), 4, v1, 3, length - 4);
+        v1[2] = WireFormat.VERSION_1;
+        BinaryDecoder decoder = new BinaryDecoder();
+        assertTrue(decoder.wrap(v1, 0, v1.length));
+        assertEquals(WireFormat.VERSION_1, decoder.version());
+        assertEquals(WireFormat.TOPIC_HISTORY, decoder.topic());
+        assertEquals(7, decoder.symbolId());
+        assertEquals(3L, decoder.sequence());
+        assertEquals(WireFormat.shardOf(symbol), decoder.shard());
+        assertEquals("SYM7", new String(v1, decoder.symbolOffset(), decoder.symbolLength(), StandardCharsets.US_ASCII));
+        assertEquals("{}", new String(v1, decoder.payloadOffset(), decoder.payloadLength(), StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,282 @@
+package local.demo.zmq_publisher;
+
+import local.demo.zmq_common.wire.BinaryEncoder;
+import local.demo.zmq_common.wire.WireFormat;
+import local.demo.zmq_publisher.ZmqMessagePublisher.WireFormatMode;
+import local.demo.zmq_publisher.workload.RateSchedule;
+import local.demo.zmq_publisher.workload.WorkloadProfile;
+import lombok.extern.log4j.Log4j2;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Publisher tốc độ cao để stress subscriber: bảng symbol tính sẵn, sequence là mảng long,
+ * buffer gửi dùng lại nên vòng gửi không cấp phát, nhịp gửi do {@link TokenBucketPacer} điều khiển.
+ * Symbol, topic, payload và lịch burst (nhân với target rate) lấy từ {@link WorkloadProfile}.
+ * <p>
+ * Với k sender, sender i có PUB socket riêng bind ở cổng của {@code endpoint} cộng i (không qua proxy,
+ * subscriber nối tới cả k cổng) và stream tất định riêng ({@code generator(i)}) pace ở target/k.
+ * Sender i chỉ gửi các symbol có {@code symbolId % k == i} (symbol bốc được dời vào phần của sender),
+ * nên sequence của một symbol vẫn tăng dần ở phía subscriber; tổng tốc độ và lịch burst giữ nguyên,
+ * phân phối symbol giữ hình dạng của profile trong phần của mỗi sender.
+ */
+@Log4j2
+public class PublisherEngine {
+
+    private static final int CLOSE_LINGER_MS = 5_000;
+    private static final long STALL_NANOS = 1_000_000;
+    private static final long PROGRESS_EVERY = 1_000_000;
+    private static final long RATE_UPDATE_NANOS = 1_000_000;
+
+    private static final byte[] TOPIC_HISTORY = "history".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TOPIC_QUOTE = "quoteAll".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_SYM = " | SYM=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_SEQ = " | SYM_SEQ=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_MSG = " | MSG=".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] BODY_PAYLOAD = " | PAYLOAD=".getBytes(StandardCharsets.US_ASCII);
+
+    private final String endpoint;
+    private final long totalMessages;
+    private final long targetRate;
+    private final long maxBurstNanos;
+    private final WireFormatMode wireFormat;
+    private final WorkloadProfile workload;
+    private final byte[][] symbolNames;
+    // shard ghi vào frame nhị phân, tính một lần theo tên thay vì hash mỗi message
+    private final int[] symbolShards;
+    private final Sender[] senders;
+
+    private ZContext context;
+    private volatile boolean running;
+    private long startNanos;
+
+    /**
+     * @param endpoint   endpoint tcp của sender 0, sender i bind cổng + i
+     * @param targetRate tổng số message/giây cho mọi sender, 0 = không giới hạn (bỏ qua lịch burst)
+     */
+    public PublisherEngine(String endpoint, long totalMessages, long targetRate, int senderCount,
+                           long maxBurstNanos, WireFormatMode wireFormat, WorkloadProfile workload) {
+        int symbolCount = workload.symbolCount();
+        if (senderCount <= 0 || symbolCount < senderCount) {
+            throw new IllegalArgumentException("need 0 < senders <= symbols");
+        }
+        this.endpoint = endpoint;
+        this.totalMessages = totalMessages;
+        this.targetRate = targetRate;
+        this.maxBurstNanos = maxBurstNanos;
+        this.wireFormat = wireFormat;
+        this.workload = workload;
+        this.symbolNames = new byte[symbolCount][];
+        this.symbolShards = new int[symbolCount];
+        for (int i = 0; i < symbolCount; i++) {
+            symbolNames[i] = ("SYM" + i).getBytes(StandardCharsets.US_ASCII);
+            symbolShards[i] = WireFormat.shardOf(symbolNames[i]);
+        }
+        this.senders = new Sender[senderCount];
+    }
+
+    public synchronized void start() {
+        if (running) return;
+        running = true;
+        context = new ZContext();
+        // close() chờ message còn trong socket gửi hết (tối đa chừng này) thay vì bỏ với linger 0 mặc định
+        context.setLinger(CLOSE_LINGER_MS);
+        int senderCount = senders.length;
+        String[] endpoints = new String[senderCount];
+        for (int i = 0; i < senderCount; i++) {
+            endpoints[i] = endpointFor(endpoint, i);
+            ZMQ.Socket socket = context.createSocket(SocketType.PUB);
+            socket.bind(endpoints[i]);
+            // phần của sender i trong tổng số message và tốc độ
+            long messages = totalMessages / senderCount + (i < totalMessages % senderCount ? 1 : 0);
+            senders[i] = new Sender(i, socket, messages, new TokenBucketPacer(senderRate(1.0), maxBurstNanos));
+        }
+        startNanos = System.nanoTime();
+        for (Sender sender : senders) {
+            sender.thread.start();
+        }
+        log.info("[Engine] Started at {}: senders={}, targetRate={} msg/s, total={}, wireFormat={}, workload={}",
+                String.join(",", endpoints), senderCount, targetRate == 0 ? "unlimited" : targetRate, totalMessages,
+                wireFormat, workload.describe());
+    }
+
+    public void stop() {
+        running = false;
+    }
+
+    /**
+     * Chờ mọi sender xong, in báo cáo rồi đóng socket (chờ gửi nốt, xem {@code CLOSE_LINGER_MS}).
+     */
+    public void join() throws InterruptedException {
+        for (Sender sender : senders) {
+            if (sender != null) sender.thread.join();
+        }
+        report();
+        if (context != null) context.close();
+    }
+
+    /**
+     * Endpoint tcp của sender {@code index}: cùng host, cổng cộng thêm {@code index}.
+     */
+    static String endpointFor(String endpoint, int index) {
+        if (index == 0) return endpoint;
+        int colon = endpoint.lastIndexOf(':');
+        return endpoint.substring(0, colon + 1) + (Integer.parseInt(endpoint.substring(colon + 1)) + index);
+    }
+
+    /**
+     * Dời symbol bốc được vào phần của sender {@code index} ({@code symbolId % senders == index}),
+     * giữ nguyên symbol khi chỉ có một sender.
+     */
+    static int partitionSymbol(int symbolId, int senders, int index, int symbolCount) {
+        int id = symbolId - symbolId % senders + index;
+        return id < symbolCount ? id : id - senders;
+    }
+
+    /**
+     * Tốc độ của một sender khi tổng target đang nhân {@code multiplier}, 0 = không giới hạn.
+     */
+    private long senderRate(double multiplier) {
+        if (targetRate == 0) return 0;
+        return Math.max(1, Math.round(targetRate * multiplier / senders.length));
+    }
+
+    private void report() {
+        long sent = 0, waited = 0, lag = 0, lagEvents = 0, stalls = 0, maxSend = 0, elapsed = 0;
+        for (Sender s : senders) {
+            if (s == null) continue;
+            sent += s.sent;
+            waited += s.pacer.waitedNanos();
+            lag += s.pacer.lagNanos();
+            lagEvents += s.pacer.lagEvents();
+            stalls += s.stalls;
+            maxSend = Math.max(maxSend, s.maxSendNanos);
+            elapsed = Math.max(elapsed, s.endNanos - startNanos);
+        }
+        double seconds = elapsed / 1e9;
+        double achieved = seconds > 0 ? sent / seconds : 0;
+        // target trung bình theo lịch burst đã chạy, không phải target gốc
+        double target = targetRate * workload.schedule().averageMultiplier(elapsed);
+        log.info("[Engine] Finished: sent={} in {}s, achieved={} msg/s, target={}",
+                sent, String.format("%.2f", seconds), String.format("%.0f", achieved),
+                targetRate == 0 ? "unlimited" : String.format("%.0f msg/s (%.1f%%)", target, achieved * 100 / target));
+        log.info("[Engine] Pacer: waited={} ms, lag={} ms in {} events; send stalls(>= {} us)={}, maxSend={} us",
+                waited / 1_000_000, lag / 1_000_000, lagEvents, STALL_NANOS / 1000, stalls, maxSend / 1000);
+    }
+
+    private final class Sender implements Runnable {
+        final int index;
+        final ZMQ.Socket socket;
+        final long messages;
+        final TokenBucketPacer pacer;
+        final Thread thread;
+
+        // chỉ thread sender ghi, đọc sau join()
+        long sent;
+        long stalls;
+        long maxSendNanos;
+        long endNanos;
+
+        Sender(int index, ZMQ.Socket socket, long messages, TokenBucketPacer pacer) {
+            this.index = index;
+            this.socket = socket;
+            this.messages = messages;
+            this.pacer = pacer;
+            this.thread = new Thread(this, "PublisherSender-" + index);
+        }
+
+        @Override
+        public void run() {
+            int senderCount = senders.length;
+            long[] sequences = new long[symbolNames.length];
+            byte[] payload = workload.payloadTemplate();
+            byte[] body = new byte[128 + payload.length];
+            BinaryEncoder encoder = new BinaryEncoder(WireFormat.HEADER_SIZE + 32 + payload.length);
+            // stream riêng của sender: mỗi message bốc ra đều được gửi
+            WorkloadProfile.Generator generator = workload.generator(index);
+            RateSchedule schedule = workload.schedule();
+            long nextRateUpdate = 0;
+
+            try {
+                for (long n = 0; running && n < messages; n++) {
+                    if (targetRate > 0) {
+                        long now = System.nanoTime();
+                        if (now >= nextRateUpdate) {
+                            pacer.setRate(senderRate(schedule.multiplierAt(now - startNanos)));
+                            nextRateUpdate = now + RATE_UPDATE_NANOS;
+                        }
+                    }
+                    pacer.acquire();
+
+                    generator.next();
+                    int symbolId = partitionSymbol(generator.symbolId(), senderCount, index, symbolNames.length);
+                    boolean history = generator.history();
+                    int payloadSize = generator.payloadSize();
+                    byte[] symbol = symbolNames[symbolId];
+                    long seq = sequences[symbolId]++;
+
+                    long t0 = System.nanoTime();
+                    if (wireFormat == WireFormatMode.BINARY) {
+                        int length = encoder.encode(history ? WireFormat.TOPIC_HISTORY : WireFormat.TOPIC_QUOTE,
+                                symbolId, symbol, symbolShards[symbolId], seq, t0, payload, 0, payloadSize);
+                        socket.send(encoder.buffer(), 0, length, 0);
+                    } else {
+                        int length = textBody(body, symbol, seq, (int) (n % 100), payload, payloadSize);
+                        socket.send(history ? TOPIC_HISTORY : TOPIC_QUOTE, ZMQ.SNDMORE);
+                        socket.send(symbol, ZMQ.SNDMORE);
+                        socket.send(body, 0, length, 0);
+                    }
+                    long took = System.nanoTime() - t0;
+                    if (took > maxSendNanos) maxSendNanos = took;
+                    if (took >= STALL_NANOS) stalls++;
+
+                    sent++;
+                    if (sent % PROGRESS_EVERY == 0) {
+                        log.info("[Engine] Sender-{} progress: sent {} messages...", index, sent);
+                    }
+                }
+            } catch (Exception e) {
+                log.error("[Engine] Sender-{} failed", index, e);
+            } finally {
+                endNanos = System.nanoTime();
+            }
+        }
+    }
+
+    /**
+     * Body dạng text giống {@link ZmqMessagePublisher}, ghi thẳng ASCII vào buffer.
+     */
+    static int textBody(byte[] buf, byte[] symbol, long seq, int msg, byte[] payload, int payloadSize) {
+        int pos = put(buf, 0, BODY_SYM);
+        pos = put(buf, pos, symbol);
+        pos = put(buf, pos, BODY_SEQ);
+        pos = putLong(buf, pos, seq);
+        pos = put(buf, pos, BODY_MSG);
+        pos = putLong(buf, pos, msg);
+        pos = put(buf, pos, BODY_PAYLOAD);
+        System.arraycopy(payload, 0, buf, pos, payloadSize);
+        return pos + payloadSize;
+    }
+
+    private static int put(byte[] buf, int pos, byte[] src) {
+        System.arraycopy(src, 0, buf, pos, src.length);
+        return pos + src.length;
+    }
+
+    private static int putLong(byte[] buf, int pos, long value) {
+        if (value == 0) {
+            buf[pos] = '0';
+            return pos + 1;
+        }
+        int digits = 0;
+        for (long v = value; v > 0; v /= 10) digits++;
+        for (int i = pos + digits - 1; i >= pos; i--) {
+            buf[i] = (byte) ('0' + value % 10);
+            value /= 10;
+        }
+        return pos + digits;
+    }
+}
@@ -0,0 +1,116 @@
+package local.demo.zmq_publisher;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Pacer token-bucket theo nanoTime: message thứ n được phép gửi lúc start + n / rate.
+ * <p>
+ * Chờ lâu thì park, còn dưới {@link #SPIN_THRESHOLD_NANOS} thì spin để không trễ vì độ phân
+ * giải của parkNanos. Nếu sender chậm hơn lịch quá {@code maxBurstNanos} (GC, socket bị nghẽn...)
+ * lịch được dời lên thay vì gửi dồn một cục để đuổi kịp, phần bị dời được tính là lag.
+ * <p>
+ * Không thread-safe: mỗi sender một pacer.
+ */
+public final class TokenBucketPacer {
+
+    private static final long SPIN_THRESHOLD_NANOS = 50_000;
+    // acquired * 1e9 tràn long sau ~9.2e9 token: cứ mỗi chừng này token dồn phần giây chẵn vào startNanos
+    static final long FOLD_TOKENS = 1 << 20;
+
+    private long ratePerSecond;
+    private final long maxBurstNanos;
+    private long startNanos;
+    private long acquired;
+
+    private long waitedNanos;
+    private long lagNanos;
+    private long lagEvents;
+
+    /**
+     * @param ratePerSecond 0 = không giới hạn
+     * @param maxBurstNanos độ trễ tối đa so với lịch trước khi lịch bị dời
+     */
+    public TokenBucketPacer(long ratePerSecond, long maxBurstNanos) {
+        if (ratePerSecond < 0 || maxBurstNanos < 0) {
+            throw new IllegalArgumentException("ratePerSecond and maxBurstNanos must not be negative");
+        }
+        this.ratePerSecond = ratePerSecond;
+        this.maxBurstNanos = maxBurstNanos;
+        this.startNanos = System.nanoTime();
+    }
+
+    /**
+     * Chờ tới lượt của message kế tiếp.
+     */
+    public void acquire() {
+        if (ratePerSecond == 0) {
+            return;
+        }
+        long target = startNanos + acquired * 1_000_000_000L / ratePerSecond;
+        acquired++;
+        if ((acquired & (FOLD_TOKENS - 1)) == 0) {
+            // chỉ dồn bội của rate (giây chẵn) nên lịch không lệch ns nào
+            long seconds = acquired / ratePerSecond;
+            startNanos += seconds * 1_000_000_000L;
+            acquired -= seconds * ratePerSecond;
+        }
+        long now = System.nanoTime();
+        long wait = target - now;
+        if (wait <= 0) {
+            long behind = -wait - maxBurstNanos;
+            if (behind > 0) {
+                startNanos += behind;
+                lagNanos += behind;
+                lagEvents++;
+            }
+            return;
+        }
+        while (wait > SPIN_THRESHOLD_NANOS) {
+            LockSupport.parkNanos(wait - SPIN_THRESHOLD_NANOS);
+            wait = target - System.nanoTime();
+        }
+        while (System.nanoTime() < target) {
+            Thread.onSpinWait();
+        }
+        waitedNanos += target - now;
+    }
+
+    /**
+     * Đổi tốc độ từ token kế tiếp trở đi (burst/ramp), lịch mới nối tiếp lịch cũ.
+     */
+    public void setRate(long ratePerSecond) {
+        if (ratePerSecond < 0) {
+            throw new IllegalArgumentException("ratePerSecond must not be negative");
+        }
+        if (ratePerSecond == this.ratePerSecond) {
+            return;
+        }
+        startNanos = this.ratePerSecond == 0
+                ? System.nanoTime()
+                : startNanos + acquired * 1_000_000_000L / this.ratePerSecond;
+        acquired = 0;
+        this.ratePerSecond = ratePerSecond;
+    }
+
+    public long ratePerSecond() {
+        return ratePerSecond;
+    }
+
+    /**
+     * Tổng thời gian pacer đã chờ (sender nhanh hơn target).
+     */
+    public long waitedNanos() {
+        return waitedNanos;
+    }
+
+    /**
+     * Tổng thời gian lịch bị dời vì sender chậm hơn target.
+     */
+    public long lagNanos() {
+        return lagNanos;
+    }
+
+    public long lagEvents() {
+        return lagEvents;
+    }
+}
@@ -0,0 +1,48 @@
+package local.demo.zmq_publisher;
+
+import local.demo.zmq_publisher.workload.PayloadSizeDistribution;
+import local.demo.zmq_publisher.workload.RateSchedule;
+import local.demo.zmq_publisher.workload.SymbolDistribution;
+import local.demo.zmq_publisher.workload.WorkloadProfile;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class WorkloadConfig {
+
+    /**
+     * Profile tải dựng từ {@code publisher.workload.*}, mặc định giống publisher cũ.
+     */
+    @Bean
+    public WorkloadProfile workloadProfile(@Value("${publisher.workload.name:legacy}") String name,
+                                           @Value("${publisher.workload.seed:42}") long seed,
+                                           @Value("${publisher.workload.symbols:1000}") int symbols,
+                                           @Value("${publisher.workload.skew:uniform}") String skew,
+                                           @Value("${publisher.workload.zipf.exponent:1.1}") double zipfExponent,
+                                           @Value("${publisher.workload.hot-set.size:10}") int hotSetSize,
+                                           @Value("${publisher.workload.hot-set.share:0.8}") double hotSetShare,
+                                           @Value("${publisher.workload.history-ratio:0.8}") double historyRatio,
+                                           @Value("${publisher.workload.payload.distribution:fixed}") String payload,
+                                           @Value("${publisher.workload.payload.size:16}") int payloadSize,
+                                           @Value("${publisher.workload.payload.min:64}") int payloadMin,
+                                           @Value("${publisher.workload.payload.max:4096}") int payloadMax,
+                                           @Value("${publisher.workload.payload.median:256}") int payloadMedian,
+                                           @Value("${publisher.workload.payload.sigma:1.0}") double payloadSigma,
+                                           @Value("${publisher.workload.schedule:}") String schedule) {
+        SymbolDistribution symbolDistribution = switch (skew) {
+            case "uniform" -> SymbolDistribution.uniform(symbols);
+            case "zipf" -> SymbolDistribution.zipf(symbols, zipfExponent);
+            case "hot-set" -> SymbolDistribution.hotSet(symbols, hotSetSize, hotSetShare);
+            default -> throw new IllegalArgumentException("Unknown publisher.workload.skew: " + skew);
+        };
+        PayloadSizeDistribution payloadSizes = switch (payload) {
+            case "fixed" -> PayloadSizeDistribution.fixed(payloadSize);
+            case "uniform" -> PayloadSizeDistribution.uniform(payloadMin, payloadMax);
+            case "lognormal" -> PayloadSizeDistribution.logNormal(payloadMedian, payloadSigma, payloadMin, payloadMax);
+            default -> throw new IllegalArgumentException("Unknown publisher.workload.payload.distribution: " + payload);
+        };
+        return new WorkloadProfile(name, seed, symbolDistribution, historyRatio, payloadSizes,
+                RateSchedule.parse(schedule));
+    }
+}
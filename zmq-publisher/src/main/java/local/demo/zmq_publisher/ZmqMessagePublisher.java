@@ -1,19 +1,27 @@
 package local.demo.zmq_publisher;
 
+import local.demo.zmq_common.wire.BinaryEncoder;
+import local.demo.zmq_common.wire.WireFormat;
+import local.demo.zmq_publisher.workload.WorkloadProfile;
 import lombok.extern.log4j.Log4j2;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.zeromq.ZContext;
 import org.zeromq.ZMQ;
 
+import java.nio.charset.StandardCharsets;
 import java.util.Map;
-import java.util.Random;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Publisher ZMQ, có thể gửi hàng triệu message để test throughput.
  * Mặc định dùng mô hình PUB/SUB, gửi ngẫu nhiên topic và symbol.
+ * <p>
+ * {@link WireFormatMode#TEXT}: 3 frame string (topic, symbol, body) như cũ.
+ * {@link WireFormatMode#BINARY}: một frame theo {@link WireFormat}, subscriber nhận được cả hai.
+ * <p>
+ * Symbol, topic, kích thước payload và số message mỗi nhịp 1ms lấy từ {@link WorkloadProfile}.
  */
 @Log4j2
 public class ZmqMessagePublisher implements Runnable {
@@ -21,12 +29,33 @@ public class ZmqMessagePublisher implements Runnable {
     private static final Logger log = LoggerFactory.getLogger(ZmqMessagePublisher.class);
     private final String endpoint; // ví dụ: "tcp://*:5555"
     private final int totalMessages;
+    private final WireFormatMode wireFormat;
+    private final WorkloadProfile workload;
     private Thread thread;
     private final AtomicBoolean running = new AtomicBoolean(false);
 
+    public enum WireFormatMode {
+        TEXT, BINARY;
+
+        public static WireFormatMode of(String name) {
+            return switch (name) {
+                case "text" -> TEXT;
+                case "binary" -> BINARY;
+                default -> throw new IllegalArgumentException("Unknown publisher.wire-format: " + name);
+            };
+        }
+    }
+
     public ZmqMessagePublisher(String endpoint, int totalMessages) {
+        this(endpoint, totalMessages, WireFormatMode.TEXT, WorkloadProfile.legacy());
+    }
+
+    public ZmqMessagePublisher(String endpoint, int totalMessages, WireFormatMode wireFormat,
+                               WorkloadProfile workload) {
         this.endpoint = endpoint;
         this.totalMessages = totalMessages;
+        this.wireFormat = wireFormat;
+        this.workload = workload;
     }
 
     /**
@@ -38,7 +67,7 @@ public class ZmqMessagePublisher implements Runnable {
         thread = new Thread(this, "ZmqPublisherThread");
 //        thread.setDaemon(true);
         thread.start();
-        log.info("[ZMQ] Publisher started at {}", endpoint);
+        log.info("[ZMQ] Publisher started at {}, wireFormat={}, workload={}", endpoint, wireFormat, workload.describe());
     }
 
     /**
@@ -60,32 +89,52 @@ public class ZmqMessagePublisher implements Runnable {
              ZMQ.Socket publisher = context.createSocket(ZMQ.PUB)) {
 
             publisher.bind(endpoint);
-            Random rand = new Random();
+            WorkloadProfile.Generator generator = workload.generator(0);
+            byte[] payload = workload.payloadTemplate();
 
             long start = System.currentTimeMillis();
+            long startNanos = System.nanoTime();
             int sent = 0;
+            int nextProgress = 5000;
 
             // NEW: Sequence per symbol
             Map<String, Long> symbolSeq = new ConcurrentHashMap<>();
 
+            // binary: payload opaque, các field còn lại nằm trong header
+            BinaryEncoder encoder = new BinaryEncoder();
+
             while (running.get() && sent < totalMessages) {
 
-                for (int i = 0; i < 100 && sent < totalMessages; i++) {
+                // burst/ramp: nhân số message của nhịp 1ms hiện tại
+                int batch = (int) Math.round(100 * workload.schedule().multiplierAt(System.nanoTime() - startNanos));
 
-                    String topic = (i < 80) ? "history" : "quoteAll";
+                for (int i = 0; i < batch && sent < totalMessages; i++) {
+                    generator.next();
 
-                    // Random symbol
-                    String symbol = "SYM" + rand.nextInt(1000);
+                    String topic = generator.history() ? "history" : "quoteAll";
+
+                    int symbolId = generator.symbolId();
+                    String symbol = "SYM" + symbolId;
 
                     // --- symbol sequence (đảm bảo tuần tự theo symbol) ---
                     long sSeq = symbolSeq.getOrDefault(symbol, 0L);
                     symbolSeq.put(symbol, sSeq + 1);
 
+                    if (wireFormat == WireFormatMode.BINARY) {
+                        int length = encoder.encode(
+                                generator.history() ? WireFormat.TOPIC_HISTORY : WireFormat.TOPIC_QUOTE,
+                                symbolId, symbol.getBytes(StandardCharsets.US_ASCII), sSeq, System.nanoTime(),
+                                payload, 0, generator.payloadSize());
+                        publisher.send(encoder.buffer(), 0, length, 0);
+                        sent++;
+                        continue;
+                    }
+
                     // Message payload
                     String body = " | SYM=" + symbol +
                             " | SYM_SEQ=" + sSeq +
                             " | MSG=" + i +
-                            " | PAYLOAD={...big_json...}";
+                            " | PAYLOAD=" + new String(payload, 0, generator.payloadSize(), StandardCharsets.US_ASCII);
 //                    if (symbol.equals("SYM1")) {
 //                        log.info(body);
 //                    }
@@ -100,8 +149,9 @@ public class ZmqMessagePublisher implements Runnable {
 
                 Thread.sleep(1);
 
-                if (sent % 5000 == 0) {
+                if (sent >= nextProgress) {
                     log.info("[ZMQ] Progress: sent {} messages...", sent);
+                    nextProgress += 5000;
                 }
             }
 
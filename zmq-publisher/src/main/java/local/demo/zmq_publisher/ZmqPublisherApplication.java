@@ -1,5 +1,7 @@
 package local.demo.zmq_publisher;
 
+import local.demo.zmq_publisher.workload.WorkloadProfile;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
@@ -13,11 +15,29 @@ public class ZmqPublisherApplication {
 	}
 
     @Bean
-    public CommandLineRunner runPublisher() {
+    public CommandLineRunner runPublisher(WorkloadProfile workload,
+                                          @Value("${publisher.mode:classic}") String mode,
+                                          @Value("${publisher.wire-format:text}") String wireFormat,
+                                          @Value("${publisher.engine.total-messages:8000000}") long totalMessages,
+                                          @Value("${publisher.engine.target-rate:2000000}") long targetRate,
+                                          @Value("${publisher.engine.senders:1}") int senders,
+                                          @Value("${publisher.engine.max-burst-us:1000}") long maxBurstUs) {
+        ZmqMessagePublisher.WireFormatMode format = ZmqMessagePublisher.WireFormatMode.of(wireFormat);
         return args -> {
-            ZmqMessagePublisher pub = new ZmqMessagePublisher("tcp://*:5555", 8_000_000);
-            pub.start();
-            pub.join(); // chờ publisher chạy xong
+            switch (mode) {
+                case "classic" -> {
+                    ZmqMessagePublisher pub = new ZmqMessagePublisher("tcp://*:5555", 8_000_000, format, workload);
+                    pub.start();
+                    pub.join(); // chờ publisher chạy xong
+                }
+                case "engine" -> {
+                    PublisherEngine engine = new PublisherEngine("tcp://*:5555", totalMessages, targetRate,
+                            senders, maxBurstUs * 1_000, format, workload);
+                    engine.start();
+                    engine.join();
+                }
+                default -> throw new IllegalArgumentException("Unknown publisher.mode: " + mode);
+            }
         };
     }
 }
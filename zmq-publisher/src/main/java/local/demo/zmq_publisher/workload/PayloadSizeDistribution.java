@@ -0,0 +1,67 @@
+package local.demo.zmq_publisher.workload;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Phân phối kích thước payload (byte), luôn nằm trong [{@link #min()}, {@link #max()}].
+ */
+public interface PayloadSizeDistribution {
+
+    int next(RandomGenerator random);
+
+    int min();
+
+    int max();
+
+    String describe();
+
+    static PayloadSizeDistribution fixed(int size) {
+        return new Uniform(size, size);
+    }
+
+    static PayloadSizeDistribution uniform(int min, int max) {
+        return new Uniform(min, max);
+    }
+
+    /**
+     * Log-normal quanh {@code median}: đa số message nhỏ, thỉnh thoảng có message rất lớn.
+     */
+    static PayloadSizeDistribution logNormal(int median, double sigma, int min, int max) {
+        return new LogNormal(median, sigma, min, max);
+    }
+
+    record Uniform(int min, int max) implements PayloadSizeDistribution {
+        public Uniform {
+            if (min < 0 || max < min) throw new IllegalArgumentException("need 0 <= min <= max");
+        }
+
+        @Override
+        public int next(RandomGenerator random) {
+            return min == max ? min : min + random.nextInt(max - min + 1);
+        }
+
+        @Override
+        public String describe() {
+            return min == max ? "fixed(" + min + ")" : "uniform(" + min + ".." + max + ")";
+        }
+    }
+
+    record LogNormal(int median, double sigma, int min, int max) implements PayloadSizeDistribution {
+        public LogNormal {
+            if (median <= 0 || sigma < 0 || min < 0 || max < min) {
+                throw new IllegalArgumentException("need median > 0, sigma >= 0, 0 <= min <= max");
+            }
+        }
+
+        @Override
+        public int next(RandomGenerator random) {
+            double size = median * Math.exp(sigma * random.nextGaussian());
+            return (int) Math.max(min, Math.min(max, Math.round(size)));
+        }
+
+        @Override
+        public String describe() {
+            return "lognormal(median=" + median + ", sigma=" + sigma + ", " + min + ".." + max + ")";
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package local.demo.zmq_publisher.workload;
+
+import java.util.List;
+
+/**
+ * Lịch nhân tốc độ gửi theo thời gian, lặp lại theo chu kỳ.
+ * <p>
+ * Cú pháp: các phase cách nhau bởi dấu phẩy, mỗi phase là {@code <thời lượng>@<hệ số>} hoặc
+ * {@code <thời lượng>@<từ>~<đến>} (ramp tuyến tính). Thời lượng có đơn vị {@code ms} hoặc {@code s}.
+ * Ví dụ mô phỏng mở cửa/đóng cửa: {@code 5s@3.0~1.0,20s@1.0,5s@1.0~3.0}. Chuỗi rỗng = luôn 1.0.
+ */
+public final class RateSchedule {
+
+    private static final RateSchedule CONSTANT = new RateSchedule(new long[0], new double[0], new double[0], "constant");
+
+    private final long[] durations;
+    private final double[] from;
+    private final double[] to;
+    private final long cycleNanos;
+    private final String spec;
+
+    private RateSchedule(long[] durations, double[] from, double[] to, String spec) {
+        this.durations = durations;
+        this.from = from;
+        this.to = to;
+        long cycle = 0;
+        for (long d : durations) cycle += d;
+        this.cycleNanos = cycle;
+        this.spec = spec;
+    }
+
+    public static RateSchedule parse(String spec) {
+        if (spec == null || spec.isBlank()) {
+            return CONSTANT;
+        }
+        List<String> phases = List.of(spec.split(","));
+        long[] durations = new long[phases.size()];
+        double[] from = new double[phases.size()];
+        double[] to = new double[phases.size()];
+        for (int i = 0; i < phases.size(); i++) {
+            String phase = phases.get(i).trim();
+            int at = phase.indexOf('@');
+            if (at <= 0) {
+                throw new IllegalArgumentException("Invalid schedule phase: " + phase);
+            }
+            durations[i] = parseDuration(phase.substring(0, at).trim());
+            String[] range = phase.substring(at + 1).split("~");
+            from[i] = Double.parseDouble(range[0].trim());
+            to[i] = range.length > 1 ? Double.parseDouble(range[1].trim()) : from[i];
+            if (durations[i] <= 0 || from[i] < 0 || to[i] < 0 || range.length > 2) {
+                throw new IllegalArgumentException("Invalid schedule phase: " + phase);
+            }
+        }
+        return new RateSchedule(durations, from, to, spec);
+    }
+
+    private static long parseDuration(String value) {
+        if (value.endsWith("ms")) {
+            return Long.parseLong(value.substring(0, value.length() - 2)) * 1_000_000L;
+        }
+        if (value.endsWith("s")) {
+            return Long.parseLong(value.substring(0, value.length() - 1)) * 1_000_000_000L;
+        }
+        throw new IllegalArgumentException("Duration needs ms or s: " + value);
+    }
+
+    /**
+     * @param elapsedNanos thời gian từ lúc bắt đầu gửi
+     */
+    public double multiplierAt(long elapsedNanos) {
+        if (cycleNanos == 0) {
+            return 1.0;
+        }
+        long t = elapsedNanos % cycleNanos;
+        for (int i = 0; i < durations.length; i++) {
+            if (t < durations[i]) {
+                return from[i] + (to[i] - from[i]) * t / durations[i];
+            }
+            t -= durations[i];
+        }
+        return to[to.length - 1];
+    }
+
+    /**
+     * Hệ số trung bình trên [0, elapsedNanos), lấy mẫu mỗi 1ms, dùng để tính target thực tế khi báo cáo.
+     */
+    public double averageMultiplier(long elapsedNanos) {
+        if (cycleNanos == 0 || elapsedNanos <= 0) {
+            return 1.0;
+        }
+        long step = 1_000_000L;
+        double sum = 0;
+        long samples = 0;
+        for (long t = 0; t < elapsedNanos; t += step) {
+            sum += multiplierAt(t);
+            samples++;
+        }
+        return sum / samples;
+    }
+
+    public String describe() {
+        return spec;
+    }
+}
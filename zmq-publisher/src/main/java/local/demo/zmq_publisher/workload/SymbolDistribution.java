@@ -0,0 +1,108 @@
+package local.demo.zmq_publisher.workload;
+
+import java.util.Arrays;
+import java.util.random.RandomGenerator;
+
+/**
+ * Phân phối chọn symbol id trong [0, size). Id càng nhỏ càng "nóng" với zipf và hot-set.
+ */
+public interface SymbolDistribution {
+
+    int next(RandomGenerator random);
+
+    int size();
+
+    String describe();
+
+    static SymbolDistribution uniform(int size) {
+        return new Uniform(size);
+    }
+
+    /**
+     * P(rank k) tỉ lệ với 1 / k^exponent, rank 1 là SYM0.
+     */
+    static SymbolDistribution zipf(int size, double exponent) {
+        return new Zipf(size, exponent);
+    }
+
+    /**
+     * {@code hotSize} symbol đầu chiếm {@code hotShare} traffic, phần còn lại chia đều.
+     */
+    static SymbolDistribution hotSet(int size, int hotSize, double hotShare) {
+        return new HotSet(size, hotSize, hotShare);
+    }
+
+    record Uniform(int size) implements SymbolDistribution {
+        public Uniform {
+            if (size <= 0) throw new IllegalArgumentException("size must be positive");
+        }
+
+        @Override
+        public int next(RandomGenerator random) {
+            return random.nextInt(size);
+        }
+
+        @Override
+        public String describe() {
+            return "uniform(" + size + ")";
+        }
+    }
+
+    final class Zipf implements SymbolDistribution {
+        private final double exponent;
+        private final double[] cdf;
+
+        Zipf(int size, double exponent) {
+            if (size <= 0 || exponent <= 0) {
+                throw new IllegalArgumentException("size and exponent must be positive");
+            }
+            this.exponent = exponent;
+            this.cdf = new double[size];
+            double sum = 0;
+            for (int k = 0; k < size; k++) {
+                sum += 1.0 / Math.pow(k + 1, exponent);
+                cdf[k] = sum;
+            }
+            for (int k = 0; k < size; k++) {
+                cdf[k] /= sum;
+            }
+            cdf[size - 1] = 1.0;
+        }
+
+        @Override
+        public int next(RandomGenerator random) {
+            int idx = Arrays.binarySearch(cdf, random.nextDouble());
+            return idx >= 0 ? idx : -idx - 1;
+        }
+
+        @Override
+        public int size() {
+            return cdf.length;
+        }
+
+        @Override
+        public String describe() {
+            return "zipf(" + cdf.length + ", s=" + exponent + ")";
+        }
+    }
+
+    record HotSet(int size, int hotSize, double hotShare) implements SymbolDistribution {
+        public HotSet {
+            if (hotSize <= 0 || hotSize >= size || hotShare < 0 || hotShare > 1) {
+                throw new IllegalArgumentException("need 0 < hotSize < size and 0 <= hotShare <= 1");
+            }
+        }
+
+        @Override
+        public int next(RandomGenerator random) {
+            return random.nextDouble() < hotShare
+                    ? random.nextInt(hotSize)
+                    : hotSize + random.nextInt(size - hotSize);
+        }
+
+        @Override
+        public String describe() {
+            return "hot-set(" + size + ", hot=" + hotSize + ", share=" + hotShare + ")";
+        }
+    }
+}
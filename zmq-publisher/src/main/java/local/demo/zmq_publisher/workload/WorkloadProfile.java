@@ -0,0 +1,119 @@
+package local.demo.zmq_publisher.workload;
+
+import java.nio.charset.StandardCharsets;
+import java.util.SplittableRandom;
+
+/**
+ * Kịch bản tải cho publisher: phân phối symbol, tỉ lệ topic, kích thước payload và lịch burst.
+ * <p>
+ * Mọi lựa chọn ngẫu nhiên đều đi qua {@link Generator} seed từ {@link #seed()} nên cùng một
+ * profile và cùng một stream luôn sinh ra đúng chuỗi message đó, dùng để tái hiện regression.
+ */
+public final class WorkloadProfile {
+
+    private static final byte[] FILLER = "{...big_json...}".getBytes(StandardCharsets.US_ASCII);
+
+    private final String name;
+    private final long seed;
+    private final SymbolDistribution symbols;
+    private final double historyRatio;
+    private final PayloadSizeDistribution payloadSizes;
+    private final RateSchedule schedule;
+    private final byte[] payloadTemplate;
+
+    public WorkloadProfile(String name, long seed, SymbolDistribution symbols, double historyRatio,
+                           PayloadSizeDistribution payloadSizes, RateSchedule schedule) {
+        if (historyRatio < 0 || historyRatio > 1) {
+            throw new IllegalArgumentException("historyRatio must be in [0, 1]");
+        }
+        this.name = name;
+        this.seed = seed;
+        this.symbols = symbols;
+        this.historyRatio = historyRatio;
+        this.payloadSizes = payloadSizes;
+        this.schedule = schedule;
+        // payload kích thước n = n byte đầu của template, với n = 16 đúng bằng payload cũ
+        this.payloadTemplate = new byte[Math.max(payloadSizes.max(), FILLER.length)];
+        for (int i = 0; i < payloadTemplate.length; i++) {
+            payloadTemplate[i] = FILLER[i % FILLER.length];
+        }
+    }
+
+    /**
+     * Giống publisher cũ: 1000 symbol đều nhau, 80% history, payload cố định.
+     */
+    public static WorkloadProfile legacy() {
+        return new WorkloadProfile("legacy", 42, SymbolDistribution.uniform(1000), 0.8,
+                PayloadSizeDistribution.fixed(FILLER.length), RateSchedule.parse(""));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public long seed() {
+        return seed;
+    }
+
+    public int symbolCount() {
+        return symbols.size();
+    }
+
+    public RateSchedule schedule() {
+        return schedule;
+    }
+
+    /**
+     * Bytes dùng làm payload: message có kích thước n gửi đoạn [0, n).
+     */
+    public byte[] payloadTemplate() {
+        return payloadTemplate;
+    }
+
+    /**
+     * @param stream tách các chuỗi độc lập nhưng vẫn tất định (ví dụ theo sender)
+     */
+    public Generator generator(long stream) {
+        return new Generator(new SplittableRandom(seed ^ (stream * 0x9E3779B97F4A7C15L)));
+    }
+
+    public String describe() {
+        return name + "[seed=" + seed + ", symbols=" + symbols.describe() + ", history=" + historyRatio
+                + ", payload=" + payloadSizes.describe() + ", schedule=" + schedule.describe() + "]";
+    }
+
+    /**
+     * Sinh message theo thứ tự cố định symbol → topic → payload size. Không thread-safe.
+     */
+    public final class Generator {
+        private final SplittableRandom random;
+        private int symbolId;
+        private boolean history;
+        private int payloadSize;
+
+        private Generator(SplittableRandom random) {
+            this.random = random;
+        }
+
+        /**
+         * Bốc message kế tiếp, đọc kết quả qua các getter.
+         */
+        public void next() {
+            symbolId = symbols.next(random);
+            history = random.nextDouble() < historyRatio;
+            payloadSize = payloadSizes.next(random);
+        }
+
+        public int symbolId() {
+            return symbolId;
+        }
+
+        public boolean history() {
+            return history;
+        }
+
+        public int payloadSize() {
+            return payloadSize;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package local.demo.zmq_publisher;
+
+import local.demo.zmq_publisher.ZmqMessagePublisher.WireFormatMode;
+import local.demo.zmq_publisher.workload.WorkloadProfile;
+import org.junit.jupiter.api.Test;
+import org.zeromq.SocketType;
+import org.zeromq.ZContext;
+import org.zeromq.ZMQ;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PublisherEngineTest {
+
+    @Test
+    void textBodyMatchesClassicPublisher() {
+        byte[] buf = new byte[256];
+        byte[] payload = "{...big_json...}".getBytes(StandardCharsets.US_ASCII);
+        int length = PublisherEngine.textBody(buf, "SYM7".getBytes(StandardCharsets.US_ASCII), 1_234_567_890L, 0,
+                payload, payload.length);
+        assertEquals(" | SYM=SYM7 | SYM_SEQ=1234567890 | MSG=0 | PAYLOAD={...big_json...}",
+                new String(buf, 0, length, StandardCharsets.US_ASCII));
+    }
+
+    @Test
+    void senderEndpointsAndPartitions() {
+        assertEquals("tcp://*:5555", PublisherEngine.endpointFor("tcp://*:5555", 0));
+        assertEquals("tcp://127.0.0.1:5557", PublisherEngine.endpointFor("tcp://127.0.0.1:5555", 2));
+        assertEquals(7, PublisherEngine.partitionSymbol(7, 1, 0, 10));
+        for (int symbolId = 0; symbolId < 10; symbolId++) {
+            for (int index = 0; index < 3; index++) {
+                int id = PublisherEngine.partitionSymbol(symbolId, 3, index, 10);
+                assertTrue(id >= 0 && id < 10 && id % 3 == index, symbolId + " -> " + id);
+            }
+        }
+    }
+
+    @Test
+    void eachSenderPublishesOnlyItsSymbolsOnItsOwnEndpoint() throws Exception {
+        PublisherEngine engine = new PublisherEngine("tcp://127.0.0.1:5593", 4000, 4000, 2, 1_000_000,
+                WireFormatMode.TEXT, WorkloadProfile.legacy());
+        try (ZContext context = new ZContext()) {
+            ZMQ.Socket[] subs = new ZMQ.Socket[2];
+            for (int i = 0; i < 2; i++) {
+                subs[i] = context.createSocket(SocketType.SUB);
+                subs[i].setReceiveTimeOut(2000);
+                subs[i].setRcvHWM(0); // đọc lần lượt từng endpoint: endpoint sau phải giữ đủ message
+                subs[i].subscribe(ZMQ.SUBSCRIPTION_ALL);
+                subs[i].connect("tcp://127.0.0.1:" + (5593 + i)); // nối trước: ZMQ tự kết nối lại khi sender bind
+            }
+            engine.start();
+            int received = 0;
+            for (int i = 0; i < 2; i++) {
+                // sequence của một symbol liên tiếp trên đúng một endpoint
+                Map<String, Long> lastSeq = new HashMap<>();
+                while (subs[i].recv() != null) {
+                    String symbol = subs[i].recvStr();
+                    String body = subs[i].recvStr();
+                    assertEquals(i, Integer.parseInt(symbol.substring(3)) % 2, symbol);
+                    long seq = Long.parseLong(body.substring(body.indexOf("SYM_SEQ=") + 8, body.indexOf(" | MSG=")));
+                    Long last = lastSeq.put(symbol, seq);
+                    assertTrue(last == null || seq == last + 1, symbol + ": " + last + " -> " + seq);
+                    received++;
+                }
+            }
+            engine.join();
+            assertTrue(received > 2000, "received " + received); // mất phần đầu trước khi subscription tới
+        }
+    }
+}
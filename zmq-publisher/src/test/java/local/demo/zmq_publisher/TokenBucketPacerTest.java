@@ -0,0 +1,51 @@
+package local.demo.zmq_publisher;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TokenBucketPacerTest {
+
+    @Test
+    void holdsTargetRate() {
+        TokenBucketPacer pacer = new TokenBucketPacer(200_000, 1_000_000);
+        long start = System.nanoTime();
+        for (int i = 0; i < 100_000; i++) {
+            pacer.acquire();
+        }
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        // 100k message ở 200k msg/s: không nhanh hơn 0.5s (trừ token đầu tiên)
+        assertTrue(elapsedMs >= 495, "elapsed " + elapsedMs + " ms");
+        assertTrue(pacer.waitedNanos() > 0);
+    }
+
+    @Test
+    void shiftsScheduleInsteadOfBurstingWhenBehind() throws InterruptedException {
+        TokenBucketPacer pacer = new TokenBucketPacer(1_000, 1_000_000);
+        pacer.acquire();
+        Thread.sleep(50); // trễ ~50 token
+        pacer.acquire();
+        assertEquals(1, pacer.lagEvents());
+        assertTrue(pacer.lagNanos() >= 40_000_000);
+
+        // lịch đã được dời: token kế tiếp phải chờ chứ không được gửi dồn
+        long start = System.nanoTime();
+        for (int i = 0; i < 5; i++) {
+            pacer.acquire();
+        }
+        assertTrue(System.nanoTime() - start >= 3_000_000);
+    }
+
+    @Test
+    void foldingTokensKeepsSchedule() {
+        TokenBucketPacer pacer = new TokenBucketPacer(4_000_000, 1_000_000);
+        long start = System.nanoTime();
+        for (long i = 0; i < 4 * TokenBucketPacer.FOLD_TOKENS; i++) {
+            pacer.acquire();
+        }
+        // 2^22 token ở 4M msg/s: ~1.048s, dồn token không được làm lịch nhảy lên trước
+        long elapsedMs = (System.nanoTime() - start) / 1_000_000;
+        assertTrue(elapsedMs >= 1_040, "elapsed " + elapsedMs + " ms");
+    }
+}
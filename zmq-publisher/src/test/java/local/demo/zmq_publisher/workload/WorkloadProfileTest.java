@@ -0,0 +1,63 @@
+package local.demo.zmq_publisher.workload;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WorkloadProfileTest {
+
+    @Test
+    void sameSeedReplaysSameMessages() {
+        WorkloadProfile profile = new WorkloadProfile("test", 7, SymbolDistribution.zipf(1000, 1.1), 0.8,
+                PayloadSizeDistribution.logNormal(256, 1.0, 16, 4096), RateSchedule.parse(""));
+        WorkloadProfile.Generator a = profile.generator(0);
+        WorkloadProfile.Generator b = profile.generator(0);
+        for (int i = 0; i < 10_000; i++) {
+            a.next();
+            b.next();
+            assertEquals(a.symbolId(), b.symbolId());
+            assertEquals(a.history(), b.history());
+            assertEquals(a.payloadSize(), b.payloadSize());
+            assertTrue(a.payloadSize() >= 16 && a.payloadSize() <= 4096);
+        }
+        assertEquals(4096, profile.payloadTemplate().length);
+    }
+
+    @Test
+    void skewedDistributionsConcentrateOnHotSymbols() {
+        int n = 200_000;
+        WorkloadProfile zipf = new WorkloadProfile("zipf", 1, SymbolDistribution.zipf(1000, 1.0), 0.5,
+                PayloadSizeDistribution.fixed(16), RateSchedule.parse(""));
+        WorkloadProfile hotSet = new WorkloadProfile("hot", 1, SymbolDistribution.hotSet(1000, 10, 0.9), 0.5,
+                PayloadSizeDistribution.fixed(16), RateSchedule.parse(""));
+        WorkloadProfile.Generator zg = zipf.generator(0);
+        WorkloadProfile.Generator hg = hotSet.generator(0);
+        int zipfTop = 0, hot = 0;
+        for (int i = 0; i < n; i++) {
+            zg.next();
+            hg.next();
+            if (zg.symbolId() == 0) zipfTop++;
+            if (hg.symbolId() < 10) hot++;
+        }
+        // zipf s=1, N=1000: P(rank 1) = 1 / H(1000) ~ 0.1336
+        assertEquals(0.1336, zipfTop / (double) n, 0.01);
+        assertEquals(0.9, hot / (double) n, 0.01);
+    }
+
+    @Test
+    void scheduleRampsAndRepeats() {
+        RateSchedule schedule = RateSchedule.parse("100ms@3.0~1.0, 1s@1.0, 500ms@2.0");
+        assertEquals(3.0, schedule.multiplierAt(0), 1e-9);
+        assertEquals(2.0, schedule.multiplierAt(50_000_000L), 1e-9);
+        assertEquals(1.0, schedule.multiplierAt(600_000_000L), 1e-9);
+        assertEquals(2.0, schedule.multiplierAt(1_200_000_000L), 1e-9);
+        // chu kỳ 1.6s
+        assertEquals(2.0, schedule.multiplierAt(1_650_000_000L), 1e-9);
+        assertEquals(1.0, RateSchedule.parse("").multiplierAt(123), 1e-9);
+        // (100ms * 2.0 + 1s * 1.0 + 500ms * 2.0) / 1.6s
+        assertEquals(1.375, schedule.averageMultiplier(1_600_000_000L), 1e-3);
+        assertThrows(IllegalArgumentException.class, () -> RateSchedule.parse("10@1.0"));
+    }
+}